@@ -0,0 +1,40 @@
+package hotel;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of loading and saving the whole hotel, each run against a hotel of every size in HotelState. Every
+ * import reads the files the hotel was loaded from, so the tables end up the same, and every save overwrites the
+ * same files in the trial's temporary directory.
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DataFileBenchmark {
+
+    @Benchmark
+    public boolean importAllData(HotelState state) {
+        return state.hotel.importAllData(state.file("rooms.txt"), state.file("guests.txt"), state.file("bookings.txt"), state.file("payments.txt"));
+    }
+
+    @Benchmark
+    public boolean importAllDataFast(HotelState state) {
+        return state.hotel.importAllDataFast(state.file("rooms.txt"), state.file("guests.txt"), state.file("bookings.txt"), state.file("payments.txt"));
+    }
+
+    @Benchmark
+    public boolean saveAllData(HotelState state) {
+        return state.hotel.saveAllData(state.file("rooms.out"), state.file("guests.out"), state.file("bookings.out"), state.file("payments.out"));
+    }
+}
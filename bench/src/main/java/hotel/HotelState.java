@@ -0,0 +1,154 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A loaded hotel for the benchmarks, with the number of rooms, guests and bookings as parameters. The data files are
+ * written by DataGenerator once per trial into a temporary directory and imported with importAllDataFast.
+ *
+ * The queries are drawn up front, 1024 of each, so the benchmarks measure the engine and not the making of
+ * arguments: existing guest names, stays inside the booked period, and room types.
+ */
+
+@State(Scope.Benchmark)
+public class HotelState {
+
+    static final int QUERIES = 1024; // A power of two, so a query index is a mask away
+    static final String[] ROOM_TYPES = {"double", "twin", "single", "family"};
+
+    @Param({"1000"})
+    public int rooms;
+
+    @Param({"10000"})
+    public int guests;
+
+    @Param({"1000", "100000", "1000000"})
+    public int bookings;
+
+    HotelImpl hotel;
+    Path dir;
+
+    final String[] firstNames = new String[QUERIES];
+    final String[] lastNames = new String[QUERIES];
+    final long[] guestIDs = new long[QUERIES];
+    final long[] roomNumbers = new long[QUERIES];
+    final String[] roomTypes = new String[QUERIES];
+    final Date[] checkIns = new Date[QUERIES];
+    final Date[] checkOuts = new Date[QUERIES];
+
+    // New bookings go after the last booked night, one night each, filling every room of a type before moving on
+    private long firstFreeDay;
+    private final int[] roomsOfType = new int[ROOM_TYPES.length];
+    private final AtomicLong nextBooking = new AtomicLong();
+    private final Date[] freeNights = new Date[1 << 16];
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        dir = Files.createTempDirectory("hotel-bench");
+        DataGenerator generator = new DataGenerator(rooms, guests, bookings);
+        if (!generator.write(dir.toString())) {throw new IllegalStateException("The benchmark data could not be written to " + dir);}
+        Path empty = Files.createFile(dir.resolve("empty.txt"));
+        hotel = new HotelImpl(empty.toString(), empty.toString(), empty.toString(), empty.toString());
+        if (!hotel.importAllDataFast(file("rooms.txt"), file("guests.txt"), file("bookings.txt"), file("payments.txt"))) {
+            throw new IllegalStateException("The benchmark data could not be imported from " + dir);
+        }
+
+        ArrayList<HotelImpl.Guest> everyone = new ArrayList<HotelImpl.Guest>(HotelImpl.guestList);
+        everyone.addAll(HotelImpl.vipGuestList);
+        ArrayList<HotelImpl.Room> rooms = new ArrayList<HotelImpl.Room>(HotelImpl.roomList);
+        for (HotelImpl.Room room : rooms) {
+            for (int type = 0; type < ROOM_TYPES.length; type++) {
+                if (ROOM_TYPES[type].equalsIgnoreCase(room.getRoomType())) {roomsOfType[type]++;}
+            }
+        }
+        long today = LocalDate.now().toEpochDay();
+        long lastCheckOut = day(generator.getLastCheckOutDate());
+        long firstDay = today - 365;
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            HotelImpl.Guest guest = everyone.get(random.nextInt(everyone.size()));
+            firstNames[i] = guest.getfName();
+            lastNames[i] = guest.getlName();
+            guestIDs[i] = guest.getGuestID();
+            HotelImpl.Room room = rooms.get(random.nextInt(rooms.size()));
+            roomNumbers[i] = room.getRoomNumber();
+            roomTypes[i] = room.getRoomType().toLowerCase(Locale.ROOT);
+            long checkIn = firstDay + (long) (random.nextDouble() * Math.max(lastCheckOut - firstDay - 7, 1));
+            checkIns[i] = date(checkIn);
+            checkOuts[i] = date(checkIn + 1 + random.nextInt(5));
+        }
+        firstFreeDay = Math.max(lastCheckOut, today + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    String file(String name) {
+        return dir.resolve(name).toString();
+    }
+
+    private static long day(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static Date date(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * A number for the next new booking, which picks its type and its free night
+     */
+
+    long nextBooking() {
+        return nextBooking.getAndIncrement();
+    }
+
+    /**
+     * The room type of a new booking, going round the types the hotel has
+     */
+
+    String nextType(long booking) {
+        int type = (int) (booking % ROOM_TYPES.length);
+        while (roomsOfType[type] == 0) {type = (type + 1) % ROOM_TYPES.length;}
+        return ROOM_TYPES[type];
+    }
+
+    /**
+     * The free night of a new booking, each room of its type taking one booking that night
+     */
+
+    Date freeNight(long booking, int plusDays) {
+        int type = (int) (booking % ROOM_TYPES.length);
+        while (roomsOfType[type] == 0) {type = (type + 1) % ROOM_TYPES.length;}
+        int day = (int) (booking / ROOM_TYPES.length / roomsOfType[type]) + plusDays;
+        if (day >= freeNights.length) {return date(firstFreeDay + day);}
+        Date night = freeNights[day];
+        if (night == null) {
+            night = date(firstFreeDay + day);
+            freeNights[day] = night;
+        }
+        return night;
+    }
+}
@@ -0,0 +1,78 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the single-record operations of the hotel, each run against a hotel of every size in HotelState.
+ *
+ * makeBooking books one free night after the booked period, so it never fails and the bookings grow as it runs, the
+ * way they do at the front desk. cancelBooking books a night and cancels it again, keeping the tables the same size;
+ * its cost is the difference with makeBooking.
+ */
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class OperationBenchmark {
+
+    /**
+     * The next query of each benchmark thread
+     */
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            return next++ & (HotelState.QUERIES - 1);
+        }
+    }
+
+    @Benchmark
+    public boolean makeBooking(HotelState state, Cursor cursor) {
+        long booking = state.nextBooking();
+        return state.hotel.makeBooking(state.nextType(booking), state.guestIDs[cursor.next()],
+                state.freeNight(booking, 0), state.freeNight(booking, 1));
+    }
+
+    @Benchmark
+    public boolean checkRoomAvailable(HotelState state, Cursor cursor) {
+        int i = cursor.next();
+        return state.hotel.checkRoomAvailable(state.roomNumbers[i], state.checkIns[i], state.checkOuts[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Long> findAvailableRooms(HotelState state, Cursor cursor) {
+        int i = cursor.next();
+        return state.hotel.findAvailableRooms(state.roomTypes[i], state.checkIns[i], state.checkOuts[i]);
+    }
+
+    @Benchmark
+    public ArrayList<Long> searchGuest(HotelState state, Cursor cursor) {
+        int i = cursor.next();
+        return state.hotel.searchGuest(state.firstNames[i], state.lastNames[i]);
+    }
+
+    @Benchmark
+    public boolean cancelBooking(HotelState state, Cursor cursor) {
+        long booking = state.nextBooking();
+        ArrayList<BookingRequest> requests = new ArrayList<BookingRequest>(1);
+        requests.add(new BookingRequest(state.nextType(booking), state.guestIDs[cursor.next()],
+                state.freeNight(booking, 0), state.freeNight(booking, 1)));
+        ArrayList<Long> booked = state.hotel.makeGroupBooking(requests);
+        return booked != null && state.hotel.cancelBooking(booked.get(0));
+    }
+}
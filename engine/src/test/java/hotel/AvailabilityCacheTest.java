@@ -0,0 +1,98 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A booking or a cancellation drops only the cached searches of its room type whose stay shares a night with it,
+ * adding or removing a room drops those of its room type, and a result worked out before a change is not stored.
+ */
+
+class AvailabilityCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private HotelImpl hotel;
+
+    @BeforeEach
+    void openHotel() throws IOException {
+        hotel = TestHotel.open(dir);
+        hotel.findAvailableRooms("double", day(10), day(12));
+        hotel.findAvailableRooms("double", day(20), day(22));
+        hotel.findAvailableRooms("single", day(10), day(12));
+    }
+
+    @Test
+    void aBookingDropsOnlyTheOverlappingStaysOfItsType() {
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(11), day(12)));
+        assertNull(cached("double", 10, 12));
+        assertNotNull(cached("double", 20, 22));
+        assertNotNull(cached("single", 10, 12));
+        assertEquals(1, hotel.findAvailableRooms("double", day(10), day(12)).size(), "worked out again");
+    }
+
+    @Test
+    void aCancellationDropsOnlyTheOverlappingStaysOfItsType() {
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(20), day(21)));
+        hotel.findAvailableRooms("double", day(10), day(12));
+        assertTrue(hotel.cancelBooking(hotel.getBookingsOnDate(day(20)).get(0)));
+        assertNull(cached("double", 20, 22));
+        assertNotNull(cached("double", 10, 12));
+        assertNotNull(cached("single", 10, 12));
+        assertEquals(2, hotel.findAvailableRooms("double", day(20), day(22)).size());
+    }
+
+    @Test
+    void addingOrRemovingARoomDropsItsType() {
+        assertTrue(hotel.addRoom(103, "double", 80.00, 2, "own bathroom"));
+        assertNull(cached("double", 10, 12));
+        assertNull(cached("double", 20, 22));
+        assertNotNull(cached("single", 10, 12));
+        assertEquals(3, hotel.findAvailableRooms("double", day(10), day(12)).size());
+
+        assertTrue(hotel.removeRoom(201));
+        assertNull(cached("single", 10, 12));
+        assertNotNull(cached("double", 10, 12));
+    }
+
+    @Test
+    void aResultWorkedOutBeforeAChangeIsNotStored() {
+        AvailabilityCache cache = new AvailabilityCache(10);
+        long version = cache.version("double");
+        cache.invalidate(101, EpochDays.of(day(30)), EpochDays.of(day(31))); // A booking made while the search ran
+        cache.put("DOUBLE", EpochDays.of(day(10)), EpochDays.of(day(12)), new Long[]{101L, 102L}, version);
+        assertNull(cache.get("double", EpochDays.of(day(10)), EpochDays.of(day(12))));
+        assertEquals(1, cache.stats().getRejected());
+
+        cache.put("Double", EpochDays.of(day(10)), EpochDays.of(day(12)), new Long[]{101L, 102L}, cache.version("double"));
+        assertArrayEquals(new Long[]{101L, 102L}, cache.get("double", EpochDays.of(day(10)), EpochDays.of(day(12))));
+    }
+
+    @Test
+    void dropsTheLeastRecentlyUsedWhenFull() {
+        AvailabilityCache cache = new AvailabilityCache(2);
+        cache.put("double", 1, 2, new Long[]{101L}, cache.version("double"));
+        cache.put("double", 2, 3, new Long[]{102L}, cache.version("double"));
+        assertNotNull(cache.get("double", 1, 2));
+        cache.put("single", 1, 2, new Long[]{201L}, cache.version("single"));
+        assertNull(cache.get("double", 2, 3));
+        assertNotNull(cache.get("double", 1, 2));
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    private Long[] cached(String roomType, int checkIn, int checkOut) {
+        return HotelImpl.availabilityCache.get(roomType, EpochDays.of(day(checkIn)), EpochDays.of(day(checkOut)));
+    }
+}
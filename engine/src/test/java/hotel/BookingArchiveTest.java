@@ -0,0 +1,173 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * The booking archive gives back every booking written to it, drops a segment whose bytes do not match its CRC, and
+ * keeps the IDs of the bookings it holds from being given out again after a restart.
+ */
+
+class BookingArchiveTest {
+
+    private static final int ROWS = BookingArchive.SEGMENT_ROWS + 100; // A full segment and a short one
+
+    @TempDir
+    Path dir;
+
+    private HotelImpl hotel;
+
+    @AfterEach
+    void closeArchive() {
+        if (hotel != null) {hotel.closeArchive();} // The open archive belongs to every HotelImpl
+    }
+
+    @Test
+    void givesBackEveryBookingAfterReopening() throws IOException {
+        Path file = dir.resolve("bookings.archive");
+        BookingArchive archive = BookingArchive.open(file.toString());
+        for (int i = 0; i < ROWS; i++) {archive.add(booking(i), BookingArchive.CANCELLED, 20000 + i);}
+        archive.close();
+
+        archive = BookingArchive.open(file.toString());
+        try {
+            assertEquals(ROWS, archive.size());
+            assertEquals(2, archive.segmentCount());
+            for (int guest = 0; guest < 7; guest++) {
+                ArrayList<Long> ids = new ArrayList<Long>();
+                long guestID = 5000 + guest;
+                archive.guestBookings(guestID, (rows, row) -> {
+                    assertEquals(guestID, rows.guestIDs[row]);
+                    assertEquals(BookingArchive.CANCELLED, rows.statuses[row]);
+                    Booking original = booking((int) (rows.bookingIDs[row] - 1));
+                    assertEquals(original.getCheckInDay(), rows.checkInDays[row]);
+                    assertEquals(original.getCheckOutDay(), rows.checkOutDays[row]);
+                    assertEquals(original.getTotalAmount(), rows.amounts[row]);
+                    ids.add(rows.bookingIDs[row]);
+                });
+                ArrayList<Long> expected = new ArrayList<Long>();
+                for (int i = guest; i < ROWS; i += 7) {expected.add(i + 1L);}
+                assertEquals(expected, ids); // In the order they were archived
+            }
+            int[] checkIns = new int[1];
+            archive.checkIns(20010, 20019, (rows, row) -> checkIns[0]++);
+            int expectedCheckIns = 0;
+            for (int i = 0; i < ROWS; i++) {if (i % 40 >= 20 && i % 40 < 30) {expectedCheckIns++;}}
+            assertEquals(expectedCheckIns, checkIns[0]);
+            assertEquals(ROWS, archive.maxBookingID());
+            assertEquals(5006, archive.maxGuestID());
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test
+    void dropsASegmentWithACorruptedHeader() throws IOException {
+        assertCorruptionDropsTheLastSegment(BookingArchive.SEGMENT_HEADER_BYTES - 1); // The highest guest ID
+        assertCorruptionDropsTheLastSegment(17); // The first day
+    }
+
+    @Test
+    void dropsASegmentWithACorruptedBlock() throws IOException {
+        assertCorruptionDropsTheLastSegment(BookingArchive.SEGMENT_HEADER_BYTES + 100);
+    }
+
+    @Test
+    void dropsASegmentCutShort() throws IOException {
+        Path file = writeTwoSegments();
+        long length = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(length - 3);
+        }
+        BookingArchive archive = BookingArchive.open(file.toString());
+        try {
+            assertEquals(BookingArchive.SEGMENT_ROWS, archive.size());
+        } finally {
+            archive.close();
+        }
+    }
+
+    @Test
+    void neverGivesOutAnArchivedIDAgain() throws IOException {
+        Path archiveFile = dir.resolve("bookings.archive");
+        hotel = TestHotel.open(dir, TestHotel.booking(100010, TestHotel.OTHER_GUEST, 101, -5, -2), TestHotel.booking(100011, 102, 10, 12));
+        assertTrue(hotel.openArchive(archiveFile.toString()));
+        assertEquals(1, hotel.archiveCompletedBookings());
+        assertTrue(hotel.cancelBooking(100011));
+        assertTrue(hotel.removeGuest(TestHotel.OTHER_GUEST));
+        assertTrue(TestHotel.save(hotel, dir)); // The data files no longer hold either booking or guest 10002
+        assertTrue(hotel.closeArchive());
+
+        hotel = TestHotel.reopen(dir);
+        assertTrue(hotel.openArchive(archiveFile.toString()));
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(10), day(12)));
+        long bookingID = hotel.getBookingsOnDate(day(10)).get(0);
+        assertTrue(bookingID > 100011, "booking " + bookingID + " after archived booking 100011");
+        assertTrue(hotel.addGuest("New", "Guest", false));
+        long guestID = hotel.searchGuest("New", "Guest").get(0);
+        assertTrue(guestID > TestHotel.OTHER_GUEST, "guest " + guestID + " after removed guest " + TestHotel.OTHER_GUEST);
+    }
+
+    private void assertCorruptionDropsTheLastSegment(long offsetInSegment) throws IOException {
+        Path file = writeTwoSegments();
+        long segmentStart = lastSegmentStart(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(segmentStart + offsetInSegment);
+            int b = raf.read();
+            raf.seek(segmentStart + offsetInSegment);
+            raf.write(b ^ 0x10);
+        }
+        BookingArchive archive = BookingArchive.open(file.toString());
+        try {
+            assertEquals(BookingArchive.SEGMENT_ROWS, archive.size());
+            assertEquals(1, archive.segmentCount());
+            assertEquals(segmentStart, Files.size(file), "the bad segment is cut off");
+        } finally {
+            archive.close();
+        }
+        Files.delete(file);
+    }
+
+    private Path writeTwoSegments() throws IOException {
+        Path file = dir.resolve("segments.archive");
+        BookingArchive archive = BookingArchive.open(file.toString());
+        for (int i = 0; i < ROWS; i++) {archive.add(booking(i), BookingArchive.COMPLETED, 20000 + i);}
+        archive.close();
+        return file;
+    }
+
+    private static long lastSegmentStart(Path file) throws IOException {
+        BookingArchive archive = BookingArchive.open(file.toString());
+        try {
+            assertEquals(ROWS, archive.size());
+        } finally {
+            archive.close();
+        }
+        // Only the first segment is left once the second is dropped, so its end is where the second starts
+        Path copy = file.resolveSibling("first.archive");
+        BookingArchive first = BookingArchive.open(copy.toString());
+        for (int i = 0; i < BookingArchive.SEGMENT_ROWS; i++) {first.add(booking(i), BookingArchive.COMPLETED, 20000 + i);}
+        first.close();
+        long start = Files.size(copy);
+        Files.delete(copy);
+        return start;
+    }
+
+    private static Booking booking(int i) {
+        int checkIn = 19990 + i % 40;
+        return new Booking(i + 1, 5000 + i % 7, 100 + i % 50, checkIn - 30, checkIn, checkIn + 1 + i % 5, 80.0 + i);
+    }
+}
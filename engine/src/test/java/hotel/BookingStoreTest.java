@@ -0,0 +1,134 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The booking store gives back every row it was given, across blocks, and its cursors follow the bookings of one
+ * room or one guest newest first. A room is free exactly when a scan of all its bookings finds none sharing a night,
+ * even when an old long stay reaches past the shorter ones after it.
+ */
+
+class BookingStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void givesBackEveryRowAcrossBlocks() {
+        BookingStore store = new BookingStore();
+        int rows = 70000; // More than one block of 65536
+        for (int i = 0; i < rows; i++) {store.append(i + 1, 10000 + i % 7, 100 + i % 5, 20000, 20000 + i, 20001 + i, i * 0.5);}
+        assertEquals(rows, store.size());
+        BookingStore.Cursor cursor = store.cursor().all();
+        int seen = 0;
+        while (cursor.next()) {
+            int i = cursor.getRow();
+            assertEquals(seen, i);
+            assertEquals(i + 1, cursor.getBookingID());
+            assertEquals(10000 + i % 7, cursor.getGuestID());
+            assertEquals(100 + i % 5, cursor.getRoomNumber());
+            assertEquals(20000 + i, cursor.getCheckInDay());
+            assertEquals(1, cursor.getNights());
+            assertEquals(i * 0.5, cursor.getTotalAmount());
+            seen++;
+        }
+        assertEquals(rows, seen);
+        assertEquals(66000, store.rowOf(66001));
+        assertTrue(cursor.find(66001));
+        assertEquals(100 + 66000 % 5, cursor.getRoomNumber());
+        assertEquals(BookingStore.NONE, store.rowOf(rows + 1));
+        assertFalse(cursor.find(0));
+    }
+
+    @Test
+    void followsARoomAndAGuestNewestFirst() {
+        BookingStore store = new BookingStore();
+        store.append(1, 10001, 101, 20000, 20010, 20012, 160);
+        store.append(2, 10002, 102, 20000, 20010, 20012, 160);
+        store.append(3, 10002, 101, 20000, 20020, 20022, 160);
+        store.append(4, 10001, 101, 20000, 20030, 20031, 80);
+        assertEquals(Arrays.asList(4L, 3L, 1L), ids(store.cursor().room(101)));
+        assertEquals(Arrays.asList(2L), ids(store.cursor().room(102)));
+        assertEquals(Arrays.asList(4L, 1L), ids(store.cursor().guest(10001)));
+        assertEquals(Arrays.asList(), ids(store.cursor().room(999)));
+    }
+
+    @Test
+    void findsBookingsWhoseIDsAreOutOfOrder() {
+        BookingStore store = new BookingStore();
+        store.append(5, 10001, 101, 20000, 20010, 20011, 80);
+        store.append(9, 10001, 101, 20000, 20011, 20012, 80);
+        store.append(7, 10001, 101, 20000, 20012, 20013, 80); // No longer ascending, a lookup scans
+        assertEquals(0, store.rowOf(5));
+        assertEquals(1, store.rowOf(9));
+        assertEquals(2, store.rowOf(7));
+        assertEquals(BookingStore.NONE, store.rowOf(8));
+    }
+
+    @Test
+    void isFreeMatchesAScanOfTheRoom() {
+        BookingStore store = new BookingStore();
+        store.append(1, 10001, 101, 20000, 20000, 20100, 8000); // A long stay that later, shorter stays end before
+        store.append(2, 10001, 101, 20000, 20010, 20012, 160);
+        store.append(3, 10001, 101, 20000, 20200, 20201, 80);
+        assertFalse(store.isFree(101, 20050, 20051), "only the oldest booking holds this night");
+        assertTrue(store.isFree(101, 20100, 20200));
+        assertFalse(store.isFree(101, 20199, 20201));
+        assertTrue(store.isFree(102, 20000, 20300));
+
+        Random random = new Random(3);
+        BookingStore many = new BookingStore();
+        for (int i = 0; i < 2000; i++) {
+            int checkIn = 20000 + random.nextInt(3000);
+            many.append(i + 1, 10001, 100 + random.nextInt(4), 20000, checkIn, checkIn + 1 + random.nextInt(random.nextInt(20) == 0 ? 200 : 7), 80);
+        }
+        for (int i = 0; i < 5000; i++) {
+            long room = 100 + random.nextInt(4);
+            int checkIn = 19990 + random.nextInt(3300);
+            int checkOut = checkIn + 1 + random.nextInt(10);
+            boolean free = true;
+            for (BookingStore.Cursor cursor = many.cursor().all(); cursor.next();) {
+                if (cursor.getRoomNumber() == room && cursor.getCheckInDay() < checkOut && cursor.getCheckOutDay() > checkIn) {free = false;}
+            }
+            assertEquals(free, many.isFree(room, checkIn, checkOut), "room " + room + " from " + checkIn + " to " + checkOut);
+        }
+    }
+
+    @Test
+    void loadsABookingsFile() throws IOException {
+        Path file = dir.resolve("bookings.txt");
+        TestHotel.write(file, TestHotel.booking(1, 101, 10, 12), "", TestHotel.booking(2, TestHotel.OTHER_GUEST, 102, 20, 23));
+        BookingStore store = new BookingStore();
+        assertEquals(2, store.load(file.toString()));
+        BookingStore.Cursor cursor = store.cursor();
+        assertTrue(cursor.find(2));
+        assertEquals(TestHotel.OTHER_GUEST, cursor.getGuestID());
+        assertEquals(EpochDays.of(TestHotel.day(20)), cursor.getCheckInDay());
+        assertEquals(3, cursor.getNights());
+        assertEquals(80.0, cursor.getTotalAmount());
+
+        TestHotel.write(file, TestHotel.booking(3, 101, 10, 12), "3,10001,x");
+        IOException bad = assertThrows(IOException.class, () -> store.load(file.toString()));
+        assertTrue(bad.getMessage().startsWith("Line 2 of "), bad.getMessage());
+        assertEquals(3, store.size(), "the lines before the bad one are kept");
+    }
+
+    private static List<Long> ids(BookingStore.Cursor cursor) {
+        List<Long> ids = new ArrayList<Long>();
+        while (cursor.next()) {ids.add(cursor.getBookingID());}
+        return ids;
+    }
+}
@@ -0,0 +1,59 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The field cursor reads the numbers of a line in place, exactly as Long.parseLong and Double.parseDouble would, and
+ * refuses a number too big for its type rather than wrapping it round to another ID.
+ */
+
+class FastImporterTest {
+
+    @Test
+    void readsTheFieldsOfALine() {
+        FastImporter.FieldCursor line = cursor("100042,-7,80.25,2,own bathroom");
+        assertEquals(5, line.fieldsLeft());
+        assertEquals(100042L, line.nextLong());
+        assertEquals(-7L, line.nextLong());
+        assertEquals(80.25, line.nextDouble());
+        assertEquals(2, line.nextInt());
+        assertEquals("own bathroom", line.nextString());
+    }
+
+    @Test
+    void readsTheBiggestLong() {
+        assertEquals(Long.MAX_VALUE, cursor(Long.toString(Long.MAX_VALUE)).nextLong());
+        assertEquals(-Long.MAX_VALUE, cursor(Long.toString(-Long.MAX_VALUE)).nextLong());
+    }
+
+    @Test
+    void refusesANumberTooBigForALong() {
+        assertThrows(NumberFormatException.class, () -> cursor("9223372036854775808").nextLong()); // Long.MAX_VALUE + 1
+        assertThrows(NumberFormatException.class, () -> cursor("18446744073709551617").nextLong()); // 2^64 + 1, which wraps to 1
+        assertThrows(NumberFormatException.class, () -> cursor("-99999999999999999999").nextLong());
+    }
+
+    @Test
+    void refusesANumberTooBigForAnInt() {
+        assertEquals(Integer.MAX_VALUE, cursor("2147483647").nextInt());
+        assertThrows(NumberFormatException.class, () -> cursor("4294967298").nextInt()); // 2^32 + 2, which casts to 2
+    }
+
+    @Test
+    void refusesAFieldThatIsNotANumber() {
+        assertThrows(NumberFormatException.class, () -> cursor("").nextLong());
+        assertThrows(NumberFormatException.class, () -> cursor("12a4").nextLong());
+    }
+
+    private static FastImporter.FieldCursor cursor(String text) {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        FastImporter.FieldCursor line = new FastImporter.FieldCursor(data);
+        line.reset(0, data.length);
+        return line;
+    }
+}
@@ -0,0 +1,103 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static hotel.TestHotel.group;
+import static hotel.TestHotel.request;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * makeGroupBooking books every room of a group or none of them.
+ */
+
+class GroupBookingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void booksEveryRoomOfTheGroup() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        ArrayList<Long> ids = hotel.makeGroupBooking(group(request("double", 10, 12), request("double", 10, 12), request("single", 10, 11)));
+        assertNotNull(ids);
+        assertEquals(3, ids.size());
+        assertEquals(ids, hotel.getBookingsOnDate(day(10))); // Ordered by room number, as the requests were
+        assertNull(hotel.findAvailableRooms("double", day(10), day(12))); // null when no room is free
+    }
+
+    @Test
+    void booksNothingWhenOneRoomIsMissing() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        assertNull(hotel.makeGroupBooking(group(request("double", 10, 12), request("single", 10, 12), request("single", 10, 12))));
+        assertNothingBooked(hotel);
+    }
+
+    @Test
+    void booksNothingWhenOneRequestIsInvalid() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        BookingRequest unknownGuest = new BookingRequest("double", 99999, day(10), day(12));
+        assertNull(hotel.makeGroupBooking(group(request("double", 10, 12), unknownGuest)));
+        assertNull(hotel.makeGroupBooking(group(request("double", 10, 12), request("single", 12, 12))));
+        assertNothingBooked(hotel);
+    }
+
+    @Test
+    void neverGivesOneRoomToTwoOverlappingRequests() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        ArrayList<Long> ids = hotel.makeGroupBooking(group(request("double", 10, 12), request("double", 11, 13)));
+        assertNotNull(ids);
+        assertEquals(2, hotel.getBookingsOnDate(day(11)).size());
+        assertNull(hotel.makeGroupBooking(group(request("double", 20, 22), request("double", 21, 23), request("double", 21, 22))));
+        assertEquals(Collections.emptyList(), hotel.getBookingsOnDate(day(20)));
+    }
+
+    @Test
+    void roomsFollowingEachOtherCanBeShared() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        ArrayList<Long> ids = hotel.makeGroupBooking(group(request("single", 10, 12), request("single", 12, 14)));
+        assertNotNull(ids);
+        assertNotEquals(ids.get(0), ids.get(1));
+        assertEquals(Collections.singletonList(ids.get(0)), hotel.getBookingsOnDate(day(11)));
+        assertEquals(Collections.singletonList(ids.get(1)), hotel.getBookingsOnDate(day(12)));
+    }
+
+    @Test
+    void anEmptyGroupIsRefusedWithoutJournalling() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir);
+        Path journalFile = dir.resolve("hotel.journal");
+        assertTrue(hotel.openJournal(journalFile.toString()));
+        try {
+            long length = Files.size(journalFile);
+            assertNull(hotel.makeGroupBooking(group()));
+            assertEquals(length, Files.size(journalFile));
+        } finally {
+            hotel.closeJournal();
+        }
+    }
+
+    @Test
+    void aClashWithAnExistingBookingFailsTheWholeGroup() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir, TestHotel.booking(1, 201, 11, 12));
+        assertNull(hotel.makeGroupBooking(group(request("double", 10, 12), request("single", 10, 12))));
+        assertEquals(Collections.singletonList(1L), hotel.getBookingsOnDate(day(11)));
+        assertTrue(hotel.checkRoomAvailable(101, day(10), day(12)));
+        assertTrue(hotel.checkRoomAvailable(102, day(10), day(12)));
+    }
+
+    private static void assertNothingBooked(HotelImpl hotel) {
+        for (int night = 10; night < 12; night++) {assertEquals(Collections.emptyList(), hotel.getBookingsOnDate(day(night)));}
+        assertEquals(0.0, hotel.getIncomeOnDate(new Date()));
+    }
+}
@@ -0,0 +1,135 @@
+package hotel;
+
+import static hotel.TestHotel.date;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Guests are found by the start of their last name, in order of last name and then first name, and by a name that
+ * may be misspelt, nearest first. Both ignore case and accents and find VIP guests among the others.
+ */
+
+class GuestSearchTest {
+
+    private static final long EVE_COOP = 20001;
+    private static final long ANNA_COOPER = 20002;
+    private static final long BOB_COOPERSMITH = 20003;
+    private static final long DAN_MULLER = 20005;
+    private static final long FINN_COOPER = 20006; // A VIP guest
+    private static final long SARAH_HOOPER = 20007;
+    private static final long SARA_HOPPER = 20008;
+    private static final long ANNE_MARIE_HOOPER = 20009;
+
+    @TempDir
+    Path dir;
+
+    private HotelImpl hotel;
+    private long chloeMuller;
+
+    @BeforeEach
+    void openHotel() throws IOException {
+        TestHotel.open(dir);
+        TestHotel.write(dir.resolve("guests.txt"),
+                TestHotel.GUEST + ",John,Cooper," + date(-100),
+                TestHotel.OTHER_GUEST + ",Sally,Piper," + date(-50),
+                EVE_COOP + ",Eve,Coop," + date(-10),
+                ANNA_COOPER + ",Anna,Cooper," + date(-10),
+                BOB_COOPERSMITH + ",Bob,Coopersmith," + date(-10),
+                DAN_MULLER + ",Dan,Muller," + date(-10),
+                FINN_COOPER + ",Finn,Cooper," + date(-10) + "," + date(-10) + "," + date(355),
+                SARAH_HOOPER + ",Sarah,Hooper," + date(-10),
+                SARA_HOPPER + ",Sara,Hopper," + date(-10),
+                ANNE_MARIE_HOOPER + ",Anne Marie,Hooper," + date(-10));
+        hotel = TestHotel.reopen(dir);
+        assertTrue(hotel.addGuest("Chloé", "Müller", false)); // Added here, the data files are read in the platform charset
+        chloeMuller = hotel.searchGuest("Chloé", "Müller").get(0);
+    }
+
+    @Test
+    void findsLastNamesByTheirStartInNameOrder() {
+        assertEquals(Arrays.asList(EVE_COOP, ANNA_COOPER, FINN_COOPER, TestHotel.GUEST, BOB_COOPERSMITH), byPrefix("Coop"));
+        assertEquals(Arrays.asList(ANNA_COOPER, FINN_COOPER, TestHotel.GUEST, BOB_COOPERSMITH), byPrefix("COOPE"));
+        assertEquals(Arrays.asList(BOB_COOPERSMITH), byPrefix("coopers"));
+        assertEquals(Arrays.asList(TestHotel.OTHER_GUEST), byPrefix("Piper"));
+    }
+
+    @Test
+    void takesTheStarTypedAtReception() {
+        assertEquals(byPrefix("Coop"), byPrefix("Coop*"));
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertEquals(Arrays.asList(chloeMuller, DAN_MULLER), byPrefix("MÜL"));
+        assertEquals(Arrays.asList(chloeMuller, DAN_MULLER), byPrefix("mul"));
+        assertEquals(Arrays.asList(chloeMuller), hotel.searchGuest("CHLOE", "muller"));
+        assertEquals(Arrays.asList(DAN_MULLER), hotel.searchGuest("Dan", "Müller"));
+    }
+
+    @Test
+    void findsNothingForAnUnknownStart() {
+        assertEquals(Collections.emptyList(), byPrefix("Coq"));
+        assertEquals(Collections.emptyList(), byPrefix("Coopersmiths"));
+    }
+
+    @Test
+    void findsAGuestAddedAfterTheImport() {
+        assertTrue(hotel.addGuest("Gail", "Cooperton", false));
+        List<Long> found = byPrefix("Cooper");
+        assertEquals(5, found.size());
+        assertEquals(BOB_COOPERSMITH, found.get(3));
+        assertEquals(hotel.searchGuest("Gail", "Cooperton"), found.subList(4, 5));
+    }
+
+    @Test
+    void ranksMisspeltNamesByEditDistance() {
+        assertEquals(Arrays.asList(SARAH_HOOPER, SARA_HOPPER), hotel.searchGuestFuzzy("sarah hoopern", 5)); // 0+1, then 1+2
+        // Hooper is one edit away, then Cooper and Hopper two, the same distance ranked by ID
+        assertEquals(Arrays.asList(SARAH_HOOPER, ANNE_MARIE_HOOPER, TestHotel.GUEST, ANNA_COOPER, FINN_COOPER),
+                hotel.searchGuestFuzzy("Hoopern", 5));
+        assertEquals(Arrays.asList(ANNE_MARIE_HOOPER), hotel.searchGuestFuzzy("marie hooper", 5), "any word of the name");
+    }
+
+    @Test
+    void givesAtMostKGuests() {
+        assertEquals(Arrays.asList(SARAH_HOOPER, ANNE_MARIE_HOOPER), hotel.searchGuestFuzzy("Hoopern", 2));
+        assertEquals(Collections.emptyList(), hotel.searchGuestFuzzy("Hoopern", 0));
+    }
+
+    @Test
+    void fuzzySearchIgnoresCaseAndAccentsAndFindsVIPs() {
+        assertEquals(Arrays.asList(DAN_MULLER, chloeMuller), hotel.searchGuestFuzzy("MULER", 5)); // Equal distance, lower ID first
+        assertEquals(Arrays.asList(FINN_COOPER), hotel.searchGuestFuzzy("fin cooper", 5));
+    }
+
+    @Test
+    void fuzzySearchFindsNothingTooFarOff() {
+        assertEquals(Collections.emptyList(), hotel.searchGuestFuzzy("Zzyzx", 5));
+        assertEquals(Collections.emptyList(), hotel.searchGuestFuzzy("sarah zzyzx", 5), "every word must match");
+        assertEquals(Collections.emptyList(), hotel.searchGuestFuzzy("  ", 5));
+    }
+
+    @Test
+    void fuzzySearchFindsAGuestAddedAfterTheImport() {
+        assertTrue(hotel.addGuest("Gail", "Hoopers", false));
+        assertEquals(hotel.searchGuest("Gail", "Hoopers"), hotel.searchGuestFuzzy("gail hooper", 5));
+    }
+
+    private List<Long> byPrefix(String prefix) {
+        ArrayList<Long> found = new ArrayList<Long>();
+        for (Iterator<Long> ids = hotel.searchGuestByPrefix(prefix); ids.hasNext();) {found.add(ids.next());}
+        return found;
+    }
+}
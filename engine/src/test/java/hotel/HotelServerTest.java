@@ -0,0 +1,121 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Every call made through the client gives what the same call on the hotel gives, reports come through whole, and
+ * clients racing for the same room get it once between them.
+ */
+
+class HotelServerTest {
+
+    @TempDir
+    Path dir;
+
+    private HotelImpl hotel;
+    private HotelServer server;
+    private HotelClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        hotel = TestHotel.open(dir, TestHotel.booking(1, 101, 10, 12));
+        server = new HotelServer(hotel, 0);
+        client = new HotelClient(server.getPort());
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void callsGiveWhatTheHotelGives() {
+        assertTrue(client.ping());
+        assertTrue(client.addRoom(301, "suite", 150.00, 4, "balcony"));
+        assertFalse(client.addRoom(301, "suite", 150.00, 4, "balcony"), "the room is there already");
+        assertTrue(client.addGuest("Ana", "Nuñez", false));
+        long ana = client.searchGuest("Ana", "Nuñez").get(0);
+        assertEquals(hotel.searchGuest("Ana", "Nuñez"), client.searchGuest("Ana", "Nuñez"));
+
+        assertFalse(client.checkRoomAvailable(101, day(11), day(12)));
+        assertEquals(Arrays.asList(102L), client.findAvailableRooms("double", day(10), day(12)));
+        assertTrue(client.makeBooking("suite", ana, day(10), day(13)));
+        assertEquals(hotel.getBookingsOnDate(day(10)), client.getBookingsOnDate(day(10)));
+        assertEquals(2, client.getBookingsOnDate(day(10)).size());
+
+        ArrayList<Long> group = client.makeGroupBooking(TestHotel.group(TestHotel.request("double", 20, 22), TestHotel.request("single", 20, 22)));
+        assertEquals(2, group.size());
+        assertNull(client.makeGroupBooking(TestHotel.group(TestHotel.request("single", 20, 21))), "the single is taken");
+        assertTrue(client.cancelBooking(group.get(1)));
+        assertFalse(client.cancelBooking(group.get(1)));
+        assertEquals(hotel.getIncomeOnDate(day(0)), client.getIncomeOnDate(day(0)));
+
+        assertFalse(client.removeRoom(301), "Ana still has it booked");
+        assertTrue(client.addRoom(302, "suite", 150.00, 4, "balcony"));
+        assertTrue(client.removeRoom(302));
+        assertEquals(Arrays.asList(301L), hotel.findAvailableRooms("suite", day(20), day(21)));
+        assertFalse(client.removeGuest(99999));
+        assertEquals(Collections.emptyList(), client.searchGuest("No", "One"));
+    }
+
+    @Test
+    void reportsComeThroughWhole() throws IOException {
+        for (int i = 0; i < 300; i++) {assertTrue(hotel.addGuest("Guest" + i, "Lee", false));} // Many chunks of report
+        for (byte table : new byte[]{HotelServer.ROOMS, HotelServer.GUESTS, HotelServer.BOOKINGS, HotelServer.PAYMENTS}) {
+            StringBuilder remote = new StringBuilder();
+            client.report(table, 0, remote);
+            StringBuilder local = new StringBuilder();
+            ReportWriter writer = new ReportWriter(local, ReportWriter.Format.FIXED_WIDTH);
+            switch (table) {
+                case HotelServer.ROOMS: writer.writeRooms(0, ReportWriter.ALL); break;
+                case HotelServer.GUESTS: writer.writeGuests(0, ReportWriter.ALL); break;
+                case HotelServer.BOOKINGS: writer.writeBookings(0, ReportWriter.ALL); break;
+                default: writer.writePayments(0, ReportWriter.ALL);
+            }
+            assertEquals(local.toString(), remote.toString(), "report " + table);
+        }
+        assertTrue(client.ping(), "the connection is still in step after the reports");
+    }
+
+    @Test
+    void racingClientsBookARoomOnce() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                tasks.add(() -> {
+                    try (HotelClient own = new HotelClient(server.getPort())) {
+                        return own.makeBooking("single", TestHotel.GUEST, day(40), day(42));
+                    }
+                });
+            }
+            int booked = 0;
+            for (Future<Boolean> result : threads.invokeAll(tasks)) {if (result.get()) {booked++;}}
+            assertEquals(1, booked);
+        } finally {
+            threads.shutdown();
+        }
+        assertEquals(1, hotel.getBookingsOnDate(day(40)).size());
+    }
+}
@@ -0,0 +1,80 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The ID allocator never gives out the same ID twice, however many threads ask, and never gives out an ID at or
+ * below one it was seeded with, even one in a block a thread had already leased.
+ */
+
+class IdAllocatorTest {
+
+    @Test
+    void givesOutIDsFromTheFirstOne() {
+        IdAllocator ids = new IdAllocator(100);
+        assertEquals(100, ids.next());
+        assertEquals(101, ids.next());
+    }
+
+    @Test
+    void aSeedDropsTheBlocksAlreadyLeased() {
+        IdAllocator ids = new IdAllocator(1);
+        assertEquals(1, ids.next()); // Leases 1..64 for this thread
+        ids.seed(10); // Imported a record with ID 10, inside the leased block
+        long next = ids.next();
+        assertTrue(next > 10, "ID " + next + " after seeding 10");
+        ids.seed(5); // Lower than what was given out, which changes nothing
+        assertEquals(next + 1, ids.next());
+    }
+
+    @Test
+    void restartForgetsEveryIDGivenOut() {
+        IdAllocator ids = new IdAllocator(1);
+        ids.seed(1000);
+        assertEquals(1001, ids.next());
+        ids.restart(1);
+        assertEquals(1, ids.next());
+    }
+
+    @Test
+    void neverGivesTheSameIDToTwoThreads() throws Exception {
+        IdAllocator ids = new IdAllocator(1);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+            for (int t = 0; t < 8; t++) {
+                final int seedEvery = t == 0 ? 1000 : 0; // One thread seeds now and then, as an import would
+                tasks.add(() -> {
+                    long[] got = new long[20000];
+                    for (int i = 0; i < got.length; i++) {
+                        got[i] = ids.next();
+                        if (seedEvery > 0 && i % seedEvery == 0) {ids.seed(got[i] + 10);}
+                    }
+                    return got;
+                });
+            }
+            HashSet<Long> seen = new HashSet<Long>();
+            for (Future<long[]> result : threads.invokeAll(tasks)) {
+                long last = 0;
+                for (long id : result.get()) {
+                    assertTrue(seen.add(id), "ID " + id + " given out twice");
+                    assertTrue(id > last, "the IDs one thread gets only go up");
+                    last = id;
+                }
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
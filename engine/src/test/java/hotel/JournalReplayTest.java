@@ -0,0 +1,163 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static hotel.TestHotel.group;
+import static hotel.TestHotel.request;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A hotel brought back from its data files and its journal holds every change that reached the journal whole. A
+ * crash can leave the last entry torn, cut short or with bytes that never reached the disk, and that entry is
+ * dropped: a group booking is one entry, so its rooms come back all together or not at all.
+ */
+
+class JournalReplayTest {
+
+    @TempDir
+    Path dir;
+
+    private Path journalFile;
+    private HotelImpl hotel;
+    private long singleBooking;
+    private ArrayList<Long> groupBookings;
+
+    /**
+     * Journals a new guest, a booking of the single room and, last, a group booking of both doubles, then closes
+     * the journal as a clean shutdown would
+     */
+
+    @BeforeEach
+    void writeJournal() throws IOException {
+        journalFile = dir.resolve("hotel.journal");
+        hotel = TestHotel.open(dir);
+        assertTrue(hotel.openJournal(journalFile.toString()));
+        assertTrue(hotel.addGuest("Ann", "Lee", false));
+        assertTrue(hotel.makeBooking("single", TestHotel.GUEST, day(10), day(12)));
+        singleBooking = hotel.getBookingsOnDate(day(10)).get(0);
+        groupBookings = hotel.makeGroupBooking(group(request("double", 20, 22), request("double", 20, 22)));
+        assertNotNull(groupBookings);
+        assertTrue(hotel.closeJournal());
+    }
+
+    @AfterEach
+    void closeJournal() {
+        hotel.closeJournal();
+    }
+
+    @Test
+    void replaysEveryEntry() throws IOException {
+        recover();
+        assertEquals(1, hotel.searchGuest("Ann", "Lee").size());
+        assertEquals(Collections.singletonList(singleBooking), hotel.getBookingsOnDate(day(10)));
+        assertEquals(groupBookings, hotel.getBookingsOnDate(day(20)));
+    }
+
+    @Test
+    void dropsAGroupBookingCutShort() throws IOException {
+        long length = Files.size(journalFile);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.setLength(length - 5); // The crash came in the middle of writing the group booking
+        }
+        recover();
+        assertEquals(1, hotel.searchGuest("Ann", "Lee").size());
+        assertEquals(Collections.singletonList(singleBooking), hotel.getBookingsOnDate(day(10)));
+        assertEquals(Collections.emptyList(), hotel.getBookingsOnDate(day(20)));
+        assertTrue(hotel.checkRoomAvailable(101, day(20), day(22)));
+        assertTrue(hotel.checkRoomAvailable(102, day(20), day(22)));
+        assertTrue(Files.size(journalFile) < length - 5, "the torn entry is cut off the journal");
+    }
+
+    @Test
+    void dropsAGroupBookingWithBytesMissing() throws IOException {
+        long length = Files.size(journalFile);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.seek(length - 20); // Inside the group booking, which was still only in the page cache
+            int b = file.read();
+            file.seek(length - 20);
+            file.write(~b);
+        }
+        recover();
+        assertEquals(Collections.singletonList(singleBooking), hotel.getBookingsOnDate(day(10)));
+        assertEquals(Collections.emptyList(), hotel.getBookingsOnDate(day(20)));
+    }
+
+    @Test
+    void keepsJournallingAfterATornEntry() throws IOException {
+        long length = Files.size(journalFile);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.setLength(length - 1);
+        }
+        recover();
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(20), day(21)));
+        long afterCrash = hotel.getBookingsOnDate(day(20)).get(0);
+        assertTrue(hotel.closeJournal());
+
+        recover();
+        assertEquals(Collections.singletonList(singleBooking), hotel.getBookingsOnDate(day(10)));
+        assertEquals(Collections.singletonList(afterCrash), hotel.getBookingsOnDate(day(20)));
+    }
+
+    @Test
+    void keepsTheJournalUntilEverySavedFileIsOnDisk() throws IOException {
+        recover();
+        Path unwritable = dir.resolve("missing").resolve("payments.txt"); // Its directory does not exist
+        assertFalse(hotel.saveAllData(dir.resolve("rooms.txt").toString(), dir.resolve("guests.txt").toString(),
+                dir.resolve("bookings.txt").toString(), unwritable.toString()));
+        assertTrue(Files.exists(journalFile), "the journal is all a restart has of the payments");
+        assertFalse(Files.exists(dir.resolve("rooms.txt.tmp")));
+
+        assertTrue(TestHotel.save(hotel, dir));
+        assertFalse(Files.exists(journalFile), "the saved entries are dropped once the files are on disk");
+        assertFalse(Files.exists(dir.resolve("bookings.txt.tmp")));
+        assertTrue(hotel.closeJournal());
+        hotel = TestHotel.reopen(dir); // The saved files this time
+        assertTrue(hotel.openJournal(journalFile.toString()));
+        assertEquals(1, hotel.searchGuest("Ann", "Lee").size());
+        assertEquals(Collections.singletonList(singleBooking), hotel.getBookingsOnDate(day(10)));
+        assertEquals(groupBookings, hotel.getBookingsOnDate(day(20)));
+    }
+
+    @Test
+    void refusesATornSegmentBeforeTheLast() throws IOException {
+        recover();
+        Path unwritable = dir.resolve("missing").resolve("payments.txt");
+        assertFalse(hotel.saveAllData(dir.resolve("rooms.txt").toString(), dir.resolve("guests.txt").toString(),
+                dir.resolve("bookings.txt").toString(), unwritable.toString())); // Starts a new segment, but keeps the old
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(30), day(31)));
+        assertTrue(hotel.closeJournal());
+        Path lastSegment = dir.resolve("hotel.journal.1");
+        assertTrue(Files.exists(lastSegment));
+
+        long length = Files.size(journalFile);
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.setLength(length - 5);
+        }
+        hotel = TestHotel.open(dir);
+        assertFalse(hotel.openJournal(journalFile.toString()), "the booking in the last segment would be replayed over a gap");
+        assertEquals(length - 5, Files.size(journalFile), "the damaged segment is left for someone to look at");
+    }
+
+    /**
+     * Imports the data files again, which hold none of the journalled changes, and replays the journal on top
+     */
+
+    private void recover() throws IOException {
+        hotel = TestHotel.open(dir);
+        assertTrue(hotel.openJournal(journalFile.toString()));
+    }
+}
@@ -0,0 +1,95 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The long map behaves like a HashMap from Long keys through any mix of puts and removes: it grows without losing a
+ * record, a removal never cuts off the records probed past it, and the key used to mark empty slots is a key like any
+ * other.
+ */
+
+class LongHashMapTest {
+
+    @Test
+    void keepsEveryRecordWhileGrowing() {
+        LongHashMap<String> map = new LongHashMap<String>();
+        for (long key = 0; key < 10000; key++) {assertNull(map.put(key * 1024, "v" + key));} // Keys sharing their low bits
+        assertEquals(10000, map.size());
+        for (long key = 0; key < 10000; key++) {assertEquals("v" + key, map.get(key * 1024));}
+        assertNull(map.get(1));
+        assertEquals("v7", map.put(7 * 1024, "seven"));
+        assertEquals("seven", map.putIfAbsent(7 * 1024, "kept out"));
+        assertEquals("seven", map.get(7 * 1024));
+        assertEquals(10000, map.size());
+    }
+
+    @Test
+    void removingLeavesTheRestReachable() {
+        LongHashMap<Long> map = new LongHashMap<Long>();
+        for (long key = 1; key <= 2000; key++) {map.put(key, key);}
+        for (long key = 1; key <= 2000; key += 3) {assertEquals(key, map.remove(key));}
+        for (long key = 1; key <= 2000; key++) {
+            if (key % 3 == 1) {
+                assertFalse(map.containsKey(key));
+            } else {
+                assertEquals(key, map.get(key), "key " + key + " is still reachable after its neighbours left");
+            }
+        }
+        assertNull(map.remove(1));
+        assertEquals(2000 - 667, map.size());
+    }
+
+    @Test
+    void storesTheKeyThatMarksFreeSlots() {
+        LongHashMap<String> map = new LongHashMap<String>();
+        assertNull(map.get(Long.MIN_VALUE));
+        assertNull(map.put(Long.MIN_VALUE, "min"));
+        assertNull(map.put(0, "zero"));
+        assertEquals(2, map.size());
+        assertEquals("min", map.putIfAbsent(Long.MIN_VALUE, "other"));
+        assertEquals("min", map.remove(Long.MIN_VALUE));
+        assertNull(map.get(Long.MIN_VALUE));
+        assertEquals("zero", map.get(0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void matchesAHashMapThroughRandomChanges() {
+        Random random = new Random(7);
+        LongHashMap<Long> map = new LongHashMap<Long>();
+        HashMap<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(5000) - 2500L;
+            long value = random.nextLong();
+            switch (random.nextInt(4)) {
+                case 0: assertEquals(expected.put(key, value), map.put(key, value)); break;
+                case 1: assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value)); break;
+                case 2: assertEquals(expected.remove(key), map.remove(key)); break;
+                default: assertEquals(expected.get(key), map.get(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {assertEquals(entry.getValue(), map.get(entry.getKey()));}
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongHashMap<String> map = new LongHashMap<String>();
+        map.put(1, "one");
+        map.put(Long.MIN_VALUE, "min");
+        map.clear(100000);
+        assertEquals(0, map.size());
+        assertNull(map.get(1));
+        assertNull(map.get(Long.MIN_VALUE));
+        assertNull(map.put(1, "again"));
+        assertEquals("again", map.get(1));
+    }
+}
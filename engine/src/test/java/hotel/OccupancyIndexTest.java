@@ -0,0 +1,70 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.Test;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * A booking is in the occupancy index for every night of [check-in, check-out), and only those, whether its nights
+ * are within the horizon or far outside it.
+ */
+
+class OccupancyIndexTest {
+
+    private static final int TODAY = EpochDays.of(new Date());
+
+    @Test
+    void findsTheBookingsStayingEachNight() {
+        Booking first = booking(1, 101, TODAY + 10, TODAY + 12);
+        Booking next = booking(2, 101, TODAY + 12, TODAY + 13);
+        Booking other = booking(3, 102, TODAY + 11, TODAY + 15);
+        OccupancyIndex index = new OccupancyIndex();
+        index.rebuild(Arrays.asList(first, next, other));
+
+        assertEquals(0, index.on(TODAY + 9).length);
+        assertArrayEquals(new Booking[]{first}, index.on(TODAY + 10));
+        assertEquals(set(first, other), set(index.on(TODAY + 11)));
+        assertEquals(set(next, other), set(index.on(TODAY + 12)), "the check-out night is free");
+        assertEquals(0, index.on(TODAY + 15).length);
+
+        index.remove(other);
+        assertArrayEquals(new Booking[]{first}, index.on(TODAY + 11));
+        index.add(booking(4, 102, TODAY + 11, TODAY + 12));
+        assertEquals(2, index.on(TODAY + 11).length);
+    }
+
+    @Test
+    void keepsBookingsOutsideTheHorizon() {
+        int far = AvailabilityGrid.HORIZON_DAYS * 100;
+        Booking longAgo = booking(1, 101, TODAY - far, TODAY - far + 3);
+        Booking endless = booking(2, 102, TODAY - 1, TODAY + far); // Would need a bucket for every night otherwise
+        OccupancyIndex index = new OccupancyIndex();
+        index.rebuild(Arrays.asList(longAgo, endless));
+
+        assertArrayEquals(new Booking[]{longAgo}, index.on(TODAY - far + 2));
+        assertEquals(0, index.on(TODAY - far + 3).length);
+        assertArrayEquals(new Booking[]{endless}, index.on(TODAY));
+        assertArrayEquals(new Booking[]{endless}, index.on(TODAY + AvailabilityGrid.HORIZON_DAYS - 1));
+        assertArrayEquals(new Booking[]{endless}, index.on(TODAY + far - 1));
+
+        index.remove(endless);
+        assertEquals(0, index.on(TODAY).length);
+        assertEquals(0, index.on(TODAY + far - 1).length);
+        assertArrayEquals(new Booking[]{longAgo}, index.on(TODAY - far));
+    }
+
+    private static Booking booking(long bookingID, long roomNumber, int checkIn, int checkOut) {
+        return new Booking(bookingID, 10001, roomNumber, TODAY, checkIn, checkOut, 80.0);
+    }
+
+    private static HashSet<Booking> set(Booking... bookings) {
+        return new HashSet<Booking>(Arrays.asList(bookings));
+    }
+}
@@ -0,0 +1,76 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A stay covers the nights [check-in, check-out): a guest checking out on the day another checks in is not a
+ * clash, while any stay sharing a night with a booking is, whether it starts inside it, ends inside it, contains it
+ * or is contained by it.
+ */
+
+class OverlapTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void checkOutDayIsFreeForTheNextCheckIn() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir, TestHotel.booking(1, 101, 10, 12));
+        assertTrue(hotel.checkRoomAvailable(101, day(12), day(14)), "checking in on the day the last guest leaves");
+        assertTrue(hotel.checkRoomAvailable(101, day(8), day(10)), "checking out on the day the next guest arrives");
+    }
+
+    @Test
+    void everyStaySharingANightClashes() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir, TestHotel.booking(1, 101, 10, 15));
+        assertFalse(hotel.checkRoomAvailable(101, day(10), day(15)), "the same stay");
+        assertFalse(hotel.checkRoomAvailable(101, day(11), day(13)), "contained by the booking");
+        assertFalse(hotel.checkRoomAvailable(101, day(8), day(17)), "containing the booking");
+        assertFalse(hotel.checkRoomAvailable(101, day(8), day(11)), "ending inside the booking");
+        assertFalse(hotel.checkRoomAvailable(101, day(14), day(16)), "starting on its last night");
+        assertTrue(hotel.checkRoomAvailable(102, day(10), day(15)), "another room");
+    }
+
+    @Test
+    void findAvailableRoomsUsesTheSameBoundaries() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir, TestHotel.booking(1, 101, 10, 12), TestHotel.booking(2, 102, 11, 13));
+        assertNull(hotel.findAvailableRooms("double", day(11), day(12))); // null when no room is free
+        assertEquals(Arrays.asList(101L), hotel.findAvailableRooms("double", day(12), day(13)));
+        assertEquals(Arrays.asList(101L, 102L), hotel.findAvailableRooms("double", day(13), day(14)));
+    }
+
+    @Test
+    void makeBookingTakesTheRoomOnlyWhereItIsFree() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir, TestHotel.booking(1, 101, 10, 12), TestHotel.booking(2, 102, 10, 12));
+        assertFalse(hotel.makeBooking("double", TestHotel.GUEST, day(11), day(12)));
+        assertTrue(hotel.makeBooking("double", TestHotel.GUEST, day(12), day(13)));
+        assertEquals(2, hotel.getBookingsOnDate(day(11)).size());
+        assertEquals(1, hotel.getBookingsOnDate(day(12)).size());
+    }
+
+    @Test
+    void importLeavesOutClashingBookings() throws Exception {
+        HotelImpl hotel = TestHotel.open(dir,
+                TestHotel.booking(1, 101, 10, 15),
+                TestHotel.booking(2, 101, 12, 13), // Contained by booking 1
+                TestHotel.booking(3, 101, 8, 11), // Ends inside booking 1
+                TestHotel.booking(4, 101, 15, 16), // Starts on the check-out day of booking 1
+                TestHotel.booking(5, 102, 10, 10)); // No night at all
+        assertEquals(Arrays.asList(1L), hotel.getBookingsOnDate(day(12)));
+        assertEquals(Arrays.asList(1L), hotel.getBookingsOnDate(day(10)));
+        assertEquals(Collections.emptyList(), hotel.getBookingsOnDate(day(9)));
+        assertEquals(Arrays.asList(4L), hotel.getBookingsOnDate(day(15)));
+        assertTrue(hotel.checkRoomAvailable(102, day(9), day(11)));
+    }
+}
@@ -0,0 +1,108 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import hotel.HotelImpl.Payment;
+
+/**
+ * The payment ledger keeps its rows in day order however the payments arrive, and its daily, range and reason totals
+ * always match a plain sum over the payments, for days far outside the horizon as well as near today.
+ */
+
+class PaymentLedgerTest {
+
+    private static final int TODAY = EpochDays.of(new Date());
+    private static final int FAR = AvailabilityGrid.HORIZON_DAYS * 50;
+
+    @Test
+    void slotsAPaymentDatedEarlierIntoItsDay() {
+        PaymentLedger ledger = new PaymentLedger();
+        ledger.add(new Payment(TODAY, 1, 80.00, PaymentLedger.BOOKING));
+        ledger.add(new Payment(TODAY + 2, 2, 55.50, PaymentLedger.BOOKING));
+        ledger.add(new Payment(TODAY - 3, 3, -20.00, PaymentLedger.REFUND)); // From a replayed journal
+        ledger.add(new Payment(TODAY, 4, 50.00, PaymentLedger.VIP_MEMBERSHIP));
+
+        assertEquals(4, ledger.size());
+        int[] expectedDays = {TODAY - 3, TODAY, TODAY, TODAY + 2};
+        long[] expectedGuests = {3, 1, 4, 2};
+        for (int row = 0; row < 4; row++) {
+            assertEquals(expectedDays[row], ledger.day(row));
+            assertEquals(expectedGuests[row], ledger.guestID(row), "the payments of a day stay in the order they came");
+        }
+        assertEquals(13000, ledger.dayCents(TODAY));
+        assertEquals(5000, ledger.dayCents(TODAY, PaymentLedger.VIP_MEMBERSHIP));
+        assertEquals(0, ledger.dayCents(TODAY + 1));
+        assertEquals(16550, ledger.rangeCents(TODAY - 10, TODAY + 10));
+        assertEquals(11000, ledger.rangeCents(TODAY - 3, TODAY));
+        assertEquals(-2000, ledger.reasonCents(PaymentLedger.REFUND));
+        assertEquals(1, ledger.firstRow(TODAY));
+        assertEquals(3, ledger.endRow(TODAY));
+    }
+
+    @Test
+    void matchesAPlainSumForAnyDates() {
+        Random random = new Random(42);
+        ArrayList<Payment> payments = new ArrayList<Payment>();
+        for (int i = 0; i < 2000; i++) {payments.add(payment(random, i));}
+        PaymentLedger rebuilt = new PaymentLedger();
+        rebuilt.rebuild(payments.subList(0, 1000));
+        PaymentLedger added = new PaymentLedger();
+        for (Payment payment : payments) {added.add(payment);}
+        for (Payment payment : payments.subList(1000, 2000)) {rebuilt.add(payment);}
+
+        for (PaymentLedger ledger : new PaymentLedger[]{rebuilt, added}) {
+            assertEquals(payments.size(), ledger.size());
+            for (int row = 1; row < ledger.size(); row++) {assertTrue(ledger.day(row - 1) <= ledger.day(row), "rows in day order");}
+            int[] days = {TODAY - FAR, TODAY - FAR - 1, TODAY - AvailabilityGrid.HORIZON_DAYS - 1,
+                    TODAY - AvailabilityGrid.HORIZON_DAYS, TODAY, TODAY + 3, TODAY + AvailabilityGrid.HORIZON_DAYS - 1,
+                    TODAY + AvailabilityGrid.HORIZON_DAYS, TODAY + FAR};
+            for (int day : days) {
+                assertEquals(sum(payments, day, day, null), ledger.dayCents(day), "day " + (day - TODAY));
+                assertEquals(sum(payments, day, day, PaymentLedger.REFUND), ledger.dayCents(day, PaymentLedger.REFUND));
+                assertEquals(count(payments, day), ledger.endRow(day) - ledger.firstRow(day));
+                for (int other : days) {
+                    assertEquals(sum(payments, day, other, null), ledger.rangeCents(day, other), (day - TODAY) + ".." + (other - TODAY));
+                }
+            }
+            assertEquals(sum(payments, Integer.MIN_VALUE, Integer.MAX_VALUE, PaymentLedger.BOOKING), ledger.reasonCents(PaymentLedger.BOOKING));
+        }
+    }
+
+    // Mostly near today, some on the edges of the horizon and some far outside it
+    private static Payment payment(Random random, int i) {
+        int day;
+        switch (random.nextInt(4)) {
+            case 0: day = TODAY - FAR + random.nextInt(3) - 1; break;
+            case 1: day = TODAY + (random.nextBoolean() ? 1 : -1) * (AvailabilityGrid.HORIZON_DAYS + random.nextInt(3) - 1); break;
+            case 2: day = TODAY + FAR + random.nextInt(3) - 1; break;
+            default: day = TODAY + random.nextInt(10) - 5;
+        }
+        String reason = random.nextInt(5) == 0 ? PaymentLedger.REFUND : PaymentLedger.BOOKING;
+        double amount = (reason == PaymentLedger.REFUND ? -1 : 1) * (random.nextInt(20000) / 100.0);
+        return new Payment(day, i, amount, reason);
+    }
+
+    private static long sum(List<Payment> payments, int fromDay, int toDay, String reason) {
+        long total = 0;
+        for (Payment payment : payments) {
+            if (payment.getDay() >= fromDay && payment.getDay() <= toDay && (reason == null || reason.equals(payment.getPayReason()))) {
+                total += Math.round(payment.getAmount() * 100);
+            }
+        }
+        return total;
+    }
+
+    private static int count(List<Payment> payments, int day) {
+        int count = 0;
+        for (Payment payment : payments) {if (payment.getDay() == day) {count++;}}
+        return count;
+    }
+}
@@ -0,0 +1,130 @@
+package hotel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Records removed while a compaction is part way through are gone once it ends, and the others keep their order
+ * and know their slot. A frozen view stays as it was through changes and compactions, and a position kept as a
+ * record number picks up after a compaction without skipping or repeating a record.
+ *
+ * The tests hold the table's lock throughout, so the compactor thread waits and the steps are taken by hand.
+ */
+
+class RecordStoreTest {
+
+    private static final int RECORDS = 5 * RecordStore.SEGMENT_SLOTS;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private RecordStore<Item> store;
+    private List<Item> all; // Every record added, in order
+    private List<Item> expected; // Those not removed
+
+    @BeforeEach
+    void fill() {
+        lock.lock();
+        store = new RecordStore<Item>(lock);
+        all = new ArrayList<Item>();
+        for (int i = 0; i < RECORDS; i++) {
+            Item item = new Item(i);
+            store.add(item);
+            all.add(item);
+        }
+        expected = new ArrayList<Item>(all);
+    }
+
+    @AfterEach
+    void letTheCompactorGo() {
+        lock.unlock();
+    }
+
+    @Test
+    void removalsDuringACompactionAreKept() {
+        for (int i = 0; i < RECORDS; i += 2) {remove(all.get(i));} // Half tombstones
+        assertFalse(store.step(RecordStore.COMPACTION_STEP));
+        Random random = new Random(5);
+        while (!store.step(RecordStore.COMPACTION_STEP)) {
+            for (int i = 0; i < 300; i++) {remove(expected.get(random.nextInt(expected.size())));} // Before, inside and after the step
+        }
+        assertEquals(1, store.compactions());
+        assertTable(expected);
+        while (!store.step(RecordStore.COMPACTION_STEP)) {} // The next one takes the tombstones left behind the first
+        assertEquals(expected.size(), store.slots(), "no tombstone left");
+        assertTable(expected);
+    }
+
+    @Test
+    void aFrozenViewStaysAsItWas() {
+        for (int i = 0; i < RECORDS; i += 3) {remove(all.get(i));}
+        List<Item> frozenItems = new ArrayList<Item>(expected);
+        Collection<Item> frozen = store.freeze();
+
+        for (int i = 1; i < RECORDS / 2; i += 3) {remove(all.get(i));}
+        for (int i = 0; i < 100; i++) {store.add(new Item(RECORDS + i));}
+        while (!store.step(RecordStore.COMPACTION_STEP)) {}
+        assertEquals(frozenItems.size(), frozen.size());
+        assertEquals(frozenItems, new ArrayList<Item>(frozen));
+    }
+
+    @Test
+    void aPositionSurvivesACompaction() {
+        List<Item> read = new ArrayList<Item>();
+        long from = 0;
+        Random random = new Random(9);
+        boolean changed = true;
+        while (changed) {
+            int slot = store.firstSlotFrom(from);
+            for (int n = 0; n < 700 && slot < store.slots(); slot++) { // A page of a report
+                Item item = store.slot(slot);
+                if (item == null) {continue;}
+                read.add(item);
+                from = item.seq + 1;
+                n++;
+            }
+            changed = slot < store.slots();
+            for (int i = 0; i < 400 && expected.size() > 0; i++) {remove(expected.get(random.nextInt(expected.size())));} // Between pages
+            store.step(RecordStore.COMPACTION_STEP * 2);
+        }
+        HashSet<Item> seen = new HashSet<Item>();
+        for (int i = 0; i < read.size(); i++) {
+            assertTrue(seen.add(read.get(i)), "read twice");
+            if (i > 0) {assertTrue(read.get(i).value > read.get(i - 1).value, "in their order");}
+        }
+        assertTrue(seen.containsAll(expected), "every record never removed was read");
+    }
+
+    private void remove(Item item) {
+        assertTrue(store.remove(item));
+        expected.remove(item);
+    }
+
+    private void assertTable(List<Item> items) {
+        assertEquals(items.size(), store.size());
+        assertEquals(items, new ArrayList<Item>(store));
+        for (Item item : items) {
+            assertSame(item, store.slot(item.slot));
+            assertTrue(store.contains(item));
+        }
+    }
+
+    private static final class Item extends RecordStore.Record {
+        final int value;
+
+        Item(int value) {
+            this.value = value;
+        }
+    }
+}
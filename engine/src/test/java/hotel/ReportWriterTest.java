@@ -0,0 +1,109 @@
+package hotel;
+
+import static hotel.TestHotel.date;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A report is the same whether it is written in one go or page by page from the cursors the pages give back, with
+ * the column names once at the top. CSV quotes the fields that need it, and fixed-width text pads or cuts every
+ * column to its width.
+ */
+
+class ReportWriterTest {
+
+    private static final int BOOKINGS = 1200; // More than two chunks of rows
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesRoomsAsCSV() throws IOException {
+        TestHotel.open(dir);
+        StringBuilder out = new StringBuilder();
+        ReportWriter report = new ReportWriter(out, ReportWriter.Format.CSV);
+        assertEquals(ReportWriter.END, report.writeRooms(0, ReportWriter.ALL));
+        assertEquals("roomNumber,roomType,roomPrice,capacity,facilities\n"
+                + "101,double,80.0,2,own bathroom\n"
+                + "102,double,80.0,2,own bathroom\n"
+                + "201,single,55.0,1,own bathroom\n", out.toString());
+        assertEquals(3, report.getRowsWritten());
+    }
+
+    @Test
+    void quotesCSVFieldsThatNeedIt() throws IOException {
+        HotelImpl hotel = TestHotel.open(dir);
+        assertTrue(hotel.addGuest("Ann \"Nan\"", "Lee, Jr", false));
+        StringBuilder out = new StringBuilder();
+        new ReportWriter(out, ReportWriter.Format.CSV).writeGuests(0, ReportWriter.ALL);
+        assertTrue(out.toString().contains(",\"Ann \"\"Nan\"\"\",\"Lee, Jr\"," + date(0) + ",no,,\n"), out.toString());
+    }
+
+    @Test
+    void padsAndCutsFixedWidthColumns() throws IOException {
+        HotelImpl hotel = TestHotel.open(dir);
+        assertTrue(hotel.addGuest("Maximiliana-Josefa", "Lee", false)); // 18 letters in a column of 16
+        StringBuilder out = new StringBuilder();
+        new ReportWriter(out, ReportWriter.Format.FIXED_WIDTH).writeRooms(0, ReportWriter.ALL);
+        String[] lines = out.toString().split("\n");
+        assertEquals("roomNumber roomType   roomPrice  capacity facilities", lines[0]);
+        assertEquals("101        double     80.0       2        own bathroom", lines[1]);
+
+        out.setLength(0);
+        new ReportWriter(out, ReportWriter.Format.FIXED_WIDTH).writeGuests(0, ReportWriter.ALL);
+        assertTrue(out.toString().contains(" Maximiliana-Jose Lee                  " + date(0) + " no\n"), out.toString());
+    }
+
+    @Test
+    void pagesAddUpToTheWholeReport() throws IOException {
+        String[] lines = new String[BOOKINGS];
+        for (int i = 0; i < BOOKINGS; i++) {
+            long room = i % 3 == 2 ? 201 : 101 + i % 3;
+            lines[i] = TestHotel.booking(100000 + i, room, 10 + 2 * (i / 3), 11 + 2 * (i / 3));
+        }
+        TestHotel.open(dir, lines);
+        for (ReportWriter.Format format : ReportWriter.Format.values()) {
+            StringBuilder whole = new StringBuilder();
+            assertEquals(ReportWriter.END, new ReportWriter(whole, format).writeBookings(0, ReportWriter.ALL));
+
+            StringBuilder paged = new StringBuilder();
+            ReportWriter report = new ReportWriter(paged, format);
+            int pages = 0;
+            for (long cursor = 0; cursor != ReportWriter.END; pages++) {
+                long before = report.getRowsWritten();
+                cursor = report.writeBookings(cursor, 100);
+                assertTrue(report.getRowsWritten() - before <= 100);
+            }
+            assertEquals(BOOKINGS, report.getRowsWritten());
+            assertTrue(pages == BOOKINGS / 100 || pages == BOOKINGS / 100 + 1, pages + " pages"); // The last may be empty
+            assertEquals(whole.toString(), paged.toString());
+            assertEquals(BOOKINGS + 1, whole.toString().split("\n").length, "one header line");
+        }
+    }
+
+    @Test
+    void guestPagesRunOnIntoTheVIPGuests() throws IOException {
+        TestHotel.open(dir);
+        TestHotel.write(dir.resolve("guests.txt"),
+                TestHotel.GUEST + ",John,Cooper," + date(-100),
+                TestHotel.OTHER_GUEST + ",Sally,Piper," + date(-50),
+                "10003,Finn,Cooper," + date(-10) + "," + date(-10) + "," + date(355),
+                "10004,Gail,Lee," + date(-10) + "," + date(-10) + "," + date(355));
+        TestHotel.reopen(dir);
+        StringBuilder whole = new StringBuilder();
+        new ReportWriter(whole, ReportWriter.Format.CSV).writeGuests(0, ReportWriter.ALL);
+        assertTrue(whole.toString().endsWith("10004,Gail,Lee," + date(-10) + ",yes," + date(-10) + "," + date(355) + "\n"));
+
+        StringBuilder paged = new StringBuilder();
+        ReportWriter report = new ReportWriter(paged, ReportWriter.Format.CSV);
+        for (long cursor = 0; cursor != ReportWriter.END;) {cursor = report.writeGuests(cursor, 1);}
+        assertEquals(whole.toString(), paged.toString());
+        assertEquals(4, report.getRowsWritten());
+    }
+}
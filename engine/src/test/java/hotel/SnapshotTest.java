@@ -0,0 +1,109 @@
+package hotel;
+
+import static hotel.TestHotel.day;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A snapshot gives back every table exactly as it was saved, and a file that is not a snapshot of this version, or
+ * is cut short, is refused without touching the tables already loaded.
+ */
+
+class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private Path snapshot;
+    private List<String> saved;
+
+    /**
+     * Saves a hotel with rooms, guests, a VIP guest, bookings, a cancellation and payments, both as a snapshot and
+     * as text files to compare with
+     */
+
+    @BeforeEach
+    void saveSnapshot() throws IOException {
+        snapshot = dir.resolve("hotel.snapshot");
+        HotelImpl hotel = TestHotel.open(dir.resolve(fresh("original")), TestHotel.booking(1, 101, 10, 12));
+        assertTrue(hotel.addGuest("Zoë", "Ngô", true)); // Not plain ASCII
+        assertTrue(hotel.makeBooking("single", TestHotel.GUEST, day(10), day(11)));
+        assertTrue(hotel.makeBooking("double", TestHotel.OTHER_GUEST, day(20), day(22)));
+        assertTrue(hotel.cancelBooking(hotel.getBookingsOnDate(day(20)).get(0)));
+        assertTrue(hotel.saveSnapshot(snapshot.toString()));
+        saved = textFiles(hotel, "saved");
+    }
+
+    @Test
+    void givesBackEveryTable() throws IOException {
+        HotelImpl hotel = TestHotel.open(dir.resolve(fresh("other")), TestHotel.booking(7, 102, 30, 31));
+        assertTrue(hotel.loadSnapshot(snapshot.toString()));
+        assertEquals(saved, textFiles(hotel, "loaded"));
+        assertEquals(1, hotel.searchGuest("Zoë", "Ngô").size(), "the names come back exactly, whatever the platform charset of the text files");
+        assertTrue(hotel.checkRoomAvailable(102, day(30), day(31)), "nothing is left of the tables loaded before");
+        assertFalse(hotel.checkRoomAvailable(201, day(10), day(11)));
+    }
+
+    @Test
+    void refusesAnotherVersion() throws IOException {
+        writeInt(4, Snapshot.VERSION - 1);
+        assertRefused();
+    }
+
+    @Test
+    void refusesAFileThatIsNotASnapshot() throws IOException {
+        writeInt(0, 0x12345678);
+        assertRefused();
+    }
+
+    @Test
+    void refusesASnapshotCutShort() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.setLength(file.length() - 10);
+        }
+        assertRefused();
+    }
+
+    private void assertRefused() throws IOException {
+        HotelImpl hotel = TestHotel.open(dir.resolve(fresh("other")), TestHotel.booking(7, 102, 30, 31));
+        List<String> before = textFiles(hotel, "before");
+        assertFalse(hotel.loadSnapshot(snapshot.toString()));
+        assertEquals(before, textFiles(hotel, "after"));
+    }
+
+    private void writeInt(long offset, int value) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            file.seek(offset);
+            file.writeInt(value);
+        }
+    }
+
+    private String fresh(String name) throws IOException {
+        Files.createDirectories(dir.resolve(name));
+        return name;
+    }
+
+    // The four text files the hotel saves, one string each
+    private List<String> textFiles(HotelImpl hotel, String name) throws IOException {
+        Path files = dir.resolve(fresh(name));
+        assertTrue(TestHotel.save(hotel, files));
+        List<String> texts = new ArrayList<String>();
+        for (String file : new String[]{"rooms.txt", "guests.txt", "bookings.txt", "payments.txt"}) {
+            texts.add(new String(Files.readAllBytes(files.resolve(file)), StandardCharsets.UTF_8));
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,114 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A small hotel for the tests, written to data files in a directory and imported from them. The hotel keeps its
+ * tables in static fields, so every test imports a fresh one, and the days are counted from today so the bookings
+ * the tests make are always in the future.
+ *
+ * The rooms are 101 and 102 (double) and 201 (single), and the guests are 10001 and 10002.
+ */
+
+final class TestHotel {
+
+    static final long GUEST = 10001;
+    static final long OTHER_GUEST = 10002;
+
+    private static final int TODAY = EpochDays.of(new Date());
+
+    private TestHotel() {}
+
+    /**
+     * Writes the data files and imports them
+     *
+     * @param dir        where the data files go
+     * @param bookings   the lines of bookings.txt, see booking()
+     * @return           the hotel
+     */
+
+    static HotelImpl open(Path dir, String... bookings) throws IOException {
+        write(dir.resolve("rooms.txt"), "101,double,80.00,2,own bathroom", "102,double,80.00,2,own bathroom",
+                "201,single,55.00,1,own bathroom");
+        write(dir.resolve("guests.txt"), GUEST + ",John,Cooper," + date(-100), OTHER_GUEST + ",Sally,Piper," + date(-50));
+        write(dir.resolve("bookings.txt"), bookings);
+        write(dir.resolve("payments.txt"));
+        return reopen(dir);
+    }
+
+    /**
+     * Imports the data files already in a directory, as a restart would. The ID allocators start again from 1 as
+     * they do in a new process, so only what the hotel reads back keeps the old IDs from being given out again.
+     */
+
+    static HotelImpl reopen(Path dir) {
+        HotelImpl.guestIDs.restart(1);
+        HotelImpl.bookingIDs.restart(1);
+        return new HotelImpl(dir.resolve("rooms.txt").toString(), dir.resolve("guests.txt").toString(),
+                dir.resolve("bookings.txt").toString(), dir.resolve("payments.txt").toString());
+    }
+
+    /**
+     * Saves the hotel over the data files of a directory
+     */
+
+    static boolean save(HotelImpl hotel, Path dir) {
+        return hotel.saveAllData(dir.resolve("rooms.txt").toString(), dir.resolve("guests.txt").toString(),
+                dir.resolve("bookings.txt").toString(), dir.resolve("payments.txt").toString());
+    }
+
+    /**
+     * A line of bookings.txt for GUEST, booked today
+     *
+     * @param bookingID    the booking ID
+     * @param roomNumber   the room
+     * @param checkIn      the check-in, in days from today
+     * @param checkOut     the check-out, in days from today
+     */
+
+    static String booking(long bookingID, long roomNumber, int checkIn, int checkOut) {
+        return booking(bookingID, GUEST, roomNumber, checkIn, checkOut);
+    }
+
+    static String booking(long bookingID, long guestID, long roomNumber, int checkIn, int checkOut) {
+        return bookingID + "," + guestID + "," + roomNumber + "," + date(0) + "," + date(checkIn) + "," + date(checkOut) + ",80.00";
+    }
+
+    /**
+     * A day counted from today
+     */
+
+    static Date day(int fromToday) {
+        return EpochDays.toDate(TODAY + fromToday);
+    }
+
+    /**
+     * A day counted from today, as the data files write it
+     */
+
+    static String date(int fromToday) {
+        return HotelImpl.ft.format(day(fromToday));
+    }
+
+    /**
+     * A request for a group booking for GUEST
+     */
+
+    static BookingRequest request(String roomType, int checkIn, int checkOut) {
+        return new BookingRequest(roomType, GUEST, day(checkIn), day(checkOut));
+    }
+
+    static ArrayList<BookingRequest> group(BookingRequest... requests) {
+        return new ArrayList<BookingRequest>(Arrays.asList(requests));
+    }
+
+    static void write(Path file, String... lines) throws IOException {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,282 @@
+package hotel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import hotel.HotelImpl.Room;
+
+/**
+ * A bounded cache of findAvailableRooms results, keyed by room type and stay, so a search that front desks and
+ * booking sites repeat many times a minute is only worked out once.
+ *
+ * When it is full, the least recently used result is dropped. Every change to the bookings of a room goes through
+ * RoomBookingIndex, which tells the cache the room and the nights that changed. Only the results for the same room
+ * type whose stay overlaps those nights are dropped. Adding or removing a room drops every result for its room type,
+ * and an import drops everything.
+ *
+ * A search that misses works its result out without holding any lock, so a booking could change the rooms while it
+ * does. To keep such a result out of the cache, every room type has a version that goes up with each change to it.
+ * The search reads the version before it starts, and its result is only stored if the version is still the same.
+ * A result that is stored is therefore either worked out after the last change to its room type, or dropped by the
+ * next one, and a cached result is never stale.
+ */
+
+final class AvailabilityCache {
+
+    private static final Long[] NONE = new Long[0];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Long[]> results = new LinkedHashMap<Key, Long[]>(64, 0.75f, true); // Least recently used first
+    private final HashMap<String, Type> types = new HashMap<String, Type>(); // By the room type as written and in lower case
+    private int capacity;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a cache
+     *
+     * @param capacity   how many results to keep at most, 0 to keep none
+     */
+
+    AvailabilityCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Changes how many results are kept, dropping the least recently used ones if there are more
+     *
+     * @param capacity   how many results to keep at most, 0 to keep none
+     */
+
+    void setCapacity(int capacity) {
+        if (capacity < 0) {throw new IllegalArgumentException("The capacity cannot be negative");}
+        lock.lock();
+        try{
+            this.capacity = capacity;
+            evict();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up a stored result
+     *
+     * @param roomType      the room type, in any case
+     * @param checkInDay    the check-in epoch-day
+     * @param checkOutDay   the check-out epoch-day
+     * @return              the free room numbers, or null if the result is not stored
+     */
+
+    Long[] get(String roomType, int checkInDay, int checkOutDay) {
+        lock.lock();
+        try{
+            Long[] rooms = capacity == 0 ? null : results.get(new Key(type(roomType), checkInDay, checkOutDay));
+            if (rooms == null) {misses.increment();} else {hits.increment();}
+            return rooms;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The version of a room type, to read before working out a result for it
+     *
+     * @param roomType   the room type, in any case
+     * @return           the version, for put()
+     */
+
+    long version(String roomType) {
+        lock.lock();
+        try{
+            return type(roomType).version;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a result, unless its room type changed since version() was read
+     *
+     * @param roomType      the room type, in any case
+     * @param checkInDay    the check-in epoch-day
+     * @param checkOutDay   the check-out epoch-day
+     * @param rooms         the free room numbers
+     * @param version       what version() gave before the result was worked out
+     */
+
+    void put(String roomType, int checkInDay, int checkOutDay, Long[] rooms, long version) {
+        lock.lock();
+        try{
+            if (capacity == 0) {return;}
+            Type type = type(roomType);
+            if (type.version != version) {
+                rejected.increment();
+                return;
+            }
+            Key key = new Key(type, checkInDay, checkOutDay);
+            if (results.put(key, rooms.length == 0 ? NONE : rooms) == null) {type.keys.add(key);}
+            evict();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the results a change to the bookings of a room could make wrong: those of its room type whose stay shares
+     * a night with [fromDay, toDay)
+     *
+     * @param roomNumber   the room whose bookings changed
+     * @param fromDay      the first night that changed
+     * @param toDay        the day after the last night that changed
+     */
+
+    void invalidate(long roomNumber, int fromDay, int toDay) {
+        Room room = HotelImpl.roomsByNumber.get(roomNumber);
+        lock.lock();
+        try{
+            if (room != null) {
+                drop(type(room.getRoomType()), fromDay, toDay);
+            } else {
+                for (Type type : distinctTypes()) {drop(type, fromDay, toDay);} // A room we do not know, every type is checked
+            }
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every result of a room type, after a room of that type was added or removed
+     *
+     * @param roomType   the room type, in any case
+     */
+
+    void invalidateType(String roomType) {
+        lock.lock();
+        try{
+            drop(type(roomType), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every result, after the rooms or the bookings were imported again
+     */
+
+    void clear() {
+        lock.lock();
+        try{
+            for (Type type : distinctTypes()) {
+                type.version++;
+                type.keys.clear();
+            }
+            invalidations.add(results.size());
+            results.clear();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The counters of the cache
+     *
+     * @return   the counters as they are now
+     */
+
+    CacheStats stats() {
+        lock.lock();
+        try{
+            return new CacheStats(capacity, results.size(), hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), rejected.sum());
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private void drop(Type type, int fromDay, int toDay) {
+        type.version++;
+        Iterator<Key> keys = type.keys.iterator();
+        while (keys.hasNext()) {
+            Key key = keys.next();
+            if (key.checkInDay < toDay && key.checkOutDay > fromDay) { // The stay shares a night with the change
+                keys.remove();
+                results.remove(key);
+                invalidations.increment();
+            }
+        }
+    }
+
+    private void evict() {
+        Iterator<Key> eldest = results.keySet().iterator();
+        while (results.size() > capacity) {
+            Key key = eldest.next();
+            eldest.remove();
+            key.type.keys.remove(key);
+            evictions.increment();
+        }
+    }
+
+    private Type type(String roomType) {
+        Type type = types.get(roomType);
+        if (type == null) {
+            String name = roomType.toLowerCase(Locale.ROOT);
+            type = types.get(name);
+            if (type == null) {
+                type = new Type();
+                types.put(name, type);
+            }
+            types.put(roomType, type); // The next lookup with the same spelling skips toLowerCase
+        }
+        return type;
+    }
+
+    private Iterable<Type> distinctTypes() {
+        Map<Type, Type> distinct = new IdentityHashMap<Type, Type>();
+        for (Type type : types.values()) {distinct.put(type, type);}
+        return distinct.keySet();
+    }
+
+    /**
+     * A room type: its version and the keys of its stored results
+     */
+
+    private static final class Type {
+        long version;
+        final HashSet<Key> keys = new HashSet<Key>();
+    }
+
+    private static final class Key {
+        final Type type;
+        final int checkInDay;
+        final int checkOutDay;
+
+        Key(Type type, int checkInDay, int checkOutDay) {
+            this.type = type;
+            this.checkInDay = checkInDay;
+            this.checkOutDay = checkOutDay;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {return false;}
+            Key key = (Key) other;
+            return type == key.type && checkInDay == key.checkInDay && checkOutDay == key.checkOutDay;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(type) * 31 + checkInDay) * 31 + checkOutDay;
+        }
+    }
+}
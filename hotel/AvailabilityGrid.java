@@ -0,0 +1,225 @@
+package hotel;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Room;
+
+/**
+ * A materialized availability-and-rate grid (ARI). For every room type it keeps how many rooms the hotel has,
+ * the base rate (the cheapest room price of that type) and, for every night, how many of those rooms are booked.
+ *
+ * The grid is never rebuilt from the booking list while the hotel is running: every booking, cancellation,
+ * check-out and room change just adds or removes its own nights. Asking for a whole window of nights is then
+ * one array copy per room type.
+ *
+ * The grid keeps the nights within HORIZON_DAYS of the day it was last filled, before and after. The nights of a
+ * booking outside that horizon are not counted, so a far-away or wrong date never makes a row grow, and a window
+ * outside it is refused. Bookings change the grid from RoomBookingIndex, under the lock of their room, so a booking
+ * is always counted once and given back once.
+ *
+ * The nights of a room's bookings are only counted while the room is in the grid: removing a room gives back the
+ * nights of the past bookings it still has, and adding it again counts them again, so releasing one of them later
+ * always matches what was booked.
+ *
+ * Each row has its own monitor, so updates for different room types never wait for each other.
+ */
+
+public final class AvailabilityGrid {
+
+    static final int HORIZON_DAYS = 3653; // Ten years each way
+
+    private final EnumMap<RoomType, Row> rows = new EnumMap<RoomType, Row>(RoomType.class);
+    private final ConcurrentHashMap<Long, RoomType> roomTypes = new ConcurrentHashMap<Long, RoomType>();
+
+    AvailabilityGrid() {
+        int firstDay = EpochDays.of(new Date()) - HORIZON_DAYS;
+        for (RoomType type : RoomType.values()) {rows.put(type, new Row(firstDay));}
+    }
+
+    /**
+     * Turns the room type text used in the data files ("double", "Single"...) into a RoomType
+     *
+     * @param roomType   the room type as text
+     * @return           the matching RoomType or null if there is none
+     */
+
+    static RoomType typeOf(String roomType) {
+        if (roomType == null) {return null;}
+        try {
+            return RoomType.valueOf(roomType.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds one room to the count (and maybe the base rate) of its room type, with the nights of the bookings it
+     * already has. The caller holds the room's lock.
+     *
+     * @param room       the room that was added
+     * @param bookings   the bookings of its room number, kept from before it was last removed
+     */
+
+    void addRoom(Room room, Iterable<Booking> bookings) {
+        RoomType type = typeOf(room.getRoomType());
+        if (type == null || roomTypes.putIfAbsent(room.getRoomNumber(), type) != null) {return;}
+        Row row = rows.get(type);
+        row.addRate(room.getRoomPrice(), 1);
+        for (Booking booking : bookings) {row.addNights(booking.getCheckInDay(), booking.getCheckOutDay(), 1);}
+    }
+
+    /**
+     * Takes one room away from the count of its room type, with the nights of the bookings it still has, which are
+     * not counted anywhere once the room is gone. The caller holds the room's lock.
+     *
+     * @param room       the room that was removed
+     * @param bookings   the bookings it still has
+     */
+
+    void removeRoom(Room room, Iterable<Booking> bookings) {
+        RoomType type = roomTypes.remove(room.getRoomNumber());
+        if (type == null) {return;}
+        Row row = rows.get(type);
+        row.addRate(room.getRoomPrice(), -1);
+        for (Booking booking : bookings) {row.addNights(booking.getCheckInDay(), booking.getCheckOutDay(), -1);}
+    }
+
+    /**
+     * Marks the nights of a booking as taken
+     *
+     * @param booking   the new booking
+     */
+
+    void book(Booking booking) {
+        change(booking, 1);
+    }
+
+    /**
+     * Gives the nights of a booking back, after a cancellation or a check-out
+     *
+     * @param booking   the booking that was removed
+     */
+
+    void release(Booking booking) {
+        change(booking, -1);
+    }
+
+    private void change(Booking booking, int delta) {
+        RoomType type = roomTypes.get(booking.getRoomNumber());
+        if (type == null) {return;}
+        rows.get(type).addNights(booking.getCheckInDay(), booking.getCheckOutDay(), delta);
+    }
+
+    /**
+     * Empties the grid and fills it again from the room and booking lists. Only used when the data is imported.
+     *
+     * @param rooms      all the rooms of the hotel
+     * @param bookings   all the bookings of the hotel
+     */
+
+    void rebuild(Iterable<Room> rooms, Iterable<Booking> bookings) {
+        roomTypes.clear();
+        int firstDay = EpochDays.of(new Date()) - HORIZON_DAYS;
+        for (Row row : rows.values()) {row.reset(firstDay);}
+        if (rooms != null) {for (Room room : rooms) {addRoom(room, Collections.<Booking>emptyList());}}
+        if (bookings != null) {for (Booking booking : bookings) {book(booking);}}
+    }
+
+    /**
+     * Reads a window of nights for one room type in a single call
+     *
+     * @param type       the room type
+     * @param firstDay   the epoch-day of the first night
+     * @param nights     how many nights to return
+     * @return           the free rooms and rate of every night in the window
+     * @throws IllegalArgumentException   if the window is not within the nights the grid keeps
+     */
+
+    public Window window(RoomType type, int firstDay, int nights) {
+        return rows.get(type).window(type, firstDay, nights);
+    }
+
+    /**
+     * One row of the grid, that is all the nights of a single room type
+     */
+
+    private static final class Row {
+        private int rooms;
+        private final TreeMap<Double, Integer> priceCounts = new TreeMap<Double, Integer>();
+        private int origin;
+        private int[] booked;
+
+        Row(int origin) {
+            reset(origin);
+        }
+
+        synchronized void reset(int origin) {
+            rooms = 0;
+            priceCounts.clear();
+            this.origin = origin;
+            booked = new int[HORIZON_DAYS * 2];
+        }
+
+        synchronized void addRate(double price, int delta) {
+            rooms += delta;
+            int count = priceCounts.getOrDefault(price, 0) + delta;
+            if (count > 0) {priceCounts.put(price, count);} else {priceCounts.remove(price);}
+        }
+
+        double baseRate() {
+            return priceCounts.isEmpty() ? 0.0 : priceCounts.firstKey();
+        }
+
+        // Only the nights of [firstDay, lastDay) within the horizon are counted, the same ones when they are given back
+        synchronized void addNights(int firstDay, int lastDay, int delta) {
+            int from = Math.max(firstDay, origin) - origin;
+            int to = Math.min(lastDay, origin + booked.length) - origin;
+            for (int night = from; night < to; night++) {booked[night] += delta;}
+        }
+
+        synchronized Window window(RoomType type, int firstDay, int nights) {
+            if (nights < 0 || firstDay < origin || (long) firstDay + nights > (long) origin + booked.length) {
+                throw new IllegalArgumentException("The grid only keeps the nights from " + EpochDays.format(origin) + " to "
+                        + EpochDays.format(origin + booked.length) + ", not " + nights + " nights from " + EpochDays.format(firstDay));
+            }
+            int[] free = new int[nights];
+            double[] rates = new double[nights];
+            double rate = baseRate();
+            for (int i = 0; i < nights; i++) {
+                free[i] = rooms - booked[firstDay + i - origin]; // The window was checked against the horizon
+                rates[i] = rate;
+            }
+            return new Window(type, firstDay, free, rates);
+        }
+    }
+
+    /**
+     * The answer to a range query: the number of free rooms and the base rate for each night of the window
+     */
+
+    public static final class Window {
+        private final RoomType roomType;
+        private final int firstDay;
+        private final int[] freeRooms;
+        private final double[] rates;
+
+        Window(RoomType roomType, int firstDay, int[] freeRooms, double[] rates) {
+            this.roomType = roomType;
+            this.firstDay = firstDay;
+            this.freeRooms = freeRooms;
+            this.rates = rates;
+        }
+
+        public RoomType getRoomType() {return this.roomType;}
+        public int getNights() {return this.freeRooms.length;}
+        public Date getDate(int night) {return EpochDays.toDate(this.firstDay + night);}
+        public int getFreeRooms(int night) {return this.freeRooms[night];}
+        public double getRate(int night) {return this.rates[night];}
+    }
+}
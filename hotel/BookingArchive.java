@@ -0,0 +1,704 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * An append-only, compressed file of the bookings that left the live tables: checked out, cancelled, or whose stay
+ * is over. Keeping them here lets bookingList and its indexes hold only current and future stays, while the guest
+ * booking report and the revenue report can still see the history.
+ *
+ * Archived bookings are collected in memory and written out 4096 at a time as one segment. The rows of a segment are
+ * sorted by guest ID and cut into blocks of 256. Each block holds its rows column by column, the IDs and the dates as
+ * differences from the value before, compressed with Deflate on its own. A segment carries a CRC over all its bytes,
+ * header included, so a segment torn by a crash is cut off when the archive is opened again. The header also keeps
+ * the highest booking ID and guest ID of the segment: a booking that only lives on in the archive still holds its
+ * IDs, and opening the archive seeds the ID allocators past them so they are never given out again.
+ *
+ * The archive keeps a sparse index of its segments in memory: the first check-in day and the last check-out day of
+ * every segment, a Bloom filter of its guest IDs (a bit array that answers "maybe" or "certainly not"), and the first
+ * guest ID of every block. A query for a range of days only decompresses the segments whose days overlap it, and a
+ * query for one guest only the one or two blocks of the segments the filter lets through. Bookings are archived
+ * about when their stay ends, so the day ranges of the segments hardly overlap.
+ *
+ * Each segment is forced to disk before it counts as written. The bookings not yet written out are held in memory
+ * only, but the journal entry of each one records how it was archived: a checkpoint flushes the archive before it
+ * drops those entries, and a restart archives again the ones the archive does not hold, as long as the archive is
+ * opened before the journal.
+ */
+
+final class BookingArchive {
+
+    // Why a booking was archived
+    static final byte NOT_ARCHIVED = 0;
+    static final byte CHECKED_OUT = 1;
+    static final byte CANCELLED = 2;
+    static final byte COMPLETED = 3; // The stay ended without a check-out
+
+    static final int MAGIC = 0x48544c41; // "HTLA"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4;
+    // compressed bytes, CRC, rows, raw bytes, first day, last day, filter words, blocks, highest booking ID, highest guest ID
+    static final int SEGMENT_HEADER_BYTES = 8 * 4 + 2 * 8;
+    static final int SEGMENT_ROWS = 4096;
+    static final int BLOCK_ROWS = 256;
+
+    private static final int BLOCK_ENTRY_BYTES = 8 + 4 + 4; // first guest ID, compressed bytes, rows
+    private static final int RAW_ROW_BYTES = 4 * 8 + 4 * 4 + 1;
+    private static final int FILTER_BITS_PER_ROW = 8;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayList<Segment> segments = new ArrayList<Segment>();
+    private final Rows pending = new Rows(SEGMENT_ROWS);
+    private final Rows sorted = new Rows(SEGMENT_ROWS); // The pending rows in guest order, while a segment is written
+    private final Rows decoded = new Rows(BLOCK_ROWS); // A block read back, reused from one query to the next
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final Inflater inflater = new Inflater();
+    private final byte[] raw = new byte[BLOCK_ROWS * RAW_ROW_BYTES]; // The uncompressed bytes of one block
+    private byte[] compressed = new byte[BLOCK_ROWS * RAW_ROW_BYTES]; // The blocks of the segment being written
+    private int compressedLength;
+    private long archivedRows;
+    private long rawBytes;
+    private long end; // Where the next segment goes, after the last one fully written
+    private long maxBookingID; // The highest IDs of the written segments, so the allocators never give them out again
+    private long maxGuestID;
+    private boolean closed;
+
+    private BookingArchive(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens an archive for appending, creating it if it does not exist, and reads the index of its segments
+     *
+     * @param fileName   the archive file
+     * @return           the open archive
+     * @throws IOException if the file cannot be read or written, or is not an archive
+     */
+
+    static BookingArchive open(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                write(channel, header, 0);
+                channel.force(true);
+            }
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {throw new IOException("Not a booking archive: " + fileName);}
+            int version = header.getInt();
+            if (version != VERSION) {throw new IOException("Unsupported archive version " + version);}
+            BookingArchive archive = new BookingArchive(path, channel);
+            archive.readIndex();
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header, the filter and the block table of every segment. The CRC covers the header (but for the CRC
+     * itself), the filter, the block table and the blocks, so the blocks are read once here to check it, but are not
+     * kept.
+     */
+
+    private void readIndex() throws IOException {
+        long position = HEADER_BYTES;
+        long end = channel.size();
+        CRC32 check = new CRC32();
+        while (end - position >= SEGMENT_HEADER_BYTES) {
+            ByteBuffer header = read(channel, position, SEGMENT_HEADER_BYTES);
+            int compressed = header.getInt();
+            int crc = header.getInt();
+            int rows = header.getInt();
+            int raw = header.getInt();
+            int firstDay = header.getInt();
+            int lastDay = header.getInt();
+            int filterWords = header.getInt();
+            int blocks = header.getInt();
+            long segmentMaxBookingID = header.getLong();
+            long segmentMaxGuestID = header.getLong();
+            if (compressed < 0 || rows < 0 || filterWords < 0 || blocks < 0 || blocks > rows) {break;}
+            long index = 8L * filterWords + (long) BLOCK_ENTRY_BYTES * blocks;
+            long next = position + SEGMENT_HEADER_BYTES + index + compressed;
+            if (index + compressed > Integer.MAX_VALUE || next > end) {break;} // Torn at the end
+            ByteBuffer data = read(channel, position + SEGMENT_HEADER_BYTES, (int) (index + compressed));
+            check.reset();
+            check.update(header.array(), 0, 4);
+            check.update(header.array(), 8, SEGMENT_HEADER_BYTES - 8);
+            check.update(data.array(), 0, data.limit());
+            if ((int) check.getValue() != crc) {break;}
+
+            long[] filter = new long[filterWords];
+            for (int i = 0; i < filterWords; i++) {filter[i] = data.getLong();}
+            long[] firstGuestIDs = new long[blocks];
+            int[] blockStarts = new int[blocks + 1];
+            int[] blockRows = new int[blocks];
+            for (int b = 0; b < blocks; b++) {
+                firstGuestIDs[b] = data.getLong();
+                blockStarts[b + 1] = blockStarts[b] + data.getInt();
+                blockRows[b] = data.getInt();
+            }
+            if (blockStarts[blocks] != compressed) {break;}
+            segments.add(new Segment(position + SEGMENT_HEADER_BYTES + index, firstDay, lastDay, filter, firstGuestIDs, blockStarts, blockRows));
+            archivedRows += rows;
+            rawBytes += raw;
+            maxBookingID = Math.max(maxBookingID, segmentMaxBookingID);
+            maxGuestID = Math.max(maxGuestID, segmentMaxGuestID);
+            position = next;
+        }
+        if (position < end) {
+            System.out.println("Cutting off " + (end - position) + " bytes of a torn segment at the end of the archive " + path);
+            channel.truncate(position);
+        }
+        this.end = position;
+    }
+
+    /**
+     * Adds a booking that left the live tables. It is written out with the next full segment.
+     *
+     * @param booking       the booking
+     * @param status        why it was archived, CHECKED_OUT, CANCELLED or COMPLETED
+     * @param archivedDay   the epoch-day it was archived
+     * @throws IOException  if a full segment could not be written, the booking is kept and written with the next one
+     */
+
+    void add(Booking booking, byte status, int archivedDay) throws IOException {
+        lock.lock();
+        try{
+            pending.add(booking.getBookingID(), booking.getGuestID(), booking.getRoomNumber(), booking.getBookingDay(),
+                    booking.getCheckInDay(), booking.getCheckOutDay(), booking.getTotalAmount(), status, archivedDay);
+            if (pending.size >= SEGMENT_ROWS) {writeSegment();}
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out the bookings collected since the last segment, as a shorter segment
+     *
+     * @throws IOException   if the segment could not be written
+     */
+
+    void flush() throws IOException {
+        lock.lock();
+        try{
+            if (pending.size > 0) {writeSegment();}
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out the bookings collected so far if the first rows of them are not written yet, for a checkpoint that
+     * is about to drop the journal entries of those rows. Does nothing once the archive is closed, which wrote
+     * them out already.
+     *
+     * @param rows   how many bookings had been added when the checkpoint was taken, as size() gave then
+     * @throws IOException   if the segment could not be written
+     */
+
+    void flushTo(long rows) throws IOException {
+        lock.lock();
+        try{
+            if (!closed && archivedRows < rows) {writeSegment();}
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells if a booking is in the archive, written out or not
+     *
+     * @param booking   the booking
+     * @return          true if the archive holds a booking with its ID
+     * @throws IOException   if a segment cannot be read
+     */
+
+    boolean holds(Booking booking) throws IOException {
+        boolean[] found = new boolean[1];
+        guestBookings(booking.getGuestID(), (rows, row) -> {if (rows.bookingIDs[row] == booking.getBookingID()) {found[0] = true;}});
+        return found[0];
+    }
+
+    /**
+     * Writes out what is still collected and closes the file
+     *
+     * @throws IOException   if the last segment could not be written
+     */
+
+    void close() throws IOException {
+        lock.lock();
+        try{
+            try {
+                flush();
+            } finally {
+                closed = true;
+                channel.close();
+                deflater.end();
+                inflater.end();
+            }
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sorts the pending rows by guest ID, compresses them 256 at a time and writes them out as one segment. The sort
+     * is stable, so the bookings of a guest keep the order they were archived in.
+     */
+
+    private void writeSegment() throws IOException {
+        Rows rows = pending;
+        int size = rows.size;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {order[i] = i;}
+        Arrays.sort(order, (a, b) -> Long.compare(rows.guestIDs[a], rows.guestIDs[b]));
+        sorted.size = 0;
+        for (int i = 0; i < size; i++) {sorted.add(rows, order[i]);}
+
+        int blocks = (size + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        long[] firstGuestIDs = new long[blocks];
+        int[] blockStarts = new int[blocks + 1];
+        int[] blockRows = new int[blocks];
+        ByteBuffer encoded = ByteBuffer.wrap(raw);
+        compressedLength = 0;
+        for (int b = 0; b < blocks; b++) {
+            int from = b * BLOCK_ROWS;
+            int to = Math.min(size, from + BLOCK_ROWS);
+            encoded.clear();
+            sorted.encode(encoded, from, to);
+            deflate(encoded.position());
+            firstGuestIDs[b] = sorted.guestIDs[from];
+            blockStarts[b + 1] = compressedLength;
+            blockRows[b] = to - from;
+        }
+
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        long segmentMaxBookingID = 0;
+        long[] filter = new long[filterWords(size)];
+        for (int i = 0; i < size; i++) {
+            firstDay = Math.min(firstDay, sorted.checkInDays[i]);
+            lastDay = Math.max(lastDay, sorted.checkOutDays[i]);
+            segmentMaxBookingID = Math.max(segmentMaxBookingID, sorted.bookingIDs[i]);
+            setBits(filter, sorted.guestIDs[i]);
+        }
+        long segmentMaxGuestID = sorted.guestIDs[size - 1]; // Sorted by guest
+
+        int index = 8 * filter.length + BLOCK_ENTRY_BYTES * blocks;
+        ByteBuffer out = ByteBuffer.allocate(SEGMENT_HEADER_BYTES + index + compressedLength);
+        out.position(SEGMENT_HEADER_BYTES);
+        for (long word : filter) {out.putLong(word);}
+        for (int b = 0; b < blocks; b++) {out.putLong(firstGuestIDs[b]).putInt(blockStarts[b + 1] - blockStarts[b]).putInt(blockRows[b]);}
+        out.put(compressed, 0, compressedLength);
+        int raw = size * RAW_ROW_BYTES;
+        out.putInt(0, compressedLength).putInt(8, size).putInt(12, raw).putInt(16, firstDay).putInt(20, lastDay)
+                .putInt(24, filter.length).putInt(28, blocks).putLong(32, segmentMaxBookingID).putLong(40, segmentMaxGuestID);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, 4);
+        crc.update(out.array(), 8, out.position() - 8);
+        out.putInt(4, (int) crc.getValue());
+        out.flip();
+        long position = end;
+        try {
+            write(channel, out, position);
+            channel.force(true); // The file grew, so its length is forced as well
+        } catch (IOException e) {
+            try {
+                channel.truncate(position); // So the next segment does not go after a torn one, which opening cuts off with all that follows
+            } catch (IOException ignored) {
+                // The torn bytes stay, the next segment is still written at the same place over them
+            }
+            throw e;
+        }
+        end = position + out.limit();
+
+        segments.add(new Segment(position + SEGMENT_HEADER_BYTES + index, firstDay, lastDay, filter, firstGuestIDs, blockStarts, blockRows));
+        archivedRows += size;
+        rawBytes += raw;
+        maxBookingID = Math.max(maxBookingID, segmentMaxBookingID);
+        maxGuestID = Math.max(maxGuestID, segmentMaxGuestID);
+        rows.size = 0;
+    }
+
+    private void deflate(int length) {
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {compressed = Arrays.copyOf(compressed, compressed.length * 2);}
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+    }
+
+    /**
+     * Goes through the archived bookings of one guest, oldest first
+     *
+     * @param guestID   the guest
+     * @param visitor   called with every booking of the guest
+     * @throws IOException   if a segment cannot be read
+     */
+
+    void guestBookings(long guestID, Visitor visitor) throws IOException {
+        lock.lock();
+        try{
+            for (Segment segment : segments) {
+                if (!segment.mayHoldGuest(guestID)) {continue;}
+                // The bookings of the guest can start at the end of the last block that starts before it, and run
+                // on through the blocks that start with it
+                int b = Math.max(0, segment.firstBlockFrom(guestID) - 1);
+                while (b < segment.firstGuestIDs.length && segment.firstGuestIDs[b] <= guestID) {
+                    Rows rows = loadBlock(segment, b++);
+                    for (int i = 0; i < rows.size; i++) {if (rows.guestIDs[i] == guestID) {visitor.visit(rows, i);}}
+                }
+            }
+            for (int i = 0; i < pending.size; i++) {if (pending.guestIDs[i] == guestID) {visitor.visit(pending, i);}}
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Goes through the archived bookings checking in between two days, both included
+     *
+     * @param fromDay   the first epoch-day
+     * @param toDay     the last epoch-day
+     * @param visitor   called with every booking checking in on those days
+     * @throws IOException   if a segment cannot be read
+     */
+
+    void checkIns(int fromDay, int toDay, Visitor visitor) throws IOException {
+        lock.lock();
+        try{
+            for (Segment segment : segments) {
+                if (segment.firstDay > toDay || segment.lastDay < fromDay) {continue;} // Every stay of the segment is within [firstDay, lastDay]
+                for (int b = 0; b < segment.firstGuestIDs.length; b++) {
+                    Rows rows = loadBlock(segment, b);
+                    for (int i = 0; i < rows.size; i++) {
+                        if (rows.checkInDays[i] >= fromDay && rows.checkInDays[i] <= toDay) {visitor.visit(rows, i);}
+                    }
+                }
+            }
+            for (int i = 0; i < pending.size; i++) {
+                if (pending.checkInDays[i] >= fromDay && pending.checkInDays[i] <= toDay) {visitor.visit(pending, i);}
+            }
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    private Rows loadBlock(Segment segment, int block) throws IOException {
+        int length = segment.blockStarts[block + 1] - segment.blockStarts[block];
+        ByteBuffer data = read(channel, segment.offset + segment.blockStarts[block], length);
+        int rows = segment.blockRows[block];
+        int expected = rows * RAW_ROW_BYTES;
+        int inflated = 0;
+        inflater.reset();
+        inflater.setInput(data.array(), 0, data.limit());
+        try {
+            while (inflated < expected && !inflater.finished()) {
+                int n = inflater.inflate(raw, inflated, expected - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {break;}
+                inflated += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("A block of the archive " + path + " cannot be decompressed", e);
+        }
+        if (inflated < expected || rows > BLOCK_ROWS) {throw new IOException("A block of the archive " + path + " is shorter than its header says");}
+        decoded.decode(ByteBuffer.wrap(raw), rows);
+        return decoded;
+    }
+
+    long size() {
+        lock.lock();
+        try{
+            return archivedRows + pending.size;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The highest booking ID the archive holds, written out or not, 0 if it holds none
+     */
+
+    long maxBookingID() {
+        lock.lock();
+        try{
+            long max = maxBookingID;
+            for (int i = 0; i < pending.size; i++) {max = Math.max(max, pending.bookingIDs[i]);}
+            return max;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The highest guest ID of a booking the archive holds, written out or not, 0 if it holds none
+     */
+
+    long maxGuestID() {
+        lock.lock();
+        try{
+            long max = maxGuestID;
+            for (int i = 0; i < pending.size; i++) {max = Math.max(max, pending.guestIDs[i]);}
+            return max;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        lock.lock();
+        try{
+            return segments.size();
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How much the written segments shrank, for the archive summary
+     *
+     * @return   the uncompressed bytes over the bytes of the file
+     */
+
+    double compressionRatio() throws IOException {
+        lock.lock();
+        try{
+            long file = channel.size() - HEADER_BYTES;
+            return file == 0 ? 1 : (double) rawBytes / file;
+        }finally{
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The name of a status, for the reports
+     */
+
+    static String statusName(byte status) {
+        switch (status) {
+            case CHECKED_OUT: return "checked out";
+            case CANCELLED: return "cancelled";
+            case COMPLETED: return "completed";
+            default: return "unknown";
+        }
+    }
+
+    private static int filterWords(int rows) {
+        int bits = Integer.highestOneBit(Math.max(64, rows * FILTER_BITS_PER_ROW - 1) << 1);
+        return bits / 64;
+    }
+
+    private static void setBits(long[] filter, long guestID) {
+        long hash = guestID * 0x9E3779B97F4A7C15L;
+        int mask = filter.length * 64 - 1;
+        for (int k = 0; k < 3; k++) {
+            int bit = ((int) hash + k * (int) (hash >>> 32)) & mask;
+            filter[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {break;}
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {channel.write(buffer, position + buffer.position());}
+    }
+
+    /**
+     * Called with each archived booking a query finds
+     */
+
+    interface Visitor {
+        void visit(Rows rows, int row);
+    }
+
+    /**
+     * Where a segment is in the file, and its part of the sparse index
+     */
+
+    private static final class Segment {
+        final long offset; // Of the first block
+        final int firstDay;
+        final int lastDay;
+        final long[] filter;
+        final long[] firstGuestIDs; // Of each block, in order
+        final int[] blockStarts; // From the offset, with the end of the last block after them
+        final int[] blockRows;
+
+        Segment(long offset, int firstDay, int lastDay, long[] filter, long[] firstGuestIDs, int[] blockStarts, int[] blockRows) {
+            this.offset = offset;
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.filter = filter;
+            this.firstGuestIDs = firstGuestIDs;
+            this.blockStarts = blockStarts;
+            this.blockRows = blockRows;
+        }
+
+        boolean mayHoldGuest(long guestID) {
+            long hash = guestID * 0x9E3779B97F4A7C15L;
+            int mask = filter.length * 64 - 1;
+            for (int k = 0; k < 3; k++) {
+                int bit = ((int) hash + k * (int) (hash >>> 32)) & mask;
+                if ((filter[bit >>> 6] & (1L << bit)) == 0) {return false;}
+            }
+            return true;
+        }
+
+        /**
+         * The first block whose first guest ID is at least guestID, or the number of blocks if there is none
+         */
+
+        int firstBlockFrom(long guestID) {
+            int low = 0;
+            int high = firstGuestIDs.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (firstGuestIDs[middle] < guestID) {low = middle + 1;} else {high = middle;}
+            }
+            return low;
+        }
+    }
+
+
+    /**
+     * Archived bookings column by column, either those waiting to be written or a segment read back
+     */
+
+    static final class Rows {
+        long[] bookingIDs;
+        long[] guestIDs;
+        long[] roomNumbers;
+        int[] bookingDays;
+        int[] checkInDays;
+        int[] checkOutDays;
+        double[] amounts;
+        byte[] statuses;
+        int[] archivedDays;
+        int size;
+
+        Rows(int capacity) {
+            bookingIDs = new long[capacity];
+            guestIDs = new long[capacity];
+            roomNumbers = new long[capacity];
+            bookingDays = new int[capacity];
+            checkInDays = new int[capacity];
+            checkOutDays = new int[capacity];
+            amounts = new double[capacity];
+            statuses = new byte[capacity];
+            archivedDays = new int[capacity];
+        }
+
+        Booking toBooking(int row) {
+            return new Booking(bookingIDs[row], guestIDs[row], roomNumbers[row], bookingDays[row], checkInDays[row], checkOutDays[row], amounts[row]);
+        }
+
+        void add(long bookingID, long guestID, long roomNumber, int bookingDay, int checkInDay, int checkOutDay, double amount, byte status, int archivedDay) {
+            if (size == bookingIDs.length) {grow(size * 2);} // Only if a write failed and the rows are kept for the next one
+            bookingIDs[size] = bookingID;
+            guestIDs[size] = guestID;
+            roomNumbers[size] = roomNumber;
+            bookingDays[size] = bookingDay;
+            checkInDays[size] = checkInDay;
+            checkOutDays[size] = checkOutDay;
+            amounts[size] = amount;
+            statuses[size] = status;
+            archivedDays[size] = archivedDay;
+            size++;
+        }
+
+        void add(Rows from, int row) {
+            add(from.bookingIDs[row], from.guestIDs[row], from.roomNumbers[row], from.bookingDays[row], from.checkInDays[row],
+                    from.checkOutDays[row], from.amounts[row], from.statuses[row], from.archivedDays[row]);
+        }
+
+        private void grow(int capacity) {
+            bookingIDs = Arrays.copyOf(bookingIDs, capacity);
+            guestIDs = Arrays.copyOf(guestIDs, capacity);
+            roomNumbers = Arrays.copyOf(roomNumbers, capacity);
+            bookingDays = Arrays.copyOf(bookingDays, capacity);
+            checkInDays = Arrays.copyOf(checkInDays, capacity);
+            checkOutDays = Arrays.copyOf(checkOutDays, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            archivedDays = Arrays.copyOf(archivedDays, capacity);
+        }
+
+        /**
+         * Writes the rows from one index to another one column after the other. The guest IDs, which are sorted, and
+         * the booking IDs are written as the difference from the one before, and each date as the difference from the
+         * date before it in the booking, so most values are small and compress well.
+         */
+
+        void encode(ByteBuffer out, int from, int to) {
+            long previous = 0;
+            for (int i = from; i < to; i++) {
+                out.putLong(guestIDs[i] - previous);
+                previous = guestIDs[i];
+            }
+            previous = 0;
+            for (int i = from; i < to; i++) {
+                out.putLong(bookingIDs[i] - previous);
+                previous = bookingIDs[i];
+            }
+            for (int i = from; i < to; i++) {out.putLong(roomNumbers[i]);}
+            for (int i = from; i < to; i++) {out.putLong(Double.doubleToRawLongBits(amounts[i]));}
+            for (int i = from; i < to; i++) {out.putInt(bookingDays[i]);}
+            for (int i = from; i < to; i++) {out.putInt(checkInDays[i] - bookingDays[i]);}
+            for (int i = from; i < to; i++) {out.putInt(checkOutDays[i] - checkInDays[i]);}
+            for (int i = from; i < to; i++) {out.putInt(archivedDays[i] - checkOutDays[i]);}
+            out.put(statuses, from, to - from);
+        }
+
+        void decode(ByteBuffer in, int rows) {
+            if (rows > bookingIDs.length) {grow(rows);}
+            size = rows;
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += in.getLong();
+                guestIDs[i] = previous;
+            }
+            previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += in.getLong();
+                bookingIDs[i] = previous;
+            }
+            for (int i = 0; i < rows; i++) {roomNumbers[i] = in.getLong();}
+            for (int i = 0; i < rows; i++) {amounts[i] = Double.longBitsToDouble(in.getLong());}
+            for (int i = 0; i < rows; i++) {bookingDays[i] = in.getInt();}
+            for (int i = 0; i < rows; i++) {checkInDays[i] = bookingDays[i] + in.getInt();}
+            for (int i = 0; i < rows; i++) {checkOutDays[i] = checkInDays[i] + in.getInt();}
+            for (int i = 0; i < rows; i++) {archivedDays[i] = checkOutDays[i] + in.getInt();}
+            in.get(statuses, 0, rows);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package hotel;
+import java.util.Date;
+/**
+ * One room of a group booking: the room type wanted, the guest it is booked for and the stay.
+ */
+public class BookingRequest {
+    private String roomType;
+    private long guestID;
+    private Date checkInDate;
+    private Date checkOutDate;
+
+    // This is the constructor
+    public BookingRequest(String roomType, long guestID, Date checkInDate, Date checkOutDate) {
+        this.roomType = roomType;
+        this.guestID = guestID;
+        this.checkInDate = checkInDate;
+        this.checkOutDate = checkOutDate;
+    }
+
+    // These are the public methods used to access from outside the inner, private attributes of this class
+    public String getRoomType() {return this.roomType;}
+    public long getGuestID() {return this.guestID;}
+    public Date getCheckInDate() {return this.checkInDate;}
+    public Date getCheckOutDate() {return this.checkOutDate;}
+}
@@ -0,0 +1,508 @@
+package hotel;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * A store for years of booking history, tens of millions of bookings, kept outside the Java heap so it neither needs
+ * a big heap nor gives the garbage collector anything to scan.
+ *
+ * The bookings are stored column by column in direct ByteBuffers. Every block of 65536 rows is one buffer holding
+ * one column after the other: booking ID, guest ID, room number and amount (8 bytes each), then the booking,
+ * check-in and check-out epoch-days (4 bytes each). Two more int columns chain the bookings of the same room and
+ * of the same guest, each row pointing to the previous row of its room and of its guest, so the bookings of one room
+ * or one guest are found without scanning the others. Only the newest row of every room and guest is kept on the
+ * heap, in two small tables of primitive arrays. A last int column holds the latest check-out of the row and of
+ * every older row of its room, so an availability check going back through a room's bookings stops as soon as no
+ * older booking can reach the stay, which for history added in date order is after a few rows. That is 56 bytes a
+ * booking in all.
+ *
+ * The rows are read through a Cursor, a flyweight that is moved from row to row and reads the columns in place, so
+ * scans, lookups and availability checks never create a Booking object. One Cursor should be used by one thread.
+ *
+ * Rows are only ever added, and never changed once written. Appends take turns through a write lock, and the new
+ * row is published by raising the size, so readers on other threads can go through the rows below size() without
+ * any lock. Looking up a booking ID is a binary search while the IDs were added in ascending order (as the hotel
+ * hands them out), and a scan otherwise.
+ *
+ * The buffers count towards -XX:MaxDirectMemorySize, which defaults to the maximum heap size, so a history of
+ * 50 million bookings (about 2.8 GB) needs it set, for example -Xmx512m -XX:MaxDirectMemorySize=3g.
+ */
+
+public final class BookingStore {
+
+    /** The row number given back when there is no such row */
+    public static final int NONE = -1;
+
+    private static final int BLOCK_BITS = 16;
+    private static final int BLOCK_ROWS = 1 << BLOCK_BITS;
+    private static final int ROW_MASK = BLOCK_ROWS - 1;
+
+    // Where each column starts in a block, the value of row i is at start + i * width
+    private static final int BOOKING_ID = 0;
+    private static final int GUEST_ID = BOOKING_ID + 8 * BLOCK_ROWS;
+    private static final int ROOM_NUMBER = GUEST_ID + 8 * BLOCK_ROWS;
+    private static final int TOTAL_AMOUNT = ROOM_NUMBER + 8 * BLOCK_ROWS;
+    private static final int BOOKING_DAY = TOTAL_AMOUNT + 8 * BLOCK_ROWS;
+    private static final int CHECK_IN_DAY = BOOKING_DAY + 4 * BLOCK_ROWS;
+    private static final int CHECK_OUT_DAY = CHECK_IN_DAY + 4 * BLOCK_ROWS;
+    private static final int PREVIOUS_OF_ROOM = CHECK_OUT_DAY + 4 * BLOCK_ROWS;
+    private static final int PREVIOUS_OF_GUEST = PREVIOUS_OF_ROOM + 4 * BLOCK_ROWS;
+    private static final int LATEST_CHECK_OUT_OF_ROOM = PREVIOUS_OF_GUEST + 4 * BLOCK_ROWS;
+    private static final int BLOCK_BYTES = LATEST_CHECK_OUT_OF_ROOM + 4 * BLOCK_ROWS;
+
+    private static final int READ_BYTES = 1 << 20; // How much of a file load() reads at a time, also the longest line it takes
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ByteBuffer[] blocks = new ByteBuffer[0];
+    private volatile int size;
+    private final RowTable lastOfRoom = new RowTable();
+    private final RowTable lastOfGuest = new RowTable();
+    private long lastBookingID;
+    private volatile boolean ascending = true;
+
+    /**
+     * Adds a booking at the end of the store
+     *
+     * @param bookingID     the booking ID
+     * @param guestID       the guest ID
+     * @param roomNumber    the room number
+     * @param bookingDay    the epoch-day the booking was made
+     * @param checkInDay    the epoch-day of check-in
+     * @param checkOutDay   the epoch-day of check-out
+     * @param totalAmount   the amount paid
+     * @return              the row of the booking
+     */
+
+    public int append(long bookingID, long guestID, long roomNumber, int bookingDay, int checkInDay, int checkOutDay, double totalAmount) {
+        lock.writeLock().lock();
+        try{
+            int row = size;
+            if (row == Integer.MAX_VALUE) {throw new IllegalStateException("The booking store is full");}
+            ByteBuffer block = blockForAppend(row >>> BLOCK_BITS);
+            int i = row & ROW_MASK;
+            block.putLong(BOOKING_ID + 8 * i, bookingID);
+            block.putLong(GUEST_ID + 8 * i, guestID);
+            block.putLong(ROOM_NUMBER + 8 * i, roomNumber);
+            block.putDouble(TOTAL_AMOUNT + 8 * i, totalAmount);
+            block.putInt(BOOKING_DAY + 4 * i, bookingDay);
+            block.putInt(CHECK_IN_DAY + 4 * i, checkInDay);
+            block.putInt(CHECK_OUT_DAY + 4 * i, checkOutDay);
+            int previousOfRoom = lastOfRoom.put(roomNumber, row);
+            int latestCheckOut = checkOutDay;
+            if (previousOfRoom != NONE) {
+                int p = previousOfRoom & ROW_MASK;
+                latestCheckOut = Math.max(latestCheckOut, blocks[previousOfRoom >>> BLOCK_BITS].getInt(LATEST_CHECK_OUT_OF_ROOM + 4 * p));
+            }
+            block.putInt(PREVIOUS_OF_ROOM + 4 * i, previousOfRoom);
+            block.putInt(PREVIOUS_OF_GUEST + 4 * i, lastOfGuest.put(guestID, row));
+            block.putInt(LATEST_CHECK_OUT_OF_ROOM + 4 * i, latestCheckOut);
+            if (row > 0 && bookingID <= lastBookingID) {ascending = false;}
+            lastBookingID = bookingID;
+            size = row + 1; // Publishes the row to the readers
+            return row;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a booking at the end of the store
+     *
+     * @param booking   the booking
+     * @return          the row of the booking
+     */
+
+    int append(Booking booking) {
+        return append(booking.getBookingID(), booking.getGuestID(), booking.getRoomNumber(), booking.getBookingDay(),
+                booking.getCheckInDay(), booking.getCheckOutDay(), booking.getTotalAmount());
+    }
+
+    private ByteBuffer blockForAppend(int b) {
+        ByteBuffer[] current = blocks;
+        if (b == current.length) {
+            current = Arrays.copyOf(current, Math.max(4, current.length * 2));
+            blocks = current;
+        }
+        if (current[b] == null) {current[b] = ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.nativeOrder());}
+        return current[b];
+    }
+
+    /**
+     * Appends every booking of a bookings txt file (the format saveBookingsData writes), without holding the file or
+     * any Booking object on the heap. The file is read a megabyte at a time and each line parsed in place.
+     *
+     * @param bookingsTxtFileName   the bookings txt file
+     * @return                      how many bookings were added
+     * @throws IOException          if the file cannot be read or has a line in the wrong format, the bookings read
+     *                              before that line stay in the store
+     */
+
+    public int load(String bookingsTxtFileName) throws IOException {
+        int before = size;
+        byte[] data = new byte[READ_BYTES];
+        FastImporter.FieldCursor line = new FastImporter.FieldCursor(data);
+        try (InputStream in = new FileInputStream(bookingsTxtFileName)) {
+            int filled = 0;
+            int read;
+            while ((read = in.read(data, filled, data.length - filled)) >= 0) {
+                int scanned = filled;
+                filled += read;
+                int lineStart = 0;
+                for (int i = scanned; i < filled; i++) {
+                    if (data[i] == '\n') {
+                        appendLine(line, data, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                System.arraycopy(data, lineStart, data, 0, filled - lineStart); // Keeps the unfinished last line
+                filled -= lineStart;
+                if (filled == data.length) {throw new IOException("A line of " + bookingsTxtFileName + " is longer than " + READ_BYTES + " bytes");}
+            }
+            appendLine(line, data, 0, filled);
+        } catch (RuntimeException e) {
+            throw new IOException("Line " + (size - before + 1) + " of " + bookingsTxtFileName + " is not a booking: " + e.getMessage(), e);
+        }
+        return size - before;
+    }
+
+    private void appendLine(FastImporter.FieldCursor line, byte[] data, int from, int to) {
+        int end = to > from && data[to - 1] == '\r' ? to - 1 : to;
+        if (end == from) {return;}
+        line.reset(from, end);
+        append(line.nextLong(), line.nextLong(), line.nextLong(), line.nextEpochDay(), line.nextEpochDay(), line.nextEpochDay(), line.nextDouble());
+    }
+
+    /**
+     * Drops every booking. The memory outside the heap is given back once the garbage collector frees the buffers.
+     */
+
+    public void clear() {
+        lock.writeLock().lock();
+        try{
+            size = 0;
+            blocks = new ByteBuffer[0];
+            lastOfRoom.clear();
+            lastOfGuest.clear();
+            ascending = true;
+        }finally{
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {return size;}
+
+    /**
+     * How much memory the store takes outside the heap
+     *
+     * @return   the bytes of the allocated blocks
+     */
+
+    public long offHeapBytes() {
+        return (long) ((size + ROW_MASK) >>> BLOCK_BITS) * BLOCK_BYTES;
+    }
+
+    /**
+     * Finds the row of a booking
+     *
+     * @param bookingID   the booking ID
+     * @return            its row, or NONE if the store does not hold it
+     */
+
+    public int rowOf(long bookingID) {
+        int rows = size;
+        ByteBuffer[] blocks = this.blocks;
+        if (ascending) {
+            int low = 0;
+            int high = rows - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = blocks[mid >>> BLOCK_BITS].getLong(BOOKING_ID + 8 * (mid & ROW_MASK));
+                if (id < bookingID) {low = mid + 1;} else if (id > bookingID) {high = mid - 1;} else {return mid;}
+            }
+            if (ascending) {return NONE;} // Still sorted after the search, so the answer holds
+        }
+        for (int row = 0; row < rows; row++) {
+            if (blocks[row >>> BLOCK_BITS].getLong(BOOKING_ID + 8 * (row & ROW_MASK)) == bookingID) {return row;}
+        }
+        return NONE;
+    }
+
+    /**
+     * Checks that no booking of a room shares a night with a stay, going only through the bookings of that room
+     *
+     * @param roomNumber    the room
+     * @param checkInDay    the epoch-day of check-in
+     * @param checkOutDay   the epoch-day of check-out
+     * @return              true if the room has no booking for any night in [checkInDay, checkOutDay)
+     */
+
+    public boolean isFree(long roomNumber, int checkInDay, int checkOutDay) {
+        int row = last(lastOfRoom, roomNumber);
+        ByteBuffer[] blocks = this.blocks; // Read after the row, so it holds the row's block
+        while (row != NONE) {
+            ByteBuffer block = blocks[row >>> BLOCK_BITS];
+            int i = row & ROW_MASK;
+            if (block.getInt(LATEST_CHECK_OUT_OF_ROOM + 4 * i) <= checkInDay) {return true;} // Every booking from here back is over before the stay
+            if (block.getInt(CHECK_IN_DAY + 4 * i) < checkOutDay && block.getInt(CHECK_OUT_DAY + 4 * i) > checkInDay) {return false;}
+            row = block.getInt(PREVIOUS_OF_ROOM + 4 * i);
+        }
+        return true;
+    }
+
+    private int last(RowTable table, long key) {
+        lock.readLock().lock();
+        try{
+            return table.get(key);
+        }finally{
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Makes a cursor over the store, for the calling thread
+     *
+     * @return   a cursor before the first row
+     */
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A flyweight view of one row at a time. all(), room() and guest() choose which rows next() goes through, and the
+     * getters read the columns of the current row straight from the buffers.
+     */
+
+    public final class Cursor {
+        private int chain = NONE; // The column of the chain followed by next(), NONE for a scan in row order
+        private ByteBuffer[] blocks = new ByteBuffer[0]; // The blocks as they were when the cursor was placed, clear() does not change them
+        private int next;
+        private int limit;
+        private int row = NONE;
+        private ByteBuffer block;
+        private int index;
+
+        private Cursor() {}
+
+        /**
+         * Goes through every row, oldest first. Rows added after this call are not included.
+         *
+         * @return   this cursor, before the first row
+         */
+
+        public Cursor all() {
+            chain = NONE;
+            next = 0;
+            limit = size;
+            blocks = BookingStore.this.blocks;
+            row = NONE;
+            return this;
+        }
+
+        /**
+         * Goes through the bookings of one room, newest first
+         *
+         * @param roomNumber   the room
+         * @return             this cursor, before the room's newest booking
+         */
+
+        public Cursor room(long roomNumber) {
+            chain = PREVIOUS_OF_ROOM;
+            next = last(lastOfRoom, roomNumber);
+            blocks = BookingStore.this.blocks;
+            row = NONE;
+            return this;
+        }
+
+        /**
+         * Goes through the bookings of one guest, newest first
+         *
+         * @param guestID   the guest
+         * @return          this cursor, before the guest's newest booking
+         */
+
+        public Cursor guest(long guestID) {
+            chain = PREVIOUS_OF_GUEST;
+            next = last(lastOfGuest, guestID);
+            blocks = BookingStore.this.blocks;
+            row = NONE;
+            return this;
+        }
+
+        /**
+         * Moves to the next row
+         *
+         * @return   true if there is one, false once all the rows were gone through
+         */
+
+        public boolean next() {
+            if (chain == NONE) {
+                if (next >= limit) {return none();}
+                at(next++);
+            } else {
+                if (next == NONE) {return none();}
+                at(next);
+                next = block.getInt(chain + 4 * index);
+            }
+            return true;
+        }
+
+        /**
+         * Moves to a row. A following next() goes on in row order from there.
+         *
+         * @param row   the row
+         * @return      true if the store has that row
+         */
+
+        public boolean seek(int row) {
+            chain = NONE;
+            limit = size;
+            blocks = BookingStore.this.blocks;
+            if (row < 0 || row >= limit) {
+                next = limit;
+                return none();
+            }
+            at(row);
+            next = row + 1;
+            return true;
+        }
+
+        /**
+         * Moves to the row of a booking
+         *
+         * @param bookingID   the booking ID
+         * @return            true if the store holds that booking
+         */
+
+        public boolean find(long bookingID) {
+            return seek(rowOf(bookingID));
+        }
+
+        private void at(int row) {
+            this.row = row;
+            block = blocks[row >>> BLOCK_BITS];
+            index = row & ROW_MASK;
+        }
+
+        private boolean none() {
+            row = NONE;
+            block = null;
+            return false;
+        }
+
+        public int getRow() {return row;}
+        public long getBookingID() {return block.getLong(BOOKING_ID + 8 * index);}
+        public long getGuestID() {return block.getLong(GUEST_ID + 8 * index);}
+        public long getRoomNumber() {return block.getLong(ROOM_NUMBER + 8 * index);}
+        public double getTotalAmount() {return block.getDouble(TOTAL_AMOUNT + 8 * index);}
+        public int getBookingDay() {return block.getInt(BOOKING_DAY + 4 * index);}
+        public int getCheckInDay() {return block.getInt(CHECK_IN_DAY + 4 * index);}
+        public int getCheckOutDay() {return block.getInt(CHECK_OUT_DAY + 4 * index);}
+        public int getNights() {return getCheckOutDay() - getCheckInDay();}
+
+        /**
+         * Copies the current row into a Booking, for code that needs one
+         *
+         * @return   a new Booking with the values of the row
+         */
+
+        Booking toBooking() {
+            return new Booking(getBookingID(), getGuestID(), getRoomNumber(), getBookingDay(), getCheckInDay(), getCheckOutDay(), getTotalAmount());
+        }
+    }
+
+    /**
+     * The newest row of every room or guest: an open addressing hash table from a long key to a row, in two
+     * primitive arrays. It is only used under the lock of the store.
+     */
+
+    private static final class RowTable {
+        private static final long FREE = Long.MIN_VALUE; // This marks an empty slot, the real key Long.MIN_VALUE is stored on the side
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] keys;
+        private int[] rows;
+        private int size;
+        private int freeKeyRow;
+
+        RowTable() {
+            clear();
+        }
+
+        void clear() {
+            keys = new long[MIN_CAPACITY];
+            rows = new int[MIN_CAPACITY];
+            Arrays.fill(keys, FREE);
+            size = 0;
+            freeKeyRow = NONE;
+        }
+
+        int get(long key) {
+            if (key == FREE) {return freeKeyRow;}
+            int mask = keys.length - 1;
+            for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) {return rows[slot];}
+                if (k == FREE) {return NONE;}
+            }
+        }
+
+        /**
+         * Sets the row of a key
+         *
+         * @return   the row the key had before, or NONE
+         */
+
+        int put(long key, int row) {
+            if (key == FREE) {
+                int previous = freeKeyRow;
+                freeKeyRow = row;
+                return previous;
+            }
+            int mask = keys.length - 1;
+            for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) {
+                    int previous = rows[slot];
+                    rows[slot] = row;
+                    return previous;
+                }
+                if (k == FREE) {
+                    keys[slot] = key;
+                    rows[slot] = row;
+                    if (++size > keys.length * 3 / 4) {rehash(keys.length * 2);}
+                    return NONE;
+                }
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new long[capacity];
+            rows = new int[capacity];
+            Arrays.fill(keys, FREE);
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == FREE) {continue;}
+                int slot = slotOf(oldKeys[i], mask);
+                while (keys[slot] != FREE) {slot = (slot + 1) & mask;}
+                keys[slot] = oldKeys[i];
+                rows[slot] = oldRows[i];
+            }
+        }
+
+        private static int slotOf(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
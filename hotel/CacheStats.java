@@ -0,0 +1,56 @@
+package hotel;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The counters of the availability search cache at one moment. A hit is a findAvailableRooms call answered from the
+ * cache. An invalidation is a result dropped because a booking or a room changed under it. A rejected result is one
+ * that was worked out while its room type changed, and so was not stored.
+ */
+
+public final class CacheStats {
+
+    private final int capacity;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final long rejected;
+
+    @ConstructorProperties({"capacity", "size", "hits", "misses", "evictions", "invalidations", "rejected"})
+    public CacheStats(int capacity, int size, long hits, long misses, long evictions, long invalidations, long rejected) {
+        this.capacity = capacity;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.rejected = rejected;
+    }
+
+    public int getCapacity() {return capacity;}
+    public int getSize() {return size;}
+    public long getHits() {return hits;}
+    public long getMisses() {return misses;}
+    public long getEvictions() {return evictions;}
+    public long getInvalidations() {return invalidations;}
+    public long getRejected() {return rejected;}
+
+    /**
+     * The share of lookups answered from the cache
+     *
+     * @return   from 0 to 1, or 0 if there were no lookups
+     */
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return size + "/" + capacity + " results, " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+                + invalidations + " invalidations, " + rejected + " rejected";
+    }
+}
@@ -0,0 +1,101 @@
+package hotel;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Payment;
+import hotel.HotelImpl.Room;
+import hotel.HotelImpl.VIPGuest;
+
+/**
+ * A point-in-time copy of every table of the hotel, taken so the tables can be saved without holding up bookings.
+ *
+ * Rooms, guests, bookings and payments never change once they are created: a change to the hotel adds or removes
+ * whole records. A copy of the tables therefore only has to keep their slots as they were, which RecordStore.freeze()
+ * does by sharing its segments, so taking the copy under the read lock costs a few microseconds however big the
+ * tables are, and every record it points to stays exactly as it was however long the copy takes to write out. The
+ * journal is rotated at the same time, so the segments before the mark hold exactly the entries the copy holds.
+ */
+
+final class Checkpoint {
+
+    final Collection<Room> rooms;
+    final Collection<Guest> guests;
+    final Collection<VIPGuest> vipGuests;
+    final Collection<Booking> bookings;
+    final Collection<Payment> payments;
+    final Journal journal;
+    final Journal.Mark mark;
+    final BookingArchive archive;
+    final long archivedRows; // Bookings added to the archive when the copy was taken, whose journal entries the mark covers
+    long captureNanos;
+
+    private Checkpoint(Journal journal) {
+        this.rooms = HotelImpl.roomList.freeze();
+        this.guests = HotelImpl.guestList.freeze();
+        this.vipGuests = HotelImpl.vipGuestList.freeze();
+        this.bookings = HotelImpl.bookingList.freeze();
+        this.payments = HotelImpl.paymentList.freeze();
+        this.journal = journal;
+        this.mark = journal == null ? null : journal.rotate();
+        this.archive = HotelImpl.archive; // Bookings are only archived under the write lock, so the count matches the mark
+        this.archivedRows = archive == null ? 0 : archive.size();
+    }
+
+    /**
+     * Copies the tables. Changes are only held up for the time it takes to freeze them and note the journal rotation.
+     *
+     * @return   the copy
+     */
+
+    static Checkpoint capture() {
+        long start = System.nanoTime();
+        Checkpoint copy;
+        HotelImpl.tableLock.readLock().lock();
+        try {
+            copy = new Checkpoint(HotelImpl.journal); // Entries are only logged under the write lock, so the mark matches the lists
+        } finally {
+            HotelImpl.tableLock.readLock().unlock();
+        }
+        copy.captureNanos = System.nanoTime() - start;
+        return copy;
+    }
+
+    /**
+     * The last journal entry held by the copy, to store in a snapshot
+     *
+     * @return   the LSN, or 0 if no journal was open
+     */
+
+    long lsn() {
+        return mark == null ? 0 : mark.lsn;
+    }
+
+    /**
+     * Writes the copy to a snapshot file (temporary file and atomic rename) and then drops the journal entries it holds
+     *
+     * @param snapshotFileName   the snapshot file
+     * @throws IOException if the snapshot or the new journal could not be written
+     */
+
+    void saveSnapshot(String snapshotFileName) throws IOException {
+        Snapshot.save(snapshotFileName, rooms, guests, vipGuests, bookings, payments, lsn());
+        dropJournal();
+    }
+
+    /**
+     * Drops the journal entries held by the copy, once the copy is safely saved, by deleting the journal segments
+     * before the mark. Entries logged after the copy was taken are kept. The archive is flushed first, since those
+     * entries are all a restart has of the archived bookings not yet written out.
+     *
+     * @throws IOException if the archive could not be written out, or the old journal segments deleted
+     */
+
+    void dropJournal() throws IOException {
+        if (journal == null || journal != HotelImpl.journal) {return;}
+        if (archive != null) {archive.flushTo(archivedRows);}
+        journal.dropBefore(mark);
+    }
+}
@@ -0,0 +1,331 @@
+package hotel;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Writes a made-up hotel in the format of the data/*.txt files, at any size, to size hardware and to load test the
+ * engine with the replay driver.
+ *
+ * Rooms are doubles, twins, singles and family rooms in the usual proportions. A share of the guests are VIPs, with
+ * their membership payment. Check-in days are drawn with a yearly season peaking in July and busier Friday and
+ * Saturday nights, the seasonality setting going from 0 (every night alike) to 1 (winter nights nearly empty). Stays
+ * are mostly short, and a few guests come back far more often than the rest. A room is never booked twice for the
+ * same night, and every booking is paid for, with the VIP discount when it applies.
+ *
+ * The same settings and seed always give the same files.
+ */
+
+public final class DataGenerator {
+
+    private static final String[] FIRST_NAMES = {"John", "Sarah", "Alex", "Lucas", "Joshua", "Emma", "Olivia", "Liam",
+        "Noah", "Ava", "Sophia", "Mia", "James", "William", "Isabella", "Charlotte", "Amelia", "Harper", "Ethan", "Mason",
+        "Logan", "Elijah", "Oliver", "Jacob", "Lily", "Chloe", "Grace", "Zoe", "Daniel", "Henry", "Jack", "Samuel",
+        "David", "Joseph", "Anna", "Laura", "Maria", "Elena", "Carmen", "Lucia", "Pablo", "Javier", "Hugo", "Léa",
+        "Chloé", "Zoë", "José", "Sofía", "Jürgen", "Björn", "Ingrid", "Astrid", "Mateo", "Luca", "Giulia", "Francesca",
+        "Wei", "Yuki", "Priya", "Aarav"};
+    private static final String[] LAST_NAMES = {"Cooper", "Hoopern", "Martin", "Smith", "Jones", "Taylor", "Brown",
+        "Williams", "Wilson", "Johnson", "Davies", "Robinson", "Wright", "Thompson", "Evans", "Walker", "White", "Roberts",
+        "Green", "Hall", "Wood", "Jackson", "Clarke", "Hughes", "Edwards", "Turner", "Hill", "Moore", "Piper", "Harris",
+        "Garcia", "Fernandez", "Lopez", "Martinez", "Sanchez", "Perez", "Gomez", "Calderon", "Müller", "Schmidt",
+        "Schneider", "Fischer", "Weber", "Meyer", "Wagner", "Becker", "Rossi", "Russo", "Ferrari", "Esposito", "Bianchi",
+        "Dubois", "Durand", "Lefèvre", "Moreau", "Laurent", "García", "Núñez", "Peña", "Braham", "du Parc", "Nguyen",
+        "Tanaka", "Suzuki", "Kim", "Patel", "Singh", "Chen", "Wang", "Li"};
+
+    // Room types with their share of the rooms, price per night and capacity
+    private static final String[] ROOM_TYPES = {"double", "twin", "single", "family"};
+    private static final double[] ROOM_SHARES = {0.40, 0.25, 0.20, 0.15};
+    private static final double[] ROOM_PRICES = {80.00, 70.00, 55.00, 120.00};
+    private static final int[] ROOM_CAPACITIES = {2, 2, 1, 4};
+
+    private static final double MAX_LOAD = 0.70; // Rooms are never more than this full overall, so free rooms are found quickly
+    private static final double MEAN_NIGHTS = 2.6;
+    private static final int MAX_NIGHTS = 14;
+    private static final int ROOM_TRIES = 16;
+
+    private final int rooms;
+    private final int guests;
+    private final int bookings;
+    private double vipShare = 0.10;
+    private double seasonality = 0.5;
+    private int firstDay = (int) LocalDate.now().minusYears(1).toEpochDay();
+    private int days = 730;
+    private long seed = 1;
+
+    private int lastCheckOutDay;
+
+    /**
+     * Makes a generator for a hotel of the given size. By default the bookings cover the two years around today,
+     * more if that many bookings do not fit in the rooms.
+     *
+     * @param rooms      the number of rooms
+     * @param guests     the number of guests, VIPs included
+     * @param bookings   the number of bookings
+     */
+
+    public DataGenerator(int rooms, int guests, int bookings) {
+        if (rooms < 1 || guests < 1 || bookings < 0) {throw new IllegalArgumentException("There must be at least one room and one guest");}
+        this.rooms = rooms;
+        this.guests = guests;
+        this.bookings = bookings;
+    }
+
+    public void setVipShare(double vipShare) {this.vipShare = vipShare;}
+    public void setSeasonality(double seasonality) {this.seasonality = Math.min(Math.max(seasonality, 0), 1);}
+    public void setFirstDay(Date firstDay) {this.firstDay = EpochDays.of(firstDay);}
+    public void setDays(int days) {this.days = Math.max(days, 1);}
+    public void setSeed(long seed) {this.seed = seed;}
+
+    /**
+     * The day after the last check-out written, every night from then on is free. Only known once the files are written.
+     *
+     * @return   the date
+     */
+
+    public Date getLastCheckOutDate() {
+        return EpochDays.toDate(lastCheckOutDay);
+    }
+
+    /**
+     * Writes rooms.txt, guests.txt, bookings.txt and payments.txt into a directory, replacing any that are there
+     *
+     * @param directory   the directory, which is made if it does not exist
+     * @return            true if the four files were written, false if not
+     */
+
+    public boolean write(String directory) {
+        try{
+            File dir = new File(directory);
+            Files.createDirectories(dir.toPath());
+            Random random = new Random(seed);
+            int[] roomTypes = writeRooms(new File(dir, "rooms.txt"), random);
+            int[] vipExpiry = writeGuests(new File(dir, "guests.txt"), new File(dir, "payments.txt"), random);
+            writeBookings(new File(dir, "bookings.txt"), new File(dir, "payments.txt"), roomTypes, vipExpiry, random);
+            return true;
+        }catch(IOException e){
+            System.out.println("ERROR: an issue occured writing the generated data");
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the rooms, numbered by floor with 50 rooms a floor (101, 102, ..., 201, ...)
+     *
+     * @return   the room type index of every room
+     */
+
+    private int[] writeRooms(File file, Random random) throws IOException {
+        int[] types = new int[rooms];
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            for (int room = 0; room < rooms; room++) {
+                types[room] = pickType(random.nextDouble());
+                String facilities = types[room] == 2 && random.nextBoolean() ? "shared bathroom" : "own bathroom";
+                out.write(roomNumber(room) + "," + ROOM_TYPES[types[room]] + "," + money(ROOM_PRICES[types[room]]) + ","
+                        + ROOM_CAPACITIES[types[room]] + "," + facilities);
+                out.newLine();
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Writes the guests, and the membership payment of every VIP as the first lines of the payments file
+     *
+     * @return   the epoch-day each guest's VIP membership ends, or 0 for the guests who are not VIPs
+     */
+
+    private int[] writeGuests(File file, File paymentsFile, Random random) throws IOException {
+        int[] vipExpiry = new int[guests];
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+             BufferedWriter payments = Files.newBufferedWriter(paymentsFile.toPath(), StandardCharsets.UTF_8)) {
+            for (int guest = 0; guest < guests; guest++) {
+                String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                if (random.nextInt(10) == 0) {lastName = lastName + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];}
+                int joined = firstDay - 730 + random.nextInt(730 + days);
+                out.write(guestID(guest) + "," + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + "," + lastName + ","
+                        + EpochDays.format(joined));
+                if (random.nextDouble() < vipShare) {
+                    int start = joined + random.nextInt(60);
+                    vipExpiry[guest] = (int) LocalDate.ofEpochDay(start).plusYears(1).toEpochDay();
+                    out.write("," + EpochDays.format(start) + "," + EpochDays.format(vipExpiry[guest]));
+                    payments.write(EpochDays.format(start) + "," + guestID(guest) + ",50.00,VIPmembership");
+                    payments.newLine();
+                }
+                out.newLine();
+            }
+        }
+        return vipExpiry;
+    }
+
+    /**
+     * Writes the bookings and adds their payments to the payments file
+     */
+
+    private void writeBookings(File file, File paymentsFile, int[] roomTypes, int[] vipExpiry, Random random) throws IOException {
+        // Widens the period if the bookings would fill the rooms more than MAX_LOAD
+        long nightsNeeded = (long) Math.ceil(bookings * MEAN_NIGHTS);
+        int period = (int) Math.max(days, Math.ceil(nightsNeeded / (MAX_LOAD * rooms)));
+        if (period > days) {
+            System.out.println("The bookings do not fit in " + days + " days, they will cover " + period + " days instead");
+        }
+        double[] checkInShare = seasonalShares(period);
+
+        ArrayList<ArrayList<Integer>> roomsOfType = new ArrayList<ArrayList<Integer>>();
+        for (int type = 0; type < ROOM_TYPES.length; type++) {roomsOfType.add(new ArrayList<Integer>());}
+        for (int room = 0; room < rooms; room++) {roomsOfType.get(roomTypes[room]).add(room);}
+        BitSet[] bookedNights = new BitSet[rooms]; // By room, bit d set when night firstDay + d is booked
+
+        lastCheckOutDay = firstDay;
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+             BufferedWriter payments = Files.newBufferedWriter(paymentsFile.toPath(), StandardCharsets.UTF_8,
+                     StandardOpenOption.APPEND)) {
+            int written = 0;
+            long attempts = 0;
+            while (written < bookings) {
+                if (++attempts > 100L * bookings + 1000) {throw new IOException("Could not find free rooms for all the bookings, try fewer bookings or more rooms");}
+                int checkIn = firstDay + pick(checkInShare, random.nextDouble());
+                int nights = Math.min(MAX_NIGHTS, 1 + (int) (-Math.log(1 - random.nextDouble()) * (MEAN_NIGHTS - 1)));
+                ArrayList<Integer> candidates = roomsOfType.get(pickType(random.nextDouble()));
+                if (candidates.isEmpty()) {continue;}
+                int room = -1;
+                for (int t = 0; t < ROOM_TRIES && room < 0; t++) {
+                    int candidate = candidates.get(random.nextInt(candidates.size()));
+                    BitSet nightsOfRoom = bookedNights[candidate];
+                    if (nightsOfRoom == null) {
+                        nightsOfRoom = new BitSet(period);
+                        bookedNights[candidate] = nightsOfRoom;
+                    }
+                    int from = checkIn - firstDay;
+                    int next = nightsOfRoom.nextSetBit(from);
+                    if (next < 0 || next >= from + nights) {
+                        nightsOfRoom.set(from, from + nights);
+                        room = candidate;
+                    }
+                }
+                if (room < 0) {continue;} // Every room tried was taken, so another day is drawn
+
+                // Most guests book a few weeks ahead, some on the day
+                int bookedOn = checkIn - Math.min(365, (int) (-Math.log(1 - random.nextDouble()) * 30));
+                int guest = (int) (guests * Math.pow(random.nextDouble(), 2)); // A few guests come back far more often
+                int checkOut = checkIn + nights;
+                double amount = nights * ROOM_PRICES[roomTypes[room]];
+                if (vipExpiry[guest] >= checkOut) {amount = amount * 0.9;}
+                out.write((100001L + written) + "," + guestID(guest) + "," + roomNumber(room) + "," + EpochDays.format(bookedOn) + ","
+                        + EpochDays.format(checkIn) + "," + EpochDays.format(checkOut) + "," + money(amount));
+                out.newLine();
+                payments.write(EpochDays.format(bookedOn) + "," + guestID(guest) + "," + money(amount) + ",booking");
+                payments.newLine();
+                lastCheckOutDay = Math.max(lastCheckOutDay, checkOut);
+                written++;
+            }
+        }
+    }
+
+    /**
+     * How likely each day of the period is as a check-in day, as a running total from 0 to 1
+     */
+
+    private double[] seasonalShares(int period) {
+        double[] shares = new double[period];
+        double total = 0;
+        for (int d = 0; d < period; d++) {
+            LocalDate day = LocalDate.ofEpochDay(firstDay + d);
+            double weight = 1 + seasonality * Math.cos(2 * Math.PI * (day.getDayOfYear() - 196) / 365.25); // Peaks mid-July
+            int dayOfWeek = day.getDayOfWeek().getValue();
+            if (dayOfWeek == 5 || dayOfWeek == 6) {weight = weight * (1 + seasonality / 2);}
+            total += weight;
+            shares[d] = total;
+        }
+        for (int d = 0; d < period; d++) {shares[d] = shares[d] / total;}
+        return shares;
+    }
+
+    /**
+     * The index whose running total first reaches r
+     */
+
+    private static int pick(double[] runningTotal, double r) {
+        int low = 0;
+        int high = runningTotal.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (runningTotal[mid] <= r) {low = mid + 1;} else {high = mid;}
+        }
+        return low;
+    }
+
+    /**
+     * A room type drawn by its share of the rooms
+     */
+
+    private static int pickType(double r) {
+        double seen = 0;
+        for (int type = 0; type < ROOM_SHARES.length - 1; type++) {
+            seen += ROOM_SHARES[type];
+            if (r < seen) {return type;}
+        }
+        return ROOM_SHARES.length - 1;
+    }
+
+    private static long roomNumber(int room) {return (room / 50 + 1) * 100L + room % 50 + 1;}
+    private static long guestID(int guest) {return 10001L + guest;}
+    private static String money(double amount) {return String.format("%.2f", amount);}
+
+    /**
+     * Writes a hotel from the command line, for example
+     * java hotel.DataGenerator data/big rooms=500 guests=100000 bookings=1000000 vip=0.1 seasonality=0.5
+     * from=2024-01-01 days=730 seed=1
+     *
+     * @param args   the directory, then any of the settings as name=value
+     */
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java hotel.DataGenerator <directory> [rooms=500] [guests=10000] [bookings=100000]"
+                    + " [vip=0.1] [seasonality=0.5] [from=yyyy-MM-dd] [days=730] [seed=1]");
+            return;
+        }
+        HashMap<String, String> settings = settings(args, 1);
+        DataGenerator generator = new DataGenerator(Integer.parseInt(settings.getOrDefault("rooms", "500")),
+                Integer.parseInt(settings.getOrDefault("guests", "10000")), Integer.parseInt(settings.getOrDefault("bookings", "100000")));
+        if (settings.containsKey("vip")) {generator.setVipShare(Double.parseDouble(settings.get("vip")));}
+        if (settings.containsKey("seasonality")) {generator.setSeasonality(Double.parseDouble(settings.get("seasonality")));}
+        if (settings.containsKey("from")) {generator.firstDay = (int) LocalDate.parse(settings.get("from")).toEpochDay();}
+        if (settings.containsKey("days")) {generator.setDays(Integer.parseInt(settings.get("days")));}
+        if (settings.containsKey("seed")) {generator.setSeed(Long.parseLong(settings.get("seed")));}
+        long start = System.nanoTime();
+        if (generator.write(args[0])) {
+            System.out.println("Wrote " + args[0] + " in " + (System.nanoTime() - start) / 1000000 + " ms, the last check-out is "
+                    + EpochDays.format(generator.lastCheckOutDay));
+        }
+    }
+
+    /**
+     * Reads name=value settings from the command line
+     *
+     * @param args    the command line
+     * @param first   the first argument that is a setting
+     * @return        the settings by name
+     */
+
+    static HashMap<String, String> settings(String[] args, int first) {
+        HashMap<String, String> settings = new HashMap<String, String>();
+        for (int i = first; i < args.length; i++) {
+            int equals = args[i].indexOf('=');
+            if (equals < 0) {throw new IllegalArgumentException("Settings are written name=value, not " + args[i]);}
+            settings.put(args[i].substring(0, equals), args[i].substring(equals + 1));
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,118 @@
+package hotel;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Small helper class that turns a Date into an epoch-day (the number of days since 1970-01-01
+ * in the local time zone) and back again.
+ *
+ * Two dates that fall on the same calendar day always give the same epoch-day, so the time of
+ * day that a Date object happens to carry never changes the result of a date comparison.
+ */
+
+final class EpochDays {
+
+    static final long MILLIS_PER_DAY = 86400000L;
+    private static final TimeZone ZONE = TimeZone.getDefault();
+
+    private EpochDays() {}
+
+    /**
+     * Works out the epoch-day of a date
+     *
+     * @param date   the date to convert
+     * @return       the number of days since 1970-01-01 (local time)
+     */
+
+    static int of(Date date) {
+        return ofMillis(date.getTime());
+    }
+
+    private static int ofMillis(long millis) {
+        return (int) Math.floorDiv(millis + ZONE.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Turns an epoch-day back into a Date set at local midnight
+     *
+     * @param epochDay   the number of days since 1970-01-01 (local time)
+     * @return           a Date object for the start of that day
+     */
+
+    static Date toDate(int epochDay) {
+        long midnight = epochDay * MILLIS_PER_DAY;
+        long guess = midnight - ZONE.getOffset(midnight);
+        long start = midnight - ZONE.getOffset(guess); // The offset is asked for twice so days next to a daylight saving change come out right
+        return new Date(ofMillis(start) == epochDay ? start : guess); // If midnight was skipped by a clock change, the day starts at the change
+    }
+
+    /**
+     * Works out the epoch-day of a calendar date without going through a Calendar or a date parser
+     *
+     * @param year    the year, for example 2019
+     * @param month   the month, 1 to 12
+     * @param day     the day of the month, 1 to 31
+     * @return        the number of days since 1970-01-01
+     */
+
+    static int ofCivil(int year, int month, int day) {
+        // Counts years from March, so the leap day is the last day of the year (Howard Hinnant's days_from_civil)
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Writes a date as yyyy-MM-dd, the format the data files use. Unlike a shared SimpleDateFormat it is safe to call
+     * from many threads at once.
+     *
+     * @param date   the date to write
+     * @return       the date as yyyy-MM-dd
+     */
+
+    static String format(Date date) {
+        return format(of(date));
+    }
+
+    static String format(int epochDay) {
+        char[] text = new char[10];
+        write(text, 0, epochDay);
+        return new String(text);
+    }
+
+    /**
+     * Writes a date as yyyy-MM-dd into a char array, for writers that format many rows without making a String for
+     * every date
+     *
+     * @param text       the array, with 10 free places from offset on
+     * @param offset     where the date starts
+     * @param epochDay   the number of days since 1970-01-01
+     */
+
+    static void write(char[] text, int offset, int epochDay) {
+        // The reverse of ofCivil (Howard Hinnant's civil_from_days)
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        text[offset] = (char) ('0' + year / 1000 % 10);
+        text[offset + 1] = (char) ('0' + year / 100 % 10);
+        text[offset + 2] = (char) ('0' + year / 10 % 10);
+        text[offset + 3] = (char) ('0' + year % 10);
+        text[offset + 4] = '-';
+        text[offset + 5] = (char) ('0' + month / 10);
+        text[offset + 6] = (char) ('0' + month % 10);
+        text[offset + 7] = '-';
+        text[offset + 8] = (char) ('0' + day / 10);
+        text[offset + 9] = (char) ('0' + day % 10);
+    }
+}
@@ -0,0 +1,390 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Payment;
+import hotel.HotelImpl.Room;
+import hotel.HotelImpl.VIPGuest;
+
+/**
+ * A fast way to load the rooms, guests, bookings and payments text files, for restarts on large histories.
+ *
+ * Each file is read in blocks of up to 64 MB, so files far bigger than one byte array can hold are read too,
+ * and each block is cut into chunks at line breaks. The chunks are parsed in parallel on a fork-join pool, and
+ * the four files are loaded at the same time. Fields are read straight
+ * out of the byte array: there is no split() array, no boxed Long or Double and no SimpleDateFormat, the
+ * yyyy-MM-dd dates are worked out with plain arithmetic. A line with a missing or malformed field fails the
+ * import. Nothing is installed in the hotel unless all four
+ * files were read without error.
+ */
+
+final class FastImporter {
+
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    private static final int BLOCK_BYTES = 64 << 20;
+
+    private final HotelImpl hotel;
+    private final ForkJoinPool pool;
+
+    FastImporter(HotelImpl hotel, ForkJoinPool pool) {
+        this.hotel = hotel;
+        this.pool = pool;
+    }
+
+    /**
+     * Loads all four files and, if they could all be read, replaces the data of the hotel with them
+     *
+     * @param roomsTxtFileName      the rooms txt file
+     * @param guestsTxtFileName     the guests txt file
+     * @param bookingsTxtFileName   the bookings txt file
+     * @param paymentsTxtFileName   the payments txt file
+     * @throws IOException          if a file cannot be read or has a line in the wrong format
+     */
+
+    void importAll(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName) throws IOException {
+        long start = System.nanoTime();
+        // The four files do not depend on each other, so they are read and parsed at the same time
+        ForkJoinTask<Parsed<Room>> rooms = pool.submit(new FileTask<Room>(roomsTxtFileName, new RoomParser()));
+        ForkJoinTask<Parsed<Guest>> guests = pool.submit(new FileTask<Guest>(guestsTxtFileName, new GuestParser(hotel)));
+        ForkJoinTask<Parsed<Booking>> bookings = pool.submit(new FileTask<Booking>(bookingsTxtFileName, new BookingParser()));
+        ForkJoinTask<Parsed<Payment>> payments = pool.submit(new FileTask<Payment>(paymentsTxtFileName, new PaymentParser()));
+
+        Parsed<Room> parsedRooms = join(rooms);
+        Parsed<Guest> parsedGuests = join(guests);
+        Parsed<Booking> parsedBookings = join(bookings);
+        Parsed<Payment> parsedPayments = join(payments);
+
+        ArrayList<Guest> regularGuests = new ArrayList<Guest>();
+        ArrayList<VIPGuest> vipGuests = new ArrayList<VIPGuest>();
+        for (Guest guest : parsedGuests.records) {
+            if (guest instanceof VIPGuest) {vipGuests.add((VIPGuest) guest);} else {regularGuests.add(guest);}
+        }
+        HotelImpl.installRooms(parsedRooms.records);
+        HotelImpl.installGuests(regularGuests, vipGuests);
+        HotelImpl.installBookings(parsedBookings.records);
+        HotelImpl.installPayments(parsedPayments.records);
+
+        report("rooms", parsedRooms);
+        report("guests", parsedGuests);
+        report("bookings", parsedBookings);
+        report("payments", parsedPayments);
+        long lines = parsedRooms.records.size() + parsedGuests.records.size() + parsedBookings.records.size() + parsedPayments.records.size();
+        report("all data", lines, System.nanoTime() - start);
+    }
+
+    private static <T> Parsed<T> join(ForkJoinTask<Parsed<T>> task) throws IOException {
+        try {
+            return task.join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IOException) {throw (IOException) e.getCause();}
+            throw new IOException(e);
+        }
+    }
+
+    private static void report(String what, Parsed<?> parsed) {
+        report(what, parsed.records.size(), parsed.nanos);
+    }
+
+    private static void report(String what, long lines, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        System.out.println("Imported " + lines + " lines of " + what + " in " + (nanos / 1000000) + " ms ("
+                + (long) (lines / seconds) + " lines/sec)");
+    }
+
+    /**
+     * The records read from one file, with how long it took
+     */
+
+    private static final class Parsed<T> {
+        final ArrayList<T> records;
+        final long nanos;
+
+        Parsed(ArrayList<T> records, long nanos) {
+            this.records = records;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Reads one file block by block, cuts each block into chunks at line breaks and parses the chunks in parallel.
+     * The tasks are never serialized.
+     */
+
+    @SuppressWarnings("serial")
+    private final class FileTask<T> extends RecursiveTask<Parsed<T>> {
+        private final String fileName;
+        private final LineParser<T> parser;
+
+        FileTask(String fileName, LineParser<T> parser) {
+            this.fileName = fileName;
+            this.parser = parser;
+        }
+
+        @Override
+        protected Parsed<T> compute() {
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+                long size = channel.size();
+                ArrayList<T> records = new ArrayList<T>((int) Math.min(size / 48, 1 << 24));
+                byte[] block = new byte[(int) Math.min(BLOCK_BYTES, size + 1)]; // One byte more than a small file, so it is read in one go
+                int filled = 0;
+                boolean ended = false;
+                while (!ended) {
+                    while (filled < block.length) {
+                        int read = channel.read(ByteBuffer.wrap(block, filled, block.length - filled));
+                        if (read < 0) {ended = true; break;}
+                        filled += read;
+                    }
+                    int end = ended ? filled : lastLineEnd(block, filled);
+                    if (end == 0 && !ended) { // One line is longer than the block
+                        block = Arrays.copyOf(block, block.length * 2);
+                        continue;
+                    }
+                    parseBlock(block, end, records);
+                    filled -= end;
+                    System.arraycopy(block, end, block, 0, filled); // The start of a line cut at the end of the block
+                }
+                return new Parsed<T>(records, System.nanoTime() - start);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        // Parses the lines of block[0, end) in parallel chunks, adding the records in file order
+        private void parseBlock(byte[] block, int end, ArrayList<T> records) {
+            int chunks = Math.max(1, Math.min(pool.getParallelism() * 4, end / MIN_CHUNK_BYTES));
+            List<ChunkTask<T>> tasks = new ArrayList<ChunkTask<T>>(chunks);
+            int from = 0;
+            for (int i = 1; i <= chunks && from < end; i++) {
+                int to = i == chunks ? end : nextLineStart(block, end, (int) ((long) end * i / chunks));
+                if (to > from) {tasks.add(new ChunkTask<T>(block, from, to, parser));}
+                from = to;
+            }
+            invokeAll(tasks);
+            for (ChunkTask<T> task : tasks) {records.addAll(task.join());} // The chunks are joined back in file order
+        }
+    }
+
+    private static int nextLineStart(byte[] data, int end, int from) {
+        while (from < end && data[from - 1] != '\n') {from++;}
+        return from;
+    }
+
+    private static int lastLineEnd(byte[] data, int end) {
+        while (end > 0 && data[end - 1] != '\n') {end--;}
+        return end;
+    }
+
+    /**
+     * Parses the lines of one chunk [from, to) of a block. The tasks are never serialized.
+     */
+
+    @SuppressWarnings("serial")
+    private static final class ChunkTask<T> extends RecursiveTask<ArrayList<T>> {
+        private final byte[] data;
+        private final int from;
+        private final int to;
+        private final LineParser<T> parser;
+
+        ChunkTask(byte[] data, int from, int to, LineParser<T> parser) {
+            this.data = data;
+            this.from = from;
+            this.to = to;
+            this.parser = parser;
+        }
+
+        @Override
+        protected ArrayList<T> compute() {
+            ArrayList<T> records = new ArrayList<T>(Math.max(16, (to - from) / 48));
+            FieldCursor cursor = new FieldCursor(data);
+            int lineStart = from;
+            while (lineStart < to) {
+                int lineEnd = lineStart;
+                while (lineEnd < to && data[lineEnd] != '\n') {lineEnd++;}
+                int end = lineEnd > lineStart && data[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+                if (end > lineStart) {
+                    cursor.reset(lineStart, end);
+                    records.add(parser.parse(cursor));
+                }
+                lineStart = lineEnd + 1;
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Walks the comma separated fields of one line, in place in the file's byte array
+     */
+
+    static final class FieldCursor {
+        private final byte[] data;
+        private int pos;
+        private int end;
+
+        FieldCursor(byte[] data) {
+            this.data = data;
+        }
+
+        void reset(int lineStart, int lineEnd) {
+            this.pos = lineStart;
+            this.end = lineEnd;
+        }
+
+        int fieldsLeft() {
+            int fields = 1;
+            for (int i = pos; i < end; i++) {if (data[i] == ',') {fields++;}}
+            return fields;
+        }
+
+        private int fieldEnd() {
+            int i = pos;
+            while (i < end && data[i] != ',') {i++;}
+            return i;
+        }
+
+        private void skip(int fieldEnd) {
+            pos = fieldEnd + 1;
+        }
+
+        long nextLong() {
+            int stop = fieldEnd();
+            int i = pos;
+            boolean negative = i < stop && data[i] == '-';
+            if (negative) {i++;}
+            if (i == stop) {throw new NumberFormatException("Empty number");}
+            long value = 0;
+            for (; i < stop; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) { // Not a digit, or too big for a long
+                    throw new NumberFormatException(new String(data, pos, stop - pos, StandardCharsets.UTF_8));
+                }
+                value = value * 10 + digit;
+            }
+            skip(stop);
+            return negative ? -value : value;
+        }
+
+        int nextInt() {
+            long value = nextLong();
+            if ((int) value != value) {throw new NumberFormatException("Too big for an int: " + value);}
+            return (int) value;
+        }
+
+        double nextDouble() {
+            int stop = fieldEnd();
+            int i = pos;
+            boolean negative = i < stop && data[i] == '-';
+            if (negative) {i++;}
+            long mantissa = 0;
+            int digits = 0;
+            int decimals = -1;
+            for (; i < stop; i++) {
+                byte b = data[i];
+                if (b == '.' && decimals < 0) {decimals = 0; continue;}
+                int digit = b - '0';
+                if (digit < 0 || digit > 9 || ++digits > 15) {
+                    // Anything unusual (an exponent, too many digits) goes through the JDK parser so the value stays exact
+                    double value = Double.parseDouble(new String(data, pos, stop - pos, StandardCharsets.US_ASCII));
+                    skip(stop);
+                    return value;
+                }
+                mantissa = mantissa * 10 + digit;
+                if (decimals >= 0) {decimals++;}
+            }
+            if (digits == 0) {throw new NumberFormatException("Empty number");} // An empty amount is a broken line, not 0.0
+            double value = mantissa;
+            if (decimals > 0) {value = value / POWERS_OF_TEN[decimals];} // Both numbers are exact, so the division is correctly rounded
+            skip(stop);
+            return negative ? -value : value;
+        }
+
+        int nextEpochDay() {
+            int stop = fieldEnd();
+            if (stop - pos != 10 || data[pos + 4] != '-' || data[pos + 7] != '-') {
+                throw new IllegalArgumentException("Date is not yyyy-MM-dd: " + new String(data, pos, stop - pos, StandardCharsets.UTF_8));
+            }
+            int year = digits(pos, 4);
+            int month = digits(pos + 5, 2);
+            int day = digits(pos + 8, 2);
+            if (month < 1 || month > 12 || day < 1 || day > 31) {throw new IllegalArgumentException("Bad date");}
+            skip(stop);
+            return EpochDays.ofCivil(year, month, day);
+        }
+
+        String nextString() {
+            int stop = fieldEnd();
+            String value = new String(data, pos, stop - pos, StandardCharsets.UTF_8);
+            skip(stop);
+            return value;
+        }
+
+        private int digits(int from, int count) {
+            int value = 0;
+            for (int i = from; i < from + count; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {throw new NumberFormatException("Bad digit in date");}
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+    }
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16};
+
+    /**
+     * Turns the fields of one line into a record
+     */
+
+    interface LineParser<T> {
+        T parse(FieldCursor line);
+    }
+
+    static final class RoomParser implements LineParser<Room> {
+        public Room parse(FieldCursor line) {
+            return new Room(line.nextLong(), line.nextString(), line.nextDouble(), line.nextInt(), line.nextString());
+        }
+    }
+
+    static final class GuestParser implements LineParser<Guest> {
+        private final HotelImpl hotel;
+
+        GuestParser(HotelImpl hotel) {
+            this.hotel = hotel;
+        }
+
+        public Guest parse(FieldCursor line) {
+            boolean vip = line.fieldsLeft() > 4; // VIP guests have the two extra membership dates, like in importGuestsData
+            long guestID = line.nextLong();
+            String fName = line.nextString();
+            String lName = line.nextString();
+            int joinDay = line.nextEpochDay();
+            if (vip) {return hotel.new VIPGuest(guestID, fName, lName, joinDay, line.nextEpochDay(), line.nextEpochDay());}
+            return hotel.new Guest(guestID, fName, lName, joinDay);
+        }
+    }
+
+    static final class BookingParser implements LineParser<Booking> {
+        public Booking parse(FieldCursor line) {
+            return new Booking(line.nextLong(), line.nextLong(), line.nextLong(), line.nextEpochDay(), line.nextEpochDay(), line.nextEpochDay(), line.nextDouble());
+        }
+    }
+
+    static final class PaymentParser implements LineParser<Payment> {
+        public Payment parse(FieldCursor line) {
+            return new Payment(line.nextEpochDay(), line.nextLong(), line.nextDouble(), line.nextString());
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package hotel;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import hotel.HotelImpl.Guest;
+
+/**
+ * Finds guests by name, for searchGuest and for prefix searches at reception.
+ *
+ * Names are normalized once, when a guest is added: accents are taken off ("Müller" becomes "muller") and the case is
+ * folded. The key of a guest is its normalized last name and first name with a separator between them, which maps to
+ * the IDs of every guest with that name. A hash map answers exact lookups in O(1), and a sorted map over the same keys
+ * answers prefix searches on the last name, since every key starting with the prefix sits in one run of the map.
+ *
+ * The ID arrays are copied on write, and both maps are safe to read while they change, so lookups and prefix
+ * iterators need no lock. Changes are made under the write side of HotelImpl.tableLock, along with the guest lists.
+ *
+ * For typo-tolerant search the words of every name also go into a trigram index of distinct words, and each word
+ * keeps the IDs of the guests using it. A query is matched word by word, so "sarah hoopern" finds the guests having a
+ * word near "sarah" and a word near "hoopern", ranked by the sum of the two edit distances. This part is searched
+ * under the read side of the same lock.
+ */
+
+final class GuestNameIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final char SEPARATOR = '\u0000'; // Sorts before any letter, so "coop" + SEPARATOR comes before "cooper"
+    private static final long[] NONE = new long[0];
+    private static final int[] NO_WORDS = new int[0];
+    private static final int MAX_WORD_MATCHES = 64; // Nearest words kept per query word
+
+    private final ConcurrentHashMap<String, long[]> byName = new ConcurrentHashMap<String, long[]>();
+    private final ConcurrentSkipListMap<String, long[]> sorted = new ConcurrentSkipListMap<String, long[]>();
+    private final TrigramIndex words = new TrigramIndex();
+    private final ArrayList<GuestList> guestsOfWord = new ArrayList<GuestList>(); // By word slot
+    private final LongHashMap<int[]> wordsOfGuest = new LongHashMap<int[]>();
+
+    /**
+     * Folds a name for comparing: accents off, lower case, no spaces around it
+     *
+     * @param name   a first or last name
+     * @return       the normalized name
+     */
+
+    static String normalize(String name) {
+        if (name == null) {return "";}
+        String folded = name.trim();
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) > 0x7f) { // Plain ASCII names, nearly all of them, skip the Unicode decomposition
+                folded = MARKS.matcher(Normalizer.normalize(folded, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        return folded.toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String firstName, String lastName) {
+        return normalize(lastName) + SEPARATOR + normalize(firstName);
+    }
+
+    /**
+     * The normalized words of a name, "Anne Marie" giving "anne" and "marie"
+     */
+
+    private static ArrayList<String> words(String name) {
+        ArrayList<String> words = new ArrayList<String>(2);
+        int start = -1;
+        for (int i = 0; i <= name.length(); i++) {
+            boolean space = i == name.length() || Character.isWhitespace(name.charAt(i));
+            if (space && start >= 0) {
+                words.add(name.substring(start, i));
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The largest edit distance a query word may be off by: one typo in a short word, more in longer ones
+     */
+
+    private static int maxDistance(String word) {
+        return word.length() <= 4 ? 1 : word.length() <= 8 ? 2 : 3;
+    }
+
+    /**
+     * Replaces everything in the index with the given guests
+     *
+     * @param guests      the regular guests
+     * @param vipGuests   the VIP guests
+     */
+
+    void rebuild(List<? extends Guest> guests, List<? extends Guest> vipGuests) {
+        byName.clear();
+        sorted.clear();
+        words.clear();
+        guestsOfWord.clear();
+        wordsOfGuest.clear();
+        for (Guest guest : guests) {add(guest);}
+        for (Guest guest : vipGuests) {add(guest);}
+    }
+
+    /**
+     * Adds a guest under its name
+     *
+     * @param guest   the new guest
+     */
+
+    void add(Guest guest) {
+        String firstName = normalize(guest.getfName());
+        String lastName = normalize(guest.getlName());
+        String key = lastName + SEPARATOR + firstName;
+        long[] ids = byName.get(key);
+        long[] more = ids == null ? new long[1] : Arrays.copyOf(ids, ids.length + 1);
+        more[more.length - 1] = guest.getGuestID();
+        byName.put(key, more);
+        sorted.put(key, more);
+        ArrayList<String> nameWords = words(firstName + " " + lastName);
+        int[] slots = new int[nameWords.size()];
+        for (int i = 0; i < slots.length; i++) {
+            int slot = words.add(nameWords.get(i));
+            if (slot == guestsOfWord.size()) {guestsOfWord.add(new GuestList());}
+            guestsOfWord.get(slot).add(guest.getGuestID());
+            slots[i] = slot;
+        }
+        wordsOfGuest.put(guest.getGuestID(), slots);
+    }
+
+    /**
+     * Takes a guest out of the index
+     *
+     * @param guest   the removed guest
+     */
+
+    void remove(Guest guest) {
+        int[] slots = wordsOfGuest.remove(guest.getGuestID());
+        if (slots != null) {
+            for (int slot : slots) {guestsOfWord.get(slot).remove(guest.getGuestID());}
+        }
+        String key = key(guest.getfName(), guest.getlName());
+        long[] ids = byName.get(key);
+        if (ids == null) {return;}
+        long[] fewer = without(ids, guest.getGuestID());
+        if (fewer == ids) {return;} // The guest was not in the index
+        if (fewer.length == 0) {
+            byName.remove(key);
+            sorted.remove(key);
+        } else {
+            byName.put(key, fewer);
+            sorted.put(key, fewer);
+        }
+    }
+
+    /**
+     * A copy of an ID array without one ID, or the array itself if the ID is not in it
+     */
+
+    private static long[] without(long[] ids, long id) {
+        int at = 0;
+        while (at < ids.length && ids[at] != id) {at++;}
+        if (at == ids.length) {return ids;}
+        long[] fewer = new long[ids.length - 1];
+        System.arraycopy(ids, 0, fewer, 0, at);
+        System.arraycopy(ids, at + 1, fewer, at, fewer.length - at);
+        return fewer;
+    }
+
+    /**
+     * The IDs of the guests with exactly this name, ignoring case and accents
+     *
+     * @param firstName   the first name
+     * @param lastName    the last name
+     * @return            the guest IDs, in the order the guests were added
+     */
+
+    long[] find(String firstName, String lastName) {
+        long[] ids = byName.get(key(firstName, lastName));
+        return ids == null ? NONE : ids;
+    }
+
+    /**
+     * The IDs of the guests whose name is nearest to a query with typos in it, such as "Hooper" for "Hoopern". The
+     * query can be a first name, a last name or both.
+     *
+     * @param name   the name to look for, case and accents are ignored
+     * @param k      how many guests to give at most
+     * @return       the guest IDs, nearest name first
+     */
+
+    long[] findFuzzy(String name, int k) {
+        String[] query = words(normalize(name)).toArray(new String[0]);
+        if (query.length == 0 || k <= 0) {return NONE;}
+        TrigramIndex.Matches[] matches = new TrigramIndex.Matches[query.length];
+        for (int i = 0; i < query.length; i++) {
+            matches[i] = words.search(query[i], maxDistance(query[i]), MAX_WORD_MATCHES);
+            if (matches[i].size == 0) {return NONE;}
+        }
+
+        // The query word matching the fewest guests picks the candidates, the other words only check them
+        int driver = 0;
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < query.length; i++) {
+            long guests = 0;
+            for (int j = 0; j < matches[i].size; j++) {guests += guestsOfWord.get(matches[i].slots[j]).size;}
+            if (guests < fewest) {
+                fewest = guests;
+                driver = i;
+            }
+        }
+
+        // Nearest guests so far as a max-heap on (distance, ID), the worst one on top
+        long[] heapIDs = new long[k];
+        int[] heapDistances = new int[k];
+        int size = 0;
+        HashSet<Long> seen = new HashSet<Long>();
+        TrigramIndex.Matches candidates = matches[driver];
+        for (int m = 0; m < candidates.size; m++) {
+            // Words come nearest first, and a guest is never nearer than its driver word
+            if (size == k && heapDistances[0] < candidates.distances[m]) {break;}
+            GuestList guests = guestsOfWord.get(candidates.slots[m]);
+            for (int g = 0; g < guests.size; g++) {
+                long id = guests.ids[g];
+                if (!seen.add(id)) {continue;}
+                int distance = distance(wordsOfGuest.get(id), matches);
+                if (distance < 0) {continue;}
+                if (size < k) {
+                    heapIDs[size] = id;
+                    heapDistances[size] = distance;
+                    siftUp(heapIDs, heapDistances, size++);
+                } else if (worse(heapDistances[0], heapIDs[0], distance, id)) {
+                    heapIDs[0] = id;
+                    heapDistances[0] = distance;
+                    siftDown(heapIDs, heapDistances, size);
+                }
+            }
+        }
+
+        long[] found = new long[size];
+        for (int i = size - 1; i >= 0; i--) {
+            found[i] = heapIDs[0];
+            heapIDs[0] = heapIDs[i];
+            heapDistances[0] = heapDistances[i];
+            siftDown(heapIDs, heapDistances, i);
+        }
+        return found;
+    }
+
+    /**
+     * The distance of a guest to a query: for every query word, the distance to the nearest word of the guest's name
+     *
+     * @return   the sum of the distances, or -1 if some query word matches no word of the guest
+     */
+
+    private static int distance(int[] guestWords, TrigramIndex.Matches[] matches) {
+        if (guestWords == null) {guestWords = NO_WORDS;}
+        int total = 0;
+        for (TrigramIndex.Matches match : matches) {
+            int best = -1;
+            for (int slot : guestWords) {
+                int d = match.distanceOf(slot);
+                if (d >= 0 && (best < 0 || d < best)) {best = d;}
+            }
+            if (best < 0) {return -1;}
+            total += best;
+        }
+        return total;
+    }
+
+    private static boolean worse(int distanceA, long idA, int distanceB, long idB) {
+        return distanceA > distanceB || (distanceA == distanceB && idA > idB);
+    }
+
+    private static void siftUp(long[] ids, int[] distances, int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (!worse(distances[at], ids[at], distances[parent], ids[parent])) {return;}
+            swap(ids, distances, at, parent);
+            at = parent;
+        }
+    }
+
+    private static void siftDown(long[] ids, int[] distances, int size) {
+        int at = 0;
+        while (true) {
+            int worst = at;
+            for (int child = 2 * at + 1; child <= 2 * at + 2 && child < size; child++) {
+                if (worse(distances[child], ids[child], distances[worst], ids[worst])) {worst = child;}
+            }
+            if (worst == at) {return;}
+            swap(ids, distances, at, worst);
+            at = worst;
+        }
+    }
+
+    private static void swap(long[] ids, int[] distances, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+
+    /**
+     * The guests using one word. Only used under the table lock, so it is changed in place.
+     */
+
+    private static final class GuestList {
+        long[] ids = new long[2];
+        int size;
+
+        void add(long id) {
+            if (size == ids.length) {ids = Arrays.copyOf(ids, size * 2);}
+            ids[size++] = id;
+        }
+
+        void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size]; // The order does not matter, results are ranked by distance and ID
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The IDs of the guests whose last name starts with a prefix, ordered by last name and then first name. The IDs
+     * are read from the index as the iterator moves on, so the first results come straight away however many guests
+     * match.
+     *
+     * @param lastNamePrefix   the start of the last name, ignoring case and accents
+     * @return                 an iterator over the guest IDs
+     */
+
+    Iterator<Long> findByPrefix(String lastNamePrefix) {
+        String from = normalize(lastNamePrefix);
+        if (from.endsWith("*")) {from = from.substring(0, from.length() - 1);} // "Coop*" as typed at reception
+        String to = from + Character.MAX_VALUE;
+        final Iterator<long[]> names = sorted.subMap(from, true, to, false).values().iterator();
+        return new Iterator<Long>() {
+            private long[] ids = NONE;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == ids.length && names.hasNext()) {
+                    ids = names.next();
+                    next = 0;
+                }
+                return next < ids.length;
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {throw new NoSuchElementException();}
+                return ids[next++];
+            }
+        };
+    }
+}
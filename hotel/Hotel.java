@@ -132,6 +132,17 @@ public interface Hotel {
   */
   public boolean makeBooking(String roomType, long guestID, Date checkInDate, Date checkOutDate);
 
+  /**
+  * Make a group booking, one room for each request.
+  * Either every room of the group is booked, or none of them is.
+  *
+  * @param requests   the rooms to book
+  * @return           the booking IDs in the same order as the requests if the
+  *                   group booking is successful, otherwise (or if there are no
+  *                   requests), return null
+  */
+  public ArrayList<Long> makeGroupBooking(ArrayList<BookingRequest> requests);
+
   /**
   * Check out by offering a unique booking ID.
   *
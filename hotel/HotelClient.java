@@ -0,0 +1,316 @@
+package hotel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * The other end of a HotelServer: a HotelService whose calls are made by the server, on the hotel it shares with its
+ * other clients. The calls give the same answers as on the HotelImpl itself, and the display methods print the report
+ * the server writes, chunk by chunk as it arrives.
+ *
+ * A client is one connection and makes one call at a time, so every thread needs a client of its own. A call that
+ * cannot reach the server throws an UncheckedIOException, and one the server could not run an IllegalStateException.
+ */
+
+public final class HotelClient implements HotelService, Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Connects to a server on this machine
+     *
+     * @param port   the port of the server
+     * @throws IOException   if the server cannot be reached
+     */
+
+    public HotelClient(int port) throws IOException {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Checks that the server answers
+     *
+     * @return   true if it does
+     */
+
+    public boolean ping() {
+        try {
+            out.writeByte(HotelServer.PING);
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean addRoom(long roomNumber, String roomType, double price, int capacity, String facilities) {
+        try {
+            out.writeByte(HotelServer.ADD_ROOM);
+            out.writeLong(roomNumber);
+            out.writeUTF(roomType);
+            out.writeDouble(price);
+            out.writeInt(capacity);
+            out.writeUTF(facilities);
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean removeRoom(long roomNumber) {
+        return idCall(HotelServer.REMOVE_ROOM, roomNumber);
+    }
+
+    public boolean addGuest(String fName, String lName, boolean vipState) {
+        try {
+            out.writeByte(HotelServer.ADD_GUEST);
+            out.writeUTF(fName);
+            out.writeUTF(lName);
+            out.writeBoolean(vipState);
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean removeGuest(long guestID) {
+        return idCall(HotelServer.REMOVE_GUEST, guestID);
+    }
+
+    public boolean checkRoomAvailable(long roomNumber, Date checkInDate, Date checkOutDate) {
+        try {
+            out.writeByte(HotelServer.CHECK_ROOM_AVAILABLE);
+            out.writeLong(roomNumber);
+            out.writeInt(EpochDays.of(checkInDate));
+            out.writeInt(EpochDays.of(checkOutDate));
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ArrayList<Long> findAvailableRooms(String roomType, Date checkInDate, Date checkOutDate) {
+        try {
+            out.writeByte(HotelServer.FIND_AVAILABLE_ROOMS);
+            out.writeUTF(roomType);
+            out.writeInt(EpochDays.of(checkInDate));
+            out.writeInt(EpochDays.of(checkOutDate));
+            return ids();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean makeBooking(String roomType, long guestID, Date checkInDate, Date checkOutDate) {
+        try {
+            out.writeByte(HotelServer.MAKE_BOOKING);
+            out.writeUTF(roomType);
+            out.writeLong(guestID);
+            out.writeInt(EpochDays.of(checkInDate));
+            out.writeInt(EpochDays.of(checkOutDate));
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public ArrayList<Long> makeGroupBooking(ArrayList<BookingRequest> requests) {
+        try {
+            out.writeByte(HotelServer.MAKE_GROUP_BOOKING);
+            out.writeInt(requests.size());
+            for (BookingRequest request : requests) {
+                out.writeUTF(request.getRoomType());
+                out.writeLong(request.getGuestID());
+                out.writeInt(EpochDays.of(request.getCheckInDate()));
+                out.writeInt(EpochDays.of(request.getCheckOutDate()));
+            }
+            return ids();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean checkOut(long bookingID) {
+        return idCall(HotelServer.CHECK_OUT, bookingID);
+    }
+
+    public boolean cancelBooking(long bookingID) {
+        return idCall(HotelServer.CANCEL_BOOKING, bookingID);
+    }
+
+    public ArrayList<Long> searchGuest(String firstName, String lastName) {
+        try {
+            out.writeByte(HotelServer.SEARCH_GUEST);
+            out.writeUTF(firstName);
+            out.writeUTF(lastName);
+            return ids();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The bookings staying on a night, as HotelImpl.getBookingsOnDate
+     *
+     * @param date   the night
+     * @return       the booking IDs, ordered by room number
+     */
+
+    public ArrayList<Long> getBookingsOnDate(Date date) {
+        try {
+            out.writeByte(HotelServer.BOOKINGS_ON_DATE);
+            out.writeInt(EpochDays.of(date));
+            return ids();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The income of one day, as HotelImpl.getIncomeOnDate
+     *
+     * @param date   the day
+     * @return       the income, refunds taken off
+     */
+
+    public double getIncomeOnDate(Date date) {
+        try {
+            out.writeByte(HotelServer.INCOME_ON_DATE);
+            out.writeInt(EpochDays.of(date));
+            out.flush();
+            readStatus();
+            return in.readDouble();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void displayAllRooms() {report(HotelServer.ROOMS, 0, System.out);}
+    public void displayAllGuests() {report(HotelServer.GUESTS, 0, System.out);}
+    public void displayAllBookings() {report(HotelServer.BOOKINGS, 0, System.out);}
+    public void displayAllPayments() {report(HotelServer.PAYMENTS, 0, System.out);}
+    public void displayGuestBooking(long guestID) {report(HotelServer.GUEST_BOOKINGS, guestID, System.out);}
+    public void displayBookingsOnDate(Date date) {report(HotelServer.BOOKINGS_ON_DATE_REPORT, EpochDays.of(date), System.out);}
+
+    public void displayPaymentsOnDate(Date date) {
+        report(HotelServer.PAYMENTS_ON_DATE_REPORT, EpochDays.of(date), System.out);
+        System.out.println("Total income: " + getIncomeOnDate(date));
+    }
+
+    /**
+     * Copies a report to an output as the server writes it, in fixed-width columns, a chunk at a time
+     *
+     * @param table      HotelServer.ROOMS, GUESTS, BOOKINGS, PAYMENTS, GUEST_BOOKINGS, BOOKINGS_ON_DATE_REPORT or
+     *                   PAYMENTS_ON_DATE_REPORT
+     * @param argument   the guest for GUEST_BOOKINGS, the epoch-day for the on-date reports
+     * @param to         where the report goes
+     */
+
+    void report(byte table, long argument, Appendable to) {
+        try {
+            out.writeByte(HotelServer.REPORT);
+            out.writeByte(table);
+            out.writeLong(argument);
+            out.flush();
+            if (readStatus() != HotelServer.OK) {return;}
+            Reader text = new InputStreamReader(new ReportInput(), StandardCharsets.UTF_8);
+            char[] chars = new char[8192];
+            int n;
+            while ((n = text.read(chars, 0, chars.length)) >= 0) {to.append(CharBuffer.wrap(chars, 0, n));}
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean idCall(byte call, long id) {
+        try {
+            out.writeByte(call);
+            out.writeLong(id);
+            return status();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean status() throws IOException {
+        out.flush();
+        return readStatus() == HotelServer.OK;
+    }
+
+    private ArrayList<Long> ids() throws IOException {
+        out.flush();
+        if (readStatus() != HotelServer.OK) {return null;}
+        int count = in.readInt();
+        ArrayList<Long> ids = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {ids.add(in.readLong());}
+        return ids;
+    }
+
+    private byte readStatus() throws IOException {
+        byte status = in.readByte();
+        if (status == HotelServer.ERROR) {throw new IllegalStateException("The server could not run the call: " + in.readUTF());}
+        return status;
+    }
+
+    /**
+     * The body of a report, read chunk by chunk up to its end, so nothing after it is read
+     */
+
+    private final class ReportInput extends InputStream {
+
+        private int left; // What is left of the current chunk
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended) {return -1;}
+            if (len == 0) {return 0;}
+            while (left == 0) {
+                int length = in.readInt();
+                if (length < 0) {
+                    ended = true;
+                    throw new IllegalStateException("The server could not finish the report: " + in.readUTF());
+                }
+                if (length == 0) {
+                    ended = true;
+                    return -1;
+                }
+                left = length;
+            }
+            int n = in.read(b, off, Math.min(len, left));
+            if (n < 0) {throw new EOFException();}
+            left -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package hotel;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the booking, search and persistence paths of the hotel, to see in a recording
+ * which makeBooking, findAvailableRooms, searchGuest, importBookingsData or saveAllData call was slow and what it was
+ * working on. They are recorded with, for example,
+ *
+ *     java -XX:StartFlightRecording=filename=hotel.jfr ...
+ *
+ * and summarized with JfrAnalyzer, or opened in JDK Mission Control under Hotel.
+ *
+ * Each timed method creates its event, calls begin() before the work and report() after it. report() only fills in
+ * the fields, such as the dates as text, if the event is going to be written. When no recording is running, JFR
+ * leaves begin(), end() and shouldCommit() empty and the JIT removes the event altogether, so the events cost close
+ * to nothing.
+ */
+
+final class HotelEvents {
+
+    private HotelEvents() {
+    }
+
+    @Name("hotel.MakeBooking")
+    @Label("Make Booking")
+    @Category({"Hotel", "Booking"})
+    @Description("One call of makeBooking")
+    @StackTrace(false)
+    static final class MakeBooking extends Event {
+        @Label("Room Type") String roomType;
+        @Label("Guest ID") long guestID;
+        @Label("Check In") String checkInDate;
+        @Label("Check Out") String checkOutDate;
+        @Label("Nights") int nights;
+        @Label("Rooms Scanned") @Description("Rooms of the type whose bookings were checked") int roomsScanned;
+        @Label("Rooms Free") int roomsFree;
+        @Label("Rooms Tried") @Description("Free rooms locked and checked again before one could be booked") int roomsTried;
+        @Label("Booked") boolean booked;
+        @Label("Failure") String failure;
+
+        void report(String roomType, long guestID, Date checkInDate, Date checkOutDate, boolean booked) {
+            end();
+            if (!shouldCommit()) {return;}
+            this.roomType = roomType;
+            this.guestID = guestID;
+            this.checkInDate = format(checkInDate);
+            this.checkOutDate = format(checkOutDate);
+            this.nights = nights(checkInDate, checkOutDate);
+            this.roomsScanned = roomType == null ? 0 : HotelImpl.roomsOfType(roomType).size();
+            this.booked = booked;
+            this.failure = booked ? null : Metrics.currentCause();
+            commit();
+        }
+    }
+
+    @Name("hotel.FindAvailableRooms")
+    @Label("Find Available Rooms")
+    @Category({"Hotel", "Search"})
+    @Description("One call of findAvailableRooms")
+    @StackTrace(false)
+    static final class FindAvailableRooms extends Event {
+        @Label("Room Type") String roomType;
+        @Label("Check In") String checkInDate;
+        @Label("Check Out") String checkOutDate;
+        @Label("Nights") int nights;
+        @Label("Rooms Scanned") int roomsScanned;
+        @Label("Rooms Found") int roomsFound;
+
+        void report(String roomType, Date checkInDate, Date checkOutDate, List<Long> found) {
+            end();
+            if (!shouldCommit()) {return;}
+            this.roomType = roomType;
+            this.checkInDate = format(checkInDate);
+            this.checkOutDate = format(checkOutDate);
+            this.nights = nights(checkInDate, checkOutDate);
+            this.roomsScanned = roomType == null ? 0 : HotelImpl.roomsOfType(roomType).size();
+            this.roomsFound = found == null ? 0 : found.size();
+            commit();
+        }
+    }
+
+    @Name("hotel.SearchGuest")
+    @Label("Search Guest")
+    @Category({"Hotel", "Search"})
+    @Description("One call of searchGuest")
+    @StackTrace(false)
+    static final class SearchGuest extends Event {
+        @Label("First Name") String firstName;
+        @Label("Last Name") String lastName;
+        @Label("Guests Found") int guestsFound;
+
+        void report(String firstName, String lastName, List<Long> found) {
+            end();
+            if (!shouldCommit()) {return;}
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.guestsFound = found == null ? 0 : found.size();
+            commit();
+        }
+    }
+
+    @Name("hotel.ImportBookingsData")
+    @Label("Import Bookings Data")
+    @Category({"Hotel", "Persistence"})
+    @Description("One call of importBookingsData")
+    @StackTrace(false)
+    static final class ImportBookingsData extends Event {
+        @Label("File") String fileName;
+        @Label("Bytes Read") @DataAmount long bytesRead;
+        @Label("Records Read") int recordsRead;
+        @Label("Success") boolean success;
+        @Label("Failure") String failure;
+
+        void report(String fileName, boolean success) {
+            end();
+            if (!shouldCommit()) {return;}
+            this.fileName = fileName;
+            this.bytesRead = length(fileName);
+            this.recordsRead = success && HotelImpl.bookingList != null ? HotelImpl.bookingList.size() : 0;
+            this.success = success;
+            this.failure = success ? null : Metrics.currentCause();
+            commit();
+        }
+    }
+
+    @Name("hotel.SaveAllData")
+    @Label("Save All Data")
+    @Category({"Hotel", "Persistence"})
+    @Description("One call of saveAllData")
+    @StackTrace(false)
+    static final class SaveAllData extends Event {
+        @Label("Bookings File") String fileName;
+        @Label("Records Written") int recordsWritten;
+        @Label("Bytes Written") @DataAmount long bytesWritten;
+        @Label("Success") boolean success;
+        @Label("Failure") String failure;
+
+        void report(boolean success, String... fileNames) {
+            end();
+            if (!shouldCommit()) {return;}
+            this.fileName = fileNames[2];
+            if (success) {
+                this.recordsWritten = size(HotelImpl.roomList) + size(HotelImpl.guestList) + size(HotelImpl.bookingList) + size(HotelImpl.paymentList);
+                for (String name : fileNames) {this.bytesWritten += length(name);}
+            }
+            this.success = success;
+            this.failure = success ? null : Metrics.currentCause();
+            commit();
+        }
+    }
+
+    private static String format(Date date) {
+        return date == null ? null : EpochDays.format(date);
+    }
+
+    private static int nights(Date checkInDate, Date checkOutDate) {
+        return checkInDate == null || checkOutDate == null ? 0 : EpochDays.of(checkOutDate) - EpochDays.of(checkInDate);
+    }
+
+    private static long length(String fileName) {
+        return fileName == null ? 0 : new File(fileName).length();
+    }
+
+    private static int size(Collection<?> list) {
+        return list == null ? 0 : list.size();
+    }
+}
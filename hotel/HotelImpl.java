@@ -3,11 +3,30 @@ package hotel;
 
 // These are all the imports necessary for a few functions
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Random;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Calendar;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 import java.text.*;
 
@@ -20,13 +39,59 @@ import java.text.*;
  */
 
 // The public class HotelImpl has a <contract> to follow, that is, it has to declare and initialize all Hotel"s methods.
-public class HotelImpl implements Hotel {
-
-    public static ArrayList<Room> roomList;
-    public static ArrayList<Booking> bookingList;
-    public static ArrayList<Guest> guestList;
-    public static ArrayList<VIPGuest> vipGuestList;
-    public static ArrayList<Payment> paymentList;
+public class HotelImpl implements Hotel, HotelService {
+
+    // The tables, in slots so a record is removed in O(1) (see RecordStore)
+    public static RecordStore<Room> roomList;
+    public static RecordStore<Booking> bookingList;
+    public static RecordStore<Guest> guestList;
+    public static RecordStore<VIPGuest> vipGuestList;
+    public static RecordStore<Payment> paymentList;
+    static final AvailabilityCache availabilityCache = new AvailabilityCache(4096); // findAvailableRooms results, dropped as bookings change
+    static final AvailabilityGrid availabilityGrid = new AvailabilityGrid();
+    static final RoomBookingIndex roomBookingIndex = new RoomBookingIndex(availabilityCache, availabilityGrid); // Keeps the grid's nights too
+    static final OccupancyIndex occupancyIndex = new OccupancyIndex(); // The bookings staying each night, for the in-house report
+    static final GuestNameIndex guestNames = new GuestNameIndex(); // Regular and VIP guests by normalized name
+    static final PaymentLedger paymentLedger = new PaymentLedger(); // The payments again, by column and by day, for income reports
+    static final BookingStore bookingHistory = new BookingStore(); // Past bookings for audits, kept off the heap
+
+    // Primary-key indexes, these are kept in step with the lists above by every method that changes them
+    static final LongHashMap<Room> roomsByNumber = new LongHashMap<Room>();
+    static final LongHashMap<Guest> guestsByID = new LongHashMap<Guest>(); // Holds the VIP guests as well
+    static final LongHashMap<Booking> bookingsByID = new LongHashMap<Booking>();
+
+    // ID sequences, seeded from the biggest IDs found in the data files
+    static final IdAllocator guestIDs = new IdAllocator(1);
+    static final IdAllocator bookingIDs = new IdAllocator(1);
+
+    // The rooms of each type (lower case), copied on write so searches can walk them without any lock
+    static final ConcurrentHashMap<String, CopyOnWriteArrayList<Room>> roomsByType = new ConcurrentHashMap<String, CopyOnWriteArrayList<Room>>();
+
+    // Locking: the check-then-reserve of a room holds that room's stripe from roomLocks, so bookings for different rooms
+    // run in parallel. The lists above are only changed under the write side of tableLock, which is held for a few
+    // list operations at a time, and code that walks a whole list holds the read side. Lookups and availability
+    // checks use the indexes and never take a lock.
+    static final StripedLocks roomLocks = new StripedLocks(4 * Runtime.getRuntime().availableProcessors());
+    static final ReentrantReadWriteLock tableLock = new ReentrantReadWriteLock();
+    static final int GROUP_BOOKING_ATTEMPTS = 3;
+
+    // The journal every change is logged to, or null if changes are only kept in memory. Entries are added under the
+    // write side of tableLock, in the same step as the list change they describe. loadedLsn is the last journal entry
+    // already held by the data that was loaded, 0 for the text files.
+    static volatile Journal journal;
+    static volatile long loadedLsn;
+
+    // Where bookings go when they leave bookingList, or null if they are dropped. Bookings are added under the write
+    // side of tableLock, in the same step as they leave the list.
+    static volatile BookingArchive archive;
+
+    // Background checkpoints are written one at a time by this thread, see checkpoint
+    static final ExecutorService checkpointThread = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "hotel-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static Future<Boolean> runningCheckpoint;
     public static final SimpleDateFormat ft = new SimpleDateFormat("yyyy-MM-dd");
 
     /**
@@ -43,25 +108,79 @@ public class HotelImpl implements Hotel {
 
     public HotelImpl(String roomsTxtFileName, String guestsTxtFileName,
                            String bookingsTxtFileName, String paymentsTxtFileName){
+        Metrics.register(); // The counters can be watched in jconsole as hotel:type=Metrics
         importAllData(roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName); // This is where the magic happens
     }
 
     /**
-     * Removes a room according to the toom number
+     * Removes a room according to the toom number. A room can only be removed once every stay in it is over, its past
+     * bookings are kept.
      *
      * @param roomNumber   long Integer representing the room number
      * @return             boolean-type parameter representing true if the room was successfully removed or false if it was not
      */
 
     public boolean removeRoom(long roomNumber) {
-        for (Booking book : bookingList ) {
-            Date d1 = new Date();
-            if (book.getRoomNumber() == roomNumber && d1.after(book.getCheckOutDate())) { // The if condition makes sure that the checkout date is before the current day
-                bookingList.remove(book);
-                return true;
+        long start = Metrics.REMOVE_ROOM.begin();
+        try{
+            return Metrics.REMOVE_ROOM.end(start, doRemoveRoom(roomNumber));
+        }catch(RuntimeException | Error e){
+            Metrics.REMOVE_ROOM.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doRemoveRoom(long roomNumber) {
+        if(journalFailed()){return false;}
+        long lsn;
+        ReentrantLock lock = roomLocks.forKey(roomNumber);
+        lock.lock(); // Holding the room's lock keeps new bookings for it out until it is gone
+        try{
+            Room room = roomsByNumber.get(roomNumber);
+            if(room == null){
+                Metrics.cause("no such room");
+                return false;
+            }
+            if(!roomBookingIndex.isFree(roomNumber, EpochDays.of(new Date()), Integer.MAX_VALUE)){ // The if condition makes sure that no stay in the room ends after today
+                Metrics.cause("room still booked");
+                return false;
             }
+            roomsByNumber.remove(roomNumber);
+            lsn = dropRoom(room);
+        }finally{
+            lock.unlock();
         }
-        return false;
+        commit(lsn);
+        return true;
+    }
+
+    /**
+     * This method takes a room out of the room list and the indexes, once it is out of the room number index
+     *
+     * @param room   the room to remove
+     * @return       the LSN of its journal entry, or 0 if there is no journal
+     */
+
+    static long dropRoom(Room room){
+        long lsn;
+        tableLock.writeLock().lock();
+        try{
+            roomList.remove(room);
+            Journal current = journal;
+            lsn = current == null ? 0 : current.logRoomRemoved(room.getRoomNumber());
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+        roomsOfType(room.getRoomType()).remove(room);
+        availabilityCache.invalidateType(room.getRoomType());
+        ReentrantLock lock = roomLocks.forKey(room.getRoomNumber());
+        lock.lock(); // Already held by removeRoom, taken again for a replay, so no booking of the room changes meanwhile
+        try{
+            availabilityGrid.removeRoom(room, roomBookingIndex.bookingsOf(room.getRoomNumber()));
+        }finally{
+            lock.unlock();
+        }
+        return lsn;
     }
 
     /**
@@ -74,23 +193,27 @@ public class HotelImpl implements Hotel {
      */
 
     public boolean addGuest(String fName, String lName, boolean vipState) {
+        long start = Metrics.ADD_GUEST.begin();
+        try{
+            return Metrics.ADD_GUEST.end(start, doAddGuest(fName, lName, vipState));
+        }catch(RuntimeException | Error e){
+            Metrics.ADD_GUEST.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doAddGuest(String fName, String lName, boolean vipState) {
         
         // We make sure that the addGuest method has all necessary parameters and the arguements are passed accordingly
 
         assert fName != null && lName != null
                 && (Boolean)vipState instanceof Boolean: "Please enter the right input for this method";
 
-        boolean unique = true;
-        long guestID;
+        if(journalFailed()){return false;}
+        long guestID = guestIDs.next(); // The allocator never gives out the same ID twice, so there is no need to check the lists
+        long lsn;
         try{
             if(vipState==true){
-                while(true){
-                    guestID = new Random().nextLong() & 0xffffffffL;
-                    for(VIPGuest guest: vipGuestList){
-                        if(guest.getGuestID() == guestID){unique = false;}
-                    }
-                    if(unique == true){break;}
-                }
 
                 // The next 5 lines work out when the following year from the current day will be
                 Calendar end_Date = Calendar.getInstance();
@@ -100,29 +223,43 @@ public class HotelImpl implements Hotel {
                 date_expire.setTime(end_Date.getTimeInMillis());
                 VIPGuest vipGuest = new VIPGuest(guestID, fName, lName, new Date(), new Date(), date_expire);
                 Payment payment = new Payment(new Date(), vipGuest.getGuestID(), 50.00, "VIPmembership"); // And here we initilize the object using the defined constructor
-
-                paymentList.add(payment);
-                vipGuestList.add(vipGuest);
+                lsn = storeGuest(vipGuest, payment);
             }else{ // Else if the guest is not VIP
-                while(true){
-                    guestID = new Random().nextLong() & 0xffffffffL;
-                    for(Guest guest: guestList){
-                        if(guest.getGuestID() == guestID){unique = false;}
-                    }
-                    if(unique == true){break;}
-                }
                 Guest guest = new Guest(guestID, fName, lName, new Date());
-                guestList.add(guest);
-
+                lsn = storeGuest(guest, null);
             }
         }catch(Exception e){
+            Metrics.cause(e);
             System.out.print("An Error Has Occured adding a Guest... ");
             System.out.print(e + "\n");
             return false;
         }
+        commit(lsn); // Outside the try, so a journal failure is never reported as a guest that was not added
         return true;
        }
 
+    /**
+     * This method stores a new guest, with the VIP membership payment if there is one
+     *
+     * @param guest     the new guest, a VIPGuest goes in the VIP guest list
+     * @param payment   the membership payment, or null
+     * @return          the LSN of its journal entry, or 0 if there is no journal
+     */
+
+    static long storeGuest(Guest guest, Payment payment){
+        tableLock.writeLock().lock();
+        try{
+            if(guest instanceof VIPGuest){vipGuestList.add((VIPGuest)guest);}else{guestList.add(guest);}
+            guestNames.add(guest);
+            if(payment != null){addPayment(payment);}
+            guestsByID.put(guest.getGuestID(), guest);
+            Journal current = journal;
+            return current == null ? 0 : current.logGuestAdded(guest, payment);
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
     /**
      * Removes a guest from the hotel, regardless if they are VIP or not. We first have to make sure that
      * the said guest does not have any future bookings at the time of the removal. If so, it will not be deleted
@@ -133,32 +270,50 @@ public class HotelImpl implements Hotel {
      */
 
     public boolean removeGuest(long guestID) {
+        long start = Metrics.REMOVE_GUEST.begin();
+        try{
+            return Metrics.REMOVE_GUEST.end(start, doRemoveGuest(guestID));
+        }catch(RuntimeException | Error e){
+            Metrics.REMOVE_GUEST.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doRemoveGuest(long guestID) {
 
         // We assert that the guestID has been provided
         assert (Long)guestID instanceof Long : "Please enter the guestID correctly";
 
+        if(journalFailed()){return false;}
+        long lsn = -1;
+        tableLock.writeLock().lock();
         try{
+            int today = EpochDays.of(new Date());
             for(Booking book: bookingList){
-                if(book.getGuestID() == guestID && new Date().after(book.getCheckOutDate())){ // Checks the guest ID and then the corresponding date of future bookings
-                    for(Guest guest : guestList){
-                        if(guest.getGuestID() == guestID){
-                            guestList.remove(guest); // This is where the regular guest is removed from the list.
-                        }
-                    }
-                    for(Guest guest : vipGuestList) {
-                        if (guest.getGuestID() == guestID) {
-                            vipGuestList.remove(guest); // This is where the VIP guest is removed from the list.
-                        }
-                    }
-                    return true;
+                if(book.getGuestID() == guestID && today >= book.getCheckOutDay()){ // Checks the guest ID and then the corresponding date of future bookings
+                    lsn = dropGuest(guestID);
+                    break;
                 }
-            }return false;
-
+            }
+            BookingArchive current = archive;
+            if(lsn < 0 && current != null){ // A past stay that was already moved to the archive counts as well
+                boolean[] stayed = {false};
+                current.guestBookings(guestID, (rows, row) -> {
+                    if(rows.statuses[row] != BookingArchive.CANCELLED && today >= rows.checkOutDays[row]){stayed[0] = true;}
+                });
+                if(stayed[0]){lsn = dropGuest(guestID);}
+            }
         }catch(Exception e){ //If there is an error, we print it out to notify our client that an error has occurred
+            Metrics.cause(e);
             System.out.print("An Error Has Occured... ");
             System.out.print(e + "\n");
             return false;
+        }finally{
+            tableLock.writeLock().unlock();
         }
+        if(lsn < 0){return false;}
+        commit(lsn); // The journal is waited for after unlocking, so other terminals are not held up by the disk
+        return true;
 
         /**
          * Adds a room in the hotel with certain characteristics
@@ -173,21 +328,78 @@ public class HotelImpl implements Hotel {
 
     }
 
+    /**
+     * This method takes a guest out of the guest lists and the guest index. The caller holds the write lock.
+     *
+     * @param guestID   the ID of the guest to remove
+     * @return          the LSN of its journal entry, or 0 if there is no journal or no such guest
+     */
+
+    static long dropGuest(long guestID){
+        Guest guest = guestsByID.remove(guestID);
+        if(guest instanceof VIPGuest){
+            vipGuestList.remove(guest); // This is where the VIP guest is removed from the list.
+        }else if(guest != null){
+            guestList.remove(guest); // This is where the regular guest is removed from the list.
+        }
+        if(guest != null){guestNames.remove(guest);}
+        Journal current = journal;
+        return guest == null || current == null ? 0 : current.logGuestRemoved(guestID);
+    }
+
     public boolean addRoom(long roomNumber, String roomType, double roomPrice, int capacity, String facilities) {
+        long start = Metrics.ADD_ROOM.begin();
+        try{
+            return Metrics.ADD_ROOM.end(start, doAddRoom(roomNumber, roomType, roomPrice, capacity, facilities));
+        }catch(RuntimeException | Error e){
+            Metrics.ADD_ROOM.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doAddRoom(long roomNumber, String roomType, double roomPrice, int capacity, String facilities) {
         
         //We assert that all the parameters have their corresponding arguments.
 
         assert (Long)roomNumber instanceof Long && roomType != null && (Double)roomPrice instanceof Double && (Integer)capacity instanceof Integer
                 && facilities != null : "Please provide the correct information for the addRoom method";
 
-        for(Room room : roomList) {
-            if(room.getRoomNumber() == roomNumber){return false;}
-        }
+        if(journalFailed()){return false;}
         Room room = new Room(roomNumber, roomType, roomPrice, capacity, facilities); // Adds a rooms using the constructor of Room defined in the Room class.
-        roomList.add(room);
+        if(roomsByNumber.putIfAbsent(roomNumber, room) != null){return false;} // Checking and adding in one step, so two terminals cannot add the same room
+        commit(storeRoom(room));
         return true;
     }
 
+    /**
+     * This method stores a room that has already been put in the room number index
+     *
+     * @param room   the new room
+     * @return       the LSN of its journal entry, or 0 if there is no journal
+     */
+
+    static long storeRoom(Room room){
+        long lsn;
+        tableLock.writeLock().lock();
+        try{
+            roomList.add(room);
+            Journal current = journal;
+            lsn = current == null ? 0 : current.logRoomAdded(room);
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+        roomsOfType(room.getRoomType()).add(room);
+        availabilityCache.invalidateType(room.getRoomType());
+        ReentrantLock lock = roomLocks.forKey(room.getRoomNumber());
+        lock.lock(); // The past bookings of a room that was removed and added again are counted for it again
+        try{
+            availabilityGrid.addRoom(room, roomBookingIndex.bookingsOf(room.getRoomNumber()));
+        }finally{
+            lock.unlock();
+        }
+        return lsn;
+    }
+
     /**
      * This method checks if the room is available or not, and it returns a boolean type value corresponding to the success of the operation
      *
@@ -197,14 +409,52 @@ public class HotelImpl implements Hotel {
      * @return             boolean type parameter that is true if the room was successfully checked available or false if it was not
      */
 
-    public boolean checkRoomAvailable(long roomNumber, Date checkInDate, Date checkOutDate){
-        for (Booking book : bookingList){
-            // The following line checks if room ID number and if the checkin date is before the guest"s check-out date and the booking info is correct in time
-            if(book.getRoomNumber() == roomNumber && checkInDate.before(book.getCheckOutDate()) && checkInDate.after(book.getCheckInDate())){
-                return false;
-            }
+    public boolean checkRoomAvailable(long roomNumber, Date checkInDate, Date checkOutDate) {
+        long start = Metrics.CHECK_ROOM_AVAILABLE.begin();
+        try{
+            return Metrics.CHECK_ROOM_AVAILABLE.end(start, doCheckRoomAvailable(roomNumber, checkInDate, checkOutDate));
+        }catch(RuntimeException | Error e){
+            Metrics.CHECK_ROOM_AVAILABLE.failed(start, e);
+            throw e;
         }
-        return true;
+    }
+
+    private boolean doCheckRoomAvailable(long roomNumber, Date checkInDate, Date checkOutDate){
+        // The room index only looks at the bookings of this room, and checks every kind of overlap between the two stays
+        return roomBookingIndex.isFree(roomNumber, EpochDays.of(checkInDate), EpochDays.of(checkOutDate));
+    }
+
+    /**
+     * This method returns how many rooms of one type are free, and their base rate, for every night of a window.
+     * The answer comes from the availability grid, so the booking list is never scanned.
+     *
+     * @param roomType   the room type
+     * @param fromDate   Date object representing the first night of the window
+     * @param nights     the number of nights in the window
+     * @return           the free room count and rate of every night
+     * @throws IllegalArgumentException   if the window is not within AvailabilityGrid.HORIZON_DAYS of the last import
+     */
+
+    public AvailabilityGrid.Window getAvailability(RoomType roomType, Date fromDate, int nights){
+        return availabilityGrid.window(roomType, EpochDays.of(fromDate), nights);
+    }
+
+    /**
+     * This method returns the availability window of every room type at once
+     *
+     * @param fromDate   Date object representing the first night of the window
+     * @param nights     the number of nights in the window
+     * @return           one window for each room type
+     * @throws IllegalArgumentException   if the window is not within AvailabilityGrid.HORIZON_DAYS of the last import
+     */
+
+    public EnumMap<RoomType, AvailabilityGrid.Window> getAvailability(Date fromDate, int nights){
+        EnumMap<RoomType, AvailabilityGrid.Window> windows = new EnumMap<RoomType, AvailabilityGrid.Window>(RoomType.class);
+        int firstDay = EpochDays.of(fromDate);
+        for(RoomType type : RoomType.values()){
+            windows.put(type, availabilityGrid.window(type, firstDay, nights));
+        }
+        return windows;
     }
 
     /**
@@ -216,12 +466,36 @@ public class HotelImpl implements Hotel {
      * @return             This method returns an array of available rooms
      */
 
-    public ArrayList<Long> findAvailableRooms(String roomType, Date checkInDate, Date checkOutDate){
-        ArrayList<Long> availableRooms = new ArrayList<Long>();
-        for(Room room: roomList){
-            if(room.getRoomType() == roomType && checkRoomAvailable(room.getRoomNumber(), checkInDate, checkOutDate)){ //Checks the room type as well as the availability between the check in dates and check out dates
-                availableRooms.add(room.getRoomNumber());
+    public ArrayList<Long> findAvailableRooms(String roomType, Date checkInDate, Date checkOutDate) {
+        long start = Metrics.FIND_AVAILABLE_ROOMS.begin();
+        HotelEvents.FindAvailableRooms event = new HotelEvents.FindAvailableRooms();
+        event.begin();
+        try{
+            ArrayList<Long> availableRooms = doFindAvailableRooms(roomType, checkInDate, checkOutDate);
+            event.report(roomType, checkInDate, checkOutDate, availableRooms);
+            return Metrics.FIND_AVAILABLE_ROOMS.end(start, availableRooms);
+        }catch(RuntimeException | Error e){
+            Metrics.FIND_AVAILABLE_ROOMS.failed(start, e);
+            throw e;
+        }
+    }
+
+    private ArrayList<Long> doFindAvailableRooms(String roomType, Date checkInDate, Date checkOutDate){
+        int checkInDay = EpochDays.of(checkInDate);
+        int checkOutDay = EpochDays.of(checkOutDate);
+        ArrayList<Long> availableRooms;
+        Long[] cached = availabilityCache.get(roomType, checkInDay, checkOutDay); // The same search was made before and nothing has changed since
+        if(cached != null){
+            availableRooms = new ArrayList<Long>(Arrays.asList(cached)); // A copy, the caller may change it
+        }else{
+            long version = availabilityCache.version(roomType);
+            availableRooms = new ArrayList<Long>();
+            for(Room room: roomsOfType(roomType)){ // Only the rooms of this type are looked at, and the room type is compared ignoring case
+                if(roomBookingIndex.isFree(room.getRoomNumber(), checkInDay, checkOutDay)){ //Checks the availability between the check in dates and check out dates
+                    availableRooms.add(room.getRoomNumber());
+                }
             }
+            availabilityCache.put(roomType, checkInDay, checkOutDay, availableRooms.toArray(new Long[0]), version);
         }
         if (availableRooms.size() == 0) {
             System.out.println("There are no available rooms!");
@@ -231,6 +505,24 @@ public class HotelImpl implements Hotel {
         }
     }
 
+    /**
+     * This method returns the live list of rooms of one type, creating it the first time the type is seen
+     *
+     * @param roomType   String representing the room type, in any case
+     * @return           the rooms of that type
+     */
+
+    static CopyOnWriteArrayList<Room> roomsOfType(String roomType) {
+        String key = roomType.toLowerCase(Locale.ROOT);
+        CopyOnWriteArrayList<Room> rooms = roomsByType.get(key);
+        if(rooms == null){
+            CopyOnWriteArrayList<Room> created = new CopyOnWriteArrayList<Room>();
+            rooms = roomsByType.putIfAbsent(key, created);
+            if(rooms == null){rooms = created;}
+        }
+        return rooms;
+    }
+
     /**
      * This method makes a booking
      *
@@ -242,531 +534,2068 @@ public class HotelImpl implements Hotel {
      */
 
     public boolean makeBooking(String roomType, long guestID, Date checkInDate, Date checkOutDate) {
+        long start = Metrics.MAKE_BOOKING.begin();
+        HotelEvents.MakeBooking event = new HotelEvents.MakeBooking();
+        event.begin();
+        try{
+            boolean booked = doMakeBooking(roomType, guestID, checkInDate, checkOutDate, event);
+            event.report(roomType, guestID, checkInDate, checkOutDate, booked);
+            return Metrics.MAKE_BOOKING.end(start, booked);
+        }catch(RuntimeException | Error e){
+            Metrics.MAKE_BOOKING.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doMakeBooking(String roomType, long guestID, Date checkInDate, Date checkOutDate, HotelEvents.MakeBooking event) {
         
         // We make sure that the makeBooking method has all necessary parameters and the arguements are passed accordingly
 
         assert roomType != null && (Long)guestID instanceof Long && (Date)checkInDate instanceof Date && (Date)checkOutDate instanceof Date : "Please enter the right input for this method";
 
-        boolean guestExists = false;
-        for(Guest guest: guestList){
-            if(guest.getGuestID() == guestID){guestExists = true;}} // This checks if the user exists
-        if(guestExists == false){return false;}
+        if(journalFailed()){return false;}
 
+        Guest bookingGuest = guestsByID.get(guestID); // This checks if the user exists
+        if(bookingGuest == null){
+            Metrics.cause("unknown guest");
+            return false;
+        }
 
-        if(new Date().after(checkInDate)){return false;} // This checks if the check in date is before today
 
-        long roomNumber;
-        ArrayList<Long> availableRooms = findAvailableRooms(roomType, checkInDate, checkOutDate);
-        try{ // With a try and catch we can catch an error if there is any
-            roomNumber = availableRooms.get(new Random().nextInt(availableRooms.size()));
-        }catch(Exception e){
-            System.out.println("Error occured while making a booking");
+        if(new Date().after(checkInDate)){ // This checks if the check in date is before today
+            Metrics.cause("check-in in the past");
             return false;
         }
 
-        boolean unique = true;
-        long bookingID;
-        Room bookedRoom = null;
-        while(true){
-            bookingID = new Random().nextLong() & 0xffffffffL;
-            for(Booking book: bookingList){
-                if(book.getBookingID() == bookingID){unique = false;}
+        if(EpochDays.of(checkOutDate) <= EpochDays.of(checkInDate)){ // A stay has at least one night
+            Metrics.cause("no night booked");
+            return false;
+        }
+
+        ArrayList<Long> availableRooms = doFindAvailableRooms(roomType, checkInDate, checkOutDate); // Not counted as a findAvailableRooms call of its own
+        if(availableRooms != null){
+            event.roomsFree = availableRooms.size();
+            // Another terminal may take a room between the search and now, so each room is checked again under its own lock.
+            // We start from a random room so two terminals booking the same type do not fight over the same one.
+            int start = ThreadLocalRandom.current().nextInt(availableRooms.size());
+            for(int i = 0; i < availableRooms.size(); i++){
+                Room room = roomsByNumber.get(availableRooms.get((start + i) % availableRooms.size()));
+                Booking booking = room == null ? null : reserveRoom(room, bookingGuest, checkInDate, checkOutDate);
+                event.roomsTried = i + 1;
+                if(booking != null){
+                    commit(recordBooking(booking));
+                    return true;
+                }
             }
-            if(unique == true){break;}
+        }
+        Metrics.cause("no free room");
+        System.out.println("Error occured while making a booking");
+        return false;
+
+    }
+
+    /**
+     * This method makes a group booking, all or nothing. The free rooms of every room type and stay in the group are
+     * searched once, a room is picked for each request, and then the locks of all the picked rooms are taken together
+     * while the rooms are checked again and reserved. The bookings and payments are then stored in one go.
+     *
+     * @param requests   the rooms to book
+     * @return           the booking IDs in the same order as the requests, or null if the group is empty or could not
+     *                   be booked
+     */
+
+    public ArrayList<Long> makeGroupBooking(ArrayList<BookingRequest> requests) {
+        long start = Metrics.MAKE_GROUP_BOOKING.begin();
+        try{
+            return Metrics.MAKE_GROUP_BOOKING.end(start, doMakeGroupBooking(requests));
+        }catch(RuntimeException | Error e){
+            Metrics.MAKE_GROUP_BOOKING.failed(start, e);
+            throw e;
+        }
+    }
+
+    private ArrayList<Long> doMakeGroupBooking(ArrayList<BookingRequest> requests){
+
+        // We make sure that the makeGroupBooking method has all necessary parameters and the arguements are passed accordingly
+        assert requests != null : "Please enter the right input for this method";
+
+        if(requests.isEmpty()){ // Nothing to book, and nothing to journal
+            Metrics.cause("empty group");
+            System.out.println("Error occured while making a group booking");
+            return null;
+        }
+        if(journalFailed()){return null;}
+        Guest[] guests = new Guest[requests.size()];
+        Date today = new Date();
+        for(int i = 0; i < requests.size(); i++){ // The same checks as makeBooking, done for every room before anything is booked
+            BookingRequest request = requests.get(i);
+            guests[i] = guestsByID.get(request.getGuestID());
+            if(guests[i] == null || today.after(request.getCheckInDate())
+                    || EpochDays.of(request.getCheckOutDate()) <= EpochDays.of(request.getCheckInDate())){return null;}
         }
 
-        for(Room room: roomList){
-            if(room.getRoomNumber() == roomNumber){bookedRoom = room;}
+        for(int attempt = 0; attempt < GROUP_BOOKING_ATTEMPTS; attempt++){
+            Room[] rooms = pickGroupRooms(requests);
+            if(rooms == null){break;} // There are not enough free rooms for the group
+            ArrayList<Booking> bookings = reserveGroup(rooms, guests, requests);
+            if(bookings != null){
+                commit(recordBookings(bookings)); // One journal entry for the whole group, replayed whole or not at all
+                ArrayList<Long> result = new ArrayList<Long>(bookings.size());
+                for(Booking booking : bookings){result.add(booking.getBookingID());}
+                return result;
+            }
+            // Another terminal took one of the rooms between the search and the locking, so we search again
         }
+        System.out.println("Error occured while making a group booking");
+        return null;
+    }
 
-        long diff = checkOutDate.getTime() - checkInDate.getTime();
-        long daysDiff = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-        double totalAmount = daysDiff*bookedRoom.getRoomPrice();
+    /**
+     * This method picks a free room for every request of a group. Requests with the same room type and stay share one
+     * search, and a room is never given to two requests of the group whose nights overlap.
+     *
+     * @param requests   the rooms to book
+     * @return           one room per request, or null if there are not enough free rooms
+     */
 
-        for(VIPGuest guest: vipGuestList){
-            if(guest.getGuestID() == guestID && checkOutDate.before(guest.getVIPExpiryDate())){
-                totalAmount = totalAmount * 0.9;
+    private static Room[] pickGroupRooms(ArrayList<BookingRequest> requests){
+        HashMap<String, ArrayDeque<Room>> freeRooms = new HashMap<String, ArrayDeque<Room>>();
+        HashMap<Long, ArrayList<int[]>> claimedNights = new HashMap<Long, ArrayList<int[]>>();
+        Room[] rooms = new Room[requests.size()];
+        for(int i = 0; i < requests.size(); i++){
+            BookingRequest request = requests.get(i);
+            int checkInDay = EpochDays.of(request.getCheckInDate());
+            int checkOutDay = EpochDays.of(request.getCheckOutDate());
+            String key = request.getRoomType().toLowerCase(Locale.ROOT) + "," + checkInDay + "," + checkOutDay;
+            ArrayDeque<Room> free = freeRooms.get(key);
+            if(free == null){
+                free = new ArrayDeque<Room>();
+                for(Room room : roomsOfType(request.getRoomType())){
+                    if(roomBookingIndex.isFree(room.getRoomNumber(), checkInDay, checkOutDay)){free.add(room);}
+                }
+                freeRooms.put(key, free);
+            }
+            // A room that clashes with nights already given to this group will always clash for this key, so it is dropped
+            while(rooms[i] == null && !free.isEmpty()){
+                Room room = free.poll();
+                ArrayList<int[]> claimed = claimedNights.get(room.getRoomNumber());
+                boolean clash = false;
+                if(claimed != null){
+                    for(int[] nights : claimed){
+                        if(nights[0] < checkOutDay && checkInDay < nights[1]){clash = true;}
+                    }
+                }else{
+                    claimed = new ArrayList<int[]>(1);
+                    claimedNights.put(room.getRoomNumber(), claimed);
+                }
+                if(!clash){
+                    claimed.add(new int[]{checkInDay, checkOutDay});
+                    rooms[i] = room;
+                }
             }
+            if(rooms[i] == null){return null;}
         }
-        Booking booking = new Booking(bookingID, guestID, roomNumber, new Date(), checkInDate, checkOutDate, totalAmount); // We initialize it using a constructor from the class method at the bottom
-        Payment payment = new Payment(new Date(), guestID, totalAmount, "booking");
+        return rooms;
+    }
 
-        paymentList.add(payment);
-        bookingList.add(booking);
-        return true; // Returns a boolean
+    /**
+     * This method reserves the rooms picked for a group. The locks of all the rooms are taken in increasing stripe order,
+     * so two groups locking the same rooms can never deadlock, and nothing is reserved unless every room is still free.
+     *
+     * @param rooms      one picked room per request
+     * @param guests     one guest per request
+     * @param requests   the rooms to book
+     * @return           the new bookings, already in the room index, or null if one of the rooms was taken meanwhile
+     */
 
+    private static ArrayList<Booking> reserveGroup(Room[] rooms, Guest[] guests, ArrayList<BookingRequest> requests){
+        int[] stripes = new int[rooms.length];
+        for(int i = 0; i < rooms.length; i++){stripes[i] = roomLocks.stripeOf(rooms[i].getRoomNumber());}
+        Arrays.sort(stripes);
+        int locked = 0;
+        try{
+            for(int i = 0; i < stripes.length; i++){
+                if(i > 0 && stripes[i] == stripes[i - 1]){continue;}
+                roomLocks.stripe(stripes[i]).lock();
+                stripes[locked++] = stripes[i]; // Keeps the distinct stripes at the front, for unlocking
+            }
+            int[] checkInDays = new int[rooms.length];
+            int[] checkOutDays = new int[rooms.length];
+            for(int i = 0; i < rooms.length; i++){
+                BookingRequest request = requests.get(i);
+                checkInDays[i] = EpochDays.of(request.getCheckInDate());
+                checkOutDays[i] = EpochDays.of(request.getCheckOutDate());
+                if(roomsByNumber.get(rooms[i].getRoomNumber()) != rooms[i] || !roomBookingIndex.isFree(rooms[i].getRoomNumber(), checkInDays[i], checkOutDays[i])){
+                    return null;
+                }
+            }
+            ArrayList<Booking> bookings = new ArrayList<Booking>(rooms.length);
+            int today = EpochDays.of(new Date());
+            for(int i = 0; i < rooms.length; i++){
+                Booking booking = new Booking(bookingIDs.next(), guests[i].getGuestID(), rooms[i].getRoomNumber(), today,
+                        checkInDays[i], checkOutDays[i], bookingAmount(rooms[i], guests[i], checkInDays[i], checkOutDays[i]));
+                roomBookingIndex.add(booking);
+                bookings.add(booking);
+            }
+            return bookings;
+        }finally{
+            while(locked > 0){roomLocks.stripe(stripes[--locked]).unlock();}
+        }
     }
 
     /**
-     * This method imports all data
+     * This method books one room if it is still free. The check and the reservation happen while holding the room's
+     * lock, so two bookings can never both get the same room for the same nights.
      *
-     * @param roomsTxtFileName   the rooms txt file
-     * @param guestsTxtFileName     the guests txt file
-     * @param bookingsTxtFileName        the bookings txt file
-     * @param paymentsTxtFileName     the payments txt file
-     * @return             This method returns a boolean-type true if the data import process was successful, false if not
+     * @param room          the room to book
+     * @param guest         the guest making the booking
+     * @param checkInDate   Date object representing the date when the guest checks in
+     * @param checkOutDate  Date object representing the date when the guest checks out
+     * @return              the new booking, already in the room index, or null if the room was taken
      */
 
-    public boolean importAllData(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName){
+    static Booking reserveRoom(Room room, Guest guest, Date checkInDate, Date checkOutDate){
+        ReentrantLock lock = roomLocks.forKey(room.getRoomNumber());
+        lock.lock();
         try{
-            importRoomsData(roomsTxtFileName);
-            importGuestsData(guestsTxtFileName);
-            importBookingsData(bookingsTxtFileName);
-            importPaymentsData(paymentsTxtFileName);
-            return true; // Boolean return type
-        }catch(Exception e){
-            System.out.println("ERROR: an issue occured importing data");
-            System.out.println(e); // Here is when we print the error
-            return false;
+            int checkInDay = EpochDays.of(checkInDate);
+            int checkOutDay = EpochDays.of(checkOutDate);
+            if(roomsByNumber.get(room.getRoomNumber()) != room){return null;} // Removed while we waited for the lock
+            if(!roomBookingIndex.isFree(room.getRoomNumber(), checkInDay, checkOutDay)){return null;}
+            Booking booking = new Booking(bookingIDs.next(), guest.getGuestID(), room.getRoomNumber(), EpochDays.of(new Date()), checkInDay, checkOutDay,
+                    bookingAmount(room, guest, checkInDay, checkOutDay)); // We initialize it using a constructor from the class method at the bottom
+            roomBookingIndex.add(booking);
+            return booking;
+        }finally{
+            lock.unlock();
         }
     }
 
     /**
-     * This method imports all room data
+     * This method works out the price of a stay, with the 10% VIP discount if the membership is still valid on check-out
      *
-     * @param roomsTxtFileName   The rooms txt file
-     * @return                   This method returns a boolean-type true if the data import process was successful, false if not
+     * @param room          the booked room
+     * @param guest         the guest making the booking
+     * @param checkInDay    the epoch-day when the guest checks in
+     * @param checkOutDay   the epoch-day when the guest checks out
+     * @return              the total amount to pay
      */
 
-    public boolean importRoomsData(String roomsTxtFileName) {
-        
-        // We make sure that the makeBooking method has all necessary parameters and the arguements are passed accordingly
+    static double bookingAmount(Room room, Guest guest, int checkInDay, int checkOutDay){
+        double totalAmount = (checkOutDay - checkInDay)*room.getRoomPrice(); // The number of nights times the price of one
 
-        assert roomsTxtFileName != null : "Please enter the right input for this method";
+        if(guest instanceof VIPGuest && checkOutDay < ((VIPGuest)guest).getVIPExpiryDay()){
+            totalAmount = totalAmount * 0.9;
+        }
+        return totalAmount;
+    }
 
-        try
-        {
-            File file = new File(roomsTxtFileName);
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String st;
-            roomList = new ArrayList<Room>();
+    /**
+     * This method stores a booking that has already been reserved in the room index, along with its payment
+     *
+     * @param booking   the reserved booking
+     * @return          the LSN of its journal entry, or 0 if there is no journal
+     */
 
-            while ((st = br.readLine()) != null)
-            {
-                String[] room_info = st.split(",");
-                Room room = new Room(Long.valueOf(room_info[0]), room_info[1], Double.valueOf(room_info[2]), Integer.valueOf(room_info[3]), room_info[4]); // We initialize the object using its own-defined constructor
-                roomList.add(room);
+    static long recordBooking(Booking booking){
+        return recordBookings(Collections.singletonList(booking));
+    }
+
+    /**
+     * This method stores bookings that have already been reserved in the room index, along with their payments.
+     * The lists are locked once for the whole batch.
+     *
+     * @param bookings   the reserved bookings
+     * @return           the LSN of the last journal entry, or 0 if there is no journal
+     */
+
+    static long recordBookings(List<Booking> bookings){
+        int today = EpochDays.of(new Date());
+        ArrayList<Payment> payments = new ArrayList<Payment>(bookings.size());
+        for(Booking booking : bookings){
+            payments.add(new Payment(today, booking.getGuestID(), booking.getTotalAmount(), "booking"));
+        }
+        return storeBookings(bookings, payments);
+    }
+
+    /**
+     * This method stores reserved bookings with one payment each. A booking is only put in the booking index once it is
+     * in the journal, so a cancellation can never reach the journal before the booking it cancels. Several bookings
+     * go in one journal entry, so after a crash either all of them are replayed or none is.
+     *
+     * @param bookings   the reserved bookings
+     * @param payments   the payment of each booking, or null for none
+     * @return           the LSN of the journal entry, or 0 if there is no journal
+     */
+
+    static long storeBookings(List<Booking> bookings, List<Payment> payments){
+        long lsn = 0;
+        tableLock.writeLock().lock();
+        try{
+            Journal current = journal;
+            bookingList.addAll(bookings);
+            for(int i = 0; i < bookings.size(); i++){
+                Payment payment = payments.get(i);
+                if(payment != null){addPayment(payment);}
+                occupancyIndex.add(bookings.get(i));
             }
-            br.close();    
-            return true;
+            if(current != null){
+                lsn = bookings.size() == 1 ? current.logBookingAdded(bookings.get(0), payments.get(0)) : current.logBookingsAdded(bookings, payments);
+            }
+            for(Booking booking : bookings){bookingsByID.put(booking.getBookingID(), booking);}
+        }finally{
+            tableLock.writeLock().unlock();
         }
-        catch(Exception e) // We can the error here
-        {
-            System.out.println("Error Occured when reading rooms data...");
-            return false;
+        return lsn;
+    }
+
+    /**
+     * This method takes a booking out of the hotel, after a check-out or a cancellation. Only one caller can remove a
+     * given booking, the others get false back.
+     *
+     * @param booking   the booking to remove
+     * @param refund    a refund payment to add at the same time, or null
+     * @param status    why it is removed, for the archive, or BookingArchive.NOT_ARCHIVED
+     * @return          true if this call removed the booking
+     */
+
+    static boolean removeBooking(Booking booking, Payment refund, byte status){
+        if(journalFailed()){return false;}
+        if(bookingsByID.remove(booking.getBookingID()) == null){return false;} // Another terminal got there first
+        ReentrantLock lock = roomLocks.forKey(booking.getRoomNumber());
+        lock.lock();
+        try{
+            roomBookingIndex.remove(booking);
+        }finally{
+            lock.unlock();
+        }
+        long lsn;
+        tableLock.writeLock().lock();
+        try{
+            bookingList.remove(booking);
+            occupancyIndex.remove(booking);
+            if(refund != null){addPayment(refund);}
+            int today = EpochDays.of(new Date());
+            byte archived = archive(booking, status, today);
+            Journal current = journal;
+            lsn = current == null ? 0 : current.logBookingRemoved(booking.getBookingID(), refund, archived, today);
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+        commit(lsn);
+        return true;
+    }
+
+    /**
+     * This method takes many bookings out of the hotel at once, under one hold of the write lock. Bookings another
+     * terminal removed first are skipped.
+     *
+     * @param bookings   the bookings to remove
+     * @param status     why they are removed, for the archive
+     * @return           how many of them this call removed
+     */
+
+    static int removeBookings(List<Booking> bookings, byte status){
+        if(journalFailed()){return 0;}
+        ArrayList<Booking> removed = new ArrayList<Booking>(bookings.size());
+        for(Booking booking : bookings){
+            if(bookingsByID.remove(booking.getBookingID()) == null){continue;}
+            ReentrantLock lock = roomLocks.forKey(booking.getRoomNumber());
+            lock.lock();
+            try{
+                roomBookingIndex.remove(booking);
+            }finally{
+                lock.unlock();
+            }
+            removed.add(booking);
+        }
+        long lsn = 0;
+        tableLock.writeLock().lock();
+        try{
+            int today = EpochDays.of(new Date());
+            Journal current = journal;
+            for(Booking booking : removed){
+                bookingList.remove(booking);
+                occupancyIndex.remove(booking);
+                byte archived = archive(booking, status, today);
+                if(current != null){lsn = current.logBookingRemoved(booking.getBookingID(), null, archived, today);}
+            }
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+        commit(lsn);
+        return removed.size();
+    }
+
+    /**
+     * This method adds a booking that left bookingList to the archive, if one is open. The caller holds the write lock.
+     * A failed write is reported and the booking stays in memory for the next one.
+     *
+     * @param booking       the booking
+     * @param status        why it left, or BookingArchive.NOT_ARCHIVED to leave it out
+     * @param archivedDay   today's epoch-day
+     * @return              the status it was archived with, for the journal, or NOT_ARCHIVED if no archive is open
+     */
+
+    static byte archive(Booking booking, byte status, int archivedDay){
+        BookingArchive current = archive;
+        if(current == null || status == BookingArchive.NOT_ARCHIVED){return BookingArchive.NOT_ARCHIVED;}
+        try{
+            current.add(booking, status, archivedDay);
+        }catch(IOException e){
+            Metrics.cause(e);
+            System.out.println("Error Occured when writing the booking archive...");
+            System.out.println(e);
+        }
+        return status;
+    }
+
+    /**
+     * This method adds a payment to the payment list and the payment ledger. The caller holds the write lock.
+     *
+     * @param payment   the new payment
+     */
+
+    static void addPayment(Payment payment){
+        paymentList.add(payment);
+        paymentLedger.add(payment);
+    }
+
+    /**
+     * This method waits until a change is safely in the journal, before telling the caller it was made. The change is
+     * already made in memory by then, so if the journal cannot be written the caller is not told it failed: an
+     * IllegalStateException says it may be lost on a restart, and from then on the hotel refuses every change.
+     *
+     * @param lsn   the LSN of the change's last journal entry, or 0 if there is no journal
+     * @throws IllegalStateException if the journal could not be written
+     */
+
+    static void commit(long lsn){
+        Journal current = journal;
+        if(lsn == 0 || current == null){return;}
+        try{
+            current.awaitDurable(lsn);
+        }catch(IOException e){
+            Metrics.cause(e);
+            System.out.println("Error Occured when writing the journal...");
+            System.out.println(e);
+            throw new IllegalStateException("The change was made but could not be written to the journal, so a restart may lose it."
+                    + " The hotel only answers reads until it is restarted", e);
+        }
+    }
+
+    /**
+     * This method checks that changes can still be made. Once the journal could not be written, nothing more is
+     * changed, since it could not be kept, and the hotel only answers reads until it is restarted.
+     *
+     * @return   true if the journal has failed and the change must be refused
+     */
+
+    static boolean journalFailed(){
+        Journal current = journal;
+        if(current == null || !current.failed()){return false;}
+        Metrics.cause("journal failed");
+        System.out.println("Error Occured when writing the journal, the hotel only answers reads until it is restarted...");
+        return true;
+    }
+
+    /**
+     * These methods apply one journal entry when the journal is replayed after a restart. They go through the same
+     * store and remove methods as the live changes, and nothing is logged since the journal is not open yet.
+     */
+
+    static void replayRoomAdded(Room room){
+        if(roomsByNumber.putIfAbsent(room.getRoomNumber(), room) == null){storeRoom(room);}
+    }
+
+    static void replayRoomRemoved(long roomNumber){
+        Room room = roomsByNumber.remove(roomNumber);
+        if(room != null){dropRoom(room);}
+    }
+
+    static void replayGuestAdded(Guest guest, Payment payment){
+        guestIDs.seed(guest.getGuestID());
+        storeGuest(guest, payment);
+    }
+
+    static void replayGuestRemoved(long guestID){
+        tableLock.writeLock().lock();
+        try{
+            dropGuest(guestID);
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    static void replayBookingAdded(Booking booking, Payment payment){
+        bookingIDs.seed(booking.getBookingID());
+        guestIDs.seed(booking.getGuestID());
+        ReentrantLock lock = roomLocks.forKey(booking.getRoomNumber());
+        lock.lock();
+        try{
+            roomBookingIndex.add(booking);
+        }finally{
+            lock.unlock();
+        }
+        storeBookings(Collections.singletonList(booking), Collections.singletonList(payment));
+    }
+
+    static void replayBookingRemoved(long bookingID, Payment refund, byte status, int archivedDay){
+        Booking booking = bookingsByID.get(bookingID);
+        if(booking == null){return;}
+        removeBooking(booking, refund, BookingArchive.NOT_ARCHIVED);
+        BookingArchive current = archive;
+        if(current == null || status == BookingArchive.NOT_ARCHIVED){return;}
+        tableLock.writeLock().lock();
+        try{
+            if(!current.holds(booking)){archive(booking, status, archivedDay);} // Unless the archive wrote it out before the crash
+        }catch(IOException e){
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading the booking archive...");
+            System.out.println(e);
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method imports all data
+     *
+     * @param roomsTxtFileName   the rooms txt file
+     * @param guestsTxtFileName     the guests txt file
+     * @param bookingsTxtFileName        the bookings txt file
+     * @param paymentsTxtFileName     the payments txt file
+     * @return             This method returns a boolean-type true if the data import process was successful, false if not
+     */
+
+    public boolean importAllData(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName) {
+        long start = Metrics.IMPORT_ALL_DATA.begin();
+        try{
+            return Metrics.IMPORT_ALL_DATA.end(start, doImportAllData(roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_ALL_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportAllData(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName){
+        try{
+            importRoomsData(roomsTxtFileName);
+            importGuestsData(guestsTxtFileName);
+            importBookingsData(bookingsTxtFileName);
+            importPaymentsData(paymentsTxtFileName);
+            loadedLsn = 0; // The text files do not hold any journal entries
+            return true; // Boolean return type
+        }catch(Exception e){
+            Metrics.cause(e);
+            System.out.println("ERROR: an issue occured importing data");
+            System.out.println(e); // Here is when we print the error
+            return false;
+        }
+    }
+
+    /**
+     * This method imports all data like importAllData, but much faster on large files. The four files are loaded at the
+     * same time, each file is parsed in parallel chunks without split() or SimpleDateFormat, and the number of lines
+     * per second is printed for each file. Nothing is changed unless all four files are read without error.
+     *
+     * @param roomsTxtFileName      the rooms txt file
+     * @param guestsTxtFileName     the guests txt file
+     * @param bookingsTxtFileName   the bookings txt file
+     * @param paymentsTxtFileName   the payments txt file
+     * @return                      This method returns a boolean-type true if the data import process was successful, false if not
+     */
+
+    public boolean importAllDataFast(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName) {
+        long start = Metrics.IMPORT_ALL_DATA_FAST.begin();
+        try{
+            return Metrics.IMPORT_ALL_DATA_FAST.end(start, doImportAllDataFast(roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_ALL_DATA_FAST.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportAllDataFast(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName){
+        try{
+            new FastImporter(this, ForkJoinPool.commonPool()).importAll(roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName);
+            loadedLsn = 0;
+            return true;
+        }catch(Exception e){
+            Metrics.cause(e);
+            System.out.println("ERROR: an issue occured importing data");
+            System.out.println(e); // Here is when we print the error
+            return false;
+        }
+    }
+
+    /**
+     * This method imports all room data
+     *
+     * @param roomsTxtFileName   The rooms txt file
+     * @return                   This method returns a boolean-type true if the data import process was successful, false if not
+     */
+
+    public boolean importRoomsData(String roomsTxtFileName) {
+        long start = Metrics.IMPORT_ROOMS_DATA.begin();
+        try{
+            return Metrics.IMPORT_ROOMS_DATA.end(start, doImportRoomsData(roomsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_ROOMS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportRoomsData(String roomsTxtFileName) {
+        
+        // We make sure that the makeBooking method has all necessary parameters and the arguements are passed accordingly
+
+        assert roomsTxtFileName != null : "Please enter the right input for this method";
+
+        try
+        {
+            File file = new File(roomsTxtFileName);
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            String st;
+            ArrayList<Room> rooms = new ArrayList<Room>();
+
+            while ((st = br.readLine()) != null)
+            {
+                String[] room_info = st.split(",");
+                Room room = new Room(Long.valueOf(room_info[0]), room_info[1], Double.valueOf(room_info[2]), Integer.valueOf(room_info[3]), room_info[4]); // We initialize the object using its own-defined constructor
+                rooms.add(room);
+            }
+            br.close();    
+            installRooms(rooms);
+            return true;
+        }
+        catch(Exception e) // We can the error here
+        {
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading rooms data...");
+            return false;
+        }
+    }
+
+    /**
+     * This method replaces all the rooms of the hotel and rebuilds the room indexes. Every import path ends here.
+     *
+     * @param rooms   the rooms that were read
+     */
+
+    static void installRooms(ArrayList<Room> rooms){
+        HashMap<String, ArrayList<Room>> byType = new HashMap<String, ArrayList<Room>>();
+        for(Room room : rooms){
+            String type = room.getRoomType().toLowerCase(Locale.ROOT);
+            ArrayList<Room> sameType = byType.get(type);
+            if(sameType == null){
+                sameType = new ArrayList<Room>();
+                byType.put(type, sameType);
+            }
+            sameType.add(room);
+        }
+        tableLock.writeLock().lock();
+        try{
+            roomList = new RecordStore<Room>(rooms, tableLock.writeLock());
+            roomsByNumber.clear(rooms.size());
+            for(Room room : rooms){roomsByNumber.put(room.getRoomNumber(), room);}
+            roomsByType.clear();
+            for(String type : byType.keySet()){roomsByType.put(type, new CopyOnWriteArrayList<Room>(byType.get(type)));}
+            availabilityCache.clear();
+            availabilityGrid.rebuild(roomList, bookingList); // The grid is filled once here, after this it is only changed by small deltas
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method imports all guests data
+     *
+     * @param guestsTxtFileName     the guests txt file
+     * @return             This method returns a boolean-type true if the guest data import process was successful, false if not
+     */
+
+    public boolean importGuestsData(String guestsTxtFileName) {
+        long start = Metrics.IMPORT_GUESTS_DATA.begin();
+        try{
+            return Metrics.IMPORT_GUESTS_DATA.end(start, doImportGuestsData(guestsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_GUESTS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportGuestsData(String guestsTxtFileName){
+        try{
+            File file = new File(guestsTxtFileName);
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            String st;
+            ArrayList<Guest> guests = new ArrayList<Guest>();
+            ArrayList<VIPGuest> vipGuests = new ArrayList<VIPGuest>();
+            while ((st = br.readLine()) != null) {
+                String[] guest_info = st.split(",");
+                if(guest_info.length > 4){
+                    VIPGuest vipGuest = new VIPGuest(Long.valueOf(guest_info[0]), guest_info[1], guest_info[2], ft.parse(guest_info[3]), ft.parse(guest_info[4]), ft.parse(guest_info[5])); // We use its own-defined constructor
+                    vipGuests.add(vipGuest);
+                }else{
+                    Guest guest = new Guest(Long.valueOf(guest_info[0]), guest_info[1], guest_info[2], ft.parse(guest_info[3]));
+                    guests.add(guest);
+                }
+
+            }
+            br.close();
+            installGuests(guests, vipGuests);
+            return true;
+        }catch(Exception e){ // We catch an error if there is ever an error
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading Guests data...");
+            return false;
+        }
+    }
+
+    /**
+     * This method replaces all the guests of the hotel and rebuilds the guest index. Every import path ends here.
+     *
+     * @param guests      the regular guests that were read
+     * @param vipGuests   the VIP guests that were read
+     */
+
+    static void installGuests(ArrayList<Guest> guests, ArrayList<VIPGuest> vipGuests){
+        tableLock.writeLock().lock();
+        try{
+            guestList = new RecordStore<Guest>(guests, tableLock.writeLock());
+            vipGuestList = new RecordStore<VIPGuest>(vipGuests, tableLock.writeLock());
+            guestNames.rebuild(guests, vipGuests);
+            guestsByID.clear(guests.size() + vipGuests.size());
+            for(Guest guest : guests){
+                guestsByID.put(guest.getGuestID(), guest);
+                guestIDs.seed(guest.getGuestID());
+            }
+            for(VIPGuest vipGuest : vipGuests){
+                guestsByID.put(vipGuest.getGuestID(), vipGuest);
+                guestIDs.seed(vipGuest.getGuestID());
+            }
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method imports all booking data
+     *
+     * @param bookingsTxtFileName         The bookings txt file
+     * @return                            This method returns a boolean-type true if the booking data import process was successful, false if not
+     */
+
+    public boolean importBookingsData(String bookingsTxtFileName) {
+        long start = Metrics.IMPORT_BOOKINGS_DATA.begin();
+        HotelEvents.ImportBookingsData event = new HotelEvents.ImportBookingsData();
+        event.begin();
+        try{
+            boolean imported = doImportBookingsData(bookingsTxtFileName);
+            event.report(bookingsTxtFileName, imported);
+            return Metrics.IMPORT_BOOKINGS_DATA.end(start, imported);
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_BOOKINGS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportBookingsData(String bookingsTxtFileName){
+        try{
+            File file = new File(bookingsTxtFileName);
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            String st;
+            ArrayList<Booking> bookings = new ArrayList<Booking>();
+            while((st = br.readLine()) != null){
+                String[] booking_info = st.split(",");
+                Booking booking = new Booking(Long.valueOf(booking_info[0]), Long.valueOf(booking_info[1]),
+                    Long.valueOf(booking_info[2]),ft.parse(booking_info[3]),
+                    ft.parse(booking_info[4]), ft.parse(booking_info[5]),
+                    Double.valueOf(booking_info[6])); // This initialized the object booking calling the constructor in the class Booking
+                bookings.add(booking);
+            }
+            br.close(); // fclose() is  a file method that closes the previously opened and created file
+            installBookings(bookings);
+            return true;
+        }
+        catch(Exception e){ // This catches an error, if any
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading booking data...");
+            return false;
+        }
+    }
+
+    /**
+     * This method replaces all the bookings of the hotel and rebuilds the booking indexes. Every import path ends here.
+     * A booking that overlaps an earlier one of the same room, or has no night, is reported and left out, so the
+     * bookings of a room never clash.
+     *
+     * @param bookings   the bookings that were read
+     * @return           how many bookings were left out
+     */
+
+    static int installBookings(ArrayList<Booking> bookings){
+        tableLock.writeLock().lock();
+        try{
+            ArrayList<Booking> kept = new ArrayList<Booking>(bookings.size());
+            bookingsByID.clear(bookings.size());
+            roomBookingIndex.clear();
+            for(Booking booking : bookings){
+                bookingIDs.seed(booking.getBookingID()); // Left out or not, its ID is never given out again
+                guestIDs.seed(booking.getGuestID()); // A booking can outlive its guest, so its guest ID is never given out again either
+                Booking clash = roomBookingIndex.load(booking);
+                if(clash != null){
+                    System.out.println("Error Occured when reading booking data: booking " + booking.getBookingID()
+                            + (clash == booking ? " has no night" : " clashes with booking " + clash.getBookingID() + " in room " + booking.getRoomNumber())
+                            + ", it was left out");
+                    continue;
+                }
+                bookingsByID.put(booking.getBookingID(), booking);
+                kept.add(booking);
+            }
+            bookingList = new RecordStore<Booking>(kept, tableLock.writeLock());
+            roomBookingIndex.loaded();
+            availabilityGrid.rebuild(roomList, bookingList);
+            occupancyIndex.rebuild(kept);
+            return bookings.size() - kept.size();
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method imports all data
+     *
+     * @param paymentsTxtFileName     the payments txt file
+     * @return             This method returns a boolean-type true if the payment data import process was successful, false if not
+     */
+
+    public boolean importPaymentsData(String paymentsTxtFileName) {
+        long start = Metrics.IMPORT_PAYMENTS_DATA.begin();
+        try{
+            return Metrics.IMPORT_PAYMENTS_DATA.end(start, doImportPaymentsData(paymentsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_PAYMENTS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportPaymentsData(String paymentsTxtFileName){
+        try{
+            File file = new File(paymentsTxtFileName);
+            BufferedReader br = new BufferedReader(new FileReader(file));
+            String st;
+            SimpleDateFormat ft = new SimpleDateFormat ("yyyy-MM-dd");
+            ArrayList<Payment> payments = new ArrayList<Payment>();
+            while ((st = br.readLine()) != null){
+                String[] payment_info = st.split(",");
+                Payment payment = new Payment(ft.parse(payment_info[0]), Long.valueOf(payment_info[1]),
+                    Double.valueOf(payment_info[2]), payment_info[3]); // This initialized the object payment using its constructor
+                payments.add(payment);
+            }
+            br.close(); // This closes the file if there are no errors
+            installPayments(payments);
+            return true;
+        }catch(Exception e){ // Catches an error if any
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading payment data...");
+            return false;
+        }
+    }
+
+    /**
+     * This method replaces all the payments of the hotel. Every import path ends here.
+     *
+     * @param payments   the payments that were read
+     */
+
+    static void installPayments(ArrayList<Payment> payments){
+        tableLock.writeLock().lock();
+        try{
+            paymentList = new RecordStore<Payment>(payments, tableLock.writeLock());
+            paymentLedger.rebuild(payments);
+            for(Payment payment : payments){guestIDs.seed(payment.getGuestID());}
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * This method checks out
+     *
+     * @param bookingID This is a long integer representing the booking ID number
+     * @return             This method returns a boolean-type true if check out was successful, false if not
+     */
+
+    public boolean checkOut(long bookingID) {
+        long start = Metrics.CHECK_OUT.begin();
+        try{
+            return Metrics.CHECK_OUT.end(start, doCheckOut(bookingID));
+        }catch(RuntimeException | Error e){
+            Metrics.CHECK_OUT.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doCheckOut(long bookingID){
+        Booking booking = null;
+        try{
+            booking = bookingsByID.get(bookingID);
+
+            int today = EpochDays.of(new Date());
+            if(today >= booking.getCheckOutDay() || today < booking.getCheckInDay()){return false;} //This makes sure the checkinDate if after the current date
+        }catch(Exception e){
+            Metrics.cause(e);
+            e.printStackTrace();
+            return false;
+        }
+        return removeBooking(booking, null, BookingArchive.CHECKED_OUT); // Removes the element from the bookings list and every index, outside the try so a journal failure is not swallowed
+    }
+
+    /**
+     * This method seaches guests and returns a string of the long integers of the values of their IDs
+     *
+     * @param firstName    String representing the first name of the guest
+     * @param lastName     String representing the second name of the guestthe guests txt file
+     * @return             This method seaches guests and returns a string of the long integers of the values of their IDs
+     */
+
+    public ArrayList<Long> searchGuest(String firstName, String lastName) {
+        long start = Metrics.SEARCH_GUEST.begin();
+        HotelEvents.SearchGuest event = new HotelEvents.SearchGuest();
+        event.begin();
+        try{
+            ArrayList<Long> guestIDs = doSearchGuest(firstName, lastName);
+            event.report(firstName, lastName, guestIDs);
+            return Metrics.SEARCH_GUEST.end(start, guestIDs);
+        }catch(RuntimeException | Error e){
+            Metrics.SEARCH_GUEST.failed(start, e);
+            throw e;
+        }
+    }
+
+    private ArrayList<Long> doSearchGuest(String firstName, String lastName) {
+        long[] ids = guestNames.find(firstName, lastName); // Case and accents are ignored, "muller" finds "Müller"
+        ArrayList<Long> result = new ArrayList<Long>(ids.length);
+        for(long id : ids){result.add(id);}
+        return result; // This is an array of long integers
+    }
+
+    /**
+     * This method searches guests by a name that may be misspelt, such as "Hooper" for "Hoopern". Guests are picked
+     * through a trigram index and ranked by edit distance, so no guest list is scanned.
+     *
+     * @param name    String representing a first name, a last name or both, case and accents are ignored
+     * @param k       how many guests to give at most
+     * @return        the IDs of the guests with the nearest names, nearest first
+     */
+
+    public ArrayList<Long> searchGuestFuzzy(String name, int k) {
+        tableLock.readLock().lock();
+        try{
+            long[] ids = guestNames.findFuzzy(name, k);
+            ArrayList<Long> result = new ArrayList<Long>(ids.length);
+            for(long id : ids){result.add(id);}
+            return result;
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method searches guests by the start of their last name, such as "Coop" for "Cooper". The results come in
+     * order of last name and then first name, and are read from the name index as the iterator moves on, so the first
+     * ones are there straight away even when many guests match.
+     *
+     * @param lastNamePrefix   String representing the start of the last name, case and accents are ignored
+     * @return                 an iterator over the IDs of the matching guests
+     */
+
+    public Iterator<Long> searchGuestByPrefix(String lastNamePrefix) {
+        return guestNames.findByPrefix(lastNamePrefix);
+    }
+
+    /**
+     * This method seaches guests by ID and returns the object with representing that guest
+     *
+     * @param guestID Long integer representing the guest"s ID number
+     * @return             This method seaches guests and returns an object of the guest.
+     */
+
+    public Guest searchGuestByID(long guestID) {
+        return guestsByID.get(guestID); // The index holds both regular and VIP guests
+    }
+
+    /**
+     * This method saves the data of a room
+     *
+     * @param roomsTxtFileName    String representing the rooms txt file
+     * @return                    This returns a boolean value if the room was saved
+     */
+
+    public boolean saveRoomsData(String roomsTxtFileName) {
+        long start = Metrics.SAVE_ROOMS_DATA.begin();
+        try{
+            return Metrics.SAVE_ROOMS_DATA.end(start, doSaveRoomsData(roomsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_ROOMS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSaveRoomsData(String roomsTxtFileName) {
+        return writeRoomsData(roomsTxtFileName, copyOf(roomList)); // The file is written from a copy, so bookings carry on meanwhile
+    }
+
+    private static boolean writeRoomsData(String roomsTxtFileName, Collection<Room> rooms) {
+        return replaceTextFile(roomsTxtFileName, roomsWriter -> {
+            for(Room room: rooms){roomsWriter.println(room.getRoomNumber()+","+room.getRoomType()+","+room.getRoomPrice()+","+room.getCapacity()+","+room.getFacilities());}
+        });
+    }
+
+    /**
+     * This method saves the data of the guests
+     *
+     * @param roomsTxtFileName    String representing the rooms txt file
+     * @return                    This returns a boolean value if the guest data was saved
+     */
+
+    public boolean saveGuestsData(String guestsTxtFileName) {
+        long start = Metrics.SAVE_GUESTS_DATA.begin();
+        try{
+            return Metrics.SAVE_GUESTS_DATA.end(start, doSaveGuestsData(guestsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_GUESTS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSaveGuestsData(String guestsTxtFileName) {
+        Collection<Guest> guests;
+        Collection<VIPGuest> vipGuests;
+        tableLock.readLock().lock();
+        try{
+            guests = guestList.freeze();
+            vipGuests = vipGuestList.freeze();
+        }finally{
+            tableLock.readLock().unlock();
+        }
+        return writeGuestsData(guestsTxtFileName, guests, vipGuests);
+    }
+
+    private static boolean writeGuestsData(String guestsTxtFileName, Collection<Guest> guests, Collection<VIPGuest> vipGuests) {
+        return replaceTextFile(guestsTxtFileName, guestsWriter -> {
+            for(Guest guest: guests){guestsWriter.println(guest.getGuestID() +","+guest.getfName()+","+guest.getlName()+","+EpochDays.format(guest.getJoinDay()));} // This is how the file is modified to the new source data
+            for(VIPGuest guest: vipGuests){guestsWriter.println(guest.getGuestID() +","+guest.getfName()+","+guest.getlName()+","+EpochDays.format(guest.getJoinDay())+","+EpochDays.format(guest.getVIPStartDay())+","+EpochDays.format(guest.getVIPExpiryDay()));}
+        });
+    }
+
+    /**
+     * This method saves the data of the booking
+     *
+     * @param bookingsTxtFileName    String representing the bookings txt file
+     * @return                    This returns a boolean value if the booking data was saved
+     */
+
+    public boolean saveBookingsData(String bookingsTxtFileName) {
+        long start = Metrics.SAVE_BOOKINGS_DATA.begin();
+        try{
+            return Metrics.SAVE_BOOKINGS_DATA.end(start, doSaveBookingsData(bookingsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_BOOKINGS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSaveBookingsData(String bookingsTxtFileName) {
+        return writeBookingsData(bookingsTxtFileName, copyOf(bookingList));
+    }
+
+    private static boolean writeBookingsData(String bookingsTxtFileName, Collection<Booking> bookings) {
+        return replaceTextFile(bookingsTxtFileName, bookingsWriter -> {
+            for(Booking booking: bookings){bookingsWriter.println(booking.getBookingID()+","+booking.getGuestID()+","+booking.getRoomNumber()+","+EpochDays.format(booking.getBookingDay())+","+EpochDays.format(booking.getCheckInDay())+","+EpochDays.format(booking.getCheckOutDay())+","+booking.getTotalAmount());}
+        });
+    }
+
+    /**
+     * This method saves the data of the payments
+     *
+     * @param paymentsTxtFileName    String representing the payments txt file
+     * @return                       This returns a boolean value if the payment data was saved
+     */
+
+    public boolean savePaymentsData(String paymentsTxtFileName) {
+        long start = Metrics.SAVE_PAYMENTS_DATA.begin();
+        try{
+            return Metrics.SAVE_PAYMENTS_DATA.end(start, doSavePaymentsData(paymentsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_PAYMENTS_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSavePaymentsData(String paymentsTxtFileName) {
+        return writePaymentsData(paymentsTxtFileName, copyOf(paymentList));
+    }
+
+    private static boolean writePaymentsData(String paymentsTxtFileName, Collection<Payment> payments) {
+        return replaceTextFile(paymentsTxtFileName, paymentsWriter -> {
+            for(Payment payment: payments){paymentsWriter.println(EpochDays.format(payment.getDay())+","+payment.getGuestID()+","+payment.getAmount()+","+payment.getPayReason());}
+        });
+    }
+
+    /**
+     * This method replaces a text file as a whole or not at all. The lines go to a temporary file first, which is
+     * checked for write errors (a PrintWriter keeps them to itself), forced to disk and then renamed over the file in
+     * one step, so a crash leaves either the old file or the new one and never half of each.
+     *
+     * @param txtFileName   the file to replace
+     * @param lines         writes the lines of the file
+     * @return              This returns a boolean value if the whole file is safely on disk
+     */
+
+    private static boolean replaceTextFile(String txtFileName, Consumer<PrintWriter> lines) {
+        File target = new File(txtFileName);
+        File temp = new File(txtFileName + ".tmp");
+        try{
+            try(FileOutputStream file = new FileOutputStream(temp, false)){
+                PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(file)));
+                lines.accept(writer);
+                writer.flush();
+                if(writer.checkError()){throw new IOException("could not write " + temp);}
+                file.getChannel().force(true);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }catch (IOException e) { // This catches an error, if any, and leaves the old file as it was
+            e.printStackTrace();
+            temp.delete();
+            return false;
+        }
+    }
+
+    /**
+     * This method freezes one of the lists under the read lock (see RecordStore.freeze). The records themselves never
+     * change, so the copy stays exactly as the list was at this moment while it is written out.
+     *
+     * @param list   the list to copy
+     * @return       the copy
+     */
+
+    private static <T extends RecordStore.Record> Collection<T> copyOf(RecordStore<T> list) {
+        tableLock.readLock().lock();
+        try{
+            return list.freeze();
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method saves all four text files. The tables are all copied at the same moment, so the files agree with
+     * each other, and written out while bookings carry on. If a journal is open, the entries the files now hold are
+     * dropped from it, but only once all four files are safely on disk: until then the journal is all a restart has
+     * of those changes.
+     *
+     * @param roomsTxtFileName      the rooms txt file
+     * @param guestsTxtFileName     the guests txt file
+     * @param bookingsTxtFileName   the bookings txt file
+     * @param paymentsTxtFileName   the payments txt file
+     * @return                      This returns a boolean value if the data was saved
+     */
+
+    public boolean saveAllData(String roomsTxtFileName, String guestsTxtFileName, String bookingsTxtFileName, String paymentsTxtFileName) {
+        long start = Metrics.SAVE_ALL_DATA.begin();
+        HotelEvents.SaveAllData event = new HotelEvents.SaveAllData();
+        event.begin();
+        try{
+            boolean saved = doSaveAllData(roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName);
+            event.report(saved, roomsTxtFileName, guestsTxtFileName, bookingsTxtFileName, paymentsTxtFileName);
+            return Metrics.SAVE_ALL_DATA.end(start, saved);
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_ALL_DATA.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSaveAllData(String roomsTxtFileName, String guestsTxtFileName,
+                           String bookingsTxtFileName, String paymentsTxtFileName){
+        try{
+            Checkpoint copy = Checkpoint.capture();
+            boolean saved = writePaymentsData(paymentsTxtFileName, copy.payments) & writeRoomsData(roomsTxtFileName, copy.rooms)
+                    & writeBookingsData(bookingsTxtFileName, copy.bookings) & writeGuestsData(guestsTxtFileName, copy.guests, copy.vipGuests);
+            if(saved){copy.dropJournal();}
+            return saved;
+        }catch(Exception e){
+            Metrics.cause(e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * This method saves every table of the hotel to one binary snapshot file. It is much faster to write and to load
+     * than the four text files, which stay available through saveAllData and importAllData.
+     *
+     * @param snapshotFileName    String representing the snapshot file
+     * @return                    This returns a boolean value if the snapshot was saved
+     */
+
+    public boolean saveSnapshot(String snapshotFileName) {
+        long start = Metrics.SAVE_SNAPSHOT.begin();
+        try{
+            return Metrics.SAVE_SNAPSHOT.end(start, doSaveSnapshot(snapshotFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.SAVE_SNAPSHOT.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doSaveSnapshot(String snapshotFileName) {
+        try{
+            Checkpoint.capture().saveSnapshot(snapshotFileName); // Written from a copy, so bookings carry on meanwhile
+            return true;
+        }catch(IOException e){ // This catches an error, if any
+            Metrics.cause(e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * This method saves a snapshot in the background, like saveSnapshot but without waiting for it. The tables are
+     * copied straight away, which only holds up changes for a moment, and the copy is written by the checkpoint
+     * thread. Once the snapshot is safely on disk, the journal entries it holds are dropped. Only one checkpoint is
+     * written at a time, asking again while one is running gives back the running one.
+     *
+     * @param snapshotFileName    String representing the snapshot file
+     * @return                    a Future that gives true once the snapshot is saved, or false if it could not be
+     */
+
+    public Future<Boolean> checkpoint(String snapshotFileName) {
+        synchronized(HotelImpl.class){
+            if(runningCheckpoint != null && !runningCheckpoint.isDone()){return runningCheckpoint;}
+            Checkpoint copy = Checkpoint.capture();
+            runningCheckpoint = checkpointThread.submit(() -> {
+                long start = System.nanoTime();
+                try{
+                    copy.saveSnapshot(snapshotFileName);
+                    System.out.println("Checkpoint of " + copy.bookings.size() + " bookings written in " + (System.nanoTime() - start) / 1000000
+                            + " ms (changes held up for " + copy.captureNanos / 1000 + " us)");
+                    return true;
+                }catch(IOException e){ // This catches an error, if any
+                    System.out.println("Error Occured when writing the checkpoint...");
+                    System.out.println(e);
+                    return false;
+                }
+            });
+            return runningCheckpoint;
+        }
+    }
+
+    /**
+     * This method loads every table of the hotel from a binary snapshot file written by saveSnapshot
+     *
+     * @param snapshotFileName    String representing the snapshot file
+     * @return                    This returns a boolean value if the snapshot was loaded
+     */
+
+    public boolean loadSnapshot(String snapshotFileName) {
+        long start = Metrics.LOAD_SNAPSHOT.begin();
+        try{
+            return Metrics.LOAD_SNAPSHOT.end(start, doLoadSnapshot(snapshotFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.LOAD_SNAPSHOT.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doLoadSnapshot(String snapshotFileName) {
+        try{
+            loadedLsn = Snapshot.load(this, snapshotFileName);
+            return true;
+        }catch(Exception e){ // This catches an error, if any
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading the snapshot...");
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /**
+     * This method starts logging every change to a journal file, so nothing is lost if the program stops before the
+     * data is saved again. If the file already holds entries, the ones the loaded data does not hold yet are replayed
+     * first. It should be called once the data has been loaded, before any terminal starts making changes.
+     *
+     * @param journalFileName    String representing the journal file
+     * @return                   This returns a boolean value if the journal was opened
+     */
+
+    public boolean openJournal(String journalFileName) {
+        if(journal != null){
+            System.out.println("A journal is already open");
+            return false;
+        }
+        try{
+            journal = Journal.open(this, journalFileName, loadedLsn);
+            return true;
+        }catch(Exception e){ // This catches an error, if any
+            Metrics.cause(e);
+            System.out.println("Error Occured when opening the journal...");
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /**
+     * This method writes out the last journal entries and closes the journal, changes are only kept in memory after it
+     *
+     * @return    This returns a boolean value if every change reached the journal
+     */
+
+    public boolean closeJournal() {
+        Journal current = journal;
+        if(current == null){return true;}
+        journal = null;
+        try{
+            current.close();
+            return true;
+        }catch(IOException e){ // This catches an error, if any
+            Metrics.cause(e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * This method starts moving the bookings that leave the hotel (checked out, cancelled, or archived once their stay
+     * is over) to a compressed archive file instead of dropping them, so displayGuestBooking and getBookingRevenue
+     * still see them. If the file already exists, the bookings in it are kept and new ones are added at the end, and
+     * their booking and guest IDs are never given out again, even though the data files no longer hold them.
+     *
+     * @param archiveFileName    String representing the archive file
+     * @return                   This returns a boolean value if the archive was opened
+     */
+
+    public boolean openArchive(String archiveFileName) {
+        if(archive != null){
+            System.out.println("An archive is already open");
+            return false;
+        }
+        try{
+            BookingArchive opened = BookingArchive.open(archiveFileName);
+            bookingIDs.seed(opened.maxBookingID());
+            guestIDs.seed(opened.maxGuestID());
+            archive = opened;
+            return true;
+        }catch(Exception e){ // This catches an error, if any
+            Metrics.cause(e);
+            System.out.println("Error Occured when opening the archive...");
+            System.out.println(e);
+            return false;
+        }
+    }
+
+    /**
+     * This method writes out the last archived bookings and closes the archive, bookings leaving the hotel are dropped after it
+     *
+     * @return    This returns a boolean value if every archived booking reached the file
+     */
+
+    public boolean closeArchive() {
+        BookingArchive current;
+        tableLock.writeLock().lock();
+        try{
+            current = archive; // Taken under the lock, so no booking is being added to it
+            archive = null;
+        }finally{
+            tableLock.writeLock().unlock();
+        }
+        if(current == null){return true;}
+        try{
+            current.close();
+            return true;
+        }catch(IOException e){ // This catches an error, if any
+            Metrics.cause(e);
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * This method moves every booking whose stay is over out of bookingList and into the archive, so the live tables
+     * only hold current and future stays
+     *
+     * @return    how many bookings were moved, or -1 if no archive is open
+     */
+
+    public int archiveCompletedBookings() {
+        long start = Metrics.ARCHIVE_COMPLETED_BOOKINGS.begin();
+        try{
+            return Metrics.ARCHIVE_COMPLETED_BOOKINGS.end(start, doArchiveCompletedBookings());
+        }catch(RuntimeException | Error e){
+            Metrics.ARCHIVE_COMPLETED_BOOKINGS.failed(start, e);
+            throw e;
+        }
+    }
+
+    private int doArchiveCompletedBookings(){
+        if(archive == null){
+            Metrics.cause("no archive");
+            System.out.println("Open an archive first, the bookings would be lost");
+            return -1;
+        }
+        ArrayList<Booking> completed = new ArrayList<Booking>();
+        tableLock.readLock().lock();
+        try{
+            int today = EpochDays.of(new Date());
+            for(Booking booking : bookingList){
+                if(booking.getCheckOutDay() <= today){completed.add(booking);} // The guest has left, whether they checked out or not
+            }
+        }finally{
+            tableLock.readLock().unlock();
+        }
+        completed.sort((a, b) -> Integer.compare(a.getCheckOutDay(), b.getCheckOutDay())); // So each segment of the archive covers a short range of days
+        return removeBookings(completed, BookingArchive.COMPLETED);
+    }
+
+    /**
+     * This method brings the hotel back after a restart or a crash: it loads the last snapshot, if there is one, and
+     * replays the journal written since then, keeping the journal open for the changes that follow
+     *
+     * @param snapshotFileName   String representing the snapshot file
+     * @param journalFileName    String representing the journal file
+     * @return                   This returns a boolean value if the hotel was recovered
+     */
+
+    public boolean recover(String snapshotFileName, String journalFileName) {
+        if(new File(snapshotFileName).exists() && !loadSnapshot(snapshotFileName)){return false;}
+        return openJournal(journalFileName);
+    }
+
+    /**
+     * This cancels a booking, making sure of the time and date limitations mentioned in the instructions of the coursework
+     *
+     * @param bookingID    Long integer representing a booking ID
+     * @return             This returns a boolean value if the cancellation was cancelled
+     */
+
+    public boolean cancelBooking(long bookingID) {
+        long start = Metrics.CANCEL_BOOKING.begin();
+        try{
+            return Metrics.CANCEL_BOOKING.end(start, doCancelBooking(bookingID));
+        }catch(RuntimeException | Error e){
+            Metrics.CANCEL_BOOKING.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doCancelBooking(long bookingID){
+        Booking booking;
+        Payment refund = null;
+        try{
+            booking = bookingsByID.get(bookingID);
+            
+            int today = EpochDays.of(new Date());
+            int daysDiff = today - booking.getCheckInDay();
+            if(daysDiff>2){ // If there is a difference of at least 2 days, all the money will be reimbursed
+                refund = new Payment(today, booking.getGuestID(), booking.getTotalAmount()*(-1), "refund");
+            }
+        }catch(Exception e){ // This catches an error, if any
+            Metrics.cause(e);
+            System.out.print("An error occured while canceling a booking....");
+            System.out.print(e + "\n");
+            return false;
+        }
+        return removeBooking(booking, refund, BookingArchive.CANCELLED); // After, we remove the booking from the list, once we have verified the time constrainst
+    }
+
+    /**
+     * This method displays Bookings On a Certain Date
+     *
+     * @param date    Date object representing the date that we want to look for
+     * @return        void (Nothing)
+     */
+
+    public void displayBookingsOnDate(Date date) {
+        long start = Metrics.DISPLAY_BOOKINGS_ON_DATE.begin();
+        try{
+            doDisplayBookingsOnDate(date);
+            Metrics.DISPLAY_BOOKINGS_ON_DATE.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_BOOKINGS_ON_DATE.failed(start, e);
+            throw e;
+        }
+    }
+
+    private void doDisplayBookingsOnDate(Date date){
+        tableLock.readLock().lock();
+        try{
+            Room booked_room=null;
+            for(Booking book: bookingsOn(date)){ // The bookings staying that night, checked in on or before the date and checking out after it
+                Guest guest = guestsByID.get(book.getGuestID());
+                booked_room = roomsByNumber.get(book.getRoomNumber());
+                String name = guest == null ? "(guest removed)" : guest.getlName() +" " + guest.getfName(); // A booking can outlive its guest
+                System.out.print("bookingID: " + book.getBookingID() + " Name: " + name + " Room Number" + book.getRoomNumber() + " Room Type: " + (booked_room == null ? "" : booked_room.getRoomType()) + " Room Price: " + (booked_room == null ? 0 : booked_room.getRoomPrice()) + " Payment Price: " + book.getTotalAmount() +"\n");
+            }
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method gives the bookings staying on a night, for housekeeping
+     *
+     * @param date    Date object representing the night
+     * @return        the booking IDs, ordered by room number
+     */
+
+    public ArrayList<Long> getBookingsOnDate(Date date){
+        tableLock.readLock().lock();
+        try{
+            Booking[] bookings = bookingsOn(date);
+            ArrayList<Long> result = new ArrayList<Long>(bookings.length);
+            for(Booking book : bookings){result.add(book.getBookingID());}
+            return result;
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * This method looks up the bookings staying on a night in the occupancy index. The caller holds the read lock.
+     *
+     * @param date    Date object representing the night
+     * @return        the bookings, ordered by room number
+     */
+
+    static Booking[] bookingsOn(Date date){
+        Booking[] bookings = occupancyIndex.on(EpochDays.of(date));
+        Arrays.sort(bookings, (a, b) -> Long.compare(a.getRoomNumber(), b.getRoomNumber()));
+        return bookings;
+    }
+
+    /**
+     * This method displays Payments On a Certain Date
+     *
+     * @param date    Date object representing the date that we want to look for
+     * @return        void (Nothing)
+     */
+
+    public void displayPaymentsOnDate(Date date) {
+        long start = Metrics.DISPLAY_PAYMENTS_ON_DATE.begin();
+        try{
+            doDisplayPaymentsOnDate(date);
+            Metrics.DISPLAY_PAYMENTS_ON_DATE.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_PAYMENTS_ON_DATE.failed(start, e);
+            throw e;
+        }
+    }
+
+    private void doDisplayPaymentsOnDate(Date date){
+        tableLock.readLock().lock();
+        try{
+            int day = EpochDays.of(date); // Payments are matched by calendar day, the ledger keeps each day's payments together
+            for(int row = paymentLedger.firstRow(day), end = paymentLedger.endRow(day); row < end; row++){
+                System.out.println("Guest ID: "+ paymentLedger.guestID(row) + " Payment Ammount: " + paymentLedger.cents(row) / 100.0 + " Payment Reason:" + paymentLedger.reason(row));
+            }
+            System.out.println("Total income: " + paymentLedger.dayCents(day) / 100.0);
+        }finally{
+            tableLock.readLock().unlock();
         }
     }
 
     /**
-     * This method imports all guests data
+     * This method gives the income of one day, refunds taken off. It is read from the ledger's daily total, so it
+     * takes the same time however many payments there are.
      *
-     * @param guestsTxtFileName     the guests txt file
-     * @return             This method returns a boolean-type true if the guest data import process was successful, false if not
+     * @param date    Date object representing the day
+     * @return        the income of that day
      */
 
-    public boolean importGuestsData(String guestsTxtFileName){
+    public double getIncomeOnDate(Date date){
+        tableLock.readLock().lock();
         try{
-            File file = new File(guestsTxtFileName);
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String st;
-            guestList = new ArrayList<Guest>();
-            vipGuestList = new ArrayList<VIPGuest>();
-            while ((st = br.readLine()) != null) {
-                String[] guest_info = st.split(",");
-                if(guest_info.length > 4){
-                    VIPGuest vipGuest = new VIPGuest(Long.valueOf(guest_info[0]), guest_info[1], guest_info[2], ft.parse(guest_info[3]), ft.parse(guest_info[4]), ft.parse(guest_info[5])); // We use its own-defined constructor
-                    vipGuestList.add(vipGuest);
-                }else{
-                    Guest guest = new Guest(Long.valueOf(guest_info[0]), guest_info[1], guest_info[2], ft.parse(guest_info[3]));
-                    guestList.add(guest);
-                }
-
-            }
-            br.close();
-            return true;
-        }catch(Exception e){ // We catch an error if there is ever an error
-            System.out.println("Error Occured when reading Guests data...");
-            return false;
+            return paymentLedger.dayCents(EpochDays.of(date)) / 100.0;
+        }finally{
+            tableLock.readLock().unlock();
         }
     }
 
     /**
-     * This method imports all booking data
+     * This method gives the income of the days from fromDate to toDate, both included, refunds taken off
      *
-     * @param bookingsTxtFileName         The bookings txt file
-     * @return                            This method returns a boolean-type true if the booking data import process was successful, false if not
+     * @param fromDate    Date object representing the first day
+     * @param toDate      Date object representing the last day
+     * @return            the income of those days
      */
 
-    public boolean importBookingsData(String bookingsTxtFileName){
+    public double getIncome(Date fromDate, Date toDate){
+        tableLock.readLock().lock();
         try{
-            File file = new File(bookingsTxtFileName);
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String st;
-            bookingList = new ArrayList<Booking>();
-            while((st = br.readLine()) != null){
-                String[] booking_info = st.split(",");
-                Booking booking = new Booking(Long.valueOf(booking_info[0]), Long.valueOf(booking_info[1]),
-                    Long.valueOf(booking_info[2]),ft.parse(booking_info[3]),
-                    ft.parse(booking_info[4]), ft.parse(booking_info[5]),
-                    Double.valueOf(booking_info[6])); // This initialized the object booking calling the constructor in the class Booking
-                bookingList.add(booking);
-            }
-            br.close(); // fclose() is  a file method that closes the previously opened and created file
-            return true;
-        }
-        catch(Exception e){ // This catches an error, if any
-            System.out.println("Error Occured when reading booking data...");
-            return false;
+            return paymentLedger.rangeCents(EpochDays.of(fromDate), EpochDays.of(toDate)) / 100.0;
+        }finally{
+            tableLock.readLock().unlock();
         }
     }
 
     /**
-     * This method imports all data
+     * This method gives the total of one kind of payment over all days, such as "booking", "VIPmembership" or "refund"
      *
-     * @param paymentsTxtFileName     the payments txt file
-     * @return             This method returns a boolean-type true if the payment data import process was successful, false if not
+     * @param payReason   String representing the payment reason
+     * @return            the total of the payments with that reason
      */
 
-    public boolean importPaymentsData(String paymentsTxtFileName){
+    public double getIncomeByReason(String payReason){
+        tableLock.readLock().lock();
         try{
-            File file = new File(paymentsTxtFileName);
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String st;
-            SimpleDateFormat ft = new SimpleDateFormat ("yyyy-MM-dd");
-            paymentList = new ArrayList<Payment>();
-            while ((st = br.readLine()) != null){
-                String[] payment_info = st.split(",");
-                Payment payment = new Payment(ft.parse(payment_info[0]), Long.valueOf(payment_info[1]),
-                    Double.valueOf(payment_info[2]), payment_info[3]); // This initialized the object payment using its constructor
-                paymentList.add(payment);
-            }
-            br.close(); // This closes the file if there are no errors
-            return true;
-        }catch(Exception e){ // Catches an error if any
-            System.out.println("Error Occured when reading payment data...");
-            return false;
+            return paymentLedger.reasonCents(payReason) / 100.0;
+        }finally{
+            tableLock.readLock().unlock();
         }
     }
 
     /**
-     * This method checks out
+     * This method gives the takings of the stays checking in from fromDate to toDate, both included: the total amount
+     * of the bookings in the hotel and of those in the archive, except the cancelled ones
      *
-     * @param bookingID This is a long integer representing the booking ID number
-     * @return             This method returns a boolean-type true if check out was successful, false if not
+     * @param fromDate    Date object representing the first day
+     * @param toDate      Date object representing the last day
+     * @return            the total of those bookings, or -1 if the archive could not be read
      */
 
-    public boolean checkOut(long bookingID){
-        Booking booking = null;
+    public double getBookingRevenue(Date fromDate, Date toDate){
+        int fromDay = EpochDays.of(fromDate);
+        int toDay = EpochDays.of(toDate);
+        double[] total = {0};
+        tableLock.readLock().lock();
         try{
-            for(Booking book: bookingList){
-                if(book.getBookingID()==bookingID){booking=book;}
+            for(Booking booking : bookingList){
+                if(booking.getCheckInDay() >= fromDay && booking.getCheckInDay() <= toDay){total[0] += booking.getTotalAmount();}
             }
+            BookingArchive current = archive; // Read under the lock, so no booking is both in the list and in the archive
+            if(current != null){
+                current.checkIns(fromDay, toDay, (rows, row) -> {
+                    if(rows.statuses[row] != BookingArchive.CANCELLED){total[0] += rows.amounts[row];}
+                });
+            }
+            return total[0];
+        }catch(IOException e){
+            Metrics.cause(e);
+            System.out.println("Error Occured when reading the booking archive...");
+            System.out.println(e);
+            return -1;
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }
+    /**
+     * This method displays all of a given guests booking infomation
+     *
+     * @param   guestID a unique guest ID number
+     * @return  void (Nothing)
+    */
+    public void displayGuestBooking(long guestID) {
+        long start = Metrics.DISPLAY_GUEST_BOOKING.begin();
+        try{
+            doDisplayGuestBooking(guestID);
+            Metrics.DISPLAY_GUEST_BOOKING.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_GUEST_BOOKING.failed(start, e);
+            throw e;
+        }
+    }
 
-            if(new Date().after(booking.getCheckOutDate())|| new Date().before(booking.getCheckInDate())){return false;} //This makes sure the checkinDate if after the current date
+    private void doDisplayGuestBooking(long guestID){
+        tableLock.readLock().lock();
+        try{
+            try{
+                Room booked_room=null;
+                Guest guest = searchGuestByID(guestID);
+                System.out.println("Displaying all bookings by "+guest.getfName() + " " +guest.getlName());
+                for(Booking book: bookingList){
+                    if(book.getGuestID() == guest.getGuestID()){
+                        booked_room = roomsByNumber.get(book.getRoomNumber()); // Null once the room of a past stay was removed
+                        System.out.println("bookingID: " + book.getBookingID() + " Name: " + guest.getlName() +" " + guest.getfName() + " Room Number: " + book.getRoomNumber() + (booked_room == null ? "" : " Room Type: " + booked_room.getRoomType() + " Room Price: " + booked_room.getRoomPrice()) + " Payment Price: " + book.getTotalAmount());
+                    }
+                }
+                BookingArchive current = archive;
+                if(current != null){ // The bookings that already left the hotel
+                    current.guestBookings(guestID, (rows, row) -> {
+                        Room room = roomsByNumber.get(rows.roomNumbers[row]);
+                        System.out.println("bookingID: " + rows.bookingIDs[row] + " Name: " + guest.getlName() +" " + guest.getfName() + " Room Number: " + rows.roomNumbers[row] + (room == null ? "" : " Room Type: " + room.getRoomType() + " Room Price: " + room.getRoomPrice()) + " Payment Price: " + rows.amounts[row] + " Status: " + BookingArchive.statusName(rows.statuses[row]));
+                    });
+                }
+            }catch(Exception e){
+                Metrics.cause(e);
+                e.printStackTrace();
+            }
+        }finally{
+            tableLock.readLock().unlock();
+        }
+    }    /**
+     * This method displays all guests
+     *
+     * @param         None
+     * @return        void (Nothing)
+     */
+    public void displayAllGuests() {
+        long start = Metrics.DISPLAY_ALL_GUESTS.begin();
+        try{
+            doDisplayAllGuests();
+            Metrics.DISPLAY_ALL_GUESTS.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_ALL_GUESTS.failed(start, e);
+            throw e;
+        }
+    }
 
-            bookingList.remove(booking); // Removes the element from the bookings list
-            return true;
-        }catch(Exception e){
-            e.printStackTrace();
-            return false;
+    private void doDisplayAllGuests(){
+        tableLock.readLock().lock();
+        try{
+            System.out.println("Displaying Guests: ");
+            for(Guest guest: guestList){
+                System.out.println("Guest ID: " +guest.getGuestID() +" Guest Name: " +guest.getlName() +" " +guest.getfName() + " Date Joined: " + guest.getDateJoin());
+            }
+            System.out.println("Displaying VIP Guests: ");
+            for(VIPGuest guest: vipGuestList){
+                System.out.println("Guest ID: "+ guest.getGuestID() + " Guest Name: "+ guest.getlName() + " " +guest.getfName() + " Date Joined: " + guest.getDateJoin() + " VIP Start Date: " + guest.getVIPStartDate() + " VIP End Date: " + guest.getVIPExpiryDate());
+            }
+        }finally{
+            tableLock.readLock().unlock();
         }
     }
 
     /**
-     * This method seaches guests and returns a string of the long integers of the values of their IDs
+     * This method displays all rooms
      *
-     * @param firstName    String representing the first name of the guest
-     * @param lastName     String representing the second name of the guestthe guests txt file
-     * @return             This method seaches guests and returns a string of the long integers of the values of their IDs
+     * @param         None
+     * @return        void (Nothing)
      */
 
-    public ArrayList<Long> searchGuest(String firstName, String lastName) {
-        ArrayList<Long> result = new ArrayList<Long>();
-        for(Guest guest : guestList) {
-            if (guest.getfName().toLowerCase().equals(firstName.toLowerCase()) && guest.getlName().toLowerCase().equals(lastName.toLowerCase())) {
-                result.add(guest.getGuestID());
-            }
+    public void displayAllRooms() {
+        long start = Metrics.DISPLAY_ALL_ROOMS.begin();
+        try{
+            doDisplayAllRooms();
+            Metrics.DISPLAY_ALL_ROOMS.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_ALL_ROOMS.failed(start, e);
+            throw e;
         }
-        for(VIPGuest guest : vipGuestList) {
-            if (guest.getfName().toLowerCase().equals(firstName.toLowerCase()) && guest.getlName().toLowerCase().equals(lastName.toLowerCase())) {
-                result.add(guest.getGuestID());
+    }
+
+    private void doDisplayAllRooms(){
+        tableLock.readLock().lock();
+        try{
+            System.out.println("Displaing Rooms: ");
+            for(Room room: roomList){
+                // The following line prints all the info about a room, after having traversed the whole array of objects that represent each and every individual room
+                System.out.println("Room Number: " +room.getRoomNumber() + " Room Type: " + room.getRoomType() + " Room Price: " + room.getRoomPrice() + " Room Capacity: " + room.getCapacity() + " Facilities: " +room.getFacilities());
             }
+        }finally{
+            tableLock.readLock().unlock();
         }
-        return result; // This is an array of long integers
     }
 
     /**
-     * This method seaches guests by ID and returns the object with representing that guest
+     * This method displays all bookings
      *
-     * @param guestID Long integer representing the guest"s ID number
-     * @return             This method seaches guests and returns an object of the guest.
+     * @param         None
+     * @return        void (Nothing)
      */
 
-    public Guest searchGuestByID(long guestID) {
-        for(Guest guest : guestList) {
-            if(guest.getGuestID() == guestID) {
-                return guest;
-            }
+    public void displayAllBookings() {
+        long start = Metrics.DISPLAY_ALL_BOOKINGS.begin();
+        try{
+            doDisplayAllBookings();
+            Metrics.DISPLAY_ALL_BOOKINGS.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_ALL_BOOKINGS.failed(start, e);
+            throw e;
         }
-        for(VIPGuest guest : vipGuestList) { // It also searches as exprected through the vipGuestList
-            if(guest.getGuestID() == guestID) {
-                return guest;
+    }
+
+    private void doDisplayAllBookings(){
+        tableLock.readLock().lock();
+        try{
+            System.out.println("Displaying Bookings: ");
+            Room booked_room=null;
+            for(Booking book: bookingList){
+                Guest guest = searchGuestByID(book.getGuestID());
+                booked_room = roomsByNumber.get(book.getRoomNumber());
+                String name = guest == null ? "(guest removed)" : guest.getlName() +" " + guest.getfName(); // The guest or the room of a past stay can be gone
+                System.out.println("bookingID: " + book.getBookingID() + " Name: " + name + " Room Number" + book.getRoomNumber() + " Room Type: " + (booked_room == null ? "" : booked_room.getRoomType()) + " Room Price: " + (booked_room == null ? 0 : booked_room.getRoomPrice()) + " Payment Price: " + book.getTotalAmount()); 
             }
+        }finally{
+            tableLock.readLock().unlock();
         }
+    }
 
-        return null;
+    /**
+     * This method displays all payments
+     *
+     * @param         None
+     * @return        void (Nothing)
+     */
+
+    public void displayAllPayments() {
+        long start = Metrics.DISPLAY_ALL_PAYMENTS.begin();
+        try{
+            doDisplayAllPayments();
+            Metrics.DISPLAY_ALL_PAYMENTS.end(start);
+        }catch(RuntimeException | Error e){
+            Metrics.DISPLAY_ALL_PAYMENTS.failed(start, e);
+            throw e;
+        }
+    }
+
+    private void doDisplayAllPayments(){
+        tableLock.readLock().lock();
+        try{
+            System.out.println("Displaying Payments: ");
+            for(Payment payment: paymentList){
+                System.out.println("Guest ID: "+ payment.getGuestID() + " Payment Ammount: " +payment.getAmount() + " Payment Reason:" + payment.getPayReason());
+
+            }
+        }finally{
+            tableLock.readLock().unlock();
+        }
     }
 
     /**
-     * This method saves the data of a room
+     * This method writes all rooms as a report, see ReportWriter
      *
-     * @param roomsTxtFileName    String representing the rooms txt file
-     * @return                    This returns a boolean value if the room was saved
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public boolean saveRoomsData(String roomsTxtFileName) {
-        File fnew = new File(roomsTxtFileName);
-        try {
-            FileWriter roomsFile = new FileWriter(fnew, false);
-            PrintWriter roomsWriter = new PrintWriter(roomsFile);
-            for(Room room: roomList){roomsWriter.println(room.getRoomNumber()+","+room.getRoomType()+","+room.getRoomPrice()+","+room.getCapacity()+","+room.getFacilities());}
-            roomsFile.close();
+    public boolean displayAllRooms(Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
+        try{
+            report.writeRooms(0, ReportWriter.ALL);
+            report.flush();
             return true;
-        }catch (IOException e) { // This catches an exception and stacks it.
-            e.printStackTrace();
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the rooms report...");
+            System.out.println(e);
             return false;
         }
     }
 
     /**
-     * This method saves the data of the guests
+     * This method writes all guests as a report, the regular guests first and then the VIP guests
      *
-     * @param roomsTxtFileName    String representing the rooms txt file
-     * @return                    This returns a boolean value if the guest data was saved
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public boolean saveGuestsData(String guestsTxtFileName) {
-        File fnew = new File(guestsTxtFileName);
-        try {
-            FileWriter guestsFile = new FileWriter(fnew, false);
-            PrintWriter guestsWriter = new PrintWriter(guestsFile);
-            for(Guest guest: guestList){guestsWriter.println(guest.getGuestID() +","+guest.getfName()+","+guest.getlName()+","+guest.getDateJoin());} // This is how the file is modified to the new source data
-            for(VIPGuest guest: vipGuestList){guestsWriter.println(guest.getGuestID() +","+guest.getfName()+","+guest.getlName()+","+guest.getDateJoin()+","+guest.getVIPStartDate()+","+guest.getVIPExpiryDate());}
-            guestsFile.close(); // This is how we close the file that we opened before
+    public boolean displayAllGuests(Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
+        try{
+            report.writeGuests(0, ReportWriter.ALL);
+            report.flush();
             return true;
-        }
-        catch (IOException e) { // This catches an expection, if any
-            e.printStackTrace();
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the guests report...");
+            System.out.println(e);
             return false;
         }
     }
 
     /**
-     * This method saves the data of the booking
+     * This method writes all bookings as a report, with the guest name and room of each booking. A large table is
+     * written a few hundred rows at a time, so bookings can still be made while it is being exported.
      *
-     * @param bookingsTxtFileName    String representing the bookings txt file
-     * @return                    This returns a boolean value if the booking data was saved
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public boolean saveBookingsData(String bookingsTxtFileName) {
-        File fnew = new File(bookingsTxtFileName);
-        try {
-            FileWriter bookingsFile = new FileWriter(fnew, false);
-            PrintWriter bookingsWriter = new PrintWriter(bookingsFile);
-            for(Booking booking: bookingList){bookingsWriter.println(booking.getBookingID()+","+booking.getGuestID()+","+booking.getRoomNumber()+","+booking.getBookingDate()+","+booking.getCheckInDate()+","+booking.getCheckOutDate()+","+booking.getTotalAmount());} // This opens and then closes in the next line the file that we created
-            bookingsFile.close();
+    public boolean displayAllBookings(Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
+        try{
+            report.writeBookings(0, ReportWriter.ALL);
+            report.flush();
             return true;
-        }
-        catch (IOException e) { // This catches an error, if any
-            e.printStackTrace();
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the bookings report...");
+            System.out.println(e);
             return false;
         }
     }
 
     /**
-     * This method saves the data of the payments
+     * This method writes all payments as a report
      *
-     * @param paymentsTxtFileName    String representing the payments txt file
-     * @return                       This returns a boolean value if the payment data was saved
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public boolean savePaymentsData(String paymentsTxtFileName) {
-        File fnew = new File(paymentsTxtFileName);
-        try {
-            FileWriter paymentsFile = new FileWriter(fnew, false); // These next 3 lines represent how we create, open, modify and close a file with new data source
-            PrintWriter paymentsWriter = new PrintWriter(paymentsFile);
-            for(Payment payment: paymentList){paymentsWriter.println(payment.getDate()+","+payment.getGuestID()+","+payment.getAmount()+","+payment.getPayReason());}
-            paymentsFile.close();
+    public boolean displayAllPayments(Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
+        try{
+            report.writePayments(0, ReportWriter.ALL);
+            report.flush();
             return true;
-        }
-        catch (IOException e) { // This catches an error, if any
-            e.printStackTrace();
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the payments report...");
+            System.out.println(e);
             return false;
         }
     }
 
-    public boolean saveAllData(String roomsTxtFileName, String guestsTxtFileName,
-                           String bookingsTxtFileName, String paymentsTxtFileName){
+    /**
+     * This method writes the bookings of one guest as a report
+     *
+     * @param guestID  Long integer representing the guest ID
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
+     */
+
+    public boolean displayGuestBooking(long guestID, Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
         try{
-            savePaymentsData(paymentsTxtFileName);
-            saveRoomsData(roomsTxtFileName);
-            saveBookingsData(bookingsTxtFileName);
-            saveGuestsData(guestsTxtFileName);
+            report.writeGuestBookings(guestID, 0, ReportWriter.ALL);
+            report.writeArchivedGuestBookings(guestID);
+            report.flush();
             return true;
-        }catch(Exception e){
-            e.printStackTrace();
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the guest bookings report...");
+            System.out.println(e);
             return false;
         }
     }
 
     /**
-     * This cancels a booking, making sure of the time and date limitations mentioned in the instructions of the coursework
+     * This method writes the bookings staying on a night as a report, ordered by room number
      *
-     * @param bookingID    Long integer representing a booking ID
-     * @return             This returns a boolean value if the cancellation was cancelled
+     * @param date     Date object representing the night
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public boolean cancelBooking(long bookingID){
+    public boolean displayBookingsOnDate(Date date, Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
         try{
-            Booking booking=null;
-            for(Booking book : bookingList){
-                if(book.getBookingID() == bookingID){booking = book;}
-            }
-            
-            long diff = new Date().getTime() - booking.getCheckInDate().getTime();
-            long daysDiff = TimeUnit.DAYS.convert(diff, TimeUnit.MILLISECONDS);
-            if(daysDiff>2){ // If there is a difference of at least 2 days, all the money will be reimbursed
-                Payment refund = new Payment(new Date(), booking.getGuestID(), booking.getTotalAmount()*(-1), "refund");
-                paymentList.add(refund);
-            }
-            bookingList.remove(booking); // After, we remove the booking from the list, once we have verified the time constrainst
+            report.writeBookingsOnDate(date);
+            report.flush();
             return true;
-        }catch(Exception e){ // This catches an error, if any
-            System.out.print("An error occured while canceling a booking....");
-            System.out.print(e + "\n");
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the bookings on date report...");
+            System.out.println(e);
             return false;
         }
     }
 
     /**
-     * This method displays Bookings On a Certain Date
+     * This method writes the payments of one day as a report, getIncomeOnDate gives their total
      *
-     * @param date    Date object representing the date that we want to look for
-     * @return        void (Nothing)
+     * @param date     Date object representing the day
+     * @param out      where the report goes, such as System.out or a FileWriter
+     * @param format   CSV or fixed-width
+     * @return         true if the report was written, false if the output failed
      */
 
-    public void displayBookingsOnDate(Date date){
-        Room booked_room=null;
-        for(Booking book: bookingList){
-            if(book.getCheckOutDate().before(date) && book.getCheckInDate().after(date)){ // These conditions check that the check out date is after the actual check in date and that everything follows the instructions on the coursework
-                Guest guest = searchGuestByID(book.getGuestID());
-                for(Room room: roomList){
-                    if(room.getRoomNumber()==book.getRoomNumber()){booked_room = room;}
-                }
-                System.out.print("bookingID: " + book.getBookingID() + " Name: " + guest.getlName() +" " + guest.getfName() + " Room Number" + book.getRoomNumber() + " Room Type: " + booked_room.getRoomType() + " Room Price: " + booked_room.getRoomPrice() + " Payment Price: " + book.getTotalAmount() +"\n");
-
-            }
+    public boolean displayPaymentsOnDate(Date date, Appendable out, ReportWriter.Format format) {
+        ReportWriter report = new ReportWriter(out, format);
+        try{
+            report.writePaymentsOnDate(date);
+            report.flush();
+            return true;
+        }catch(IOException e){
+            System.out.println("Error Occured when writing the payments on date report...");
+            System.out.println(e);
+            return false;
         }
     }
 
     /**
-     * This method displays Payments On a Certain Date
+     * This method reads the counters of every Hotel method and of the import and save paths, and the size of every
+     * table. The same counters are shown over JMX as hotel:type=Metrics.
      *
-     * @param date    Date object representing the date that we want to look for
-     * @return        void (Nothing)
+     * @return        the counters as they are now, they do not change afterwards
      */
 
-    public void displayPaymentsOnDate(Date date){
-        for(Payment payment: paymentList){ // We iterate through the whole payment array objects
-            if(payment.getDate() == date){
-                System.out.print("Guest ID: "+ payment.getGuestID() + " Payment Ammount: " +payment.getAmount() + " Payment Reason:" + payment.getPayReason());
+    public MetricsSnapshot getMetrics() {
+        return Metrics.snapshot();
+    }
 
-            }
-        }
+    /**
+     * This method sets the call, failure and latency counters back to 0, for example between two runs of a test
+     */
+
+    public void resetMetrics() {
+        Metrics.reset();
     }
+
     /**
-     * This method displays all of a given guests booking infomation
+     * This method sets how many findAvailableRooms results are kept in the availability cache, 4096 to start with
      *
-     * @param   guestID a unique guest ID number
-     * @return  void (Nothing)
-    */
-    public void displayGuestBooking(long guestID){
-        try{
-            Room booked_room=null;
-            Guest guest = searchGuestByID(guestID);
-            System.out.println("Displaying all bookings by "+guest.getfName() + " " +guest.getlName());
-            for(Booking book: bookingList){
-                if(book.getGuestID() == guest.getGuestID()){
-                    for(Room room: roomList){if(room.getRoomNumber()==book.getRoomNumber()){booked_room = room;}}
-                    System.out.println("bookingID: " + book.getBookingID() + " Name: " + guest.getlName() +" " + guest.getfName() + " Room Number: " + book.getRoomNumber() + " Room Type: " + booked_room.getRoomType() + " Room Price: " + booked_room.getRoomPrice() + " Payment Price: " + book.getTotalAmount());
-                }
-            }
-        }catch(Exception e){
-            e.printStackTrace();
-        }
-    }    /**
-     * This method displays all guests
-     *
-     * @param         None
-     * @return        void (Nothing)
+     * @param capacity   how many results to keep at most, 0 to turn the cache off
      */
-    public void displayAllGuests(){
-        System.out.println("Displaying Guests: ");
-        for(Guest guest: guestList){
-            System.out.println("Guest ID: " +guest.getGuestID() +" Guest Name: " +guest.getlName() +" " +guest.getfName() + " Date Joined: " + guest.getDateJoin());
-        }
-        System.out.println("Displaying VIP Guests: ");
-        for(VIPGuest guest: vipGuestList){
-            System.out.println("Guest ID: "+ guest.getGuestID() + " Guest Name: "+ guest.getlName() + " " +guest.getfName() + " Date Joined: " + guest.getDateJoin() + " VIP Start Date: " + guest.getVIPStartDate() + " VIP End Date: " + guest.getVIPExpiryDate());
-        }
+
+    public void setAvailabilityCacheCapacity(int capacity) {
+        availabilityCache.setCapacity(capacity);
     }
 
     /**
-     * This method displays all rooms
+     * This method reads the counters of the availability cache, which are also part of getMetrics()
      *
-     * @param         None
-     * @return        void (Nothing)
+     * @return        the hits, misses, evictions and invalidations so far
      */
 
-    public void displayAllRooms(){
-        System.out.println("Displaing Rooms: ");
-        for(Room room: roomList){
-            // The following line prints all the info about a room, after having traversed the whole array of objects that represent each and every individual room
-            System.out.println("Room Number: " +room.getRoomNumber() + " Room Type: " + room.getRoomType() + " Room Price: " + room.getRoomPrice() + " Room Capacity: " + room.getCapacity() + " Facilities: " +room.getFacilities());
-        }
+    public CacheStats getAvailabilityCacheStats() {
+        return availabilityCache.stats();
     }
 
     /**
-     * This method displays all bookings
+     * This method adds the bookings of a bookings txt file to the booking history, which is kept outside the heap so
+     * it can hold tens of millions of past bookings. The bookings in the history are not part of bookingList.
      *
-     * @param         None
-     * @return        void (Nothing)
+     * @param bookingsTxtFileName   The bookings txt file, in the format saveBookingsData writes
+     * @return                      This method returns a boolean-type true if the whole file was added, false if not
      */
 
-    public void displayAllBookings(){
-        System.out.println("Displaying Bookings: ");
-        Room booked_room=null;
-        for(Booking book: bookingList){
-            Guest guest = searchGuestByID(book.getGuestID());
-            for(Room room: roomList){
-                if(room.getRoomNumber()==book.getRoomNumber()){booked_room = room;}}
-            System.out.println("bookingID: " + book.getBookingID() + " Name: " + guest.getlName() +" " + guest.getfName() + " Room Number" + book.getRoomNumber() + " Room Type: " + booked_room.getRoomType() + " Room Price: " + booked_room.getRoomPrice() + " Payment Price: " + book.getTotalAmount()); 
+    public boolean importBookingHistory(String bookingsTxtFileName) {
+        long start = Metrics.IMPORT_BOOKING_HISTORY.begin();
+        try{
+            return Metrics.IMPORT_BOOKING_HISTORY.end(start, doImportBookingHistory(bookingsTxtFileName));
+        }catch(RuntimeException | Error e){
+            Metrics.IMPORT_BOOKING_HISTORY.failed(start, e);
+            throw e;
+        }
+    }
+
+    private boolean doImportBookingHistory(String bookingsTxtFileName){
+        try{
+            long start = System.nanoTime();
+            int added = bookingHistory.load(bookingsTxtFileName);
+            System.out.println("Added " + added + " bookings to the history in " + (System.nanoTime() - start) / 1000000 + " ms ("
+                    + bookingHistory.size() + " bookings, " + (bookingHistory.offHeapBytes() >> 20) + " MB off the heap)");
+            return true;
+        }catch(Exception e){
+            Metrics.cause(e);
+            System.out.println("Error Occured when importing the booking history...");
+            System.out.println(e);
+            return false;
         }
     }
 
     /**
-     * This method displays all payments
+     * This method gives the booking history, to go through it with a BookingStore.Cursor
      *
-     * @param         None
-     * @return        void (Nothing)
+     * @return        the booking history
      */
 
-    public void displayAllPayments(){
-        System.out.println("Displaying Payments: ");
-        for(Payment payment: paymentList){
-            System.out.println("Guest ID: "+ payment.getGuestID() + " Payment Ammount: " +payment.getAmount() + " Payment Reason:" + payment.getPayReason());
-
-        }
+    public BookingStore getBookingHistory() {
+        return bookingHistory;
     }
 
     /**
@@ -778,7 +2607,7 @@ public class HotelImpl implements Hotel {
      * In order to access all attributes on the Room object, we have developed several public methods that can ideed print all the information needed
      */
 
-    static class Room {
+    static class Room extends RecordStore.Record {
         private long roomNumber;
         private String roomType;
         private double roomPrice;
@@ -812,24 +2641,28 @@ public class HotelImpl implements Hotel {
      * In order to access all attributes on the Room object, we have developed several public methods that can ideed print all the information needed
      */
 
-    static class Booking{
+    static class Booking extends RecordStore.Record {
         private long bookingID;
         private long guestID;
         private long roomNumber;
-        private Date bookingDate;
-        private Date checkInDate;
-        private Date checkOutDate;
+        private int bookingDay; // The dates are kept as epoch-days (see EpochDays), and only turned into Date objects when asked for one
+        private int checkInDay;
+        private int checkOutDay;
         private double totalAmount;
 
         // This is the constructor we have used to create a new object tailored to its own properties
 
         public Booking(long bookingID, long guestID, long roomNumber, Date bookingDate, Date checkInDate, Date checkOutDate, double totalAmount) {
+            this(bookingID, guestID, roomNumber, EpochDays.of(bookingDate), EpochDays.of(checkInDate), EpochDays.of(checkOutDate), totalAmount);
+        }
+
+        public Booking(long bookingID, long guestID, long roomNumber, int bookingDay, int checkInDay, int checkOutDay, double totalAmount) {
             this.bookingID = bookingID;
             this.guestID = guestID;
             this.roomNumber = roomNumber;
-            this.bookingDate = bookingDate;
-            this.checkInDate = checkInDate;
-            this.checkOutDate = checkOutDate;
+            this.bookingDay = bookingDay;
+            this.checkInDay = checkInDay;
+            this.checkOutDay = checkOutDay;
             this.totalAmount = totalAmount;
         }
 
@@ -838,10 +2671,14 @@ public class HotelImpl implements Hotel {
         public long getBookingID(){return this.bookingID;}
         public long getGuestID(){return this.guestID;}
         public long getRoomNumber(){return this.roomNumber;}
-        public Date getBookingDate(){return this.bookingDate;}
-        public Date getCheckInDate(){return this.checkInDate;}
-        public Date getCheckOutDate(){return this.checkOutDate;}
+        public Date getBookingDate(){return EpochDays.toDate(this.bookingDay);}
+        public Date getCheckInDate(){return EpochDays.toDate(this.checkInDay);}
+        public Date getCheckOutDate(){return EpochDays.toDate(this.checkOutDay);}
         public double getTotalAmount(){return this.totalAmount;}
+        public int getBookingDay(){return this.bookingDay;}
+        public int getCheckInDay(){return this.checkInDay;}
+        public int getCheckOutDay(){return this.checkOutDay;}
+        public int getNights(){return this.checkOutDay - this.checkInDay;}
     }
 
     /**
@@ -853,18 +2690,22 @@ public class HotelImpl implements Hotel {
      * In order to access all attributes on the Room object, we have developed several public methods that can ideed print all the information needed
      */
 
-    class Guest {
+    class Guest extends RecordStore.Record {
         private long guestID;
         private String fName;
         private String lName;
-        private Date dateJoin;
+        private int joinDay; // An epoch-day, like every date of the records
 
         // This is the constructor used to create more objects with individual attributes that may or not differ among all Guest objects
         public Guest(long guestID, String fName, String lName, Date dateJoin) {
+            this(guestID, fName, lName, EpochDays.of(dateJoin));
+        }
+
+        public Guest(long guestID, String fName, String lName, int joinDay) {
             this.guestID = guestID;
             this.fName = fName;
             this.lName = lName;
-            this.dateJoin = dateJoin;
+            this.joinDay = joinDay;
         }
 
         // These are the public methods used to access from outside the inner, private attributes of this class
@@ -872,7 +2713,8 @@ public class HotelImpl implements Hotel {
         public long getGuestID() {return this.guestID;}
         public String getfName() {return this.fName;}
         public String getlName() {return this.lName;}
-        public Date getDateJoin() {return this.dateJoin;}
+        public Date getDateJoin() {return EpochDays.toDate(this.joinDay);}
+        public int getJoinDay() {return this.joinDay;}
     }
 
     /**
@@ -885,30 +2727,36 @@ public class HotelImpl implements Hotel {
      */
 
     class VIPGuest extends Guest {
-        private Date VIPStartDate;
-        private Date VIPExpiryDate;
+        private int VIPStartDay;
+        private int VIPExpiryDay;
 
         // This is the constructor used to create more objects with individual attributes that may or not differ among all Guest objects
 
         public VIPGuest(long guestID, String fName, String lName, Date dateJoin, Date VIPStartDate,
                 Date VIPExpiryDate) {
+            this(guestID, fName, lName, EpochDays.of(dateJoin), EpochDays.of(VIPStartDate), EpochDays.of(VIPExpiryDate));
+        }
+
+        public VIPGuest(long guestID, String fName, String lName, int joinDay, int VIPStartDay, int VIPExpiryDay) {
 
             // <super> keyword calls the superclass's constructor within the subclass's constructor
 
-            super(guestID, fName, lName, dateJoin);
-            this.VIPStartDate = VIPStartDate;
-            this.VIPExpiryDate = VIPExpiryDate;
+            super(guestID, fName, lName, joinDay);
+            this.VIPStartDay = VIPStartDay;
+            this.VIPExpiryDay = VIPExpiryDay;
         }
 
         public void setVIP(Date VIPStartDate, Date VIPExpiryDate) {
-            this.VIPStartDate = VIPStartDate;
-            this.VIPExpiryDate = VIPExpiryDate;
+            this.VIPStartDay = EpochDays.of(VIPStartDate);
+            this.VIPExpiryDay = EpochDays.of(VIPExpiryDate);
         }
 
         // These are the public methods used to access from outside the inner, private attributes of this class
 
-        public Date getVIPStartDate() { return this.VIPStartDate; }
-        public Date getVIPExpiryDate() { return this.VIPExpiryDate; }
+        public Date getVIPStartDate() { return EpochDays.toDate(this.VIPStartDay); }
+        public Date getVIPExpiryDate() { return EpochDays.toDate(this.VIPExpiryDay); }
+        public int getVIPStartDay() { return this.VIPStartDay; }
+        public int getVIPExpiryDay() { return this.VIPExpiryDay; }
 
     }
 
@@ -921,8 +2769,8 @@ public class HotelImpl implements Hotel {
      * In order to access all attributes on the Room object, we have developed several public methods that can ideed print all the information needed
      */
 
-    static class Payment {
-        private Date date;
+    static class Payment extends RecordStore.Record {
+        private int day; // An epoch-day, like every date of the records
         private long guestID;
         private double amount;
         private String payReason;
@@ -930,7 +2778,11 @@ public class HotelImpl implements Hotel {
         // This is the constructor used to create more objects with individual attributes that may or not differ among all Guest objects
 
         public Payment(Date date, long guestID, double amount, String payReason) {
-            this.date = date;
+            this(EpochDays.of(date), guestID, amount, payReason);
+        }
+
+        public Payment(int day, long guestID, double amount, String payReason) {
+            this.day = day;
             this.guestID = guestID;
             this.amount = amount;
             this.payReason = payReason;
@@ -938,7 +2790,8 @@ public class HotelImpl implements Hotel {
 
         // These are the public methods used to access from outside the inner, private attributes of this class
 
-        public Date getDate() {return this.date;}
+        public Date getDate() {return EpochDays.toDate(this.day);}
+        public int getDay() {return this.day;}
         public long getGuestID() {return this.guestID;}
         public double getAmount() {return this.amount;}
         public String getPayReason() {return this.payReason;}
@@ -0,0 +1,43 @@
+package hotel;
+
+import java.util.List;
+
+/**
+ * What the hotel engine shows over JMX, as hotel:type=Metrics: the size of every table and the counters of every
+ * operation. A JMX client such as jconsole shows the operations as a table with one row per method.
+ */
+
+public interface HotelMetricsMXBean {
+
+    public int getRooms();
+
+    public int getGuests();
+
+    public int getVipGuests();
+
+    public int getBookings();
+
+    public int getPayments();
+
+    /**
+     * The counters of every timed method, in a fixed order
+     *
+     * @return   one entry per method
+     */
+
+    public List<OperationStats> getOperations();
+
+    /**
+     * The hits, misses, evictions and invalidations of the findAvailableRooms cache
+     *
+     * @return   the cache counters
+     */
+
+    public CacheStats getAvailabilityCache();
+
+    /**
+     * Sets the call, failure and latency counters back to 0, the table sizes are not affected
+     */
+
+    public void reset();
+}
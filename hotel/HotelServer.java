@@ -0,0 +1,467 @@
+package hotel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A local server that lets several programs share one HotelImpl, such as the front desks, a kiosk and the web
+ * booking backend. It listens on the loopback address only, and HotelClient is the other end.
+ *
+ * The protocol is binary and compact. A request is one byte naming the call followed by its arguments, and the
+ * response is one status byte followed by the result: OK, FAILED for a call that returned false or null, or ERROR
+ * with a message for a request that could not be run. Dates travel as int epoch-days, strings as modified UTF-8
+ * (DataOutputStream.writeUTF), and lists of IDs as a count and then the longs. A report is streamed as the hotel
+ * writes it, in chunks of UTF-8 bytes each led by its length: a length of 0 ends it, and -1 followed by a message
+ * means it could not be finished. Neither end ever holds more than a chunk of it.
+ * A client can send several requests before reading the responses, and the server only flushes once it has
+ * answered every request already received, so such a batch costs one round trip.
+ *
+ * Each connection gets a thread of its own. On Java 21 and later that is a virtual thread, found by reflection
+ * since the sources are built for Java 17, so thousands of clients cost little memory and no big pool: a virtual
+ * thread blocked on its socket lets go of its carrier thread. On Java 17 they are daemon platform threads with a
+ * small stack.
+ *
+ * The imports and saves are not offered: the data files belong to the process that owns the hotel.
+ */
+
+public final class HotelServer implements Closeable {
+
+    // The calls, the first byte of a request
+    static final byte PING = 0;
+    static final byte ADD_ROOM = 1;
+    static final byte REMOVE_ROOM = 2;
+    static final byte ADD_GUEST = 3;
+    static final byte REMOVE_GUEST = 4;
+    static final byte CHECK_ROOM_AVAILABLE = 5;
+    static final byte FIND_AVAILABLE_ROOMS = 6;
+    static final byte MAKE_BOOKING = 7;
+    static final byte MAKE_GROUP_BOOKING = 8;
+    static final byte CHECK_OUT = 9;
+    static final byte CANCEL_BOOKING = 10;
+    static final byte SEARCH_GUEST = 11;
+    static final byte BOOKINGS_ON_DATE = 12;
+    static final byte INCOME_ON_DATE = 13;
+    static final byte REPORT = 14;
+
+    // The reports, the argument of REPORT
+    static final byte ROOMS = 0;
+    static final byte GUESTS = 1;
+    static final byte BOOKINGS = 2;
+    static final byte PAYMENTS = 3;
+    static final byte GUEST_BOOKINGS = 4;
+    static final byte BOOKINGS_ON_DATE_REPORT = 5; // The argument is the epoch-day of the night
+    static final byte PAYMENTS_ON_DATE_REPORT = 6; // The argument is the epoch-day
+
+    // The first byte of a response
+    static final byte OK = 0;
+    static final byte FAILED = 1;
+    static final byte ERROR = 2;
+
+    static final int DEFAULT_PORT = 7070;
+    static final int MAX_GROUP = 10000; // The most rooms a group booking can ask for
+
+    private static final long PLATFORM_STACK_BYTES = 256 * 1024;
+    private static final int REPORT_CHUNK_BYTES = 16 * 1024;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final HotelImpl hotel;
+    private final ServerSocket serverSocket;
+    private final ThreadFactory connectionThreads = newThreadFactory("hotel-connection-");
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder requests = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Opens the server on a port of the loopback address and starts taking connections
+     *
+     * @param hotel   the hotel to serve
+     * @param port    the port, 0 for any free one
+     * @throws IOException   if the port cannot be opened
+     */
+
+    public HotelServer(HotelImpl hotel, int port) throws IOException {
+        this.hotel = hotel;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        Thread acceptor = new Thread(this::accept, "hotel-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * The port the server listens on, useful when it was opened on port 0
+     */
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getConnections() {return connections.size();}
+    public long getRequests() {return requests.sum();}
+
+    /**
+     * Stops taking connections and closes the open ones
+     */
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+
+    private void accept() {
+        long backoff = 0;
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (closed || serverSocket.isClosed()) {break;} // Nothing more will ever be accepted
+                System.out.println("Error Occured when accepting a connection... " + e);
+                // A failure that lasts, such as running out of file descriptors, would otherwise spin this thread, so
+                // it waits longer after each one in a row, until a connection is accepted again
+                backoff = Math.min(Math.max(backoff * 2, MIN_ACCEPT_BACKOFF_MILLIS), MAX_ACCEPT_BACKOFF_MILLIS);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException stop) {
+                    break;
+                }
+                continue;
+            }
+            backoff = 0;
+            connections.add(socket);
+            connectionThreads.newThread(() -> serve(socket)).start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                int call = in.read();
+                if (call < 0) {break;} // The client hung up
+                try {
+                    handle((byte) call, in, out);
+                } catch (EOFException | SocketException e) {
+                    throw e;
+                } catch (IOException e) {
+                    // A request we cannot read, answered with the error, but there is no knowing where the next one starts
+                    error(out, e);
+                    out.flush();
+                    break;
+                } catch (RuntimeException e) {
+                    error(out, e); // The call failed after its arguments were read, so the next request can still be read
+                }
+                requests.increment();
+                if (in.available() == 0) {out.flush();} // The responses to a batch of requests go out together
+            }
+        } catch (IOException e) {
+            // The client went away in the middle of a request
+        } finally {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closed anyway
+            }
+        }
+    }
+
+    private void handle(byte call, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (call) {
+            case PING:
+                out.writeByte(OK);
+                break;
+            case ADD_ROOM: {
+                long roomNumber = in.readLong();
+                String roomType = in.readUTF();
+                double price = in.readDouble();
+                int capacity = in.readInt();
+                status(out, hotel.addRoom(roomNumber, roomType, price, capacity, in.readUTF()));
+                break;
+            }
+            case REMOVE_ROOM:
+                status(out, hotel.removeRoom(in.readLong()));
+                break;
+            case ADD_GUEST: {
+                String fName = in.readUTF();
+                String lName = in.readUTF();
+                status(out, hotel.addGuest(fName, lName, in.readBoolean()));
+                break;
+            }
+            case REMOVE_GUEST:
+                status(out, hotel.removeGuest(in.readLong()));
+                break;
+            case CHECK_ROOM_AVAILABLE: {
+                long roomNumber = in.readLong();
+                Date checkIn = EpochDays.toDate(in.readInt());
+                status(out, hotel.checkRoomAvailable(roomNumber, checkIn, EpochDays.toDate(in.readInt())));
+                break;
+            }
+            case FIND_AVAILABLE_ROOMS: {
+                String roomType = in.readUTF();
+                Date checkIn = EpochDays.toDate(in.readInt());
+                ids(out, hotel.findAvailableRooms(roomType, checkIn, EpochDays.toDate(in.readInt())));
+                break;
+            }
+            case MAKE_BOOKING: {
+                String roomType = in.readUTF();
+                long guestID = in.readLong();
+                Date checkIn = EpochDays.toDate(in.readInt());
+                status(out, hotel.makeBooking(roomType, guestID, checkIn, EpochDays.toDate(in.readInt())));
+                break;
+            }
+            case MAKE_GROUP_BOOKING: {
+                int count = in.readInt();
+                if (count < 0 || count > MAX_GROUP) {throw new IOException("A group booking of " + count + " rooms");}
+                ArrayList<BookingRequest> requests = new ArrayList<BookingRequest>(count);
+                for (int i = 0; i < count; i++) {
+                    String roomType = in.readUTF();
+                    long guestID = in.readLong();
+                    Date checkIn = EpochDays.toDate(in.readInt());
+                    requests.add(new BookingRequest(roomType, guestID, checkIn, EpochDays.toDate(in.readInt())));
+                }
+                ids(out, hotel.makeGroupBooking(requests));
+                break;
+            }
+            case CHECK_OUT:
+                status(out, hotel.checkOut(in.readLong()));
+                break;
+            case CANCEL_BOOKING:
+                status(out, hotel.cancelBooking(in.readLong()));
+                break;
+            case SEARCH_GUEST: {
+                String firstName = in.readUTF();
+                ids(out, hotel.searchGuest(firstName, in.readUTF()));
+                break;
+            }
+            case BOOKINGS_ON_DATE:
+                ids(out, hotel.getBookingsOnDate(EpochDays.toDate(in.readInt())));
+                break;
+            case INCOME_ON_DATE:
+                out.writeByte(OK);
+                out.writeDouble(hotel.getIncomeOnDate(EpochDays.toDate(in.readInt())));
+                break;
+            case REPORT:
+                report(out, in.readByte(), in.readLong());
+                break;
+            default:
+                throw new IOException("Unknown call " + call);
+        }
+    }
+
+    private void report(DataOutputStream out, byte table, long argument) throws IOException {
+        if (table < ROOMS || table > PAYMENTS_ON_DATE_REPORT) {throw new IOException("Unknown report " + table);}
+        out.writeByte(OK); // Whether the report can be written is only known at its end, which says so
+        ReportChunks chunks = new ReportChunks(out);
+        Writer text = new OutputStreamWriter(chunks, StandardCharsets.UTF_8);
+        ReportWriter.Format format = ReportWriter.Format.FIXED_WIDTH;
+        boolean written;
+        try {
+            switch (table) {
+                case ROOMS: written = hotel.displayAllRooms(text, format); break;
+                case GUESTS: written = hotel.displayAllGuests(text, format); break;
+                case BOOKINGS: written = hotel.displayAllBookings(text, format); break;
+                case PAYMENTS: written = hotel.displayAllPayments(text, format); break;
+                case GUEST_BOOKINGS: written = hotel.displayGuestBooking(argument, text, format); break;
+                case BOOKINGS_ON_DATE_REPORT: written = hotel.displayBookingsOnDate(EpochDays.toDate((int) argument), text, format); break;
+                default: written = hotel.displayPaymentsOnDate(EpochDays.toDate((int) argument), text, format); break;
+            }
+        } catch (RuntimeException e) {
+            chunks.fail(String.valueOf(e)); // Too late for an ERROR response, part of the report is already sent
+            return;
+        }
+        if (written) {
+            chunks.end();
+        } else {
+            chunks.fail("The report could not be written"); // If it was the connection that failed, sending this fails too
+        }
+    }
+
+    private static void error(DataOutputStream out, Exception e) throws IOException {
+        out.writeByte(ERROR);
+        out.writeUTF(String.valueOf(e));
+    }
+
+    private static void status(DataOutputStream out, boolean ok) throws IOException {
+        out.writeByte(ok ? OK : FAILED);
+    }
+
+    private static void ids(DataOutputStream out, ArrayList<Long> ids) throws IOException {
+        if (ids == null) {
+            out.writeByte(FAILED);
+            return;
+        }
+        out.writeByte(OK);
+        out.writeInt(ids.size());
+        for (Long id : ids) {out.writeLong(id);}
+    }
+
+    /**
+     * Makes threads for work that spends most of its time waiting, such as a connection: virtual threads if the JVM
+     * has them, daemon platform threads with a small stack if not
+     *
+     * @param prefix   the start of the thread names
+     * @return         the factory
+     */
+
+    static ThreadFactory newThreadFactory(String prefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory(), through the public Thread.Builder interface
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 17, or a JVM where virtual threads are still a preview feature that is not turned on
+        }
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(null, task, prefix + count.getAndIncrement(), PLATFORM_STACK_BYTES);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Says whether the threads of newThreadFactory are virtual threads on this JVM
+     */
+
+    static boolean hasVirtualThreads() {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(newThreadFactory("check-").newThread(() -> {}));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads a hotel from a directory of data files and serves it until the program is stopped, for example
+     * java hotel.HotelServer data/big port=7070
+     *
+     * @param args   the directory holding rooms.txt, guests.txt, bookings.txt and payments.txt, then port=number
+     */
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: java hotel.HotelServer <directory> [port=" + DEFAULT_PORT + "]");
+            return;
+        }
+        HashMap<String, String> settings = DataGenerator.settings(args, 1);
+        int port = settings.containsKey("port") ? Integer.parseInt(settings.get("port")) : DEFAULT_PORT;
+
+        // The constructor has to import something, so the hotel starts from empty files and then imports the data the fast way
+        File empty = File.createTempFile("empty", ".txt");
+        empty.deleteOnExit();
+        HotelImpl hotel = new HotelImpl(empty.getPath(), empty.getPath(), empty.getPath(), empty.getPath());
+        File dir = new File(args[0]);
+        if (!hotel.importAllDataFast(new File(dir, "rooms.txt").getPath(), new File(dir, "guests.txt").getPath(),
+                new File(dir, "bookings.txt").getPath(), new File(dir, "payments.txt").getPath())) {
+            return;
+        }
+        HotelServer server = new HotelServer(hotel, port);
+        System.out.println("Serving the hotel on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+                + (hasVirtualThreads() ? " with a virtual thread per connection" : " with a thread per connection"));
+        Thread.currentThread().join(); // Until the program is stopped
+    }
+
+    /**
+     * The body of a report: the bytes written to it are sent in chunks, each led by its length. Flushing sends the
+     * chunk written so far without flushing the socket, which the server does once the whole batch is answered.
+     */
+
+    private static final class ReportChunks extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte[] chunk = new byte[REPORT_CHUNK_BYTES];
+        private int length;
+
+        ReportChunks(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == chunk.length) {send();}
+            chunk[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (length == chunk.length) {send();}
+                int n = Math.min(len, chunk.length - length);
+                System.arraycopy(b, off, chunk, length, n);
+                length += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            send();
+        }
+
+        /**
+         * Sends what is left and the end of the report
+         */
+
+        void end() throws IOException {
+            send();
+            out.writeInt(0);
+        }
+
+        /**
+         * Sends what is left and ends the report as one that could not be finished
+         *
+         * @param message   why, for the client
+         */
+
+        void fail(String message) throws IOException {
+            send();
+            out.writeInt(-1);
+            out.writeUTF(message);
+        }
+
+        private void send() throws IOException {
+            if (length == 0) {return;}
+            out.writeInt(length);
+            out.write(chunk, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * The calls a shared hotel offers to the programs that use it: everything in Hotel except the imports and the
+ * saves, which belong to the process that owns the data files, plus the group booking and the on-date queries.
+ * HotelImpl offers them in-process and HotelClient through a HotelServer, with the same answers, so code such as
+ * the replay driver can be written once against this interface and run either way.
+ */
+
+public interface HotelService {
+
+    /**
+     * Display all room information in the current hotel
+     */
+    void displayAllRooms();
+
+    /**
+     * Display all guest information in the current hotel
+     */
+    void displayAllGuests();
+
+    /**
+     * Display all booking information in the current hotel
+     */
+    void displayAllBookings();
+
+    /**
+     * Display all payment information in the current hotel
+     */
+    void displayAllPayments();
+
+    /**
+     * Add a new room, see Hotel.addRoom
+     *
+     * @return true if the room was added, false if it already exists
+     */
+    boolean addRoom(long roomNumber, String roomType, double price, int capacity, String facilities);
+
+    /**
+     * Remove a room with no future booking, see Hotel.removeRoom
+     *
+     * @return true if the room was removed
+     */
+    boolean removeRoom(long roomNumber);
+
+    /**
+     * Add a new guest with a new ID, see Hotel.addGuest
+     *
+     * @return true if the guest was added
+     */
+    boolean addGuest(String fName, String lName, boolean vipState);
+
+    /**
+     * Remove a guest with no future booking, see Hotel.removeGuest
+     *
+     * @return true if the guest was removed
+     */
+    boolean removeGuest(long guestID);
+
+    /**
+     * Check if a room is free from checkInDate to checkOutDate
+     *
+     * @return true if it is free for the whole period
+     */
+    boolean checkRoomAvailable(long roomNumber, Date checkInDate, Date checkOutDate);
+
+    /**
+     * The rooms of a type that are free from checkInDate to checkOutDate
+     *
+     * @return the room numbers
+     */
+    ArrayList<Long> findAvailableRooms(String roomType, Date checkInDate, Date checkOutDate);
+
+    /**
+     * Book a free room of a type for a guest, see Hotel.makeBooking
+     *
+     * @return true if a room was booked
+     */
+    boolean makeBooking(String roomType, long guestID, Date checkInDate, Date checkOutDate);
+
+    /**
+     * Book every request of a group or none of them
+     *
+     * @param requests   the bookings wanted
+     * @return           the booking IDs in the order of the requests, or null if nothing was booked
+     */
+    ArrayList<Long> makeGroupBooking(ArrayList<BookingRequest> requests);
+
+    /**
+     * Check a guest out, see Hotel.checkOut
+     *
+     * @return true if the booking was checked out
+     */
+    boolean checkOut(long bookingID);
+
+    /**
+     * Cancel a booking, see Hotel.cancelBooking
+     *
+     * @return true if the booking was cancelled
+     */
+    boolean cancelBooking(long bookingID);
+
+    /**
+     * The guests with a first and last name
+     *
+     * @return the guest IDs
+     */
+    ArrayList<Long> searchGuest(String firstName, String lastName);
+
+    /**
+     * Display the bookings of one guest
+     */
+    void displayGuestBooking(long guestID);
+
+    /**
+     * Display the bookings staying on a night
+     */
+    void displayBookingsOnDate(Date date);
+
+    /**
+     * Display the payments of one day and their total
+     */
+    void displayPaymentsOnDate(Date date);
+
+    /**
+     * The bookings staying on a night
+     *
+     * @return the booking IDs, ordered by room number
+     */
+    ArrayList<Long> getBookingsOnDate(Date date);
+
+    /**
+     * The income of one day, refunds taken off
+     */
+    double getIncomeOnDate(Date date);
+}
@@ -0,0 +1,98 @@
+package hotel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out unique IDs for one kind of record (guests or bookings) in O(1), without ever looking at the
+ * records that already exist.
+ *
+ * IDs come from one shared counter, but blocks of IDs are leased from it a few at a time and then handed out
+ * from the block. The blocks live in a fixed set of stripes shared out between threads by thread ID, rather
+ * than one block per thread, so a thread that ends (such as the thread of a short server connection) leaves
+ * the rest of its block for the next thread on the same stripe instead of throwing it away. Many threads can
+ * ask for IDs at once and only meet when they share a stripe, or on the counter once every block. The counter
+ * is seeded from the highest ID seen when the data files are imported, so a new ID never clashes with an old one.
+ */
+
+final class IdAllocator {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private final AtomicLong nextUnleased;
+    private final AtomicLong lowestLeased = new AtomicLong(Long.MAX_VALUE); // Where the blocks of this generation start
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Lease[] leases;
+    private final int mask;
+
+    IdAllocator(long firstID) {
+        this.nextUnleased = new AtomicLong(firstID);
+        int stripes = 1;
+        while (stripes < 2 * Runtime.getRuntime().availableProcessors()) {stripes <<= 1;}
+        leases = new Lease[stripes];
+        for (int i = 0; i < stripes; i++) {leases[i] = new Lease();}
+        mask = stripes - 1;
+    }
+
+    /**
+     * Gives out the next free ID
+     *
+     * @return   an ID that has never been given out before
+     */
+
+    long next() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        Lease block = leases[(int) (hash >>> 40) & mask];
+        synchronized (block) {
+            int current = generation.get();
+            if (block.next == block.end || block.generation != current) {
+                lowestLeased.accumulateAndGet(nextUnleased.get(), Math::min); // Noted first, so a seed never misses the block
+                long start = nextUnleased.getAndAdd(BLOCK_SIZE);
+                block.next = start;
+                block.end = start + BLOCK_SIZE;
+                block.generation = current;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Tells the allocator about an ID that already exists, so it will only give out bigger ones from now on.
+     * The blocks already leased are thrown away if the ID could be in one of them or above them.
+     *
+     * @param existingID   an ID read from the data files
+     */
+
+    void seed(long existingID) {
+        long wanted = existingID + 1;
+        long now = nextUnleased.get();
+        while (now < wanted && !nextUnleased.compareAndSet(now, wanted)) {now = nextUnleased.get();}
+        if (now < wanted || existingID >= lowestLeased.get()) {dropLeases();}
+    }
+
+    /**
+     * Forgets every ID given out and starts again from firstID, as a new process would
+     *
+     * @param firstID   the next ID to give out
+     */
+
+    void restart(long firstID) {
+        nextUnleased.set(firstID);
+        dropLeases();
+    }
+
+    private void dropLeases() {
+        lowestLeased.set(Long.MAX_VALUE);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The block of IDs currently leased by one stripe, [next, end), guarded by its own monitor
+     */
+
+    private static final class Lease {
+        private long next;
+        private long end;
+        private int generation = -1;
+    }
+}
@@ -0,0 +1,199 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes the hotel events of a flight recording (see HotelEvents) into the hotspots of every operation: how many
+ * calls there were and how many failed, their latency percentiles, where the time went by room type or file, the
+ * causes of the failures, and the slowest calls with all their fields.
+ *
+ *     java -cp engine/target/classes hotel.JfrAnalyzer hotel.jfr [top=5]
+ *
+ * Other events of the recording, such as garbage collections, are skipped; JDK Mission Control shows those next to
+ * the hotel events.
+ */
+
+public final class JfrAnalyzer {
+
+    private static final String PREFIX = "hotel.";
+    private static final String[] GROUP_FIELDS = {"roomType", "fileName"}; // The first one an event has is what its time is grouped by
+
+    private final int top;
+    private final Map<String, Summary> summaries = new LinkedHashMap<String, Summary>();
+
+    /**
+     * Creates an analyzer
+     *
+     * @param top   how many of the slowest calls of each operation to keep
+     */
+
+    public JfrAnalyzer(int top) {
+        this.top = top;
+    }
+
+    /**
+     * Reads the hotel events of a recording
+     *
+     * @param jfrFileName   the .jfr file
+     * @throws IOException  if the file cannot be read
+     */
+
+    public void read(String jfrFileName) throws IOException {
+        try (RecordingFile recording = new RecordingFile(Paths.get(jfrFileName))) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String name = event.getEventType().getName();
+                if (!name.startsWith(PREFIX)) {continue;}
+                Summary summary = summaries.get(name);
+                if (summary == null) {
+                    summary = new Summary(event.getEventType().getLabel());
+                    summaries.put(name, summary);
+                }
+                summary.add(event, top);
+            }
+        }
+    }
+
+    /**
+     * The hotspots of every operation read so far
+     *
+     * @return   the report, one block per operation
+     */
+
+    public String report() {
+        if (summaries.isEmpty()) {return "There are no hotel events in this recording.\n";}
+        StringBuilder out = new StringBuilder();
+        for (Summary summary : summaries.values()) {summary.appendTo(out);}
+        return out.toString();
+    }
+
+    /**
+     * The events of one type
+     */
+
+    private static final class Summary {
+        final String label;
+        final LatencyHistogram latency = new LatencyHistogram();
+        long failures;
+        long totalNanos;
+        final HashMap<String, long[]> byGroup = new HashMap<String, long[]>(); // Calls and nanoseconds per room type or file
+        final HashMap<String, long[]> byFailure = new HashMap<String, long[]>();
+        final PriorityQueue<RecordedEvent> slowest = new PriorityQueue<RecordedEvent>((a, b) -> a.getDuration().compareTo(b.getDuration()));
+
+        Summary(String label) {
+            this.label = label;
+        }
+
+        void add(RecordedEvent event, int top) {
+            long nanos = event.getDuration().toNanos();
+            latency.record(nanos);
+            totalNanos += nanos;
+            if (failed(event)) {
+                failures++;
+                String cause = event.hasField("failure") ? event.getString("failure") : null;
+                count(byFailure, cause == null ? "unknown" : cause, nanos);
+            }
+            for (String field : GROUP_FIELDS) {
+                if (event.hasField(field)) {
+                    String value = event.getString(field);
+                    count(byGroup, field + "=" + value, nanos);
+                    break;
+                }
+            }
+            slowest.add(event);
+            if (slowest.size() > top) {slowest.poll();}
+        }
+
+        private static boolean failed(RecordedEvent event) {
+            if (event.hasField("booked")) {return !event.getBoolean("booked");}
+            if (event.hasField("success")) {return !event.getBoolean("success");}
+            return false;
+        }
+
+        private static void count(HashMap<String, long[]> counts, String key, long nanos) {
+            long[] count = counts.get(key);
+            if (count == null) {
+                count = new long[2];
+                counts.put(key, count);
+            }
+            count[0]++;
+            count[1] += nanos;
+        }
+
+        void appendTo(StringBuilder out) {
+            out.append(String.format(Locale.ROOT, "%s: %d calls, %d failed, %.1f ms in all, mean %s, p50 %s, p99 %s, p99.9 %s, max %s%n",
+                    label, latency.count(), failures, totalNanos / 1e6, time((long) latency.mean()), time(latency.percentile(0.50)),
+                    time(latency.percentile(0.99)), time(latency.percentile(0.999)), time(latency.max())));
+            appendCounts(out, "time by", byGroup);
+            appendCounts(out, "failures", byFailure);
+            if (!slowest.isEmpty()) {
+                out.append("  slowest:\n");
+                ArrayList<RecordedEvent> events = new ArrayList<RecordedEvent>(slowest);
+                Collections.sort(events, (a, b) -> b.getDuration().compareTo(a.getDuration()));
+                for (RecordedEvent event : events) {
+                    out.append("    ").append(time(event.getDuration().toNanos())).append(" at ").append(event.getStartTime())
+                            .append(" on ").append(event.getThread() == null ? "?" : event.getThread().getJavaName()).append(' ');
+                    appendFields(out, event);
+                    out.append('\n');
+                }
+            }
+            out.append('\n');
+        }
+
+        private void appendCounts(StringBuilder out, String title, HashMap<String, long[]> counts) {
+            if (counts.isEmpty()) {return;}
+            ArrayList<Map.Entry<String, long[]>> entries = new ArrayList<Map.Entry<String, long[]>>(counts.entrySet());
+            Collections.sort(entries, (a, b) -> Long.compare(b.getValue()[1], a.getValue()[1])); // Most time first
+            out.append("  ").append(title).append(':');
+            for (int i = 0; i < entries.size() && i < 10; i++) {
+                long[] count = entries.get(i).getValue();
+                out.append(String.format(Locale.ROOT, " %s (%d calls, %.1f%%)", entries.get(i).getKey(), count[0],
+                        totalNanos == 0 ? 0 : 100.0 * count[1] / totalNanos));
+            }
+            if (entries.size() > 10) {out.append(" and ").append(entries.size() - 10).append(" more");}
+            out.append('\n');
+        }
+
+        private static void appendFields(StringBuilder out, RecordedEvent event) {
+            out.append('{');
+            boolean first = true;
+            for (ValueDescriptor field : event.getEventType().getFields()) {
+                String name = field.getName();
+                if (name.equals("startTime") || name.equals("duration") || name.equals("eventThread") || name.equals("stackTrace")) {continue;}
+                if (!first) {out.append(", ");}
+                Object value = event.getValue(name); // Typed as Object so append(Object) is the overload picked
+                out.append(name).append('=').append(value);
+                first = false;
+            }
+            out.append('}');
+        }
+    }
+
+    private static String time(long nanos) {
+        if (nanos >= 1_000_000) {return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);}
+        return String.format(Locale.ROOT, "%d us", nanos / 1000);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java hotel.JfrAnalyzer <recording.jfr> [top=5]");
+            return;
+        }
+        HashMap<String, String> settings = DataGenerator.settings(args, 1);
+        JfrAnalyzer analyzer = new JfrAnalyzer(settings.containsKey("top") ? Integer.parseInt(settings.get("top")) : 5);
+        analyzer.read(args[0]);
+        System.out.print(analyzer.report());
+    }
+}
@@ -0,0 +1,685 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Payment;
+import hotel.HotelImpl.Room;
+import hotel.HotelImpl.VIPGuest;
+
+/**
+ * An append-only redo journal of every change made to the hotel, so the data survives a crash without rewriting
+ * the data files after each change.
+ *
+ * Each entry records the effect of a change (the room, guest or booking that was added or removed, with its
+ * payment), not the call that made it, so replaying it gives back exactly the same records and IDs. Entries are
+ * numbered with a log sequence number (LSN) and carry a CRC, and a torn entry at the end of the file after a crash
+ * is cut off when the journal is opened again. A group booking is a single entry, so it is replayed whole or not
+ * at all.
+ *
+ * Changes are added to an in-memory buffer and a single writer thread writes the buffer out and forces it to disk.
+ * Every change that arrives while the disk is busy goes out with the next force, so many bookings share one fsync
+ * (group commit), and a caller waits at most for two forces before its change is on disk. Once a write or force
+ * fails the journal stays failed: nothing more reaches the disk and failed() tells the hotel to refuse changes.
+ *
+ * The journal is kept in segment files: the journal file itself, then the same name with ".1", ".2" and so on.
+ * A checkpoint calls rotate(), which only notes where the next segment starts, and the writer thread opens it when
+ * it writes that point out, so changes never wait for a file to be created or copied. Once the checkpoint is saved,
+ * dropBefore() deletes the segments before it. Opening the journal replays every segment left, in order.
+ */
+
+final class Journal {
+
+    static final int MAGIC = 0x48544c4a; // "HTLJ"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4 + 4 + 8;
+    static final int ENTRY_HEADER_BYTES = 4 + 4 + 8 + 1; // length, CRC, LSN, type
+
+    static final byte ROOM_ADDED = 1;
+    static final byte GUEST_ADDED = 2;
+    static final byte GUEST_REMOVED = 3;
+    static final byte BOOKING_ADDED = 4;
+    static final byte BOOKING_REMOVED = 5;
+    static final byte BOOKINGS_ADDED = 6;
+    static final byte BOOKING_ARCHIVED = 7; // A BOOKING_REMOVED that also went to the booking archive
+    static final byte ROOM_REMOVED = 8;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private FileChannel channel; // The last segment, only used by the writer thread once the journal is open
+    private long oldestSegment; // The first segment not deleted yet
+    private long nextSegment; // The segment the next rotate() starts
+    private long openSegment; // The last segment the writer has started
+    private final ArrayList<Rotation> rotations = new ArrayList<Rotation>(); // Segments to start within the pending buffer
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWork = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_BYTES); // Entries not yet handed to the writer
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_BYTES); // Entries the writer is writing out
+    private long lastLsn;
+    private long durableLsn;
+    private volatile IOException failure;
+    private boolean closed;
+    private final Thread writer;
+
+    private final CRC32 crc = new CRC32();
+    private int entryStart;
+
+    private Journal(Path path, FileChannel channel, long oldestSegment, long openSegment, long lastLsn) {
+        this.path = path;
+        this.channel = channel;
+        this.oldestSegment = oldestSegment;
+        this.openSegment = openSegment;
+        this.nextSegment = openSegment + 1;
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        this.writer = new Thread(this::writeLoop, "hotel-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens a journal for appending, creating it if it does not exist. The entries already in its segments are
+     * replayed into the hotel first, except for those with an LSN of at most afterLsn, which the loaded data already
+     * holds, and new entries go to the last segment.
+     *
+     * @param hotel      the hotel, needed to create Guest objects
+     * @param fileName   the journal file
+     * @param afterLsn   the LSN of the snapshot the hotel was loaded from, or 0 if it came from the text files
+     * @return           the open journal
+     * @throws IOException if the file cannot be read or written, or is not a journal
+     */
+
+    static Journal open(HotelImpl hotel, String fileName, long afterLsn) throws IOException {
+        Path path = Paths.get(fileName);
+        TreeMap<Long, Path> segments = segments(path);
+        if (segments.isEmpty()) {
+            writeEmpty(path, afterLsn);
+            segments.put(0L, path);
+        }
+        long lastLsn = afterLsn;
+        FileChannel channel = null;
+        try {
+            for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+                if (channel != null) {channel.close();}
+                channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                boolean last = segment.getKey().equals(segments.lastKey());
+                lastLsn = Math.max(lastLsn, replaySegment(hotel, segment.getValue(), channel, afterLsn, last));
+            }
+            return new Journal(path, channel, segments.firstKey(), segments.lastKey(), lastLsn);
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {channel.close();}
+            throw e;
+        }
+    }
+
+    /**
+     * Finds the segments of a journal
+     *
+     * @param path   the journal file, which is segment 0
+     * @return       the segment files there are, by number
+     * @throws IOException if the folder cannot be read
+     */
+
+    private static TreeMap<Long, Path> segments(Path path) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<Long, Path>();
+        Path folder = path.toAbsolutePath().getParent();
+        String name = path.getFileName().toString();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, file -> file.getFileName().toString().startsWith(name))) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(name.length());
+                if (suffix.isEmpty()) {
+                    segments.put(0L, path);
+                } else if (suffix.matches("\\.[0-9]{1,18}")) { // Not the .tmp file of a segment being started
+                    long segment = Long.parseLong(suffix.substring(1));
+                    segments.put(segment, segmentPath(path, segment));
+                }
+            }
+        }
+        return segments;
+    }
+
+    private static Path segmentPath(Path path, long segment) {
+        return segment == 0 ? path : Paths.get(path + "." + segment);
+    }
+
+    /**
+     * Replays one segment and leaves the channel at its end, ready to append. A crash can only tear the last entry of
+     * the last segment, which is cut off. A segment before it was complete when the next one was started, so a torn
+     * entry there means the journal is damaged, and the entries after it cannot be replayed on top of the gap.
+     *
+     * @param last   whether this is the last segment, the only one a crash can leave torn
+     * @return       the last LSN in the segment, or the one its header starts from
+     * @throws IOException if the segment cannot be read, or is torn but not the last one
+     */
+
+    private static long replaySegment(HotelImpl hotel, Path segment, FileChannel channel, long afterLsn, boolean last) throws IOException {
+        if (channel.size() > Integer.MAX_VALUE) {throw new IOException("Journal " + segment + " is too big, save a snapshot to start it again");}
+        ByteBuffer in = ByteBuffer.allocate((int) channel.size());
+        while (in.hasRemaining() && channel.read(in) >= 0) {}
+        in.flip();
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {throw new IOException("Not a hotel journal: " + segment);}
+        int version = in.getInt();
+        if (version != VERSION) {throw new IOException("Unsupported journal version " + version);}
+        long lastLsn = in.getLong();
+        CRC32 check = new CRC32();
+        while (in.remaining() >= ENTRY_HEADER_BYTES) {
+            int start = in.position();
+            int length = in.getInt();
+            int sum = in.getInt();
+            if (length < 9 || length > in.remaining()) {in.position(start); break;} // Cut short by a crash
+            check.reset();
+            check.update(in.array(), in.position(), length);
+            if ((int) check.getValue() != sum) {in.position(start); break;}
+            long lsn = in.getLong();
+            byte type = in.get();
+            int end = start + 8 + length;
+            if (lsn > afterLsn) {replay(hotel, type, in);}
+            in.position(end);
+            lastLsn = Math.max(lastLsn, lsn);
+        }
+        if (in.position() < channel.size()) {
+            if (!last) {throw new IOException("Journal " + segment + " is damaged at byte " + in.position() + ", before the segments after it");}
+            System.out.println("Journal " + segment + " had a torn entry at the end, which was dropped");
+            channel.truncate(in.position());
+        }
+        channel.position(in.position());
+        return lastLsn;
+    }
+
+    private static void writeEmpty(Path path, long baseLsn) throws IOException {
+        Path temp = Paths.get(path + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel, baseLsn);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeHeader(FileChannel channel, long baseLsn) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(baseLsn).flip();
+        while (header.hasRemaining()) {channel.write(header);}
+    }
+
+    private static void replay(HotelImpl hotel, byte type, ByteBuffer in) throws IOException {
+        switch (type) {
+            case ROOM_ADDED: {
+                long roomNumber = in.getLong();
+                double price = in.getDouble();
+                int capacity = in.getInt();
+                String roomType = getString(in);
+                HotelImpl.replayRoomAdded(new Room(roomNumber, roomType, price, capacity, getString(in)));
+                break;
+            }
+            case ROOM_REMOVED:
+                HotelImpl.replayRoomRemoved(in.getLong());
+                break;
+            case GUEST_ADDED: {
+                long guestID = in.getLong();
+                int joinDay = in.getInt();
+                boolean vip = in.get() != 0;
+                int vipStartDay = vip ? in.getInt() : 0;
+                int vipExpiryDay = vip ? in.getInt() : 0;
+                String fName = getString(in);
+                String lName = getString(in);
+                Guest guest = vip ? hotel.new VIPGuest(guestID, fName, lName, joinDay, vipStartDay, vipExpiryDay)
+                        : hotel.new Guest(guestID, fName, lName, joinDay);
+                HotelImpl.replayGuestAdded(guest, getPayment(in));
+                break;
+            }
+            case GUEST_REMOVED:
+                HotelImpl.replayGuestRemoved(in.getLong());
+                break;
+            case BOOKING_ADDED: {
+                Booking booking = getBooking(in);
+                HotelImpl.replayBookingAdded(booking, getPayment(in));
+                break;
+            }
+            case BOOKINGS_ADDED: {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) {
+                    Booking booking = getBooking(in);
+                    HotelImpl.replayBookingAdded(booking, getPayment(in));
+                }
+                break;
+            }
+            case BOOKING_REMOVED: {
+                long bookingID = in.getLong();
+                HotelImpl.replayBookingRemoved(bookingID, getPayment(in), BookingArchive.NOT_ARCHIVED, 0);
+                break;
+            }
+            case BOOKING_ARCHIVED: {
+                long bookingID = in.getLong();
+                byte status = in.get();
+                int archivedDay = in.getInt();
+                HotelImpl.replayBookingRemoved(bookingID, getPayment(in), status, archivedDay);
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    /**
+     * Records a room that was added
+     *
+     * @param room   the new room
+     * @return       the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logRoomAdded(Room room) {
+        lock.lock();
+        try {
+            ByteBuffer out = begin(ROOM_ADDED, 8 + 8 + 4 + stringBytes(room.getRoomType()) + stringBytes(room.getFacilities()));
+            out.putLong(room.getRoomNumber()).putDouble(room.getRoomPrice()).putInt(room.getCapacity());
+            putString(out, room.getRoomType());
+            putString(out, room.getFacilities());
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a room that was removed
+     *
+     * @param roomNumber   the number of the removed room
+     * @return             the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logRoomRemoved(long roomNumber) {
+        lock.lock();
+        try {
+            begin(ROOM_REMOVED, 8).putLong(roomNumber);
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a guest that was added, with the VIP membership payment if there was one
+     *
+     * @param guest     the new guest
+     * @param payment   the membership payment, or null
+     * @return          the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logGuestAdded(Guest guest, Payment payment) {
+        lock.lock();
+        try {
+            boolean vip = guest instanceof VIPGuest;
+            ByteBuffer out = begin(GUEST_ADDED, 8 + 4 + 1 + (vip ? 8 : 0) + stringBytes(guest.getfName()) + stringBytes(guest.getlName())
+                    + paymentBytes(payment));
+            out.putLong(guest.getGuestID()).putInt(guest.getJoinDay()).put((byte) (vip ? 1 : 0));
+            if (vip) {
+                out.putInt(((VIPGuest) guest).getVIPStartDay()).putInt(((VIPGuest) guest).getVIPExpiryDay());
+            }
+            putString(out, guest.getfName());
+            putString(out, guest.getlName());
+            putPayment(out, payment);
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a guest that was removed
+     *
+     * @param guestID   the ID of the removed guest
+     * @return          the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logGuestRemoved(long guestID) {
+        lock.lock();
+        try {
+            begin(GUEST_REMOVED, 8).putLong(guestID);
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a booking that was made, with its payment
+     *
+     * @param booking   the new booking
+     * @param payment   the payment for it
+     * @return          the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logBookingAdded(Booking booking, Payment payment) {
+        lock.lock();
+        try {
+            ByteBuffer out = begin(BOOKING_ADDED, BOOKING_BYTES + paymentBytes(payment));
+            putBooking(out, booking);
+            putPayment(out, payment);
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the bookings of a group, with their payments, as one entry
+     *
+     * @param bookings   the new bookings
+     * @param payments   the payment for each of them
+     * @return           the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logBookingsAdded(List<Booking> bookings, List<Payment> payments) {
+        lock.lock();
+        try {
+            int bytes = 4;
+            for (Payment payment : payments) {bytes += BOOKING_BYTES + paymentBytes(payment);}
+            ByteBuffer out = begin(BOOKINGS_ADDED, bytes);
+            out.putInt(bookings.size());
+            for (int i = 0; i < bookings.size(); i++) {
+                putBooking(out, bookings.get(i));
+                putPayment(out, payments.get(i));
+            }
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a booking that was checked out or cancelled, with the refund if there was one, and how it went to the
+     * booking archive, so a restart can archive it again if the crash came before the archive wrote it out
+     *
+     * @param bookingID     the ID of the removed booking
+     * @param refund        the refund payment, or null
+     * @param status        why it was archived, or BookingArchive.NOT_ARCHIVED
+     * @param archivedDay   the epoch-day it was archived
+     * @return              the LSN of the entry, to pass to awaitDurable
+     */
+
+    long logBookingRemoved(long bookingID, Payment refund, byte status, int archivedDay) {
+        lock.lock();
+        try {
+            boolean archived = status != BookingArchive.NOT_ARCHIVED;
+            ByteBuffer out = begin(archived ? BOOKING_ARCHIVED : BOOKING_REMOVED, 8 + (archived ? 1 + 4 : 0) + paymentBytes(refund));
+            out.putLong(bookingID);
+            if (archived) {out.put(status).putInt(archivedDay);}
+            putPayment(out, refund);
+            return end();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells if a write or force has failed, after which nothing more reaches the disk
+     *
+     * @return   true if the journal has failed
+     */
+
+    boolean failed() {
+        return failure != null;
+    }
+
+    /**
+     * Waits until the entry with the given LSN, and every entry before it, is on disk
+     *
+     * @param lsn   the LSN returned when the entry was added
+     * @throws IOException if the journal could not be written
+     */
+
+    void awaitDurable(long lsn) throws IOException {
+        lock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {flushed.awaitUninterruptibly();}
+            if (durableLsn < lsn) {throw failure;}
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment after the last entry added so far. Called while the lists are locked, the mark matches a
+     * copy of the lists made at the same time, and the segments before it can be deleted once that copy is safely
+     * saved. Nothing is written here: the writer thread starts the segment when it writes this point out.
+     *
+     * @return   the last LSN before the new segment, and its number
+     */
+
+    Mark rotate() {
+        lock.lock();
+        try {
+            Mark mark = new Mark(lastLsn, nextSegment++);
+            rotations.add(new Rotation(pending.position(), mark));
+            pendingWork.signal();
+            return mark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the entries before a mark, once the hotel has been saved somewhere else up to it, by deleting the
+     * segments before the one the mark started. Only waits for the writer to have started that segment; changes
+     * carry on meanwhile, and the files are deleted without holding the journal.
+     *
+     * @param mark   a mark taken when the saved copy of the lists was made
+     * @throws IOException if the new segment could not be written, or an old one deleted
+     */
+
+    void dropBefore(Mark mark) throws IOException {
+        long from;
+        lock.lock();
+        try {
+            while (openSegment < mark.segment && failure == null) {flushed.awaitUninterruptibly();}
+            if (openSegment < mark.segment) {throw failure;}
+            from = oldestSegment;
+            if (from >= mark.segment) {return;} // A later save has already dropped these entries
+            oldestSegment = mark.segment;
+        } finally {
+            lock.unlock();
+        }
+        for (long segment = from; segment < mark.segment; segment++) {Files.deleteIfExists(segmentPath(path, segment));} // Oldest first, so what is left always follows on
+    }
+
+    /**
+     * A point in the journal: the last LSN before it, and the segment that starts there
+     */
+
+    static final class Mark {
+        final long lsn;
+        final long segment;
+
+        Mark(long lsn, long segment) {
+            this.lsn = lsn;
+            this.segment = segment;
+        }
+    }
+
+    /**
+     * A rotate() the writer has not carried out yet: where the new segment starts in the pending buffer
+     */
+
+    private static final class Rotation {
+        final int at;
+        final Mark mark;
+
+        Rotation(int at, Mark mark) {
+            this.at = at;
+            this.mark = mark;
+        }
+    }
+
+    /**
+     * Writes out everything that is still in the buffer, stops the writer thread and closes the file
+     *
+     * @throws IOException if the last entries could not be written
+     */
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            pendingWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {throw failure;}
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long batchLsn;
+            Rotation[] batchRotations;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && rotations.isEmpty() && !closed) {pendingWork.awaitUninterruptibly();}
+                if ((pending.position() == 0 && rotations.isEmpty()) || failure != null) {return;}
+                // Everything added so far goes out in this batch, later entries collect in the other buffer meanwhile
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchLsn = lastLsn;
+                batchRotations = rotations.toArray(new Rotation[0]);
+                rotations.clear();
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            long started = -1;
+            try {
+                int end = writing.position();
+                writing.flip();
+                for (Rotation rotation : batchRotations) {
+                    // The entries before the rotation finish the old segment, which is forced before the new one starts
+                    writing.limit(rotation.at);
+                    while (writing.hasRemaining()) {channel.write(writing);}
+                    channel.force(false);
+                    channel.close();
+                    Path segment = segmentPath(path, rotation.mark.segment);
+                    writeEmpty(segment, rotation.mark.lsn);
+                    channel = FileChannel.open(segment, StandardOpenOption.WRITE);
+                    channel.position(channel.size());
+                    started = rotation.mark.segment;
+                }
+                writing.limit(end);
+                while (writing.hasRemaining()) {channel.write(writing);}
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            writing.clear();
+            lock.lock();
+            try {
+                if (error != null) {failure = error;} else {durableLsn = batchLsn;}
+                if (started >= 0) {openSegment = started;}
+                flushed.signalAll();
+                if (error != null) {return;}
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ByteBuffer begin(byte type, int payloadBytes) {
+        int bytes = ENTRY_HEADER_BYTES + payloadBytes;
+        if (pending.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        entryStart = pending.position();
+        pending.putInt(8 + 1 + payloadBytes).putInt(0).putLong(++lastLsn).put(type);
+        return pending;
+    }
+
+    private long end() {
+        // The CRC covers the LSN, the type and the payload, and is filled in once they are all written
+        crc.reset();
+        crc.update(pending.array(), entryStart + 8, pending.position() - entryStart - 8);
+        pending.putInt(entryStart + 4, (int) crc.getValue());
+        pendingWork.signal();
+        return lastLsn;
+    }
+
+    private static int stringBytes(String text) {
+        return 4 + (text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void putString(ByteBuffer out, String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        String text = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return text;
+    }
+
+    private static final int BOOKING_BYTES = 8 + 8 + 8 + 4 + 4 + 4 + 8;
+
+    private static void putBooking(ByteBuffer out, Booking booking) {
+        out.putLong(booking.getBookingID()).putLong(booking.getGuestID()).putLong(booking.getRoomNumber())
+                .putInt(booking.getBookingDay()).putInt(booking.getCheckInDay())
+                .putInt(booking.getCheckOutDay()).putDouble(booking.getTotalAmount());
+    }
+
+    private static Booking getBooking(ByteBuffer in) {
+        long bookingID = in.getLong();
+        long guestID = in.getLong();
+        long roomNumber = in.getLong();
+        int bookingDay = in.getInt();
+        int checkInDay = in.getInt();
+        int checkOutDay = in.getInt();
+        return new Booking(bookingID, guestID, roomNumber, bookingDay, checkInDay, checkOutDay, in.getDouble());
+    }
+
+    private static int paymentBytes(Payment payment) {
+        return 1 + (payment == null ? 0 : 4 + 8 + 8 + stringBytes(payment.getPayReason()));
+    }
+
+    private static void putPayment(ByteBuffer out, Payment payment) {
+        out.put((byte) (payment == null ? 0 : 1));
+        if (payment != null) {
+            out.putInt(payment.getDay()).putLong(payment.getGuestID()).putDouble(payment.getAmount());
+            putString(out, payment.getPayReason());
+        }
+    }
+
+    private static Payment getPayment(ByteBuffer in) {
+        if (in.get() == 0) {return null;}
+        int day = in.getInt();
+        long guestID = in.getLong();
+        double amount = in.getDouble();
+        return new Payment(day, guestID, amount, getString(in));
+    }
+}
@@ -0,0 +1,127 @@
+package hotel;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies, in nanoseconds, in buckets that get wider as the values grow, to read percentiles such as the
+ * p99 of makeBooking afterwards.
+ *
+ * Values below 32 ns each have their own bucket. Above that, every power of two is split into 32 buckets, so a
+ * value is always counted within about 3% of what it was, from nanoseconds up to hours, in under two thousand
+ * counters. Recording a value is one increment of an atomic counter, with no lock and no allocation, so any number
+ * of threads can record into the same histogram.
+ */
+
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Counts one value
+     *
+     * @param nanos   the latency in nanoseconds, a negative value counts as 0
+     */
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Adds all the values counted by another histogram to this one
+     *
+     * @param other   the other histogram
+     */
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = other.counts.get(i);
+            if (n != 0) {counts.addAndGet(i, n);}
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    /**
+     * Forgets every value
+     */
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {counts.set(i, 0);}
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    public long count() {return count.sum();}
+    public long max() {return max.get();}
+
+    /**
+     * The mean of the values
+     *
+     * @return   the mean in nanoseconds, or 0 if there are none
+     */
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * The value below which a share of the values fall, such as 0.99 for the p99
+     *
+     * @param quantile   the share, from 0 to 1
+     * @return           the highest value of the bucket holding that rank in nanoseconds, or 0 if there are no values
+     */
+
+    public long percentile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {return 0;}
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {return Math.min(highestValueOf(i), max.get());}
+        }
+        return max.get();
+    }
+
+    /**
+     * The bucket of a value: the value itself below 32, otherwise its power of two and its 5 bits after the top one
+     */
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {return (int) value;}
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * The highest value counted in a bucket
+     */
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {return bucket;}
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = SUB_BUCKETS + bucket % SUB_BUCKETS; // The leading bit and the 5 bits after it
+        return ((top + 1) << shift) - 1;
+    }
+}
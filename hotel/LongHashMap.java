@@ -0,0 +1,239 @@
+package hotel;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A hash map from a primitive long key to a record. The keys are kept in a long array and never boxed into
+ * Long objects, which keeps the primary-key indexes of the hotel (booking ID, guest ID and room number) small
+ * and quick to look up.
+ *
+ * It uses open addressing with linear probing, and removals shift the following entries back so no
+ * tombstones are ever left behind.
+ *
+ * Lookups never block: they read optimistically and only retry, under a read lock, if a writer changed the
+ * map at the same time. Writers take turns through a StampedLock.
+ *
+ * @param <V> the type of record stored in the map, null values are not allowed
+ */
+
+final class LongHashMap<V> {
+
+    private static final long FREE = Long.MIN_VALUE; // This marks an empty slot, the real key Long.MIN_VALUE is stored on the side
+    private static final int MIN_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private volatile int size;
+    private volatile V freeKeyValue;
+
+    LongHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongHashMap(int expectedSize) {
+        table = new Table(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {capacity <<= 1;}
+        return capacity;
+    }
+
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Looks up the record stored under a key
+     *
+     * @param key   the key
+     * @return      the record, or null if there is none
+     */
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (key == FREE) {return freeKeyValue;}
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            Object value = table.find(key);
+            if (lock.validate(stamp)) {return (V) value;}
+        }
+        stamp = lock.readLock();
+        try {
+            return (V) table.find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores a record under a key, replacing any record that was already there
+     *
+     * @param key     the key
+     * @param value   the record, must not be null
+     * @return        the record that was replaced, or null
+     */
+
+    V put(long key, V value) {
+        return store(key, value, true);
+    }
+
+    /**
+     * Stores a record under a key only if the key is not in the map yet
+     *
+     * @param key     the key
+     * @param value   the record, must not be null
+     * @return        the record already stored under the key (which is kept), or null if the new one was added
+     */
+
+    V putIfAbsent(long key, V value) {
+        return store(key, value, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V store(long key, V value, boolean replace) {
+        long stamp = lock.writeLock();
+        try {
+            if (key == FREE) {
+                V old = freeKeyValue;
+                if (old == null) {size++;}
+                if (old == null || replace) {freeKeyValue = value;}
+                return old;
+            }
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = slotOf(key, mask);
+            for (; keys[slot] != FREE; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    V old = (V) table.values[slot];
+                    if (replace) {table.values[slot] = value;}
+                    return old;
+                }
+            }
+            table.values[slot] = value;
+            keys[slot] = key;
+            if (++size > keys.length * 3 / 4) {rehash(keys.length << 1);}
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes the record stored under a key
+     *
+     * @param key   the key
+     * @return      the record that was removed, or null if there was none
+     */
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            if (key == FREE) {
+                V old = freeKeyValue;
+                if (old != null) {size--;}
+                freeKeyValue = null;
+                return old;
+            }
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int slot = slotOf(key, mask);
+            for (; keys[slot] != key; slot = (slot + 1) & mask) {
+                if (keys[slot] == FREE) {return null;}
+            }
+            V old = (V) values[slot];
+            // Shifts back every following entry that would no longer be reachable once this slot is empty
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+                int home = slotOf(keys[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = FREE;
+            values[gap] = null;
+            size--;
+            return old;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        clear(0);
+    }
+
+    /**
+     * Empties the map and sizes it for the records about to be put in, so a bulk load never has to rehash
+     *
+     * @param expectedSize   how many records will be added
+     */
+
+    void clear(int expectedSize) {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(tableSizeFor(expectedSize));
+            size = 0;
+            freeKeyValue = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void rehash(int capacity) {
+        Table old = table;
+        Table grown = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] == FREE) {continue;}
+            int slot = slotOf(old.keys[i], mask);
+            while (grown.keys[slot] != FREE) {slot = (slot + 1) & mask;}
+            grown.keys[slot] = old.keys[i];
+            grown.values[slot] = old.values[i];
+        }
+        table = grown;
+    }
+
+    /**
+     * The key and value arrays, kept together so an optimistic reader always sees a matching pair
+     */
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, FREE);
+            values = new Object[capacity];
+        }
+
+        // The probe count is bounded so a reader racing with a writer can never spin forever, validate() throws its answer away
+        Object find(long key) {
+            long[] keys = this.keys;
+            int mask = keys.length - 1;
+            int slot = slotOf(key, mask);
+            for (int probes = 0; probes <= mask; probes++, slot = (slot + 1) & mask) {
+                long k = keys[slot];
+                if (k == key) {return values[slot];}
+                if (k == FREE) {return null;}
+            }
+            return null;
+        }
+    }
+}
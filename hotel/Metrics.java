@@ -0,0 +1,277 @@
+package hotel;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+/**
+ * Counters for every method of the Hotel interface and the import and save paths: how many calls, how many failed
+ * and why, how many are running right now, and how long they took. They are read through the HotelMetricsMXBean
+ * registered as hotel:type=Metrics, in jconsole or any JMX client, or as a MetricsSnapshot from
+ * HotelImpl.getMetrics().
+ *
+ * A timed method calls begin() on its Op when it starts and end() with its result when it returns, or failed() with
+ * the exception that escapes it. A false or null result counts as a failure; its cause is what the method named with
+ * cause() on the way out, or "returned false" if it named nothing. Every counter is a LongAdder or a
+ * LatencyHistogram, so timing a call takes no lock and allocates nothing, and threads on different cores do not
+ * fight over one counter.
+ */
+
+final class Metrics {
+
+    private static final Map<String, Op> OPERATIONS = new LinkedHashMap<String, Op>(); // In the order they are declared
+    private static final ThreadLocal<String[]> CAUSE = ThreadLocal.withInitial(() -> new String[1]);
+    private static final AtomicBoolean REGISTERED = new AtomicBoolean();
+    static final String OBJECT_NAME = "hotel:type=Metrics";
+
+    static final Op ADD_ROOM = op("addRoom");
+    static final Op REMOVE_ROOM = op("removeRoom");
+    static final Op ADD_GUEST = op("addGuest");
+    static final Op REMOVE_GUEST = op("removeGuest");
+    static final Op CHECK_ROOM_AVAILABLE = op("checkRoomAvailable");
+    static final Op FIND_AVAILABLE_ROOMS = op("findAvailableRooms");
+    static final Op MAKE_BOOKING = op("makeBooking");
+    static final Op MAKE_GROUP_BOOKING = op("makeGroupBooking");
+    static final Op CHECK_OUT = op("checkOut");
+    static final Op CANCEL_BOOKING = op("cancelBooking");
+    static final Op SEARCH_GUEST = op("searchGuest");
+    static final Op DISPLAY_GUEST_BOOKING = op("displayGuestBooking");
+    static final Op DISPLAY_BOOKINGS_ON_DATE = op("displayBookingsOnDate");
+    static final Op DISPLAY_PAYMENTS_ON_DATE = op("displayPaymentsOnDate");
+    static final Op DISPLAY_ALL_ROOMS = op("displayAllRooms");
+    static final Op DISPLAY_ALL_GUESTS = op("displayAllGuests");
+    static final Op DISPLAY_ALL_BOOKINGS = op("displayAllBookings");
+    static final Op DISPLAY_ALL_PAYMENTS = op("displayAllPayments");
+    static final Op IMPORT_ALL_DATA = op("importAllData");
+    static final Op IMPORT_ALL_DATA_FAST = op("importAllDataFast");
+    static final Op IMPORT_ROOMS_DATA = op("importRoomsData");
+    static final Op IMPORT_GUESTS_DATA = op("importGuestsData");
+    static final Op IMPORT_BOOKINGS_DATA = op("importBookingsData");
+    static final Op IMPORT_PAYMENTS_DATA = op("importPaymentsData");
+    static final Op IMPORT_BOOKING_HISTORY = op("importBookingHistory");
+    static final Op ARCHIVE_COMPLETED_BOOKINGS = op("archiveCompletedBookings");
+    static final Op LOAD_SNAPSHOT = op("loadSnapshot");
+    static final Op SAVE_ALL_DATA = op("saveAllData");
+    static final Op SAVE_ROOMS_DATA = op("saveRoomsData");
+    static final Op SAVE_GUESTS_DATA = op("saveGuestsData");
+    static final Op SAVE_BOOKINGS_DATA = op("saveBookingsData");
+    static final Op SAVE_PAYMENTS_DATA = op("savePaymentsData");
+    static final Op SAVE_SNAPSHOT = op("saveSnapshot");
+
+    private Metrics() {
+    }
+
+    private static Op op(String name) {
+        Op op = new Op(name);
+        OPERATIONS.put(name, op);
+        return op;
+    }
+
+    /**
+     * Names why the running method is about to fail, such as "no free room". The next end() of this thread with a
+     * false or null result counts the failure under this cause.
+     *
+     * @param cause   the cause
+     */
+
+    static void cause(String cause) {
+        CAUSE.get()[0] = cause;
+    }
+
+    /**
+     * Names an exception caught by the running method as the cause of its failure, by the exception's class
+     *
+     * @param e   the exception
+     */
+
+    static void cause(Throwable e) {
+        cause(e.getClass().getSimpleName());
+    }
+
+    /**
+     * The cause named by the running method so far
+     *
+     * @return   the cause, or null if none was named
+     */
+
+    static String currentCause() {
+        return CAUSE.get()[0];
+    }
+
+    /**
+     * Registers the MXBean with the platform MBean server, once. A failure is printed and otherwise ignored, the
+     * counters work the same without JMX.
+     */
+
+    static void register() {
+        if (!REGISTERED.compareAndSet(false, true)) {return;}
+        try{
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        }catch(Exception | LinkageError e){ // No JMX in this JVM, or a bean from another class loader is already there
+            System.out.println("The hotel metrics could not be registered with JMX: " + e);
+        }
+    }
+
+    /**
+     * Reads every counter
+     *
+     * @return   the counters as they are now
+     */
+
+    static MetricsSnapshot snapshot() {
+        List<OperationStats> operations = new ArrayList<OperationStats>(OPERATIONS.size());
+        for (Op op : OPERATIONS.values()) {operations.add(op.stats());}
+        return new MetricsSnapshot(System.currentTimeMillis(), size(HotelImpl.roomList), size(HotelImpl.guestList),
+                size(HotelImpl.vipGuestList), size(HotelImpl.bookingList), size(HotelImpl.paymentList), operations,
+                HotelImpl.availabilityCache.stats());
+    }
+
+    /**
+     * Sets every operation counter back to 0. Calls that are running keep counting as in flight.
+     */
+
+    static void reset() {
+        for (Op op : OPERATIONS.values()) {op.reset();}
+    }
+
+    private static int size(Collection<?> list) {
+        return list == null ? 0 : list.size(); // An unlocked read, a moment out of date at worst
+    }
+
+    /**
+     * The counters of one method
+     */
+
+    static final class Op {
+        final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final ConcurrentHashMap<String, LongAdder> causes = new ConcurrentHashMap<String, LongAdder>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private Op(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Counts a call starting
+         *
+         * @return   the start time, for end()
+         */
+
+        long begin() {
+            calls.increment();
+            inFlight.increment();
+            CAUSE.get()[0] = null;
+            return System.nanoTime();
+        }
+
+        /**
+         * Counts a call returning, a failure if the result is false
+         *
+         * @param start    the time begin() gave
+         * @param result   what the method returns
+         * @return         the same result
+         */
+
+        boolean end(long start, boolean result) {
+            finish(start);
+            if (!result) {fail("returned false");}
+            return result;
+        }
+
+        /**
+         * Counts a call returning, a failure if the result is negative
+         */
+
+        int end(long start, int result) {
+            finish(start);
+            if (result < 0) {fail("returned " + result);}
+            return result;
+        }
+
+        /**
+         * Counts a call returning, a failure if the result is null
+         */
+
+        <T> T end(long start, T result) {
+            finish(start);
+            if (result == null) {fail("returned null");}
+            return result;
+        }
+
+        /**
+         * Counts a call to a void method returning, a failure if it named a cause
+         */
+
+        void end(long start) {
+            finish(start);
+            String[] cause = CAUSE.get();
+            if (cause[0] != null) {fail(null);}
+        }
+
+        /**
+         * Counts a call ending with an exception, which the method then throws again
+         *
+         * @param start   the time begin() gave
+         * @param e       the exception
+         */
+
+        void failed(long start, Throwable e) {
+            finish(start);
+            cause(e);
+            fail(null);
+        }
+
+        private void finish(long start) {
+            latency.record(System.nanoTime() - start);
+            inFlight.decrement();
+        }
+
+        private void fail(String otherwise) {
+            String[] slot = CAUSE.get();
+            String cause = slot[0] == null ? otherwise : slot[0];
+            slot[0] = null;
+            failures.increment();
+            causes.computeIfAbsent(cause, c -> new LongAdder()).increment();
+        }
+
+        private void reset() {
+            calls.reset();
+            failures.reset();
+            causes.clear();
+            latency.reset();
+        }
+
+        private OperationStats stats() {
+            Map<String, Long> byCause = new LinkedHashMap<String, Long>();
+            for (Map.Entry<String, LongAdder> entry : causes.entrySet()) {byCause.put(entry.getKey(), entry.getValue().sum());}
+            return new OperationStats(name, calls.sum(), failures.sum(), inFlight.sum(), byCause, latency.count(),
+                    (long) latency.mean(), latency.percentile(0.50), latency.percentile(0.99), latency.percentile(0.999), latency.max());
+        }
+    }
+
+    /**
+     * The MXBean, reading the counters of this class
+     */
+
+    private static final class Bean implements HotelMetricsMXBean {
+        @Override public int getRooms() {return size(HotelImpl.roomList);}
+        @Override public int getGuests() {return size(HotelImpl.guestList);}
+        @Override public int getVipGuests() {return size(HotelImpl.vipGuestList);}
+        @Override public int getBookings() {return size(HotelImpl.bookingList);}
+        @Override public int getPayments() {return size(HotelImpl.paymentList);}
+        @Override public List<OperationStats> getOperations() {return snapshot().getOperations();}
+        @Override public CacheStats getAvailabilityCache() {return HotelImpl.availabilityCache.stats();}
+        @Override public void reset() {Metrics.reset();}
+    }
+}
@@ -0,0 +1,56 @@
+package hotel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every counter of the hotel at one moment, from HotelImpl.getMetrics(). A snapshot never changes, so a test can
+ * take one before and one after the calls it makes and compare them.
+ */
+
+public final class MetricsSnapshot {
+
+    private final long takenAtMillis;
+    private final int rooms;
+    private final int guests;
+    private final int vipGuests;
+    private final int bookings;
+    private final int payments;
+    private final List<OperationStats> operations;
+    private final CacheStats availabilityCache;
+
+    MetricsSnapshot(long takenAtMillis, int rooms, int guests, int vipGuests, int bookings, int payments,
+                    List<OperationStats> operations, CacheStats availabilityCache) {
+        this.takenAtMillis = takenAtMillis;
+        this.rooms = rooms;
+        this.guests = guests;
+        this.vipGuests = vipGuests;
+        this.bookings = bookings;
+        this.payments = payments;
+        this.operations = Collections.unmodifiableList(operations);
+        this.availabilityCache = availabilityCache;
+    }
+
+    public long getTakenAtMillis() {return takenAtMillis;}
+    public int getRooms() {return rooms;}
+    public int getGuests() {return guests;}
+    public int getVipGuests() {return vipGuests;}
+    public int getBookings() {return bookings;}
+    public int getPayments() {return payments;}
+    public List<OperationStats> getOperations() {return operations;}
+    public CacheStats getAvailabilityCache() {return availabilityCache;}
+
+    /**
+     * The counters of one method
+     *
+     * @param name   the method name, such as "makeBooking"
+     * @return       its counters, or null if that method is not timed
+     */
+
+    public OperationStats getOperation(String name) {
+        for (OperationStats operation : operations) {
+            if (operation.getName().equals(name)) {return operation;}
+        }
+        return null;
+    }
+}
@@ -0,0 +1,168 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * Finds the bookings that cover a given night, for the nightly in-house report and for housekeeping.
+ *
+ * Every night has a bucket holding the bookings staying that night, a booking from check-in day to check-out day
+ * being in the buckets of the nights [checkIn, checkOut). The buckets sit in an array indexed by epoch-day, so
+ * finding a night's bucket is O(1) and reading it is O(k) for k bookings. A bucket never holds more bookings than
+ * there are rooms, since a room cannot be booked twice for the same night, so removing a booking from a bucket is a
+ * short scan. Stays are a few nights long, so the index holds a few references per booking.
+ *
+ * Like AvailabilityGrid, only the nights within HORIZON_DAYS of the day the index was last rebuilt have buckets, so a
+ * far-away or wrong date never makes the array grow. A booking with nights outside the horizon is also kept in a
+ * short list, which is scanned for those nights.
+ *
+ * The index has no lock of its own, it is changed under the write side of HotelImpl.tableLock, along with
+ * bookingList, and read under the read side.
+ */
+
+final class OccupancyIndex {
+
+    private static final Booking[] EMPTY = new Booking[0];
+
+    private int firstDay;
+    private Bucket[] buckets = new Bucket[0];
+    private int horizonStart; // Only the nights [horizonStart, horizonEnd) have buckets
+    private int horizonEnd;
+    private final ArrayList<Booking> outside = new ArrayList<Booking>(); // The bookings with nights outside the horizon
+
+    OccupancyIndex() {
+        setHorizon();
+    }
+
+    private void setHorizon() {
+        int today = EpochDays.of(new Date());
+        horizonStart = today - AvailabilityGrid.HORIZON_DAYS;
+        horizonEnd = today + AvailabilityGrid.HORIZON_DAYS;
+    }
+
+    /**
+     * Replaces everything in the index with the given bookings, and moves the horizon to today
+     *
+     * @param bookings   the bookings
+     */
+
+    void rebuild(List<Booking> bookings) {
+        buckets = new Bucket[0];
+        outside.clear();
+        setHorizon();
+        for (Booking booking : bookings) {add(booking);}
+    }
+
+    /**
+     * Puts a booking in the bucket of every night of its stay
+     *
+     * @param booking   the new booking
+     */
+
+    void add(Booking booking) {
+        int checkIn = booking.getCheckInDay();
+        int checkOut = booking.getCheckOutDay();
+        if (checkOut <= checkIn) {return;}
+        if (checkIn < horizonStart || checkOut > horizonEnd) {outside.add(booking);}
+        checkIn = Math.max(checkIn, horizonStart);
+        checkOut = Math.min(checkOut, horizonEnd);
+        if (checkOut <= checkIn) {return;} // No night within the horizon
+        cover(checkIn, checkOut - 1);
+        for (int day = checkIn; day < checkOut; day++) {
+            Bucket bucket = buckets[day - firstDay];
+            if (bucket == null) {
+                bucket = new Bucket();
+                buckets[day - firstDay] = bucket;
+            }
+            bucket.add(booking);
+        }
+    }
+
+    /**
+     * Takes a booking out of the bucket of every night of its stay
+     *
+     * @param booking   the removed booking
+     */
+
+    void remove(Booking booking) {
+        int checkIn = booking.getCheckInDay();
+        int checkOut = booking.getCheckOutDay();
+        if (checkIn < horizonStart || checkOut > horizonEnd) {
+            for (int i = 0; i < outside.size(); i++) {
+                if (outside.get(i) == booking) {outside.remove(i); break;}
+            }
+        }
+        for (int day = Math.max(checkIn, firstDay); day < checkOut && day < firstDay + buckets.length; day++) {
+            Bucket bucket = buckets[day - firstDay];
+            if (bucket != null) {bucket.remove(booking);}
+        }
+    }
+
+    /**
+     * The bookings staying on a night
+     *
+     * @param day   the epoch-day of the night
+     * @return      the bookings whose stay covers that night, in no particular order
+     */
+
+    Booking[] on(int day) {
+        if (day < horizonStart || day >= horizonEnd) {
+            ArrayList<Booking> staying = new ArrayList<Booking>();
+            for (Booking booking : outside) {
+                if (booking.getCheckInDay() <= day && day < booking.getCheckOutDay()) {staying.add(booking);}
+            }
+            return staying.toArray(EMPTY);
+        }
+        int d = day - firstDay;
+        if (d < 0 || d >= buckets.length || buckets[d] == null) {return EMPTY;}
+        return Arrays.copyOf(buckets[d].bookings, buckets[d].size);
+    }
+
+    /**
+     * Widens the bucket array so it reaches the nights from..to
+     */
+
+    private void cover(int from, int to) {
+        if (buckets.length == 0) {
+            firstDay = from;
+            buckets = new Bucket[Math.max(to - from + 1, 64)];
+        } else if (from < firstDay) {
+            int extra = Math.max(firstDay - from, buckets.length / 2); // Grows by half, so filling days backwards stays linear
+            Bucket[] bigger = new Bucket[buckets.length + extra];
+            System.arraycopy(buckets, 0, bigger, extra, buckets.length);
+            buckets = bigger;
+            firstDay -= extra;
+        }
+        if (to - firstDay >= buckets.length) {
+            buckets = Arrays.copyOf(buckets, Math.max(to - firstDay + 1, buckets.length * 2));
+        }
+    }
+
+    /**
+     * The bookings of one night
+     */
+
+    private static final class Bucket {
+        private Booking[] bookings = new Booking[4];
+        private int size;
+
+        void add(Booking booking) {
+            if (size == bookings.length) {bookings = Arrays.copyOf(bookings, size * 2);}
+            bookings[size++] = booking;
+        }
+
+        void remove(Booking booking) {
+            for (int i = 0; i < size; i++) {
+                if (bookings[i] == booking) {
+                    bookings[i] = bookings[--size]; // The order inside a bucket does not matter
+                    bookings[size] = null;
+                    return;
+                }
+            }
+        }
+    }
+}
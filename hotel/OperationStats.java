@@ -0,0 +1,60 @@
+package hotel;
+
+import java.beans.ConstructorProperties;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The counters of one method of the hotel at one moment. Latencies are in nanoseconds, and the percentiles are
+ * within about 3% of the true value (see LatencyHistogram).
+ */
+
+public final class OperationStats {
+
+    private final String name;
+    private final long calls;
+    private final long failures;
+    private final long inFlight;
+    private final Map<String, Long> failuresByCause;
+    private final long timedCalls;
+    private final long meanNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    @ConstructorProperties({"name", "calls", "failures", "inFlight", "failuresByCause", "timedCalls", "meanNanos",
+        "p50Nanos", "p99Nanos", "p999Nanos", "maxNanos"})
+    public OperationStats(String name, long calls, long failures, long inFlight, Map<String, Long> failuresByCause,
+                          long timedCalls, long meanNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.name = name;
+        this.calls = calls;
+        this.failures = failures;
+        this.inFlight = inFlight;
+        this.failuresByCause = Collections.unmodifiableMap(failuresByCause);
+        this.timedCalls = timedCalls;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {return name;}
+    public long getCalls() {return calls;}
+    public long getFailures() {return failures;}
+    public long getInFlight() {return inFlight;}
+    public Map<String, Long> getFailuresByCause() {return failuresByCause;}
+    public long getTimedCalls() {return timedCalls;}
+    public long getMeanNanos() {return meanNanos;}
+    public long getP50Nanos() {return p50Nanos;}
+    public long getP99Nanos() {return p99Nanos;}
+    public long getP999Nanos() {return p999Nanos;}
+    public long getMaxNanos() {return maxNanos;}
+
+    @Override
+    public String toString() {
+        return name + ": " + calls + " calls, " + failures + " failed " + failuresByCause + ", " + inFlight + " in flight, p50 "
+                + p50Nanos / 1000 + " us, p99 " + p99Nanos / 1000 + " us, p999 " + p999Nanos / 1000 + " us, max " + maxNanos / 1000 + " us";
+    }
+}
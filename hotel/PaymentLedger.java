@@ -0,0 +1,365 @@
+package hotel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import hotel.HotelImpl.Payment;
+
+/**
+ * The payments of the hotel stored column by column, for daily and date-range income reports.
+ *
+ * Each payment is one row across four primitive arrays: its epoch-day, guest ID, amount in cents and a reason code
+ * (one byte, looked up in a small dictionary of the reasons seen so far). The rows are kept in day order, and
+ * dayStart gives the first row of every day between the first and the last payment, so the payments of a day or of
+ * a date range are one contiguous run of rows. Running totals are kept for every day and every reason, so the income
+ * of a day is a single array lookup.
+ *
+ * Payments are nearly always dated today, so they are added at the end. A payment dated before the last day (from a
+ * replayed journal or a changed clock) is slotted into its day by shifting the rows after it.
+ *
+ * Like AvailabilityGrid, the day index only has a slot for each day within HORIZON_DAYS of the day the ledger was last
+ * rebuilt, so a far-away or wrong date never makes it grow. The payments before the horizon share one slot at the
+ * start, and those after it one slot at the end, still in day order, and their days are found by a binary search.
+ *
+ * The ledger has no lock of its own, it is changed under the write side of HotelImpl.tableLock, along with
+ * paymentList, and read under the read side.
+ */
+
+final class PaymentLedger {
+
+    static final String BOOKING = "booking";
+    static final String VIP_MEMBERSHIP = "VIPmembership";
+    static final String REFUND = "refund";
+
+    private static final int MIN_ROWS = 64;
+    private static final int MAX_REASONS = 256;
+
+    private int[] days = new int[MIN_ROWS];
+    private long[] guestIDs = new long[MIN_ROWS];
+    private long[] cents = new long[MIN_ROWS];
+    private byte[] reasons = new byte[MIN_ROWS];
+    private int size;
+
+    // Day index: slot firstDay + d has the rows [dayStart[d], dayStart[d + 1]) and takes in dayCents[d]. The slot of a
+    // day is the day itself within [horizonStart, horizonEnd), and horizonStart - 1 or horizonEnd outside it.
+    private int horizonStart;
+    private int horizonEnd;
+    private int firstDay;
+    private int dayCount;
+    private int[] dayStart = new int[1];
+    private long[] dayCents = new long[0];
+
+    private final ArrayList<String> reasonNames = new ArrayList<String>();
+    private final HashMap<String, Integer> reasonCodes = new HashMap<String, Integer>();
+    private long[] reasonCents = new long[0];
+
+    PaymentLedger() {
+        // The three reasons the hotel uses always have the same codes
+        codeOf(BOOKING);
+        codeOf(VIP_MEMBERSHIP);
+        codeOf(REFUND);
+        setHorizon();
+    }
+
+    private void setHorizon() {
+        int today = EpochDays.of(new Date());
+        horizonStart = today - AvailabilityGrid.HORIZON_DAYS;
+        horizonEnd = today + AvailabilityGrid.HORIZON_DAYS;
+    }
+
+    private boolean inHorizon(int day) {
+        return day >= horizonStart && day < horizonEnd;
+    }
+
+    private int slotOf(int day) {
+        return Math.max(horizonStart - 1, Math.min(day, horizonEnd));
+    }
+
+    /**
+     * Replaces every row with the given payments, sorting them by day with one counting pass, and moves the horizon
+     * to today
+     *
+     * @param payments   the payments, in any order
+     */
+
+    void rebuild(List<Payment> payments) {
+        size = 0;
+        dayCount = 0;
+        Arrays.fill(reasonCents, 0);
+        setHorizon();
+        int n = payments.size();
+        int[] paymentDays = new int[n];
+        int[] slots = new int[n];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            paymentDays[i] = payments.get(i).getDay();
+            slots[i] = slotOf(paymentDays[i]);
+            min = Math.min(min, slots[i]);
+            max = Math.max(max, slots[i]);
+        }
+        days = new int[Math.max(MIN_ROWS, n)];
+        guestIDs = new long[days.length];
+        cents = new long[days.length];
+        reasons = new byte[days.length];
+        if (n == 0) {
+            dayStart = new int[1];
+            dayCents = new long[0];
+            return;
+        }
+        firstDay = min;
+        dayCount = max - min + 1;
+        dayStart = new int[dayCount + 1];
+        dayCents = new long[dayCount];
+        for (int i = 0; i < n; i++) {dayStart[slots[i] - firstDay + 1]++;}
+        for (int d = 0; d < dayCount; d++) {dayStart[d + 1] += dayStart[d];}
+        int[] next = Arrays.copyOf(dayStart, dayCount);
+        for (int i = 0; i < n; i++) {
+            Payment payment = payments.get(i);
+            int d = slots[i] - firstDay;
+            setRow(next[d]++, paymentDays[i], payment);
+            dayCents[d] += cents[next[d] - 1];
+        }
+        size = n;
+        // The slots outside the horizon hold many days each
+        if (firstDay < horizonStart) {sortByDay(0, dayStart[1]);}
+        if (firstDay + dayCount > horizonEnd) {sortByDay(dayStart[dayCount - 1], size);}
+    }
+
+    // Sorts the rows [from, to) by day, keeping the order of the payments of the same day
+    private void sortByDay(int from, int to) {
+        int n = to - from;
+        if (n < 2) {return;}
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {order[i] = from + i;}
+        Arrays.sort(order, (a, b) -> Integer.compare(days[a], days[b]));
+        int[] sortedDays = new int[n];
+        long[] sortedGuestIDs = new long[n];
+        long[] sortedCents = new long[n];
+        byte[] sortedReasons = new byte[n];
+        for (int i = 0; i < n; i++) {
+            sortedDays[i] = days[order[i]];
+            sortedGuestIDs[i] = guestIDs[order[i]];
+            sortedCents[i] = cents[order[i]];
+            sortedReasons[i] = reasons[order[i]];
+        }
+        System.arraycopy(sortedDays, 0, days, from, n);
+        System.arraycopy(sortedGuestIDs, 0, guestIDs, from, n);
+        System.arraycopy(sortedCents, 0, cents, from, n);
+        System.arraycopy(sortedReasons, 0, reasons, from, n);
+    }
+
+    /**
+     * Adds one payment
+     *
+     * @param payment   the new payment
+     */
+
+    void add(Payment payment) {
+        int day = payment.getDay();
+        int slot = slotOf(day);
+        coverDay(slot);
+        int d = slot - firstDay;
+        int row = dayStart[d + 1]; // The end of the payment's day, which is the end of the ledger for a payment dated today
+        if (!inHorizon(day)) {row = search(dayStart[d], row, day + 1);} // After the payments of the same day in its slot
+        if (size == days.length) {grow();}
+        if (row < size) {
+            System.arraycopy(days, row, days, row + 1, size - row);
+            System.arraycopy(guestIDs, row, guestIDs, row + 1, size - row);
+            System.arraycopy(cents, row, cents, row + 1, size - row);
+            System.arraycopy(reasons, row, reasons, row + 1, size - row);
+        }
+        setRow(row, day, payment);
+        size++;
+        for (int k = d + 1; k <= dayCount; k++) {dayStart[k]++;}
+        dayCents[d] += cents[row];
+    }
+
+    private void setRow(int row, int day, Payment payment) {
+        int code = codeOf(payment.getPayReason());
+        long amount = Math.round(payment.getAmount() * 100);
+        days[row] = day;
+        guestIDs[row] = payment.getGuestID();
+        cents[row] = amount;
+        reasons[row] = (byte) code;
+        reasonCents[code] += amount;
+    }
+
+    private void grow() {
+        int capacity = days.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        guestIDs = Arrays.copyOf(guestIDs, capacity);
+        cents = Arrays.copyOf(cents, capacity);
+        reasons = Arrays.copyOf(reasons, capacity);
+    }
+
+    // The first of the rows [from, to), which are in day order, dated day or later
+    private int search(int from, int to, int day) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (days[middle] < day) {from = middle + 1;} else {to = middle;}
+        }
+        return from;
+    }
+
+    /**
+     * Widens the day index so it reaches the given slot
+     */
+
+    private void coverDay(int day) {
+        if (dayCount == 0) {
+            firstDay = day;
+            dayCount = 1;
+            dayStart = new int[]{size, size};
+            dayCents = new long[1];
+        } else if (day < firstDay) {
+            int extra = firstDay - day;
+            int[] start = new int[dayCount + extra + 1]; // The new days before the old first day have no rows
+            System.arraycopy(dayStart, 0, start, extra, dayCount + 1);
+            long[] total = new long[dayCount + extra];
+            System.arraycopy(dayCents, 0, total, extra, dayCount);
+            dayStart = start;
+            dayCents = total;
+            firstDay = day;
+            dayCount += extra;
+        } else if (day >= firstDay + dayCount) {
+            int wanted = day - firstDay + 1;
+            if (wanted >= dayStart.length) {
+                int capacity = Math.max(wanted + 1, dayStart.length * 2);
+                dayStart = Arrays.copyOf(dayStart, capacity);
+                dayCents = Arrays.copyOf(dayCents, capacity - 1);
+            }
+            Arrays.fill(dayStart, dayCount + 1, wanted + 1, size);
+            dayCount = wanted;
+        }
+    }
+
+    private int codeOf(String reason) {
+        String key = reason == null ? "" : reason;
+        Integer code = reasonCodes.get(key);
+        if (code == null) {
+            if (reasonNames.size() == MAX_REASONS) {throw new IllegalArgumentException("Too many payment reasons, cannot add " + key);}
+            code = reasonNames.size();
+            reasonNames.add(key);
+            reasonCodes.put(key, code);
+            reasonCents = Arrays.copyOf(reasonCents, reasonNames.size());
+        }
+        return code;
+    }
+
+    /**
+     * The number of payments
+     *
+     * @return   the number of rows
+     */
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The first row of a day, the rows of the days from..to are [firstRow(from), endRow(to))
+     *
+     * @param day   an epoch-day
+     * @return      the first row on or after that day
+     */
+
+    int firstRow(int day) {
+        int slot = slotOf(day);
+        if (dayCount == 0 || slot < firstDay) {return 0;}
+        if (slot >= firstDay + dayCount) {return size;}
+        int d = slot - firstDay;
+        return inHorizon(day) ? dayStart[d] : search(dayStart[d], dayStart[d + 1], day);
+    }
+
+    /**
+     * The row after the last row of a day
+     *
+     * @param day   an epoch-day
+     * @return      the first row after that day
+     */
+
+    int endRow(int day) {
+        int slot = slotOf(day);
+        if (dayCount == 0 || slot < firstDay) {return 0;}
+        if (slot >= firstDay + dayCount) {return size;}
+        int d = slot - firstDay;
+        return inHorizon(day) ? dayStart[d + 1] : search(dayStart[d], dayStart[d + 1], day + 1);
+    }
+
+    /**
+     * The income of one day, in O(1) within the horizon
+     *
+     * @param day   an epoch-day
+     * @return      the sum of the payments of that day in cents, refunds counting as negative
+     */
+
+    long dayCents(int day) {
+        if (!inHorizon(day)) {return rowCents(firstRow(day), endRow(day));}
+        int d = day - firstDay;
+        return d < 0 || d >= dayCount ? 0 : dayCents[d];
+    }
+
+    private long rowCents(int from, int to) {
+        long total = 0;
+        for (int row = from; row < to; row++) {total += cents[row];}
+        return total;
+    }
+
+    /**
+     * The income of the days from..to, both included, summed from the daily totals within the horizon
+     *
+     * @param fromDay   the first epoch-day
+     * @param toDay     the last epoch-day
+     * @return          the sum of the payments of those days in cents
+     */
+
+    long rangeCents(int fromDay, int toDay) {
+        if (fromDay > toDay) {return 0;}
+        long total = 0;
+        if (fromDay < horizonStart) {total += rowCents(firstRow(fromDay), endRow(Math.min(toDay, horizonStart - 1)));}
+        if (toDay >= horizonEnd) {total += rowCents(firstRow(Math.max(fromDay, horizonEnd)), endRow(toDay));}
+        int from = Math.max(Math.max(fromDay, horizonStart) - firstDay, 0);
+        int to = Math.min(Math.min(toDay, horizonEnd - 1) - firstDay, dayCount - 1);
+        for (int d = from; d <= to; d++) {total += dayCents[d];}
+        return total;
+    }
+
+    /**
+     * The income of one reason over all days
+     *
+     * @param reason   a payment reason, such as "booking"
+     * @return         the sum of the payments with that reason in cents
+     */
+
+    long reasonCents(String reason) {
+        Integer code = reasonCodes.get(reason == null ? "" : reason);
+        return code == null ? 0 : reasonCents[code];
+    }
+
+    /**
+     * The income of one reason on one day, from a scan of that day's rows
+     *
+     * @param day      an epoch-day
+     * @param reason   a payment reason, such as "booking"
+     * @return         the sum of the payments of that day with that reason in cents
+     */
+
+    long dayCents(int day, String reason) {
+        Integer code = reasonCodes.get(reason == null ? "" : reason);
+        long total = 0;
+        if (code == null) {return 0;}
+        for (int row = firstRow(day), end = endRow(day); row < end; row++) {
+            if (reasons[row] == (byte) (int) code) {total += cents[row];}
+        }
+        return total;
+    }
+
+    int day(int row) {return days[row];}
+    long guestID(int row) {return guestIDs[row];}
+    long cents(int row) {return cents[row];}
+    String reason(int row) {return reasonNames.get(reasons[row] & 0xff);}
+}
@@ -0,0 +1,383 @@
+package hotel;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A table of records kept in slots. Every record knows its own slot, so it is removed in O(1) by leaving a tombstone
+ * (an empty slot) behind, instead of searching the table and shifting everything after it as ArrayList.remove does.
+ * A record keeps its slot until it is removed or the table is compacted, and removing records while going through
+ * the table, with the iterator or not, is safe.
+ *
+ * Once a quarter of the slots are tombstones, a background thread compacts the table: it slides the records down
+ * over the tombstones, keeping their order, a few thousand slots at a time. Each step holds the table's write lock
+ * only for that step, so a change waits for one step at most and never for the whole compaction. Between two steps
+ * the table is in a normal state, with the compacted slots, then a run of tombstones, then the slots not reached yet,
+ * so readers can go through it at any time.
+ *
+ * The slots are kept in segments of SEGMENT_SLOTS, so freeze() can hand out a view of the table as it is at that
+ * moment by copying the short list of segments, not the slots. The segments are then shared with the view, and a
+ * change copies a shared segment before writing to it, so a checkpoint holds up changes for a few microseconds
+ * however big the table is, and each segment is copied at most once per view.
+ *
+ * Every record is also numbered in the order it was added to the table, which is the order of the slots, so a
+ * position in the table that must survive a compaction (a report cursor, say) is kept as that number and turned
+ * back into a slot with firstSlotFrom().
+ *
+ * Like the ArrayLists it replaces, the table is changed under the write side of HotelImpl.tableLock and read under
+ * the read side. A record is in one table at a time.
+ *
+ * @param <T> the type of record stored in the table
+ */
+
+final class RecordStore<T extends RecordStore.Record> extends AbstractCollection<T> {
+
+    static final int COMPACTION_STEP = 4096; // Slots looked at per step of a compaction
+    static final int SEGMENT_SHIFT = 12;
+    static final int SEGMENT_SLOTS = 1 << SEGMENT_SHIFT; // Slots per segment, the unit copied when a frozen view shares it
+    private static final int MIN_TOMBSTONES = 1024; // Fewer than this are never worth a compaction
+
+    // One thread compacts every table, one step at a time
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "hotel-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Lock lock;
+    private Record[][] segments; // Slot i is in segments[i >> SEGMENT_SHIFT], null until it is first used
+    private boolean[] shared; // The segments a frozen view may still read, copied before they are next written
+    private int end; // The slots after this one have never been used
+    private int size; // The records, that is end minus the tombstones
+    private int firstHole; // No tombstone comes before this slot
+    private boolean compacting; // A compaction has started and not reached the end yet
+    private int compactedTo; // While compacting, the slots before this one hold the records compacted so far
+    private int compactFrom; // While compacting, the next slot to look at
+    private boolean scheduled; // A compaction task has been handed to the compactor
+    private long compactions;
+    private long added; // Records added so far, which numbers the next one
+
+    /**
+     * Creates an empty table
+     *
+     * @param lock   the write lock the table is changed under, taken by each step of a compaction
+     */
+
+    RecordStore(Lock lock) {
+        this.lock = lock;
+        this.segments = new Record[1][];
+        this.shared = new boolean[1];
+    }
+
+    /**
+     * Creates a table holding some records, in their order
+     *
+     * @param records   the records
+     * @param lock      the write lock the table is changed under, taken by each step of a compaction
+     */
+
+    RecordStore(Collection<? extends T> records, Lock lock) {
+        this.lock = lock;
+        int count = Math.max(1, (records.size() + SEGMENT_SLOTS - 1) >> SEGMENT_SHIFT);
+        this.segments = new Record[count][];
+        this.shared = new boolean[count];
+        for (T record : records) {add(record);}
+    }
+
+    /**
+     * Adds a record in the slot after the last one
+     *
+     * @param record   the record
+     * @return         true
+     */
+
+    @Override
+    public boolean add(T record) {
+        if ((end >> SEGMENT_SHIFT) == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+            shared = Arrays.copyOf(shared, segments.length);
+        }
+        record.slot = end;
+        record.seq = added++;
+        set(end++, record);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a record by leaving a tombstone in its slot
+     *
+     * @param object   the record
+     * @return         true if it was in the table
+     */
+
+    @Override
+    public boolean remove(Object object) {
+        if (!contains(object)) {return false;}
+        Record record = (Record) object;
+        clear(record.slot);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Record)) {return false;}
+        int slot = ((Record) object).slot;
+        return slot >= 0 && slot < end && get(slot) == object; // The slot could be from an older table the record was in
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The number of slots in use, records and tombstones, which is where a walk over slot() stops
+     *
+     * @return   the number of slots
+     */
+
+    int slots() {
+        return end;
+    }
+
+    /**
+     * The record in a slot
+     *
+     * @param slot   the slot, from 0 to slots()
+     * @return       the record, or null if the slot is a tombstone
+     */
+
+    @SuppressWarnings("unchecked")
+    T slot(int slot) {
+        return (T) get(slot);
+    }
+
+    /**
+     * A read-only view of the table as it is now, which later changes to the table do not affect. Only the list of
+     * segments is copied, so it costs a few microseconds even for millions of records, and the view can be read
+     * for as long as needed without any lock. The caller holds the read lock.
+     *
+     * @return   the records of the table, in their order
+     */
+
+    Collection<T> freeze() {
+        Arrays.fill(shared, true);
+        return new Frozen<T>(segments.clone(), end, size);
+    }
+
+    /**
+     * The first slot holding a record added at or after a given one, by binary search over the slots, which are in
+     * the order the records were added. Tombstones are skipped over, so this works between two steps of a
+     * compaction as well.
+     *
+     * @param seq   the number of a record, as Record.seq gives
+     * @return      the slot, or slots() if every record left was added before it
+     */
+
+    int firstSlotFrom(long seq) {
+        int low = 0;
+        int high = end;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int probe = middle;
+            while (probe < high && get(probe) == null) {probe++;}
+            if (probe == high) {
+                high = middle;
+            } else if (get(probe).seq < seq) {
+                low = probe + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return skipTombstones(low);
+    }
+
+    /**
+     * The number of compactions finished so far
+     *
+     * @return   the number of compactions
+     */
+
+    long compactions() {
+        return compactions;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next = skipTombstones(0);
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (next >= end) {throw new NoSuchElementException();}
+                last = next;
+                next = skipTombstones(next + 1);
+                return (T) get(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0 || get(last) == null) {throw new IllegalStateException();}
+                clear(last);
+            }
+        };
+    }
+
+    private int skipTombstones(int slot) {
+        while (slot < end && get(slot) == null) {slot++;}
+        return slot;
+    }
+
+    private Record get(int slot) {
+        Record[] segment = segments[slot >> SEGMENT_SHIFT];
+        return segment == null ? null : segment[slot & (SEGMENT_SLOTS - 1)];
+    }
+
+    private void set(int slot, Record record) {
+        int index = slot >> SEGMENT_SHIFT;
+        if (segments[index] == null) {
+            segments[index] = new Record[SEGMENT_SLOTS];
+        } else if (shared[index]) {
+            segments[index] = segments[index].clone(); // A frozen view keeps the old one
+        }
+        shared[index] = false;
+        segments[index][slot & (SEGMENT_SLOTS - 1)] = record;
+    }
+
+    private void clear(int slot) {
+        get(slot).slot = -1;
+        set(slot, null);
+        size--;
+        if (slot < firstHole) {firstHole = slot;}
+        if (slot == end - 1 && !compacting) {
+            while (end > 0 && get(end - 1) == null) {end--;} // Tombstones at the end are simply dropped
+            if (firstHole > end) {firstHole = end;}
+        }
+        int tombstones = end - size;
+        if (!scheduled && tombstones >= MIN_TOMBSTONES && tombstones * 4 >= end) {
+            scheduled = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Compacts the table on the compactor thread, taking the write lock for each step and letting it go in between
+     */
+
+    private void compact() {
+        boolean done = false;
+        while (!done) {
+            lock.lock();
+            try{
+                done = step(COMPACTION_STEP);
+                if (done) {scheduled = false;}
+            }finally{
+                lock.unlock();
+            }
+            Thread.yield(); // Lets the changes waiting for the lock go first
+        }
+    }
+
+    /**
+     * Does one step of a compaction, starting one if none is running. The caller holds the write lock.
+     *
+     * @param budget   how many slots to look at
+     * @return         true if the compaction reached the end of the table
+     */
+
+    boolean step(int budget) {
+        if (!compacting) {
+            compacting = true;
+            compactedTo = Math.min(firstHole, end);
+            compactFrom = compactedTo;
+            firstHole = Integer.MAX_VALUE; // Only tombstones left behind compactedTo by removals during the compaction set it again
+        }
+        int stop = (int) Math.min(end, (long) compactFrom + budget);
+        for (; compactFrom < stop; compactFrom++) {
+            Record record = get(compactFrom);
+            if (record == null) {continue;}
+            if (compactFrom != compactedTo) {
+                set(compactedTo, record);
+                set(compactFrom, null);
+                record.slot = compactedTo;
+            }
+            compactedTo++;
+        }
+        if (compactFrom < end) {return false;}
+        end = compactedTo; // Every slot from here on is a tombstone
+        if (firstHole > end) {firstHole = end;}
+        compacting = false;
+        compactions++;
+        return true;
+    }
+
+    /**
+     * What freeze() gives back: the segments as they were, read up to the end the table had then
+     */
+
+    private static final class Frozen<T> extends AbstractCollection<T> {
+        private final Record[][] segments;
+        private final int end;
+        private final int size;
+
+        Frozen(Record[][] segments, int end, int size) {
+            this.segments = segments;
+            this.end = end;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int next = skip(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < end;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (next >= end) {throw new NoSuchElementException();}
+                    Record record = segments[next >> SEGMENT_SHIFT][next & (SEGMENT_SLOTS - 1)];
+                    next = skip(next + 1);
+                    return (T) record;
+                }
+            };
+        }
+
+        private int skip(int slot) {
+            while (slot < end && segments[slot >> SEGMENT_SHIFT][slot & (SEGMENT_SLOTS - 1)] == null) {slot++;}
+            return slot;
+        }
+    }
+
+    /**
+     * What every record stored in a RecordStore extends: the slot it is in
+     */
+
+    abstract static class Record {
+        int slot = -1; // -1 while it is in no table
+        long seq; // The order it was added to its table in, which a compaction does not change
+    }
+}
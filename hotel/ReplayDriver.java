@@ -0,0 +1,421 @@
+package hotel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Room;
+
+/**
+ * Fires a mix of front-desk calls at a loaded hotel from a number of threads, and reports the throughput and the
+ * latency percentiles of every kind of call, to see how the engine holds up under load.
+ *
+ * The calls are makeBooking and findAvailableRooms for stays in the coming year, searchGuest for existing guests,
+ * cancelBooking for bookings that have not started yet and checkOut for stays going on today. Each kind of call has
+ * a weight in the mix, such as makeBooking=30 and searchGuest=35. The arguments are drawn before each call is timed,
+ * so only the engine is measured. Every booking is cancelled or checked out at most once; once they run out, those
+ * calls are counted as skipped.
+ *
+ * Each call is timed with System.nanoTime and counted in a LatencyHistogram. Calls made during the warm-up are not
+ * counted.
+ *
+ * With clients set, the driver measures the hotel behind a HotelServer instead: it serves the hotel on the loopback
+ * address and makes the calls from that many clients, each on its own HotelClient connection and, where the JVM has
+ * them, its own virtual thread. The latencies then include the round trip to the server.
+ */
+
+public final class ReplayDriver {
+
+    /**
+     * The calls the driver makes
+     */
+
+    public enum Operation {
+        MAKE_BOOKING("makeBooking"),
+        CANCEL_BOOKING("cancelBooking"),
+        CHECK_OUT("checkOut"),
+        SEARCH_GUEST("searchGuest"),
+        FIND_AVAILABLE_ROOMS("findAvailableRooms");
+
+        final String methodName;
+
+        Operation(String methodName) {
+            this.methodName = methodName;
+        }
+
+        static Operation named(String methodName) {
+            for (Operation operation : values()) {
+                if (operation.methodName.equalsIgnoreCase(methodName)) {return operation;}
+            }
+            throw new IllegalArgumentException("There is no operation called " + methodName);
+        }
+    }
+
+    private static final int OPERATIONS = Operation.values().length;
+    private static final int MAX_NIGHTS = 7;
+
+    private final HotelImpl hotel;
+    private final int[] weights = {30, 10, 10, 35, 15}; // In the order of Operation
+    private int threads = 4;
+    private int clients; // 0 calls the hotel directly
+    private int warmupSeconds = 5;
+    private int seconds = 30;
+    private long seed = 1;
+
+    // What the calls are made with, drawn from the tables before the run
+    private long[] guestIDs;
+    private String[] firstNames;
+    private String[] lastNames;
+    private String[] roomTypes;
+    private long[] futureBookings;
+    private long[] currentStays;
+    private final AtomicInteger nextCancel = new AtomicInteger();
+    private final AtomicInteger nextCheckOut = new AtomicInteger();
+    private int today;
+
+    private final LatencyHistogram[] latency = new LatencyHistogram[OPERATIONS];
+    private final LongAdder[] failed = new LongAdder[OPERATIONS];
+    private final LongAdder[] skipped = new LongAdder[OPERATIONS];
+    private double measuredSeconds;
+
+    /**
+     * Makes a driver for a hotel that is already loaded
+     *
+     * @param hotel   the hotel
+     */
+
+    public ReplayDriver(HotelImpl hotel) {
+        this.hotel = hotel;
+        for (int i = 0; i < OPERATIONS; i++) {
+            latency[i] = new LatencyHistogram();
+            failed[i] = new LongAdder();
+            skipped[i] = new LongAdder();
+        }
+    }
+
+    public void setThreads(int threads) {this.threads = Math.max(threads, 1);}
+    public void setClients(int clients) {this.clients = Math.max(clients, 0);}
+    public void setWarmupSeconds(int warmupSeconds) {this.warmupSeconds = Math.max(warmupSeconds, 0);}
+    public void setSeconds(int seconds) {this.seconds = Math.max(seconds, 1);}
+    public void setSeed(long seed) {this.seed = seed;}
+
+    /**
+     * Sets the weight of every kind of call, such as "makeBooking=30,cancelBooking=10,checkOut=10,searchGuest=35,
+     * findAvailableRooms=15". Kinds that are not named get a weight of 0.
+     *
+     * @param mix   the weights, as name=weight separated by commas
+     */
+
+    public void setMix(String mix) {
+        int[] given = new int[OPERATIONS];
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            if (nameAndWeight.length != 2) {throw new IllegalArgumentException("The mix is written name=weight, not " + part);}
+            given[Operation.named(nameAndWeight[0].trim()).ordinal()] = Integer.parseInt(nameAndWeight[1].trim());
+        }
+        System.arraycopy(given, 0, weights, 0, OPERATIONS);
+    }
+
+    /**
+     * The latencies of one kind of call in the last run
+     *
+     * @param operation   the kind of call
+     * @return            the histogram, in nanoseconds
+     */
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latency[operation.ordinal()];
+    }
+
+    /**
+     * Runs the mix for the warm-up and then the measured time, and prints the report
+     *
+     * @return   true if the run finished, false if it was interrupted or there was nothing to run
+     */
+
+    public boolean run() {
+        int totalWeight = 0;
+        for (int weight : weights) {totalWeight += weight;}
+        if (totalWeight <= 0) {
+            System.out.println("ERROR: every operation in the mix has a weight of 0");
+            return false;
+        }
+        prepare();
+        if (guestIDs.length == 0 || roomTypes.length == 0) {
+            System.out.println("ERROR: the hotel needs at least one guest and one room to replay a workload");
+            return false;
+        }
+        for (int i = 0; i < OPERATIONS; i++) {
+            latency[i].reset();
+            failed[i].reset();
+            skipped[i].reset();
+        }
+
+        long start = System.nanoTime();
+        final long measureFrom = start + warmupSeconds * 1000000000L;
+        final long stopAt = measureFrom + seconds * 1000000000L;
+        final int[] runningTotal = new int[OPERATIONS];
+        int sum = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            sum += weights[i];
+            runningTotal[i] = sum;
+        }
+        final int total = sum;
+        final HotelServer server;
+        try{
+            server = clients > 0 ? new HotelServer(hotel, 0) : null;
+        }catch(IOException e){
+            System.out.println("ERROR: the hotel server could not be started: " + e.getMessage());
+            return false;
+        }
+        int workers = server != null ? clients : threads;
+        ThreadFactory factory = server != null ? HotelServer.newThreadFactory("replay-client-") : task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        };
+        final CountDownLatch done = new CountDownLatch(workers);
+        final LongAdder errors = new LongAdder();
+        for (int t = 0; t < workers; t++) {
+            final SplittableRandom random = new SplittableRandom(seed * 31 + t);
+            Thread worker = factory.newThread(() -> {
+                HotelClient client = null;
+                try{
+                    if (server != null) {client = new HotelClient(server.getPort());}
+                    HotelService target = client != null ? client : hotel;
+                    long now = System.nanoTime();
+                    while (now < stopAt) {
+                        int r = random.nextInt(total);
+                        int op = 0;
+                        while (runningTotal[op] <= r) {op++;}
+                        now = call(target, Operation.values()[op], random, now >= measureFrom);
+                    }
+                }catch(IOException | RuntimeException e){
+                    errors.increment(); // A client that lost its connection stops, the others go on
+                }finally{
+                    closeQuietly(client);
+                    done.countDown();
+                }
+            });
+            if (server == null) {worker.setName("replay-" + t);}
+            worker.start();
+        }
+        try{
+            done.await();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            System.out.println("ERROR: the replay was interrupted");
+            return false;
+        }finally{
+            closeQuietly(server);
+        }
+        measuredSeconds = seconds;
+        if (server != null) {
+            System.out.println(clients + " clients on " + (HotelServer.hasVirtualThreads() ? "virtual" : "platform")
+                    + " threads, " + server.getRequests() + " requests served, " + errors.sum() + " clients stopped by an error");
+        } else if (errors.sum() > 0) {
+            System.out.println(errors.sum() + " threads stopped by an error");
+        }
+        System.out.print(report());
+        return true;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {return;}
+        try{
+            closeable.close();
+        }catch(IOException e){
+            // Nothing is left to do with it
+        }
+    }
+
+    /**
+     * Makes one call, timing it if it counts
+     *
+     * @param target   the hotel itself, or the client of the thread making the call
+     * @return         the time the call ended
+     */
+
+    private long call(HotelService target, Operation operation, SplittableRandom random, boolean counted) {
+        int op = operation.ordinal();
+        boolean ok;
+        long start;
+        switch (operation) {
+            case MAKE_BOOKING: {
+                String roomType = roomTypes[random.nextInt(roomTypes.length)];
+                long guestID = guestIDs[random.nextInt(guestIDs.length)];
+                int checkIn = today + 1 + random.nextInt(365);
+                Date checkInDate = EpochDays.toDate(checkIn);
+                Date checkOutDate = EpochDays.toDate(checkIn + 1 + random.nextInt(MAX_NIGHTS));
+                start = System.nanoTime();
+                ok = target.makeBooking(roomType, guestID, checkInDate, checkOutDate);
+                break;
+            }
+            case CANCEL_BOOKING: {
+                int next = nextCancel.getAndIncrement();
+                if (next >= futureBookings.length) {return skip(op, counted);}
+                start = System.nanoTime();
+                ok = target.cancelBooking(futureBookings[next]);
+                break;
+            }
+            case CHECK_OUT: {
+                int next = nextCheckOut.getAndIncrement();
+                if (next >= currentStays.length) {return skip(op, counted);}
+                start = System.nanoTime();
+                ok = target.checkOut(currentStays[next]);
+                break;
+            }
+            case SEARCH_GUEST: {
+                int guest = random.nextInt(firstNames.length);
+                start = System.nanoTime();
+                ok = !target.searchGuest(firstNames[guest], lastNames[guest]).isEmpty();
+                break;
+            }
+            default: {
+                String roomType = roomTypes[random.nextInt(roomTypes.length)];
+                int checkIn = today + 1 + random.nextInt(365);
+                Date checkInDate = EpochDays.toDate(checkIn);
+                Date checkOutDate = EpochDays.toDate(checkIn + 1 + random.nextInt(MAX_NIGHTS));
+                start = System.nanoTime();
+                ok = target.findAvailableRooms(roomType, checkInDate, checkOutDate) != null;
+                break;
+            }
+        }
+        long end = System.nanoTime();
+        if (counted) {
+            latency[op].record(end - start);
+            if (!ok) {failed[op].increment();}
+        }
+        return end;
+    }
+
+    private long skip(int op, boolean counted) {
+        if (counted) {skipped[op].increment();}
+        return System.nanoTime();
+    }
+
+    /**
+     * Draws what the calls are made with from the tables: guests and their names, the room types, the bookings that
+     * have not started yet and the stays going on today, the last two shuffled so they are taken in no set order
+     */
+
+    private void prepare() {
+        today = EpochDays.of(new Date());
+        HotelImpl.tableLock.readLock().lock();
+        try{
+            int guestCount = HotelImpl.guestList.size() + HotelImpl.vipGuestList.size();
+            guestIDs = new long[guestCount];
+            firstNames = new String[guestCount];
+            lastNames = new String[guestCount];
+            int g = 0;
+            ArrayList<Guest> everyone = new ArrayList<Guest>(HotelImpl.guestList);
+            everyone.addAll(HotelImpl.vipGuestList);
+            for (Guest guest : everyone) {
+                guestIDs[g] = guest.getGuestID();
+                firstNames[g] = guest.getfName();
+                lastNames[g++] = guest.getlName();
+            }
+            HashSet<String> types = new HashSet<String>();
+            for (Room room : HotelImpl.roomList) {types.add(room.getRoomType().toLowerCase(Locale.ROOT));}
+            roomTypes = types.toArray(new String[0]);
+            ArrayList<Long> future = new ArrayList<Long>();
+            ArrayList<Long> current = new ArrayList<Long>();
+            for (Booking booking : HotelImpl.bookingList) {
+                int checkIn = booking.getCheckInDay();
+                int checkOut = booking.getCheckOutDay();
+                if (checkIn > today) {future.add(booking.getBookingID());}
+                else if (checkOut >= today) {current.add(booking.getBookingID());}
+            }
+            futureBookings = shuffled(future);
+            currentStays = shuffled(current);
+        }finally{
+            HotelImpl.tableLock.readLock().unlock();
+        }
+        nextCancel.set(0);
+        nextCheckOut.set(0);
+    }
+
+    private long[] shuffled(ArrayList<Long> ids) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] array = new long[ids.size()];
+        for (int i = 0; i < array.length; i++) {array[i] = ids.get(i);}
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+        return array;
+    }
+
+    /**
+     * The results of the last run, one line per kind of call, latencies in microseconds
+     *
+     * @return   the report
+     */
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-20s %10s %8s %8s %10s %9s %9s %9s %9s%n", "operation", "calls", "failed", "skipped",
+                "ops/s", "p50 us", "p99 us", "p999 us", "max us"));
+        for (Operation operation : Operation.values()) {
+            int op = operation.ordinal();
+            LatencyHistogram histogram = latency[op];
+            report.append(String.format("%-20s %10d %8d %8d %10.0f %9.1f %9.1f %9.1f %9.1f%n", operation.methodName,
+                    histogram.count(), failed[op].sum(), skipped[op].sum(), histogram.count() / Math.max(measuredSeconds, 1e-9),
+                    histogram.percentile(0.50) / 1000.0, histogram.percentile(0.99) / 1000.0,
+                    histogram.percentile(0.999) / 1000.0, histogram.max() / 1000.0));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Loads a hotel from a directory of data files and replays a workload against it, for example
+     * java hotel.ReplayDriver data/big threads=8 seconds=60 warmup=10
+     * mix=makeBooking=30,cancelBooking=10,checkOut=10,searchGuest=35,findAvailableRooms=15,
+     * or through a local HotelServer with java hotel.ReplayDriver data/big clients=1000 seconds=60
+     *
+     * @param args   the directory holding rooms.txt, guests.txt, bookings.txt and payments.txt, then any of the
+     *               settings as name=value
+     */
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java hotel.ReplayDriver <directory> [threads=4 | clients=N] [seconds=30] [warmup=5] [seed=1]"
+                    + " [mix=makeBooking=30,cancelBooking=10,checkOut=10,searchGuest=35,findAvailableRooms=15]");
+            return;
+        }
+        HashMap<String, String> settings = DataGenerator.settings(args, 1); // The mix has more = signs, only the first one ends the name
+
+        // The constructor has to import something, so the hotel starts from empty files and then imports the data the fast way
+        File empty = File.createTempFile("empty", ".txt");
+        empty.deleteOnExit();
+        HotelImpl hotel = new HotelImpl(empty.getPath(), empty.getPath(), empty.getPath(), empty.getPath());
+        File dir = new File(args[0]);
+        if (!hotel.importAllDataFast(new File(dir, "rooms.txt").getPath(), new File(dir, "guests.txt").getPath(),
+                new File(dir, "bookings.txt").getPath(), new File(dir, "payments.txt").getPath())) {
+            return;
+        }
+
+        ReplayDriver driver = new ReplayDriver(hotel);
+        if (settings.containsKey("threads")) {driver.setThreads(Integer.parseInt(settings.get("threads")));}
+        if (settings.containsKey("clients")) {driver.setClients(Integer.parseInt(settings.get("clients")));}
+        if (settings.containsKey("seconds")) {driver.setSeconds(Integer.parseInt(settings.get("seconds")));}
+        if (settings.containsKey("warmup")) {driver.setWarmupSeconds(Integer.parseInt(settings.get("warmup")));}
+        if (settings.containsKey("seed")) {driver.setSeed(Long.parseLong(settings.get("seed")));}
+        if (settings.containsKey("mix")) {driver.setMix(settings.get("mix"));}
+        driver.run();
+    }
+}
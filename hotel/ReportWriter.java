@@ -0,0 +1,548 @@
+package hotel;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.function.IntPredicate;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Payment;
+import hotel.HotelImpl.Room;
+import hotel.HotelImpl.VIPGuest;
+
+/**
+ * Writes the rooms, guests, bookings and payments of the hotel as CSV or as fixed-width text, to any Appendable,
+ * Writer or OutputStream, one page at a time.
+ *
+ * The rows are formatted into one buffer that is used again and again, without a String per line or per field, and
+ * the buffer is handed to the output every few tens of kilobytes. The name of the guest and the type of the room of
+ * a booking are looked up in the guest and room indexes, not searched for, for a whole chunk of bookings before the
+ * chunk is formatted. A table is read a few hundred rows at a
+ * time under the read side of HotelImpl.tableLock, and the lock is let go before the rows are written out. Bookings
+ * can therefore still be made during a long export, and exporting a million bookings takes the same small amount
+ * of memory as exporting ten.
+ *
+ * Every write method takes a cursor and a limit, and gives back the cursor of the next page, or END once the table
+ * is done. A cursor is the number of the next row in the order the rows were added (see RecordStore.Record.seq), 0
+ * being the first, and the header line is written on the page that starts at 0. The cursor is turned back into a
+ * slot each time the lock is taken, so rows removed or moved by a compaction between two chunks or two pages never
+ * make a page skip or repeat a row. The VIP guests follow the regular guests from the cursor VIP_GUESTS on.
+ * The bookings of one night and the payments of one day are written whole, without a cursor.
+ */
+
+public final class ReportWriter implements Flushable {
+
+    /**
+     * How the rows are written
+     */
+
+    public enum Format {
+        /** Comma-separated values, fields with a comma, a quote or a line break are quoted */
+        CSV,
+        /** Columns padded to a fixed width and separated by a space, longer fields are cut */
+        FIXED_WIDTH
+    }
+
+    public static final long END = -1;
+    public static final long ALL = Long.MAX_VALUE;
+    public static final long VIP_GUESTS = 1L << 62; // writeGuests cursors from here on are in the VIP guests
+
+    private static final int CHUNK = 512; // Rows formatted per hold of the read lock
+    private static final int FLUSH_AT = 32 * 1024;
+
+    private static final String[] ROOM_COLUMNS = {"roomNumber", "roomType", "roomPrice", "capacity", "facilities"};
+    private static final int[] ROOM_WIDTHS = {10, 10, 10, 8, 40};
+    private static final String[] GUEST_COLUMNS = {"guestID", "firstName", "lastName", "dateJoined", "vip", "vipStartDate", "vipExpiryDate"};
+    private static final int[] GUEST_WIDTHS = {10, 16, 20, 10, 3, 12, 13};
+    private static final String[] BOOKING_COLUMNS = {"bookingID", "guestID", "firstName", "lastName", "roomNumber", "roomType",
+        "roomPrice", "bookingDate", "checkInDate", "checkOutDate", "totalAmount"};
+    private static final int[] BOOKING_WIDTHS = {10, 10, 16, 20, 10, 10, 10, 11, 11, 12, 12};
+    private static final String[] PAYMENT_COLUMNS = {"date", "guestID", "amount", "payReason"};
+    private static final int[] PAYMENT_WIDTHS = {10, 10, 12, 14};
+
+    private final Appendable out;
+    private final Writer writer; // The same as out if it is a Writer, to write the buffer without copying it to a String
+    private final Format format;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_AT + 4096);
+    private char[] chars = new char[0];
+    private final char[] date = new char[10];
+    private final Guest[] guests = new Guest[CHUNK]; // The guest and room of each booking of the chunk being written
+    private final Room[] rooms = new Room[CHUNK];
+    private int joinedFrom;
+    private boolean header = true;
+    private long rowsWritten;
+
+    // The row being written
+    private int[] widths;
+    private int column;
+    private int fieldStart;
+
+    /**
+     * Creates a writer to an Appendable, such as System.out, a StringBuilder or a Writer
+     *
+     * @param out      where the rows go
+     * @param format   CSV or fixed-width
+     */
+
+    public ReportWriter(Appendable out, Format format) {
+        this.out = out;
+        this.writer = out instanceof Writer ? (Writer) out : null;
+        this.format = format;
+    }
+
+    /**
+     * Creates a writer to a stream, in UTF-8
+     *
+     * @param out      where the rows go
+     * @param format   CSV or fixed-width
+     */
+
+    public ReportWriter(OutputStream out, Format format) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * Sets whether the page starting at cursor 0 begins with a line of column names, which it does by default
+     *
+     * @param header   true to write the column names
+     */
+
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /**
+     * The number of rows written so far, not counting header lines
+     *
+     * @return   the number of rows
+     */
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Writes a page of rooms
+     *
+     * @param cursor   0 for the first page, or what the previous page gave back
+     * @param limit    how many rooms to write at most, ALL for the rest of the table
+     * @return         the cursor of the next page, or END
+     * @throws IOException   if the output fails
+     */
+
+    public long writeRooms(long cursor, long limit) throws IOException {
+        RecordStore<Room> table = HotelImpl.roomList;
+        return page(cursor, limit, ROOM_COLUMNS, ROOM_WIDTHS, table, null, i -> {
+            Room room = table.slot(i);
+            if(room == null){return false;}
+            field(room.getRoomNumber());
+            field(room.getRoomType());
+            field(room.getRoomPrice());
+            field(room.getCapacity());
+            field(room.getFacilities());
+            return true;
+        });
+    }
+
+    /**
+     * Writes a page of guests, the regular guests first and then the VIP guests, whose cursors start at VIP_GUESTS
+     *
+     * @param cursor   0 for the first page, or what the previous page gave back
+     * @param limit    how many guests to write at most, ALL for the rest of the table
+     * @return         the cursor of the next page, or END
+     * @throws IOException   if the output fails
+     */
+
+    public long writeGuests(long cursor, long limit) throws IOException {
+        long before = rowsWritten;
+        if(cursor >= 0 && cursor < VIP_GUESTS){
+            RecordStore<Guest> table = HotelImpl.guestList;
+            long next = page(cursor, limit, GUEST_COLUMNS, GUEST_WIDTHS, table, null, i -> guestRow(table.slot(i)));
+            if(next != END){return next;}
+            cursor = VIP_GUESTS;
+        }
+        if(cursor < 0){throw new IllegalArgumentException("The cursor " + cursor + " is past the end of the table");}
+        RecordStore<VIPGuest> table = HotelImpl.vipGuestList;
+        long next = page(cursor - VIP_GUESTS, limit - (rowsWritten - before), null, GUEST_WIDTHS, table, null, i -> guestRow(table.slot(i)));
+        return next == END ? END : VIP_GUESTS + next;
+    }
+
+    private boolean guestRow(Guest guest) {
+        if(guest == null){return false;}
+        field(guest.getGuestID());
+        field(guest.getfName());
+        field(guest.getlName());
+        dayField(guest.getJoinDay());
+        if(guest instanceof VIPGuest){
+            VIPGuest vip = (VIPGuest) guest;
+            field("yes");
+            dayField(vip.getVIPStartDay());
+            dayField(vip.getVIPExpiryDay());
+        }else{
+            field("no");
+            field((String) null);
+            field((String) null);
+        }
+        return true;
+    }
+
+    /**
+     * Writes a page of bookings, each with the name of its guest and the type and price of its room
+     *
+     * @param cursor   0 for the first page, or what the previous page gave back
+     * @param limit    how many bookings to write at most, ALL for the rest of the table
+     * @return         the cursor of the next page, or END
+     * @throws IOException   if the output fails
+     */
+
+    public long writeBookings(long cursor, long limit) throws IOException {
+        RecordStore<Booking> table = HotelImpl.bookingList;
+        return page(cursor, limit, BOOKING_COLUMNS, BOOKING_WIDTHS, table, (from, to) -> join(table, from, to), i -> {
+            Booking booking = table.slot(i);
+            if(booking == null){return false;}
+            bookingRow(booking, i);
+            return true;
+        });
+    }
+
+    /**
+     * Writes a page of the bookings of one guest
+     *
+     * @param guestID   the guest
+     * @param cursor    0 for the first page, or what the previous page gave back
+     * @param limit     how many bookings to write at most, ALL for all of them
+     * @return          the cursor of the next page, or END
+     * @throws IOException   if the output fails
+     */
+
+    public long writeGuestBookings(long guestID, long cursor, long limit) throws IOException {
+        RecordStore<Booking> table = HotelImpl.bookingList;
+        return page(cursor, limit, BOOKING_COLUMNS, BOOKING_WIDTHS, table, null, i -> {
+            Booking booking = table.slot(i);
+            if(booking == null || booking.getGuestID() != guestID){return false;}
+            join(table, i, i + 1);
+            bookingRow(booking, i);
+            return true;
+        });
+    }
+
+    /**
+     * Writes the bookings of one guest that were moved to the archive, with the columns of writeGuestBookings and no
+     * header, so they can follow its rows
+     *
+     * @param guestID   the guest
+     * @return          how many bookings were written, 0 if no archive is open
+     * @throws IOException   if the output fails or the archive cannot be read
+     */
+
+    public long writeArchivedGuestBookings(long guestID) throws IOException {
+        BookingArchive archive = HotelImpl.archive;
+        if(archive == null){return 0;}
+        this.widths = BOOKING_WIDTHS;
+        long before = rowsWritten;
+        archive.guestBookings(guestID, (rows, row) -> {
+            joinedFrom = 0;
+            guests[0] = HotelImpl.guestsByID.get(guestID);
+            rooms[0] = HotelImpl.roomsByNumber.get(rows.roomNumbers[row]);
+            bookingRow(rows.toBooking(row), 0);
+            endRow();
+            rowsWritten++;
+        });
+        drain();
+        return rowsWritten - before;
+    }
+
+    /**
+     * Writes a page of payments
+     *
+     * @param cursor   0 for the first page, or what the previous page gave back
+     * @param limit    how many payments to write at most, ALL for the rest of the table
+     * @return         the cursor of the next page, or END
+     * @throws IOException   if the output fails
+     */
+
+    public long writePayments(long cursor, long limit) throws IOException {
+        RecordStore<Payment> table = HotelImpl.paymentList;
+        return page(cursor, limit, PAYMENT_COLUMNS, PAYMENT_WIDTHS, table, null, i -> {
+            Payment payment = table.slot(i);
+            if(payment == null){return false;}
+            dayField(payment.getDay());
+            field(payment.getGuestID());
+            field(payment.getAmount());
+            field(payment.getPayReason());
+            return true;
+        });
+    }
+
+    /**
+     * Writes the bookings staying on a night, ordered by room number, with the columns of writeBookings. The night
+     * is read from the occupancy index in one go, and formatted a chunk at a time.
+     *
+     * @param date   the night
+     * @return       how many bookings were written
+     * @throws IOException   if the output fails
+     */
+
+    public long writeBookingsOnDate(Date date) throws IOException {
+        Booking[] bookings;
+        HotelImpl.tableLock.readLock().lock();
+        try{
+            bookings = HotelImpl.bookingsOn(date);
+        }finally{
+            HotelImpl.tableLock.readLock().unlock();
+        }
+        this.widths = BOOKING_WIDTHS;
+        if(header){
+            for(String name : BOOKING_COLUMNS){field(name);}
+            endRow();
+        }
+        for(int from = 0; from < bookings.length; from += CHUNK){
+            int to = Math.min(bookings.length, from + CHUNK);
+            joinedFrom = from;
+            for(int i = from; i < to; i++){
+                guests[i - from] = HotelImpl.guestsByID.get(bookings[i].getGuestID());
+                rooms[i - from] = HotelImpl.roomsByNumber.get(bookings[i].getRoomNumber());
+            }
+            for(int i = from; i < to; i++){
+                bookingRow(bookings[i], i);
+                endRow();
+            }
+            if(buffer.length() >= FLUSH_AT){drain();}
+        }
+        rowsWritten += bookings.length;
+        drain();
+        return bookings.length;
+    }
+
+    /**
+     * Writes the payments of one calendar day, with the columns of writePayments, read from the payment ledger a
+     * chunk at a time. A day's payments stay together in the ledger and a new one goes after them, so the rows
+     * already written never move.
+     *
+     * @param date   the day
+     * @return       how many payments were written
+     * @throws IOException   if the output fails
+     */
+
+    public long writePaymentsOnDate(Date date) throws IOException {
+        PaymentLedger ledger = HotelImpl.paymentLedger;
+        int day = EpochDays.of(date);
+        this.widths = PAYMENT_WIDTHS;
+        if(header){
+            for(String name : PAYMENT_COLUMNS){field(name);}
+            endRow();
+        }
+        long written = 0;
+        boolean atEnd = false;
+        while(!atEnd){
+            HotelImpl.tableLock.readLock().lock();
+            try{
+                int row = ledger.firstRow(day) + (int) written;
+                int end = Math.min(ledger.endRow(day), row + CHUNK);
+                for(; row < end; row++){
+                    dayField(day);
+                    field(ledger.guestID(row));
+                    field(ledger.cents(row) / 100.0);
+                    field(ledger.reason(row));
+                    endRow();
+                    written++;
+                }
+                atEnd = row >= ledger.endRow(day);
+            }finally{
+                HotelImpl.tableLock.readLock().unlock();
+            }
+            if(buffer.length() >= FLUSH_AT){drain();}
+        }
+        rowsWritten += written;
+        drain();
+        return written;
+    }
+
+    /**
+     * Writes out whatever is still in the buffer and flushes the output, if it can be flushed
+     *
+     * @throws IOException   if the output fails
+     */
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if(out instanceof Flushable){((Flushable) out).flush();}
+    }
+
+    /**
+     * Looks up the guest and the room of every booking of a chunk before any of them is formatted. The lookups do not
+     * depend on each other, so the processor can wait for several of them from memory at once.
+     */
+
+    private void join(RecordStore<Booking> table, int from, int to) {
+        joinedFrom = from;
+        for(int i = from; i < to; i++){
+            Booking booking = table.slot(i);
+            if(booking == null){continue;} // A tombstone, skipped by the row as well
+            guests[i - from] = HotelImpl.guestsByID.get(booking.getGuestID());
+            rooms[i - from] = HotelImpl.roomsByNumber.get(booking.getRoomNumber());
+        }
+    }
+
+    private void bookingRow(Booking booking, int position) {
+        Guest guest = guests[position - joinedFrom];
+        Room room = rooms[position - joinedFrom];
+        field(booking.getBookingID());
+        field(booking.getGuestID());
+        field(guest == null ? null : guest.getfName());
+        field(guest == null ? null : guest.getlName());
+        field(booking.getRoomNumber());
+        field(room == null ? null : room.getRoomType());
+        if(room == null){field((String) null);}else{field(room.getRoomPrice());}
+        dayField(booking.getBookingDay());
+        dayField(booking.getCheckInDay());
+        dayField(booking.getCheckOutDay());
+        field(booking.getTotalAmount());
+    }
+
+    /**
+     * Writes rows from a cursor until the limit or the end of the table, a chunk at a time
+     *
+     * @param names  the column names for the header line, or null for none
+     * @param table  the table, null before it is imported
+     * @param chunk  reads a chunk of rows before they are formatted, or null
+     * @param row    formats the row in a slot, and says whether it was written at all
+     */
+
+    private long page(long cursor, long limit, String[] names, int[] widths, RecordStore<?> table, Chunk chunk, IntPredicate row) throws IOException {
+        if(cursor < 0){throw new IllegalArgumentException("The cursor " + cursor + " is past the end of the table");}
+        this.widths = widths;
+        if(cursor == 0 && header && names != null){
+            for(String name : names){field(name);}
+            endRow();
+        }
+        long written = 0;
+        long next = cursor;
+        boolean atEnd = table == null;
+        while(!atEnd && written < limit){
+            HotelImpl.tableLock.readLock().lock();
+            try{
+                int slots = table.slots();
+                int position = table.firstSlotFrom(next); // Found again under the lock, as a compaction may have moved the rows
+                int end = Math.min(slots, position + CHUNK);
+                if(chunk != null){chunk.read(position, end);}
+                for(; position < end && written < limit; position++){
+                    RecordStore.Record record = table.slot(position);
+                    if(record == null){continue;}
+                    if(row.test(position)){
+                        endRow();
+                        written++;
+                    }
+                    next = record.seq + 1;
+                }
+                atEnd = position >= slots;
+            }finally{
+                HotelImpl.tableLock.readLock().unlock();
+            }
+            if(buffer.length() >= FLUSH_AT){drain();} // Written out with the lock let go
+        }
+        rowsWritten += written;
+        drain();
+        return atEnd ? END : next;
+    }
+
+    /**
+     * Work done on a whole chunk of rows before they are formatted one by one
+     */
+
+    private interface Chunk {
+        void read(int from, int to);
+    }
+
+    private void field(CharSequence text) {
+        startField();
+        if(text != null){
+            if(format == Format.CSV && needsQuotes(text)){
+                buffer.append('"');
+                for(int i = 0; i < text.length(); i++){
+                    char c = text.charAt(i);
+                    if(c == '"'){buffer.append('"');}
+                    buffer.append(c);
+                }
+                buffer.append('"');
+            }else{
+                buffer.append(text);
+            }
+        }
+        endField();
+    }
+
+    private void field(long value) {
+        startField();
+        buffer.append(value);
+        endField();
+    }
+
+    private void field(double value) {
+        startField();
+        buffer.append(value);
+        endField();
+    }
+
+    private void dayField(int epochDay) {
+        startField();
+        EpochDays.write(this.date, 0, epochDay);
+        buffer.append(this.date, 0, 10);
+        endField();
+    }
+
+    private void startField() {
+        if(column > 0){buffer.append(format == Format.CSV ? ',' : ' ');}
+        fieldStart = buffer.length();
+    }
+
+    private void endField() {
+        if(format == Format.FIXED_WIDTH && column < widths.length){
+            int width = widths[column];
+            int length = buffer.length() - fieldStart;
+            if(length > width){
+                buffer.setLength(fieldStart + width);
+            }else{
+                for(int i = length; i < width; i++){buffer.append(' ');}
+            }
+        }
+        column++;
+    }
+
+    private void endRow() {
+        if(format == Format.FIXED_WIDTH){ // The last column is not padded
+            int end = buffer.length();
+            while(end > 0 && buffer.charAt(end - 1) == ' '){end--;}
+            buffer.setLength(end);
+        }
+        buffer.append('\n');
+        column = 0;
+    }
+
+    private static boolean needsQuotes(CharSequence text) {
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == ',' || c == '"' || c == '\n' || c == '\r'){return true;}
+        }
+        return false;
+    }
+
+    private void drain() throws IOException {
+        int length = buffer.length();
+        if(length == 0){return;}
+        if(writer != null){
+            if(chars.length < length){chars = new char[Math.max(length, FLUSH_AT + 4096)];}
+            buffer.getChars(0, length, chars, 0);
+            writer.write(chars, 0, length);
+        }else{
+            out.append(buffer);
+        }
+        buffer.setLength(0);
+    }
+}
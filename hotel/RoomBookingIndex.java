@@ -0,0 +1,149 @@
+package hotel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import hotel.HotelImpl.Booking;
+
+/**
+ * A per-room index of bookings. For every room we keep a sorted map from the check-in epoch-day to
+ * the booking, so finding out if a room is free only looks at the bookings of that one room and
+ * costs O(log k) for the k bookings it has, instead of walking the whole booking list.
+ *
+ * A stay covers the nights [check-in, check-out), so a guest checking out on the same day another
+ * guest checks in is not a clash. The bookings of one room never overlap: a booking is only made
+ * once isFree said yes, and an import leaves out the rows that clash, as load() tells it.
+ *
+ * Reads never take a lock. Changes to one room must be made while holding that room's lock from
+ * HotelImpl.roomLocks, so a check followed by an add is atomic for the room.
+ *
+ * Every change is passed on to the availability cache once it is made, so the search results it
+ * could make wrong are dropped, and to the availability grid, which counts the booked nights.
+ * Both are told while the room's lock is still held.
+ */
+
+final class RoomBookingIndex {
+
+    private final ConcurrentHashMap<Long, ConcurrentSkipListMap<Integer, Booking>> bookingsByRoom = new ConcurrentHashMap<Long, ConcurrentSkipListMap<Integer, Booking>>();
+    private final AvailabilityCache cache;
+    private final AvailabilityGrid grid;
+
+    /**
+     * Creates an empty index
+     *
+     * @param cache   the availability cache to tell about every change
+     * @param grid    the availability grid to tell about every change
+     */
+
+    RoomBookingIndex(AvailabilityCache cache, AvailabilityGrid grid) {
+        this.cache = cache;
+        this.grid = grid;
+    }
+
+    /**
+     * Adds a booking to the index of its room
+     *
+     * @param booking   the booking to add
+     */
+
+    void add(Booking booking) {
+        if (load(booking) == null) {
+            cache.invalidate(booking.getRoomNumber(), booking.getCheckInDay(), booking.getCheckOutDay());
+            grid.book(booking);
+        }
+    }
+
+    /**
+     * Adds a booking without telling the availability cache or grid, for an import that adds every booking after
+     * clear(), then calls loaded() and rebuilds the grid. A booking that overlaps one already loaded for its room, or has no night at all, is
+     * not added, so the import can report it and leave it out.
+     *
+     * @param booking   the booking to add
+     * @return          null if the booking is now in the index, otherwise the booking it clashes with, or itself
+     *                  if its check-out is not after its check-in
+     */
+
+    Booking load(Booking booking) {
+        int checkIn = booking.getCheckInDay();
+        int checkOut = booking.getCheckOutDay();
+        if (checkOut <= checkIn) {return booking;}
+        ConcurrentSkipListMap<Integer, Booking> roomBookings = bookingsByRoom.get(booking.getRoomNumber());
+        if (roomBookings == null) {
+            roomBookings = new ConcurrentSkipListMap<Integer, Booking>();
+            bookingsByRoom.put(booking.getRoomNumber(), roomBookings);
+        }
+        Map.Entry<Integer, Booking> latest = roomBookings.lowerEntry(checkOut); // The only one that can clash, as in isFree
+        if (latest != null && latest.getValue().getCheckOutDay() > checkIn) {return latest.getValue();}
+        roomBookings.put(checkIn, booking);
+        return null;
+    }
+
+    /**
+     * Ends an import made with load(), dropping every search result worked out while it ran
+     */
+
+    void loaded() {
+        cache.clear();
+    }
+
+    /**
+     * Removes a booking from the index of its room
+     *
+     * @param booking   the booking to remove
+     */
+
+    void remove(Booking booking) {
+        ConcurrentSkipListMap<Integer, Booking> roomBookings = bookingsByRoom.get(booking.getRoomNumber());
+        if (roomBookings == null) {return;}
+        int checkIn = booking.getCheckInDay();
+        if (roomBookings.remove(checkIn, booking)) {
+            cache.invalidate(booking.getRoomNumber(), checkIn, booking.getCheckOutDay());
+            grid.release(booking);
+        }
+        if (roomBookings.isEmpty()) {bookingsByRoom.remove(booking.getRoomNumber());}
+    }
+
+    /**
+     * The bookings of one room, by check-in day. The caller holds the room's lock, so they do not change meanwhile.
+     *
+     * @param roomNumber   the room number
+     * @return             the bookings, empty if the room has none
+     */
+
+    Collection<Booking> bookingsOf(long roomNumber) {
+        ConcurrentSkipListMap<Integer, Booking> roomBookings = bookingsByRoom.get(roomNumber);
+        return roomBookings == null ? Collections.<Booking>emptyList() : roomBookings.values();
+    }
+
+    /**
+     * Checks if a room has no booking that overlaps the nights [checkInDay, checkOutDay).
+     *
+     * The bookings of one room never overlap each other, so the only booking that can clash is the one with
+     * the latest check-in before our check-out. This covers every case: a booking that starts inside our stay,
+     * one that ends inside it, one that contains it and one that is contained by it.
+     *
+     * @param roomNumber    the room number
+     * @param checkInDay    the check-in epoch-day
+     * @param checkOutDay   the check-out epoch-day
+     * @return              true if the room is free for the whole period
+     */
+
+    boolean isFree(long roomNumber, int checkInDay, int checkOutDay) {
+        ConcurrentSkipListMap<Integer, Booking> roomBookings = bookingsByRoom.get(roomNumber);
+        if (roomBookings == null) {return true;}
+        Map.Entry<Integer, Booking> latest = roomBookings.lowerEntry(checkOutDay);
+        return latest == null || latest.getValue().getCheckOutDay() <= checkInDay;
+    }
+
+    /**
+     * Empties the index, used before the booking data is imported again
+     */
+
+    void clear() {
+        bookingsByRoom.clear();
+        cache.clear();
+    }
+}
@@ -0,0 +1,312 @@
+package hotel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+
+import hotel.HotelImpl.Booking;
+import hotel.HotelImpl.Guest;
+import hotel.HotelImpl.Payment;
+import hotel.HotelImpl.Room;
+import hotel.HotelImpl.VIPGuest;
+
+/**
+ * A compact binary snapshot of the room, guest, VIP guest, booking and payment tables, for quick start-up and shut-down.
+ *
+ * The file holds a header, a dictionary of every distinct string (room types, facilities, names and payment reasons),
+ * and then one block of fixed-width records per table. Dates are stored as int epoch-days and strings as int indexes
+ * into the dictionary. The file is written through a direct buffer and a FileChannel, and read back by memory
+ * mapping it, so loading never parses text.
+ *
+ * The text files in data/ stay the import/export format, a snapshot is only a faster copy of the same data.
+ */
+
+final class Snapshot {
+
+    static final int MAGIC = 0x48544c53; // "HTLS"
+    static final int VERSION = 2; // The only format that was ever released, with the journal LSN in the header
+
+    static final int ROOM_BYTES = 8 + 4 + 8 + 4 + 4;
+    static final int GUEST_BYTES = 8 + 4 + 4 + 4;
+    static final int VIP_GUEST_BYTES = GUEST_BYTES + 4 + 4;
+    static final int BOOKING_BYTES = 8 + 8 + 8 + 4 + 4 + 4 + 8;
+    static final int PAYMENT_BYTES = 4 + 8 + 8 + 4;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long MAP_WINDOW_BYTES = 1L << 30; // Files are mapped a window at a time, since one mapping cannot pass 2GB
+
+    private Snapshot() {}
+
+    /**
+     * Writes the given tables to a snapshot file. The data goes to a temporary file first, which is forced to disk
+     * and then renamed over the old snapshot, so a crash while saving never leaves a half-written snapshot behind.
+     *
+     * @param fileName   the snapshot file
+     * @param rooms      the rooms to write
+     * @param guests     the regular guests to write
+     * @param vipGuests  the VIP guests to write
+     * @param bookings   the bookings to write
+     * @param payments   the payments to write
+     * @param lsn        the last journal entry the tables hold, or 0
+     * @return           the number of bytes written
+     * @throws IOException if the file cannot be written
+     */
+
+    static long save(String fileName, Collection<Room> rooms, Collection<Guest> guests, Collection<VIPGuest> vipGuests,
+                     Collection<Booking> bookings, Collection<Payment> payments, long lsn) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        int[] roomStrings = new int[rooms.size() * 2];
+        int i = 0;
+        for (Room room : rooms) {
+            roomStrings[i++] = dictionary.indexOf(room.getRoomType());
+            roomStrings[i++] = dictionary.indexOf(room.getFacilities());
+        }
+        int[] guestStrings = new int[guests.size() * 2];
+        i = 0;
+        for (Guest guest : guests) {
+            guestStrings[i++] = dictionary.indexOf(guest.getfName());
+            guestStrings[i++] = dictionary.indexOf(guest.getlName());
+        }
+        int[] vipStrings = new int[vipGuests.size() * 2];
+        i = 0;
+        for (VIPGuest guest : vipGuests) {
+            vipStrings[i++] = dictionary.indexOf(guest.getfName());
+            vipStrings[i++] = dictionary.indexOf(guest.getlName());
+        }
+        int[] paymentStrings = new int[payments.size()];
+        i = 0;
+        for (Payment payment : payments) {paymentStrings[i++] = dictionary.indexOf(payment.getPayReason());}
+
+        Path target = Paths.get(fileName);
+        Path temp = Paths.get(fileName + ".tmp");
+        long written;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.ensure(7 * 4);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putInt(dictionary.strings.size())
+                    .putInt(rooms.size()).putInt(guests.size()).putInt(vipGuests.size()).putInt(bookings.size());
+            out.ensure(4 + 8);
+            out.buffer.putInt(payments.size()).putLong(lsn);
+            for (String text : dictionary.strings) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                out.ensure(4);
+                out.buffer.putInt(bytes.length);
+                out.put(bytes);
+            }
+            i = 0;
+            for (Room room : rooms) {
+                out.ensure(ROOM_BYTES);
+                out.buffer.putLong(room.getRoomNumber()).putInt(roomStrings[2 * i]).putDouble(room.getRoomPrice())
+                        .putInt(room.getCapacity()).putInt(roomStrings[2 * i + 1]);
+                i++;
+            }
+            i = 0;
+            for (Guest guest : guests) {
+                out.ensure(GUEST_BYTES);
+                out.buffer.putLong(guest.getGuestID()).putInt(guestStrings[2 * i]).putInt(guestStrings[2 * i + 1])
+                        .putInt(guest.getJoinDay());
+                i++;
+            }
+            i = 0;
+            for (VIPGuest guest : vipGuests) {
+                out.ensure(VIP_GUEST_BYTES);
+                out.buffer.putLong(guest.getGuestID()).putInt(vipStrings[2 * i]).putInt(vipStrings[2 * i + 1])
+                        .putInt(guest.getJoinDay()).putInt(guest.getVIPStartDay())
+                        .putInt(guest.getVIPExpiryDay());
+                i++;
+            }
+            for (Booking booking : bookings) {
+                out.ensure(BOOKING_BYTES);
+                out.buffer.putLong(booking.getBookingID()).putLong(booking.getGuestID()).putLong(booking.getRoomNumber())
+                        .putInt(booking.getBookingDay()).putInt(booking.getCheckInDay())
+                        .putInt(booking.getCheckOutDay()).putDouble(booking.getTotalAmount());
+            }
+            i = 0;
+            for (Payment payment : payments) {
+                out.ensure(PAYMENT_BYTES);
+                out.buffer.putInt(payment.getDay()).putLong(payment.getGuestID()).putDouble(payment.getAmount())
+                        .putInt(paymentStrings[i++]);
+            }
+            out.flush();
+            channel.force(true);
+            written = channel.size();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    /**
+     * Reads a snapshot file back and installs its tables in the hotel, replacing what was there
+     *
+     * @param hotel      the hotel, needed to create Guest objects
+     * @param fileName   the snapshot file
+     * @return           the last journal entry the snapshot holds, 0 if it was saved without a journal
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+
+    static long load(HotelImpl hotel, String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            Input input = new Input(channel);
+            MappedByteBuffer in = input.need(7 * 4 + 4);
+            if (in.getInt() != MAGIC) {throw new IOException("Not a hotel snapshot: " + fileName);}
+            int version = in.getInt();
+            if (version != VERSION) {throw new IOException("Unsupported snapshot version " + version);}
+            String[] strings = new String[in.getInt()];
+            int roomCount = in.getInt();
+            int guestCount = in.getInt();
+            int vipCount = in.getInt();
+            int bookingCount = in.getInt();
+            int paymentCount = in.getInt();
+            long lsn = input.need(8).getLong();
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < strings.length; i++) {
+                int length = input.need(4).getInt();
+                if (scratch.length < length) {scratch = new byte[length];}
+                input.need(length).get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            ArrayList<Room> rooms = new ArrayList<Room>(roomCount);
+            for (int i = 0; i < roomCount; i++) {
+                in = input.need(ROOM_BYTES);
+                long roomNumber = in.getLong();
+                String roomType = strings[in.getInt()];
+                double price = in.getDouble();
+                int capacity = in.getInt();
+                rooms.add(new Room(roomNumber, roomType, price, capacity, strings[in.getInt()]));
+            }
+            ArrayList<Guest> guests = new ArrayList<Guest>(guestCount);
+            for (int i = 0; i < guestCount; i++) {
+                in = input.need(GUEST_BYTES);
+                long guestID = in.getLong();
+                String fName = strings[in.getInt()];
+                String lName = strings[in.getInt()];
+                guests.add(hotel.new Guest(guestID, fName, lName, in.getInt()));
+            }
+            ArrayList<VIPGuest> vipGuests = new ArrayList<VIPGuest>(vipCount);
+            for (int i = 0; i < vipCount; i++) {
+                in = input.need(VIP_GUEST_BYTES);
+                long guestID = in.getLong();
+                String fName = strings[in.getInt()];
+                String lName = strings[in.getInt()];
+                int dateJoin = in.getInt();
+                int vipStart = in.getInt();
+                vipGuests.add(hotel.new VIPGuest(guestID, fName, lName, dateJoin, vipStart, in.getInt()));
+            }
+            ArrayList<Booking> bookings = new ArrayList<Booking>(bookingCount);
+            for (int i = 0; i < bookingCount; i++) {
+                in = input.need(BOOKING_BYTES);
+                long bookingID = in.getLong();
+                long guestID = in.getLong();
+                long roomNumber = in.getLong();
+                int bookingDay = in.getInt();
+                int checkInDay = in.getInt();
+                int checkOutDay = in.getInt();
+                bookings.add(new Booking(bookingID, guestID, roomNumber, bookingDay, checkInDay, checkOutDay, in.getDouble()));
+            }
+            ArrayList<Payment> payments = new ArrayList<Payment>(paymentCount);
+            for (int i = 0; i < paymentCount; i++) {
+                in = input.need(PAYMENT_BYTES);
+                int day = in.getInt();
+                long guestID = in.getLong();
+                double amount = in.getDouble();
+                payments.add(new Payment(day, guestID, amount, strings[in.getInt()]));
+            }
+
+            HotelImpl.installRooms(rooms);
+            HotelImpl.installGuests(guests, vipGuests);
+            HotelImpl.installBookings(bookings);
+            HotelImpl.installPayments(payments);
+            return lsn;
+        }
+    }
+
+    /**
+     * Gives every distinct string one index, in the order the strings are first seen
+     */
+
+    private static final class Dictionary {
+        final ArrayList<String> strings = new ArrayList<String>();
+        private final HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+
+        int indexOf(String text) {
+            String key = text == null ? "" : text;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = strings.size();
+                strings.add(key);
+                indexes.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Maps the snapshot file one window at a time, moving the window on when a read would run past its end
+     */
+
+    private static final class Input {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW_BYTES));
+        }
+
+        MappedByteBuffer need(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                windowStart += window.position();
+                if (size - windowStart < bytes) {throw new IOException("Snapshot file is cut short");}
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, Math.max(MAP_WINDOW_BYTES, bytes)));
+            }
+            return window;
+        }
+    }
+
+    /**
+     * A direct buffer that is written out to the channel whenever it fills up
+     */
+
+    private static final class Output {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final FileChannel channel;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {flush();}
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {flush();}
+                int count = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {channel.write(buffer);}
+            buffer.clear();
+        }
+    }
+}
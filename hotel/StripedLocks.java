@@ -0,0 +1,50 @@
+package hotel;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared out between rooms by room number. Two rooms only ever wait for each other
+ * when they land on the same stripe, so bookings for different rooms can go ahead in parallel while the
+ * check-then-reserve of one room stays atomic.
+ */
+
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Creates the stripes, rounded up to a power of two
+     *
+     * @param minimumStripes   the smallest number of stripes wanted
+     */
+
+    StripedLocks(int minimumStripes) {
+        int stripes = 1;
+        while (stripes < minimumStripes) {stripes <<= 1;}
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {locks[i] = new ReentrantLock();}
+        mask = stripes - 1;
+    }
+
+    /**
+     * Works out which stripe a key belongs to. Locks taken for several keys at once must be taken in
+     * increasing stripe order, which is what keeps two such callers from deadlocking.
+     *
+     * @param key   a room number
+     * @return      the stripe number
+     */
+
+    int stripeOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 40) & mask;
+    }
+
+    ReentrantLock stripe(int stripe) {
+        return locks[stripe];
+    }
+
+    ReentrantLock forKey(long key) {
+        return locks[stripeOf(key)];
+    }
+}
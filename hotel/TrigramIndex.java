@@ -0,0 +1,294 @@
+package hotel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A trigram inverted index over the distinct words of guest names, for typo-tolerant search ("Hoopern" for "Hooper").
+ *
+ * Every word is cut into trigrams, three letters at a time, padded by a space at both ends so the start and end of
+ * the word count as well. Each trigram has a posting list of the words that contain it. A word within edit distance
+ * d of the query can only miss 3d of the query's trigrams, so (by the pigeonhole principle) it holds at least one of
+ * any 3d + 1 of them. The candidates are therefore read from the postings of the 3d + 1 rarest trigrams of the query
+ * only, and then ranked by their real edit distance to the query.
+ *
+ * The index holds each distinct word once, however many guests share it, so it stays small next to the guest table:
+ * a few hundred thousand guests only have tens of thousands of different first and last names. Words are never
+ * taken out, a word no guest uses any more simply matches no guest. The index is changed under the write side of
+ * HotelImpl.tableLock and searched under the read side.
+ */
+
+final class TrigramIndex {
+
+    private static final int MAX_CANDIDATES = 1000; // Checked by edit distance per query, the ones sharing most trigrams first
+
+    private String[] words = new String[64];
+    private int count;
+    private final HashMap<String, Integer> slotOfWord = new HashMap<String, Integer>();
+    private final HashMap<Long, Postings> postings = new HashMap<Long, Postings>();
+
+    // Per-thread scratch space for counting how many query trigrams each word holds
+    private final ThreadLocal<int[]> counts = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Empties the index
+     */
+
+    void clear() {
+        words = new String[64];
+        count = 0;
+        slotOfWord.clear();
+        postings.clear();
+    }
+
+    /**
+     * Adds a word, if it is not in the index yet
+     *
+     * @param word   the normalized word
+     * @return       the slot of the word
+     */
+
+    int add(String word) {
+        Integer known = slotOfWord.get(word);
+        if (known != null) {return known;}
+        if (count == words.length) {words = Arrays.copyOf(words, count * 2);}
+        int slot = count++;
+        words[slot] = word;
+        slotOfWord.put(word, slot);
+        long last = -1;
+        for (long gram : trigrams(word)) {
+            if (gram == last) {continue;} // A word is listed once per trigram, even if it holds it twice
+            Postings list = postings.get(gram);
+            if (list == null) {
+                list = new Postings();
+                postings.put(gram, list);
+            }
+            list.add(slot);
+            last = gram;
+        }
+        return slot;
+    }
+
+    /**
+     * The number of words, slots go from 0 to size() - 1
+     *
+     * @return   the number of words
+     */
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Finds the words nearest to a query word
+     *
+     * @param query         the normalized query word
+     * @param maxDistance   the largest edit distance to accept
+     * @param limit         how many words to give at most
+     * @return              the nearest words, by edit distance and then slot
+     */
+
+    Matches search(String query, int maxDistance, int limit) {
+        long[] grams = trigrams(query);
+
+        // The rarest trigrams of the query pick the candidates
+        Postings[] lists = new Postings[grams.length];
+        int n = 0;
+        long last = -1;
+        for (long gram : grams) {
+            if (gram == last) {continue;}
+            last = gram;
+            Postings list = postings.get(gram);
+            lists[n++] = list == null ? Postings.EMPTY : list;
+        }
+        Arrays.sort(lists, 0, n, (a, b) -> Integer.compare(a.size, b.size));
+        int probe = Math.min(n, 3 * maxDistance + 1);
+
+        int[] shared = counts.get();
+        if (shared.length < count) {
+            shared = new int[Math.max(count, shared.length * 2)];
+            counts.set(shared);
+        }
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (int i = 0; i < probe; i++) {
+            Postings list = lists[i];
+            for (int j = 0; j < list.size; j++) {
+                int slot = list.slots[j];
+                if (shared[slot]++ == 0) {
+                    if (touchedCount == touched.length) {touched = Arrays.copyOf(touched, touchedCount * 2);}
+                    touched[touchedCount++] = slot;
+                }
+            }
+        }
+
+        // If there are a great many candidates, only those sharing the most trigrams are checked
+        int threshold = 1;
+        if (touchedCount > MAX_CANDIDATES) {
+            int[] byShared = new int[probe + 1];
+            for (int i = 0; i < touchedCount; i++) {byShared[shared[touched[i]]]++;}
+            threshold = probe;
+            int kept = byShared[threshold];
+            while (threshold > 1 && kept + byShared[threshold - 1] <= MAX_CANDIDATES) {kept += byShared[--threshold];}
+        }
+
+        Matches matches = new Matches(Math.min(limit, touchedCount));
+        for (int i = 0; i < touchedCount; i++) {
+            int slot = touched[i];
+            if (shared[slot] >= threshold) {
+                int distance = levenshtein(query, words[slot], matches.worst(limit, maxDistance));
+                if (distance <= maxDistance) {matches.offer(slot, distance, limit);}
+            }
+            shared[slot] = 0; // Leaves the scratch array clean for the next query
+        }
+        matches.sort();
+        return matches;
+    }
+
+    /**
+     * The Levenshtein distance between a and b, or limit + 1 as soon as it is known to be more than limit
+     *
+     * @param a       the first word
+     * @param b       the second word
+     * @param limit   the largest distance of interest
+     * @return        the distance, or limit + 1
+     */
+
+    static int levenshtein(String a, String b, int limit) {
+        int m = a.length();
+        int n = b.length();
+        if (Math.abs(m - n) > limit) {return limit + 1;}
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {previous[j] = j;}
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > limit) {return limit + 1;}
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    /**
+     * The trigrams of a word padded with a space at both ends, sorted so repeats sit together
+     *
+     * @param word   the word
+     * @return       one trigram per letter, packed as three 16-bit characters
+     */
+
+    static long[] trigrams(String word) {
+        int n = word.length();
+        long[] grams = new long[n];
+        for (int i = 0; i < n; i++) {
+            long c0 = i == 0 ? ' ' : word.charAt(i - 1);
+            long c2 = i + 1 == n ? ' ' : word.charAt(i + 1);
+            grams[i] = (c0 << 32) | ((long) word.charAt(i) << 16) | c2;
+        }
+        Arrays.sort(grams);
+        return grams;
+    }
+
+    /**
+     * The words found for a query word, each with its edit distance
+     */
+
+    static final class Matches {
+        int[] slots;
+        int[] distances;
+        int size;
+
+        Matches(int capacity) {
+            slots = new int[Math.max(capacity, 1)];
+            distances = new int[slots.length];
+        }
+
+        /**
+         * The distance a new word has to beat to get in, once the list is full
+         */
+
+        int worst(int limit, int maxDistance) {
+            if (size < limit) {return maxDistance;}
+            int worst = 0;
+            for (int i = 0; i < size; i++) {worst = Math.max(worst, distances[i]);}
+            return worst;
+        }
+
+        void offer(int slot, int distance, int limit) {
+            if (size < limit) {
+                if (size == slots.length) {
+                    slots = Arrays.copyOf(slots, size * 2);
+                    distances = Arrays.copyOf(distances, size * 2);
+                }
+                slots[size] = slot;
+                distances[size++] = distance;
+                return;
+            }
+            int worst = 0;
+            for (int i = 1; i < size; i++) {
+                if (distances[i] > distances[worst]) {worst = i;}
+            }
+            if (distance < distances[worst]) {
+                slots[worst] = slot;
+                distances[worst] = distance;
+            }
+        }
+
+        /**
+         * Sorts the words by distance and then slot, with a plain insertion sort since there are only a few
+         */
+
+        void sort() {
+            for (int i = 1; i < size; i++) {
+                int slot = slots[i];
+                int distance = distances[i];
+                int j = i - 1;
+                while (j >= 0 && (distances[j] > distance || (distances[j] == distance && slots[j] > slot))) {
+                    slots[j + 1] = slots[j];
+                    distances[j + 1] = distances[j];
+                    j--;
+                }
+                slots[j + 1] = slot;
+                distances[j + 1] = distance;
+            }
+        }
+
+        /**
+         * The distance of a word, if it was found
+         *
+         * @param slot   the slot of a word
+         * @return       its distance, or -1 if it is not among the matches
+         */
+
+        int distanceOf(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {return distances[i];}
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The words holding one trigram, in the order they were added
+     */
+
+    private static final class Postings {
+        static final Postings EMPTY = new Postings();
+
+        int[] slots = new int[2];
+        int size;
+
+        void add(int slot) {
+            if (size == slots.length) {slots = Arrays.copyOf(slots, size * 2);}
+            slots[size++] = slot;
+        }
+    }
+}
@@ -3,10 +3,10 @@ import java.util.*;
 import java.text.*;
 
 public class test_hotel{
-	public static final String roomsTxtFileName = "/Users/lucasmartin/Desktop/HotelManagementSystem-master/data/rooms.txt";
-	public static final String guestsTxtFileName = "/Users/lucasmartin/Desktop/HotelManagementSystem-master/data/guests.txt";
-	public static final String bookingsTxtFileName = "//Users/lucasmartin/Desktop/HotelManagementSystem-master/data/bookings.txt";
-	public static final String paymentsTxtFileName = "/Users/lucasmartin/Desktop/HotelManagementSystem-master/data/payments.txt";
+	public static final String roomsTxtFileName = "data/rooms.txt";
+	public static final String guestsTxtFileName = "data/guests.txt";
+	public static final String bookingsTxtFileName = "data/bookings.txt";
+	public static final String paymentsTxtFileName = "data/payments.txt";
 	public static final SimpleDateFormat ft = new SimpleDateFormat("yyyy-MM-dd");
 
 